@@ -540,21 +540,28 @@ public class RegainToolkit {
     fieldNameArr = null;
 
     // Read the terms
-    if (!fieldsToReadSet.isEmpty()) {
+    // NOTE: The terms are sorted by field, so we seek directly to the first
+    //       term of each wanted field and stop at the first term of the next
+    //       field. The terms of the other fields are never read.
+    for (Map.Entry<String, ArrayList<String>> entry : fieldsToReadSet.entrySet()) {
+      String field = entry.getKey();
+      ArrayList<String> valueList = entry.getValue();
       try {
-        TermEnum termEnum = indexReader.terms();
-        while (termEnum.next()) {
-          Term term = termEnum.term();
-          String field = term.field();
-
-          ArrayList<String> valueList = fieldsToReadSet.get(field);
-          if (valueList != null) {
-            // This is a value of a wanted field
+        TermEnum termEnum = indexReader.terms(new Term(field, ""));
+        try {
+          do {
+            Term term = termEnum.term();
+            if (term == null || ! term.field().equals(field)) {
+              break;
+            }
             valueList.add(term.text());
-          }
+          } while (termEnum.next());
+        } finally {
+          termEnum.close();
         }
       } catch (IOException exc) {
-        throw new RegainException("Reading terms from index failed", exc);
+        throw new RegainException("Reading terms of field " + field
+            + " from index failed", exc);
       }
     }
 
@@ -566,8 +573,7 @@ public class RegainToolkit {
       String[] valueArr = new String[valueList.size()];
       valueList.toArray(valueArr);
 
-      // Sort the array
-      Arrays.sort(valueArr);
+      // NOTE: The array is already sorted, because the terms are sorted
 
       // Add the array to results
       resultMap.put(field, valueArr);
@@ -0,0 +1,293 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import net.sf.regain.RegainException;
+
+/**
+ * The history of the documents loaded by the crawler over several crawler
+ * runs: When a document was loaded the first and the last time, how often it
+ * was loaded and how often its content changed meanwhile.
+ * <p>
+ * The history is kept in a {@link UrlFingerprintSet} holding the values of
+ * every document, so an entry needs less than 40 bytes. Times are stored in
+ * minutes.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class CrawlHistory {
+
+  /** The version of the file format. */
+  private static final int FILE_VERSION = 1;
+
+  /** The initial number of documents. */
+  private static final int INITIAL_SIZE = 700;
+
+  /** The number of values per entry. */
+  private static final int VALUE_COUNT = 5;
+
+  /** The value index of the time of the first load. */
+  private static final int FIRST_LOAD = 0;
+
+  /** The value index of the time of the last load. */
+  private static final int LAST_LOAD = 1;
+
+  /** The value index of the number of loads. */
+  private static final int LOAD_COUNT = 2;
+
+  /** The value index of the number of detected changes. */
+  private static final int CHANGE_COUNT = 3;
+
+  /** The value index of the hash of the last loaded content. */
+  private static final int CONTENT_HASH = 4;
+
+  /** The fingerprints of the URLs together with their values. */
+  private UrlFingerprintSet mEntrySet;
+
+
+  /**
+   * Creates a new, empty instance of CrawlHistory.
+   */
+  public CrawlHistory() {
+    mEntrySet = new UrlFingerprintSet(INITIAL_SIZE, VALUE_COUNT);
+  }
+
+
+  /**
+   * Records that a document was loaded.
+   *
+   * @param url The URL of the document.
+   * @param contentHash A hash of the loaded content.
+   * @param time The time of the load (in milliseconds).
+   * @return Whether the content changed since the last load. Is false if the
+   *         document was loaded the first time.
+   * @throws RegainException If the history is full.
+   */
+  public synchronized boolean recordLoad(String url, int contentHash, long time)
+    throws RegainException
+  {
+    int minutes = toMinutes(time);
+    int slot = mEntrySet.addSlot(UrlFingerprintSet.fingerprint(url));
+    int loadCount = mEntrySet.getValue(slot, LOAD_COUNT);
+    if (loadCount == 0) {
+      mEntrySet.setValue(slot, FIRST_LOAD, minutes);
+      mEntrySet.setValue(slot, LAST_LOAD, minutes);
+      mEntrySet.setValue(slot, LOAD_COUNT, 1);
+      mEntrySet.setValue(slot, CHANGE_COUNT, 0);
+      mEntrySet.setValue(slot, CONTENT_HASH, contentHash);
+      return false;
+    }
+
+    boolean changed = (mEntrySet.getValue(slot, CONTENT_HASH) != contentHash);
+    mEntrySet.setValue(slot, LAST_LOAD, minutes);
+    mEntrySet.setValue(slot, LOAD_COUNT, loadCount + 1);
+    if (changed) {
+      mEntrySet.setValue(slot, CHANGE_COUNT, mEntrySet.getValue(slot, CHANGE_COUNT) + 1);
+      mEntrySet.setValue(slot, CONTENT_HASH, contentHash);
+    }
+    return changed;
+  }
+
+
+  /**
+   * Gets the time of the last load of a document.
+   *
+   * @param url The URL of the document.
+   * @return The time in milliseconds or -1 if the document was never loaded.
+   */
+  public synchronized long getLastLoadTime(String url) {
+    int slot = mEntrySet.getSlot(UrlFingerprintSet.fingerprint(url));
+    if (slot == -1) {
+      return -1;
+    }
+    return mEntrySet.getValue(slot, LAST_LOAD) * 60000L;
+  }
+
+
+  /**
+   * Estimates how often a document changes.
+   * <p>
+   * The estimate is the number of detected changes divided by the time the
+   * document was observed. If no change was detected yet, half a change is
+   * assumed, so a document is never taken for completely static.
+   *
+   * @param url The URL of the document.
+   * @return The estimated number of changes per millisecond or -1 if the
+   *         document was loaded less than twice.
+   */
+  public synchronized double getChangeRate(String url) {
+    int slot = mEntrySet.getSlot(UrlFingerprintSet.fingerprint(url));
+    if ((slot == -1) || (mEntrySet.getValue(slot, LOAD_COUNT) < 2)) {
+      return -1;
+    }
+
+    long observedTime = (mEntrySet.getValue(slot, LAST_LOAD)
+        - mEntrySet.getValue(slot, FIRST_LOAD)) * 60000L;
+    if (observedTime <= 0) {
+      return -1;
+    }
+    double changeCount = Math.max(mEntrySet.getValue(slot, CHANGE_COUNT), 0.5);
+    return changeCount / observedTime;
+  }
+
+
+  /**
+   * Gets the number of documents in the history.
+   *
+   * @return The number of documents.
+   */
+  public synchronized int size() {
+    return mEntrySet.size();
+  }
+
+
+  /**
+   * Reads the history from a file. The current entries are replaced.
+   *
+   * @param file The file to read.
+   * @throws RegainException If reading failed.
+   */
+  public synchronized void load(File file) throws RegainException {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      int version = in.readInt();
+      if (version != FILE_VERSION) {
+        throw new RegainException("Crawl history has unknown version " + version
+            + ": " + file.getAbsolutePath());
+      }
+      int count = in.readInt();
+      mEntrySet = new UrlFingerprintSet(count, VALUE_COUNT);
+      for (int i = 0; i < count; i++) {
+        int slot = mEntrySet.addSlot(in.readLong());
+        for (int v = 0; v < VALUE_COUNT; v++) {
+          mEntrySet.setValue(slot, v, in.readInt());
+        }
+      }
+    }
+    catch (IOException exc) {
+      mEntrySet = new UrlFingerprintSet(INITIAL_SIZE, VALUE_COUNT);
+      throw new RegainException("Reading crawl history failed: "
+          + file.getAbsolutePath(), exc);
+    }
+    finally {
+      if (in != null) {
+        try { in.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * Writes the history to a file. The file is replaced atomically.
+   *
+   * @param file The file to write.
+   * @param seenUrlSet The URLs seen in the last crawl. The documents that are
+   *        not in this set don't exist any more and are not written. Is
+   *        <code>null</code> if all documents should be written.
+   * @throws RegainException If writing failed.
+   */
+  public synchronized void save(File file, UrlFingerprintSet seenUrlSet)
+    throws RegainException
+  {
+    // Get the entries to write
+    int capacity = mEntrySet.getCapacity();
+    int count = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      if (shouldBeSaved(mEntrySet.getFingerprintAt(slot), seenUrlSet)) {
+        count++;
+      }
+    }
+
+    File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      out.writeInt(FILE_VERSION);
+      out.writeInt(count);
+      for (int slot = 0; slot < capacity; slot++) {
+        long fingerprint = mEntrySet.getFingerprintAt(slot);
+        if (shouldBeSaved(fingerprint, seenUrlSet)) {
+          out.writeLong(fingerprint);
+          for (int v = 0; v < VALUE_COUNT; v++) {
+            out.writeInt(mEntrySet.getValue(slot, v));
+          }
+        }
+      }
+      out.close();
+      out = null;
+    }
+    catch (IOException exc) {
+      throw new RegainException("Writing crawl history failed: "
+          + tmpFile.getAbsolutePath(), exc);
+    }
+    finally {
+      if (out != null) {
+        try { out.close(); } catch (IOException exc) {}
+      }
+    }
+
+    if (file.exists() && ! file.delete()) {
+      throw new RegainException("Deleting old crawl history failed: "
+          + file.getAbsolutePath());
+    }
+    if (! tmpFile.renameTo(file)) {
+      throw new RegainException("Renaming crawl history failed: "
+          + tmpFile.getAbsolutePath());
+    }
+  }
+
+
+  /**
+   * Checks whether an entry should be written to the history file.
+   *
+   * @param fingerprint The fingerprint of the entry's URL. Is 0 for an empty
+   *        slot.
+   * @param seenUrlSet The URLs seen in the last crawl. May be
+   *        <code>null</code>.
+   * @return Whether the entry should be written.
+   */
+  private static boolean shouldBeSaved(long fingerprint, UrlFingerprintSet seenUrlSet) {
+    return (fingerprint != 0)
+      && ((seenUrlSet == null) || seenUrlSet.containsFingerprint(fingerprint));
+  }
+
+
+  /**
+   * Converts a time to minutes.
+   *
+   * @param time The time in milliseconds.
+   * @return The time in minutes.
+   */
+  private static int toMinutes(long time) {
+    return (int) (time / 60000L);
+  }
+
+}
@@ -22,6 +22,7 @@ package net.sf.regain.crawler;
 
 import com.sun.mail.imap.IMAPFolder;
 import com.sun.mail.imap.IMAPSSLStore;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -51,6 +52,7 @@ import net.sf.regain.crawler.config.StartUrl;
 import net.sf.regain.crawler.config.UrlMatcher;
 import net.sf.regain.crawler.config.UrlPattern;
 import net.sf.regain.crawler.config.WhiteListEntry;
+import net.sf.regain.crawler.document.PreparatorStats;
 import net.sf.regain.crawler.document.RawDocument;
 import net.sf.regain.crawler.plugin.CrawlerPluginFactory;
 import net.sf.regain.crawler.plugin.CrawlerPluginManager;
@@ -83,8 +85,33 @@ public class Crawler implements ErrorLogger {
   /** The URL checker. */
   private UrlChecker mUrlChecker;
 
+  /**
+   * The printer writing the accepted URLs into the file
+   * <code>crawledURLs.txt</code>. Is <code>null</code> if the file could not
+   * be created.
+   */
+  private PrintStream mCrawledUrlPrinter;
+
+  /** The normalizer for the URLs of new jobs. */
+  private UrlNormalizer mUrlNormalizer;
+
   /** Die Liste der noch zu bearbeitenden Jobs. */
-  private LinkedList<CrawlerJob> mJobList;
+  private JobFrontier mJobFrontier;
+
+  /** The scheduler deciding when a host may be visited. */
+  private HostScheduler mHostScheduler;
+
+  /** The scheduler deciding how important a job is and when it is due. */
+  private RecrawlScheduler mRecrawlScheduler;
+
+  /**
+   * The file holding the history of the loaded documents. Is null if no
+   * index is built.
+   */
+  private File mCrawlHistoryFile;
+
+  /** The number of jobs that were skipped, because they were not due. */
+  private int mNotDueCount;
 
   /** The number of occured errors. */
   private int mErrorCount;
@@ -151,13 +178,14 @@ public class Crawler implements ErrorLogger {
 
     mConfiguration = config;
 
-    mJobList = new LinkedList<CrawlerJob>();
     mDeadlinkList = new LinkedList<Object[]>();
 
     mFatalErrorCount = 0;
 
     RawDocument.setHttpTimeoutSecs(config.getHttpTimeoutSecs());
 
+    mUrlNormalizer = new UrlNormalizer(config.getURLCleaners());
+
     mHtmlParserUrlPatternArr = config.getHtmlParserUrlPatterns();
     if(mHtmlParserUrlPatternArr.length > 0) {
       mLog.error("Entries in <htmlParserPatternList/> are no longer supported. Please remove " +
@@ -231,6 +259,43 @@ public class Crawler implements ErrorLogger {
   }
 
 
+  /**
+   * Gets a snapshot of the work of the preparators.
+   *
+   * @return The statistics of each preparator. Is empty if no index is being
+   *         built.
+   */
+  public PreparatorStats[] getPreparatorStats() {
+    IndexWriterManager mng = mIndexWriterManager;
+    return (mng == null) ? new PreparatorStats[0]
+      : mng.getDocumentFactory().getPreparatorStats();
+  }
+
+
+  /**
+   * Gets the number of jobs that wait for being processed.
+   *
+   * @return The number of waiting jobs.
+   */
+  public long getPendingJobCount() {
+    JobFrontier frontier = mJobFrontier;
+    return (frontier == null) ? 0 : frontier.size();
+  }
+
+
+  /**
+   * Gets the number of prepared documents that wait for being added to the
+   * index.
+   *
+   * @return The number of waiting documents or -1 if the documents are added
+   *         by the crawler thread.
+   */
+  public int getWriterQueueDepth() {
+    IndexWriterManager mng = mIndexWriterManager;
+    return (mng == null) ? -1 : mng.getWriterQueueDepth();
+  }
+
+
   /**
    * Gets the URL of the current job. Returns null, if the crawler has currently
    * no job.
@@ -305,14 +370,9 @@ public class Crawler implements ErrorLogger {
       shouldBeIndexed = false;
     }
 
-    // Change all blanks to %20, since blanks are not allowed in URLs
-    url = RegainToolkit.replace(url, " ", "%20");
-    // Change all &amp; to &
-    url = RegainToolkit.replace(url, "&amp;", "&");
-
-    // Replace parts of the URL with an empty string. The patterns are the
+    // Bring the URL into a canonical form and remove the parts matching to the
     // URLCleaners
-    url = CrawlerToolkit.cleanURL(url, mConfiguration.getURLCleaners());
+    url = mUrlNormalizer.normalize(url);
 
     boolean alreadyAccepted = mUrlChecker.wasAlreadyAccepted(url);
     boolean alreadyIgnored = mUrlChecker.wasAlreadyIgnored(url);
@@ -351,14 +411,26 @@ public class Crawler implements ErrorLogger {
         }
       }
 
+      // Check whether the robots.txt of the host allows crawling the page
+      if (accepted && ! mHostScheduler.isAllowed(url)) {
+        accepted = false;
+        if (mLog.isDebugEnabled()) {
+          mLog.debug("URL is disallowed by robots.txt: " + url);
+        }
+      }
+
       if (accepted) {
-        mUrlChecker.setAccepted(url);
+        setAccepted(url);
         if (mLog.isDebugEnabled()) {
           mLog.debug("Found new URL: " + url + " in page: " + sourceUrl);
         }
 
         CrawlerJob job = new CrawlerJob(url, sourceUrl, sourceLinkText,
                                       shouldBeParsed, shouldBeIndexed);
+        int depth = (mCurrentJob == null) ? 0 : mCurrentJob.getDepth() + 1;
+        job.setDepth(depth);
+        job.setPriority(mRecrawlScheduler.getPriority(url, depth,
+          System.currentTimeMillis()));
         pluginManager.eventAcceptURL(url, job);
 
         // NOTE: This is a little trick: We put documents that aren't parsed at
@@ -366,13 +438,18 @@ public class Crawler implements ErrorLogger {
         //       the end. This keeps the job list small as first all documents
         //       are processed, before new documents are added.
         if (shouldBeParsed) {
-          mJobList.addLast(job);
+          try {
+            mJobFrontier.addLast(job);
+          }
+          catch (RegainException exc) {
+            logError("Adding job failed: " + url, exc, true);
+          }
         } else {
-          mJobList.addFirst(job);
+          mJobFrontier.addFirst(job);
         }
       } else {
       	pluginManager.eventDeclineURL(url);
-        mUrlChecker.setIgnored(url);
+        setIgnored(url);
         if (mLog.isDebugEnabled()) {
           mLog.debug("Ignoring URL: " + url + " in page: " + sourceUrl);
         }
@@ -401,10 +478,14 @@ public class Crawler implements ErrorLogger {
 
     int entryCount = 0;
     double failedPercent = 0.0;
+    MetricsExporter metricsExporter = new MetricsExporter(mConfiguration);
     try {
 	    // Init the HTTP client
 	    CrawlerToolkit.initHttpClient(mConfiguration);
 
+	    // Publish the metrics while crawling
+	    metricsExporter.start();
+
 	    // Initialize the IndexWriterManager if building the index is wanted
 	    mIndexWriterManager = null;
 	    if (mConfiguration.getBuildIndex()) {
@@ -425,26 +506,80 @@ public class Crawler implements ErrorLogger {
 	    whiteList = useOnlyWhiteListEntries(whiteList, onlyEntriesArr, updateIndex);
 
 	    // Create the UrlChecker
-	    mUrlChecker = new UrlChecker(whiteList, mConfiguration.getBlackList());
-
+	    File urlSetDir = null;
+	    if (mConfiguration.getMemoryMappedUrlSet()) {
+	      urlSetDir = mConfiguration.getBuildIndex()
+	        ? new File(mConfiguration.getIndexDir())
+	        : new File(System.getProperty("java.io.tmpdir"));
+	    }
+	    try {
+	      mUrlChecker = new UrlChecker(whiteList, mConfiguration.getBlackList(),
+	        mConfiguration.getExpectedUrlCount(), urlSetDir);
+	    }
+	    catch (RegainException exc) {
+	      logError("Creating the URL set failed!", exc, true);
+	      return;
+	    }
+	    openCrawledURLsList();
+
+	    // Create the job list. Resume it if the index continues an interrupted
+	    // crawl
+	    boolean resume = (mIndexWriterManager != null)
+	      && mIndexWriterManager.getResumedFromBreakpoint();
+	    File frontierDir = mConfiguration.getBuildIndex()
+	      ? new File(mConfiguration.getIndexDir(), "frontier")
+	      : new File(System.getProperty("java.io.tmpdir"),
+	          "regain_frontier_" + System.currentTimeMillis());
+	    mHostScheduler = new HostScheduler(mConfiguration);
+	    mRecrawlScheduler = new RecrawlScheduler(loadCrawlHistory(),
+	      mConfiguration.getMinRecrawlInterval() * 3600000L,
+	      mConfiguration.getMaxRecrawlInterval() * 3600000L);
+	    try {
+	      mJobFrontier = new JobFrontier(frontierDir,
+	        mConfiguration.getMaxJobsInMemory(), mHostScheduler, resume);
+	      mJobFrontier.restoreSeenUrls(mUrlChecker);
+	    }
+	    catch (RegainException exc) {
+	      logError("Creating the job list failed!", exc, true);
+	      return;
+	    }
 
-	    // Add the start URLs
-	    mLog.info("Read start-URLs from config");
-	    addStartUrls();
+	    if (! mJobFrontier.isResumed()) {
+	      // Add the start URLs
+	      mLog.info("Read start-URLs from config");
+	      addStartUrls();
+	    }
 
 	    // Remember the last time when a breakpoint was created
 	    long lastBreakpointTime = System.currentTimeMillis();
 
 	    // Work on the job list
-	    while (! mJobList.isEmpty()) {
+	    while (! mJobFrontier.isEmpty()) {
 	      mCrawlerJobProfiler.startMeasuring();
 
-	      mCurrentJob = mJobList.removeFirst();
+	      try {
+	        mCurrentJob = mJobFrontier.nextJob();
+	      }
+	      catch (RegainException exc) {
+	        logError("Reading the job list failed!", exc, true);
+	        mCrawlerJobProfiler.abortMeasuring();
+	        break;
+	      }
 	      String url = mCurrentJob.getUrl();
 
 	      boolean shouldBeParsed = mCurrentJob.shouldBeParsed();
 	      boolean shouldBeIndexed = mCurrentJob.shouldBeIndexed();
 
+	      // Skip documents without links that are not expected to have changed
+	      if ((! shouldBeParsed) && isUpToDateInIndex(url)) {
+	        if (mLog.isDebugEnabled()) {
+	          mLog.debug("Skipping " + url + ", because it is not due for recrawl");
+	        }
+	        mNotDueCount++;
+	        mCrawlerJobProfiler.abortMeasuring();
+	        continue;
+	      }
+
 	      if (url.startsWith("file://")) {
 	        // file system: Check whether this is a directory
 	        try {
@@ -537,6 +672,7 @@ public class Crawler implements ErrorLogger {
 
 	      // Create a raw document
 	      RawDocument rawDocument;
+	      long loadStartTime = System.currentTimeMillis();
 	      try {
 	        rawDocument = new RawDocument(url, mCurrentJob.getSourceUrl(),
 	          mCurrentJob.getSourceLinkText(),
@@ -545,7 +681,7 @@ public class Crawler implements ErrorLogger {
 	      } catch (RedirectException exc) {
 	        String redirectUrl = exc.getRedirectUrl();
 	        mLog.info("Redirect '" + url +  "' -> '" + redirectUrl + "'");
-	        mUrlChecker.setIgnored(url);
+	        setIgnored(url);
 	        // the RedirectURL inherit the properties for shouldBeParsed, shouldBeIndexed from the
 	        // sourceURL. This is possibly not right according to definitions in the whitelist
 	        addJob(redirectUrl, mCurrentJob.getSourceUrl(), shouldBeParsed,
@@ -562,6 +698,21 @@ public class Crawler implements ErrorLogger {
 	        mCrawlerJobProfiler.abortMeasuring();
 	        continue;
 	      }
+	      finally {
+	        // Let the next document of this host be scheduled
+	        mJobFrontier.finishJob(mCurrentJob,
+	          System.currentTimeMillis() - loadStartTime);
+	      }
+
+	      // Remember the load for the recrawl scheduling
+	      if (mRecrawlScheduler.isEnabled() && mRecrawlScheduler.isScheduled(url)) {
+	        try {
+	          mRecrawlScheduler.recordLoad(url, rawDocument.getContent(), loadStartTime);
+	        }
+	        catch (RegainException exc) {
+	          logError("Recording load failed for: " + url, exc, false);
+	        }
+	      }
 
 	      if( shouldBeIndexed || shouldBeParsed ){
 	        if (mLog.isDebugEnabled()) {
@@ -610,6 +761,7 @@ public class Crawler implements ErrorLogger {
 	      if (mShouldPause || breakpointIntervalIsOver) {
 	        try {
 	          mIndexWriterManager.createBreakpoint();
+	          mJobFrontier.checkpoint(mUrlChecker);
 	        }
 	        catch (RegainException exc) {
 	          logError("Creating breakpoint failed", exc, false);
@@ -625,7 +777,7 @@ public class Crawler implements ErrorLogger {
 
 	        lastBreakpointTime = System.currentTimeMillis();
 	      }
-	    } // while (! mJobList.isEmpty())
+	    } // while (! mJobFrontier.isEmpty())
 
 	    // Remove documents from the index which no longer exists
 	    if (mConfiguration.getBuildIndex()) {
@@ -671,7 +823,8 @@ public class Crawler implements ErrorLogger {
 
 	    // Fehler und Deadlink-Liste schreiben
 	    writeDeadlinkAndErrorList();
-	    writeCrawledURLsList();
+	    saveCrawlHistory();
+	    closeCrawledURLsList();
 
 	    // finalize index
 	    if (mIndexWriterManager != null) {
@@ -691,6 +844,12 @@ public class Crawler implements ErrorLogger {
 	    }
     }
     finally {
+	    metricsExporter.stop();
+	    closeCrawledURLsList();
+	    if (mJobFrontier != null) {
+	      // Keep the job list if the crawl was interrupted, so it can be resumed
+	      mJobFrontier.close(mJobFrontier.isEmpty());
+	    }
 	    pluginManager.eventFinishCrawling(this);
 	    mLog.info("... Finished crawling\n");
     }
@@ -702,12 +861,92 @@ public class Crawler implements ErrorLogger {
 
     mLog.info("Statistics:" + lineSeparator
       + "  Ignored URLs:       " + mUrlChecker.getIgnoredCount() + lineSeparator
+      + "  Seen URLs:          " + mUrlChecker.getSeenUrlCount() + " ("
+        + mUrlChecker.getBytesPerSeenUrl() + " bytes per URL"
+        + (mConfiguration.getMemoryMappedUrlSet() ? ", memory mapped" : "")
+        + ")" + lineSeparator
+      + "  Not due URLs:       " + mNotDueCount + lineSeparator
       + "  Documents in index: " + entryCount + lineSeparator
       + "  Dead links:         " + mDeadlinkList.size() + lineSeparator
       + "  Errors:             " + mErrorCount + lineSeparator
       + "  Error ratio:        " + RegainToolkit.toPercentString(failedPercent));
+
+    // Release the URL sets
+    mUrlChecker.close();
   }
 
+  /**
+   * Loads the history of the documents loaded in the former crawls.
+   *
+   * @return The history. Is empty if there is none or if the recrawl
+   *         scheduling is disabled.
+   */
+  private CrawlHistory loadCrawlHistory() {
+    CrawlHistory history = new CrawlHistory();
+    mCrawlHistoryFile = null;
+    if (mConfiguration.getBuildIndex() && (mConfiguration.getMaxRecrawlInterval() > 0)) {
+      mCrawlHistoryFile = new File(mConfiguration.getIndexDir(), "crawlhistory");
+      if (mCrawlHistoryFile.exists()) {
+        try {
+          history.load(mCrawlHistoryFile);
+          mLog.info("Loaded crawl history of " + history.size() + " documents");
+        }
+        catch (RegainException exc) {
+          logError("Loading crawl history failed", exc, false);
+        }
+      }
+    }
+    return history;
+  }
+
+
+  /**
+   * Saves the history of the loaded documents for the next crawl.
+   * <p>
+   * If the crawl was complete, the documents that were not found any more are
+   * dropped from the history.
+   */
+  private void saveCrawlHistory() {
+    if (mCrawlHistoryFile != null) {
+      UrlFingerprintSet seenUrlSet = null;
+      if (mJobFrontier.isEmpty()
+        && (mUrlChecker.createPreserveUrlMatcherArr().length == 0))
+      {
+        seenUrlSet = mUrlChecker.getAcceptedUrlSet();
+      }
+      try {
+        mRecrawlScheduler.getHistory().save(mCrawlHistoryFile, seenUrlSet);
+      }
+      catch (RegainException exc) {
+        logError("Saving crawl history failed", exc, false);
+      }
+    }
+  }
+
+
+  /**
+   * Checks whether a document is not due for recrawl and has an entry in the
+   * index. Such a document doesn't have to be loaded.
+   *
+   * @param url The URL of the document.
+   * @return Whether the document doesn't have to be loaded.
+   */
+  private boolean isUpToDateInIndex(String url) {
+    if ((mIndexWriterManager == null)
+      || mRecrawlScheduler.isDue(url, System.currentTimeMillis()))
+    {
+      return false;
+    }
+    try {
+      return mIndexWriterManager.isAlreadyIndexed(url);
+    }
+    catch (RegainException exc) {
+      logError("Checking index entry failed for: " + url, exc, false);
+      return false;
+    }
+  }
+
+
   private File createTempDir() {
     // Get the directory where the files should be put in
     File listDir;
@@ -874,38 +1113,66 @@ public class Crawler implements ErrorLogger {
   }
 
   /**
-   * Writes the URLs of all crawl jobs into a file.
+   * Remembers an accepted URL.
+   *
+   * @param url The accepted URL.
    */
-  private void writeCrawledURLsList() {
-    if (mUrlChecker.getmAcceptedUrlSet() != null) {
+  private void setAccepted(String url) {
+    try {
+      mUrlChecker.setAccepted(url);
+    }
+    catch (RegainException exc) {
+      logError("Remembering accepted URL failed: " + url, exc, true);
+    }
 
-      File listDir = createTempDir();
-      FileOutputStream stream = null;
-      PrintStream printer = null;
+    if ((mCrawledUrlPrinter != null) && (! url.startsWith("file://"))) {
+      mCrawledUrlPrinter.println(url);
+    }
+  }
 
-      Set<String> crawledURLs = mUrlChecker.getmAcceptedUrlSet();
-      try {
-        stream = new FileOutputStream(new File(listDir, "crawledURLs.txt"));
-        printer = new PrintStream(stream);
 
-        for (String url : crawledURLs) {
-          printer.println(url);
-        }
-        printer.close();
-        stream.close();
-      } catch (IOException exc) {
-        logError("Writing crawled URLs failed", exc, false);
-      } finally {
-        if (printer != null) {
-          printer.close();
-        }
-        if (stream != null) {
-          try {
-            stream.close();
-          } catch (IOException exc) {
-          }
-        }
+  /**
+   * Remembers an ignored URL.
+   *
+   * @param url The ignored URL.
+   */
+  private void setIgnored(String url) {
+    try {
+      mUrlChecker.setIgnored(url);
+    }
+    catch (RegainException exc) {
+      logError("Remembering ignored URL failed: " + url, exc, true);
+    }
+  }
+
+
+  /**
+   * Opens the file where the URLs of all crawl jobs are written to.
+   * <p>
+   * NOTE: The URLs are written as soon as they are accepted, since the
+   * UrlChecker only keeps fingerprints of them.
+   */
+  private void openCrawledURLsList() {
+    File listDir = createTempDir();
+    try {
+      mCrawledUrlPrinter = new PrintStream(new BufferedOutputStream(
+          new FileOutputStream(new File(listDir, "crawledURLs.txt"))));
+    } catch (IOException exc) {
+      logError("Writing crawled URLs failed", exc, false);
+    }
+  }
+
+
+  /**
+   * Closes the file where the URLs of all crawl jobs are written to.
+   */
+  private void closeCrawledURLsList() {
+    if (mCrawledUrlPrinter != null) {
+      mCrawledUrlPrinter.close();
+      if (mCrawledUrlPrinter.checkError()) {
+        logError("Writing crawled URLs failed", null, false);
       }
+      mCrawledUrlPrinter = null;
     }
   }
 
@@ -1188,14 +1455,15 @@ public class Crawler implements ErrorLogger {
 
 
   /**
-   * Loggs an error.
+   * Loggs an error. Is also called by the indexing threads of the
+   * {@link IndexWriterQueue}.
    *
    * @param msg The error message.
    * @param thr The error. May be <code>null</code>.
    * @param fatal Specifies whether the error was fatal. An error is fatal if
    *        it caused that the index could not be created.
    */
-  public void logError(String msg, Throwable thr, boolean fatal) {
+  public synchronized void logError(String msg, Throwable thr, boolean fatal) {
     if (fatal) {
       msg = "Fatal: " + msg;
     }
@@ -49,6 +49,15 @@ public class CrawlerJob {
   private boolean mShouldBeParsed;
   /** Gibt an, ob das Dokument indiziert werden soll. */
   private boolean mShouldBeIndexed;
+  /** The number of links from a start URL to the document. */
+  private int mDepth;
+  /** The priority of the job. The higher the more important. */
+  private double mPriority;
+  /**
+   * The number of the job in the order it was added to the job list. Jobs
+   * with the same priority are processed in this order.
+   */
+  private long mEnqueueNumber;
 
 
 
@@ -136,4 +145,70 @@ public class CrawlerJob {
     return mShouldBeIndexed;
   }
 
+
+
+  /**
+   * Gets the link depth of the document.
+   *
+   * @return The number of links from a start URL to the document.
+   */
+  public int getDepth() {
+    return mDepth;
+  }
+
+
+
+  /**
+   * Sets the link depth of the document.
+   *
+   * @param depth The number of links from a start URL to the document.
+   */
+  public void setDepth(int depth) {
+    mDepth = depth;
+  }
+
+
+
+  /**
+   * Gets the priority of the job.
+   *
+   * @return The priority. The higher the more important.
+   */
+  public double getPriority() {
+    return mPriority;
+  }
+
+
+
+  /**
+   * Sets the priority of the job.
+   *
+   * @param priority The priority. The higher the more important.
+   */
+  public void setPriority(double priority) {
+    mPriority = priority;
+  }
+
+
+
+  /**
+   * Gets the number of the job in the order it was added to the job list.
+   *
+   * @return The enqueue number.
+   */
+  long getEnqueueNumber() {
+    return mEnqueueNumber;
+  }
+
+
+
+  /**
+   * Sets the number of the job in the order it was added to the job list.
+   *
+   * @param enqueueNumber The enqueue number.
+   */
+  void setEnqueueNumber(long enqueueNumber) {
+    mEnqueueNumber = enqueueNumber;
+  }
+
 }
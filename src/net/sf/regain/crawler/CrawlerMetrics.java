@@ -0,0 +1,187 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.List;
+import java.util.Locale;
+
+import net.sf.regain.RegainToolkit;
+
+/**
+ * The live metrics of the crawler. Every registered {@link Profiler} is a
+ * stage (e.g. loading with HTTP, mime-type detection, each preparator,
+ * document analysis and adding to the index).
+ * <p>
+ * The metrics are read from the profilers while the crawler is running, so
+ * they always show the current state.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class CrawlerMetrics implements CrawlerMetricsMBean {
+
+  /** The header line of a snapshot. */
+  public static final String SNAPSHOT_HEADER
+    = "stage\tcount\taborted\tp50_ms\tp95_ms\tp99_ms\tmax_ms\tmean_ms\tbytes";
+
+
+  /**
+   * Gets the names of the measured stages.
+   *
+   * @return The names of the stages.
+   */
+  public String[] getStageNames() {
+    List<Profiler> profilerList = Profiler.getRegisteredProfilers();
+    String[] nameArr = new String[profilerList.size()];
+    for (int i = 0; i < nameArr.length; i++) {
+      nameArr[i] = profilerList.get(i).getName();
+    }
+    return nameArr;
+  }
+
+
+  /**
+   * Gets a snapshot of all stages.
+   *
+   * @return The snapshot.
+   * @see #createSnapshot()
+   */
+  public String getSnapshot() {
+    return createSnapshot();
+  }
+
+
+  /**
+   * Gets the number of completed measures of a stage.
+   *
+   * @param stage The name of the stage.
+   * @return The number of completed measures or -1 if there is no such stage.
+   */
+  public long getCount(String stage) {
+    Profiler profiler = getProfiler(stage);
+    return (profiler == null) ? -1 : profiler.getMeasureCount();
+  }
+
+
+  /**
+   * Gets the number of aborted measures of a stage.
+   *
+   * @param stage The name of the stage.
+   * @return The number of aborted measures or -1 if there is no such stage.
+   */
+  public long getAbortedCount(String stage) {
+    Profiler profiler = getProfiler(stage);
+    return (profiler == null) ? -1 : profiler.getAbortedMeasureCount();
+  }
+
+
+  /**
+   * Gets a percentile of the durations of a stage.
+   *
+   * @param stage The name of the stage.
+   * @param percentile The percentile (between 0 and 100).
+   * @return The duration in milliseconds or -1 if there is no such stage.
+   */
+  public double getPercentileMillis(String stage, double percentile) {
+    Profiler profiler = getProfiler(stage);
+    if (profiler == null) {
+      return -1;
+    }
+    return toMillis(profiler.getHistogram().getPercentile(percentile));
+  }
+
+
+  /**
+   * Creates a snapshot of all used stages. The snapshot is a tab separated
+   * table starting with the line {@link #SNAPSHOT_HEADER}. Each following line
+   * describes one stage: Its name, the number of completed and aborted
+   * measures, the 50th, 95th and 99th percentile, the maximum and the average
+   * of the durations (in milliseconds) and the number of processed bytes.
+   *
+   * @return The snapshot.
+   */
+  public static String createSnapshot() {
+    String lineSeparator = RegainToolkit.getLineSeparator();
+    StringBuilder buffer = new StringBuilder(SNAPSHOT_HEADER);
+    buffer.append(lineSeparator);
+
+    List<Profiler> profilerList = Profiler.getRegisteredProfilers();
+    for (int i = 0; i < profilerList.size(); i++) {
+      Profiler profiler = profilerList.get(i);
+      if (! profiler.wasUsed()) {
+        continue;
+      }
+
+      LatencyHistogram histogram = profiler.getHistogram();
+      buffer.append(profiler.getName().replace('\t', ' '));
+      buffer.append('\t').append(profiler.getMeasureCount());
+      buffer.append('\t').append(profiler.getAbortedMeasureCount());
+      appendMillis(buffer, histogram.getPercentile(50));
+      appendMillis(buffer, histogram.getPercentile(95));
+      appendMillis(buffer, histogram.getPercentile(99));
+      appendMillis(buffer, histogram.getMax());
+      appendMillis(buffer, histogram.getMean());
+      buffer.append('\t').append(profiler.getTotalBytes());
+      buffer.append(lineSeparator);
+    }
+
+    return buffer.toString();
+  }
+
+
+  /**
+   * Gets the profiler of a stage.
+   *
+   * @param stage The name of the stage.
+   * @return The profiler or <code>null</code> if there is no such stage.
+   */
+  private Profiler getProfiler(String stage) {
+    List<Profiler> profilerList = Profiler.getRegisteredProfilers();
+    for (int i = 0; i < profilerList.size(); i++) {
+      if (profilerList.get(i).getName().equals(stage)) {
+        return profilerList.get(i);
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Appends a duration to a snapshot line.
+   *
+   * @param buffer The buffer to append the duration to.
+   * @param nanos The duration in nanoseconds.
+   */
+  private static void appendMillis(StringBuilder buffer, long nanos) {
+    buffer.append('\t').append(String.format(Locale.ENGLISH, "%.3f", toMillis(nanos)));
+  }
+
+
+  /**
+   * Converts nanoseconds to milliseconds.
+   *
+   * @param nanos The duration in nanoseconds.
+   * @return The duration in milliseconds.
+   */
+  private static double toMillis(long nanos) {
+    return nanos / 1000000.0;
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+/**
+ * The JMX management interface of the {@link CrawlerMetrics}.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public interface CrawlerMetricsMBean {
+
+  /**
+   * Gets the names of the measured stages.
+   *
+   * @return The names of the stages.
+   */
+  public String[] getStageNames();
+
+  /**
+   * Gets a snapshot of all stages as text. Each line describes one stage.
+   *
+   * @return The snapshot.
+   * @see CrawlerMetrics#createSnapshot()
+   */
+  public String getSnapshot();
+
+  /**
+   * Gets the number of completed measures of a stage.
+   *
+   * @param stage The name of the stage.
+   * @return The number of completed measures or -1 if there is no such stage.
+   */
+  public long getCount(String stage);
+
+  /**
+   * Gets the number of aborted measures of a stage.
+   *
+   * @param stage The name of the stage.
+   * @return The number of aborted measures or -1 if there is no such stage.
+   */
+  public long getAbortedCount(String stage);
+
+  /**
+   * Gets a percentile of the durations of a stage.
+   *
+   * @param stage The name of the stage.
+   * @param percentile The percentile (between 0 and 100).
+   * @return The duration in milliseconds or -1 if there is no such stage.
+   */
+  public double getPercentileMillis(String stage, double percentile);
+
+}
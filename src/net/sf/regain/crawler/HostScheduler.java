@@ -0,0 +1,450 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.config.CrawlerConfig;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Decides when the next document of a host may be loaded, so the crawler
+ * doesn't overload a server.
+ * <p>
+ * Between two requests to the same host the crawler waits a delay. The delay
+ * is the largest of:
+ * <ul>
+ *   <li>the configured minimum delay,</li>
+ *   <li>the <code>Crawl-delay</code> of the host's robots.txt,</li>
+ *   <li>the average response time of the host multiplied by the configured
+ *     factor. So a slow server gets more time to recover.</li>
+ * </ul>
+ * The delay is limited by the configured maximum delay. In addition the number
+ * of concurrent requests per host is limited.
+ * <p>
+ * Only http and https URLs are scheduled. All other URLs (e.g. file URLs)
+ * belong to the local "host" <code>""</code> which has no delay and no limit.
+ * <p>
+ * If wanted the robots.txt of every host is loaded once and URLs it
+ * disallows are not crawled.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class HostScheduler {
+
+  /** The logger for this class. */
+  private static Logger mLog = Logger.getLogger(HostScheduler.class);
+
+  /** The host key of the URLs that are not scheduled. */
+  public static final String LOCAL_HOST = "";
+
+  /** The weight of a new response time in the average response time. */
+  private static final double RESPONSE_TIME_WEIGHT = 0.3;
+
+  /** The maximum size of a robots.txt file. */
+  private static final int MAX_ROBOTS_TXT_SIZE = 512 * 1024;
+
+  /** The minimum delay between two requests to a host (in milliseconds). */
+  private long mMinDelay;
+
+  /** The maximum delay between two requests to a host (in milliseconds). */
+  private long mMaxDelay;
+
+  /** The factor of the average response time giving the delay. */
+  private double mResponseTimeFactor;
+
+  /** The maximum number of concurrent requests per host. */
+  private int mMaxConnectionsPerHost;
+
+  /** Whether the robots.txt files should be obeyed. */
+  private boolean mObeyRobotsTxt;
+
+  /** The user agent to look for in the robots.txt files. */
+  private String mUserAgent;
+
+  /** The timeout for loading a robots.txt file (in milliseconds). */
+  private int mTimeout;
+
+  /** The state of the hosts. Key: host key, value: HostState. */
+  private HashMap<String, HostState> mHostMap;
+
+
+  /**
+   * Creates a new instance of HostScheduler.
+   *
+   * @param config The configuration to read the politeness settings from.
+   */
+  public HostScheduler(CrawlerConfig config) {
+    this(config.getMinHostDelay(), config.getMaxHostDelay(),
+        config.getHostDelayFactor(), config.getMaxConnectionsPerHost(),
+        config.getObeyRobotsTxt(), config.getUserAgent(),
+        config.getHttpTimeoutSecs() * 1000);
+  }
+
+
+  /**
+   * Creates a new instance of HostScheduler.
+   *
+   * @param minDelay The minimum delay between two requests to a host (in
+   *        milliseconds).
+   * @param maxDelay The maximum delay between two requests to a host (in
+   *        milliseconds).
+   * @param responseTimeFactor The factor of the average response time giving
+   *        the delay.
+   * @param maxConnectionsPerHost The maximum number of concurrent requests per
+   *        host.
+   * @param obeyRobotsTxt Whether the robots.txt files should be obeyed.
+   * @param userAgent The user agent to look for in the robots.txt files.
+   * @param timeout The timeout for loading a robots.txt file (in
+   *        milliseconds).
+   */
+  public HostScheduler(long minDelay, long maxDelay, double responseTimeFactor,
+    int maxConnectionsPerHost, boolean obeyRobotsTxt, String userAgent,
+    int timeout)
+  {
+    mMinDelay = minDelay;
+    mMaxDelay = Math.max(maxDelay, minDelay);
+    mResponseTimeFactor = responseTimeFactor;
+    mMaxConnectionsPerHost = Math.max(maxConnectionsPerHost, 1);
+    mObeyRobotsTxt = obeyRobotsTxt;
+    mUserAgent = (userAgent == null) ? "regain" : userAgent;
+    mTimeout = timeout;
+    mHostMap = new HashMap<String, HostState>();
+  }
+
+
+  /**
+   * Gets the key of the host of a URL.
+   *
+   * @param url The URL.
+   * @return The scheme, host and port of a http or https URL (e.g.
+   *         <code>http://www.murfman.de:8080</code>) or {@link #LOCAL_HOST}
+   *         for all other URLs.
+   */
+  public static String getHostKey(String url) {
+    int authorityStart = getAuthorityStart(url);
+    if (authorityStart == -1) {
+      return LOCAL_HOST;
+    }
+
+    int authorityEnd = getAuthorityEnd(url, authorityStart);
+    int hostStart = url.lastIndexOf('@', authorityEnd - 1) + 1;
+    if (hostStart <= authorityStart) {
+      return url.substring(0, authorityEnd);
+    } else {
+      // Remove the user info
+      return url.substring(0, authorityStart) + url.substring(hostStart, authorityEnd);
+    }
+  }
+
+
+  /**
+   * Gets the path of a http or https URL the rules of a robots.txt are
+   * applied to. This is everything after the authority (including the query)
+   * without the anchor.
+   *
+   * @param url The URL.
+   * @return The path. Always starts with a <code>/</code>.
+   */
+  public static String getRobotsPath(String url) {
+    int authorityStart = getAuthorityStart(url);
+    String path = (authorityStart == -1) ? url
+        : url.substring(getAuthorityEnd(url, authorityStart));
+    int anchorStart = path.indexOf('#');
+    if (anchorStart != -1) {
+      path = path.substring(0, anchorStart);
+    }
+    if (! path.startsWith("/")) {
+      path = "/" + path;
+    }
+    return path;
+  }
+
+
+  /**
+   * Gets the start of the authority (user info, host and port) of a URL.
+   *
+   * @param url The URL.
+   * @return The index of the authority's first character or -1 if the URL is
+   *         no http or https URL.
+   */
+  private static int getAuthorityStart(String url) {
+    if (url.startsWith("http://")) {
+      return 7;
+    } else if (url.startsWith("https://")) {
+      return 8;
+    } else {
+      return -1;
+    }
+  }
+
+
+  /**
+   * Gets the end of the authority (user info, host and port) of a URL.
+   *
+   * @param url The URL.
+   * @param authorityStart The start of the authority.
+   * @return The index of the first character after the authority.
+   */
+  private static int getAuthorityEnd(String url, int authorityStart) {
+    int authorityEnd = authorityStart;
+    while ((authorityEnd < url.length()) && ("/?#".indexOf(url.charAt(authorityEnd)) == -1)) {
+      authorityEnd++;
+    }
+    return authorityEnd;
+  }
+
+
+  /**
+   * Gets the time when the next request to a host may start.
+   *
+   * @param host The host key.
+   * @return The time in milliseconds (see {@link System#currentTimeMillis()})
+   *         or {@link Long#MAX_VALUE} if the host has the maximum number of
+   *         concurrent requests.
+   */
+  public synchronized long getReadyTime(String host) {
+    if (host.equals(LOCAL_HOST)) {
+      return 0;
+    }
+    HostState state = mHostMap.get(host);
+    if (state == null) {
+      return 0;
+    } else if (state.mActiveCount >= mMaxConnectionsPerHost) {
+      return Long.MAX_VALUE;
+    } else {
+      return state.mNextRequestTime;
+    }
+  }
+
+
+  /**
+   * Tells that a request to a host starts.
+   *
+   * @param host The host key.
+   */
+  public synchronized void startRequest(String host) {
+    if (! host.equals(LOCAL_HOST)) {
+      HostState state = getHostState(host);
+      state.mActiveCount++;
+      state.mNextRequestTime = System.currentTimeMillis() + getDelay(state);
+    }
+  }
+
+
+  /**
+   * Tells that a request to a host is finished.
+   *
+   * @param host The host key.
+   * @param responseTime The time the request took (in milliseconds) or -1 if
+   *        no request was sent to the host.
+   */
+  public synchronized void finishRequest(String host, long responseTime) {
+    if (host.equals(LOCAL_HOST)) {
+      return;
+    }
+
+    HostState state = getHostState(host);
+    state.mActiveCount = Math.max(state.mActiveCount - 1, 0);
+    if (responseTime >= 0) {
+      if (state.mRequestCount == 0) {
+        state.mAverageResponseTime = responseTime;
+      } else {
+        state.mAverageResponseTime = (1 - RESPONSE_TIME_WEIGHT) * state.mAverageResponseTime
+            + RESPONSE_TIME_WEIGHT * responseTime;
+      }
+      state.mRequestCount++;
+
+      // The delay starts when the response is complete
+      state.mNextRequestTime = System.currentTimeMillis() + getDelay(state);
+    }
+  }
+
+
+  /**
+   * Checks whether the robots.txt of a URL's host allows crawling the URL.
+   * The robots.txt is loaded the first time a host is checked.
+   *
+   * @param url The URL to check.
+   * @return Whether the URL may be crawled.
+   */
+  public boolean isAllowed(String url) {
+    if (! mObeyRobotsTxt) {
+      return true;
+    }
+    String host = getHostKey(url);
+    if (host.equals(LOCAL_HOST)) {
+      return true;
+    }
+
+    RobotsTxt robotsTxt;
+    synchronized (this) {
+      robotsTxt = getHostState(host).mRobotsTxt;
+    }
+    if (robotsTxt == null) {
+      robotsTxt = loadRobotsTxt(host);
+      synchronized (this) {
+        getHostState(host).mRobotsTxt = robotsTxt;
+      }
+    }
+
+    return robotsTxt.isAllowed(getRobotsPath(url));
+  }
+
+
+  /**
+   * Gets the number of hosts known to the scheduler.
+   *
+   * @return The number of hosts.
+   */
+  public synchronized int getHostCount() {
+    return mHostMap.size();
+  }
+
+
+  /**
+   * Gets the delay between two requests to a host.
+   *
+   * @param state The state of the host.
+   * @return The delay in milliseconds.
+   */
+  private long getDelay(HostState state) {
+    long crawlDelay = (state.mRobotsTxt == null) ? 0 : state.mRobotsTxt.getCrawlDelay();
+    return getDelay(crawlDelay, state.mAverageResponseTime);
+  }
+
+
+  /**
+   * Gets the delay between two requests to a host.
+   *
+   * @param crawlDelay The crawl delay of the host's robots.txt (in
+   *        milliseconds). Is 0 if there is none.
+   * @param averageResponseTime The average response time of the host (in
+   *        milliseconds).
+   * @return The delay in milliseconds.
+   */
+  public long getDelay(long crawlDelay, double averageResponseTime) {
+    long delay = Math.max(mMinDelay, crawlDelay);
+    delay = Math.max(delay, (long) (averageResponseTime * mResponseTimeFactor));
+    return Math.min(delay, mMaxDelay);
+  }
+
+
+  /**
+   * Gets the state of a host. The state is created if necessary.
+   *
+   * @param host The host key.
+   * @return The state of the host.
+   */
+  private HostState getHostState(String host) {
+    HostState state = mHostMap.get(host);
+    if (state == null) {
+      state = new HostState();
+      mHostMap.put(host, state);
+    }
+    return state;
+  }
+
+
+  /**
+   * Loads the robots.txt of a host. If there is no robots.txt or it can't be
+   * loaded, everything is allowed.
+   *
+   * @param host The host key.
+   * @return The rules of the robots.txt.
+   */
+  private RobotsTxt loadRobotsTxt(String host) {
+    String url = host + "/robots.txt";
+    InputStream in = null;
+    try {
+      URLConnection conn = new URL(url).openConnection();
+      conn.setConnectTimeout(mTimeout);
+      conn.setReadTimeout(mTimeout);
+      if (conn instanceof HttpURLConnection) {
+        int response = ((HttpURLConnection) conn).getResponseCode();
+        if (response != HttpURLConnection.HTTP_OK) {
+          mLog.info("There is no robots.txt for " + host + " (HTTP " + response + ")");
+          return RobotsTxt.ALLOW_ALL;
+        }
+      }
+
+      in = conn.getInputStream();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int len;
+      while (((len = in.read(buffer)) != -1) && (out.size() < MAX_ROBOTS_TXT_SIZE)) {
+        out.write(buffer, 0, len);
+      }
+
+      RobotsTxt robotsTxt = RobotsTxt.parse(out.toString("UTF-8"), mUserAgent);
+      mLog.info("Loaded robots.txt of " + host
+          + ((robotsTxt.getCrawlDelay() > 0) ? " (crawl delay: "
+              + RegainToolkit.toTimeString(robotsTxt.getCrawlDelay()) + ")" : ""));
+      return robotsTxt;
+    }
+    catch (FileNotFoundException exc) {
+      mLog.info("There is no robots.txt for " + host);
+      return RobotsTxt.ALLOW_ALL;
+    }
+    catch (IOException exc) {
+      mLog.warn("Loading robots.txt of " + host + " failed. Everything is allowed.", exc);
+      return RobotsTxt.ALLOW_ALL;
+    }
+    finally {
+      if (in != null) {
+        try { in.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * The state of a host.
+   */
+  private static class HostState {
+
+    /** The number of requests running. */
+    private int mActiveCount;
+
+    /** The earliest time the next request may start. */
+    private long mNextRequestTime;
+
+    /** The number of finished requests. */
+    private int mRequestCount;
+
+    /** The average response time (in milliseconds). */
+    private double mAverageResponseTime;
+
+    /** The rules of the robots.txt. Is null if it was not loaded yet. */
+    private RobotsTxt mRobotsTxt;
+
+  }
+
+}
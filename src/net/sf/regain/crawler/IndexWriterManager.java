@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
@@ -42,15 +43,24 @@ import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -175,12 +185,32 @@ public class IndexWriterManager {
    * fatale Fehler gab.
    */
   private File mQuarantineIndexDir;
-  /** Das Verzeichnis, in dem der neue Suchindex aufgebaut werden soll. */
+  /**
+   * Das Verzeichnis, in dem der neue Suchindex aufgebaut werden soll.
+   * <p>
+   * Is the working index directory if the index is updated in place.
+   */
   private File mTempIndexDir;
   /** The lucene representation of mTempIndexDir. */
   private Directory mLuceneTempIndexDir;
   /** The directory to create breakpoint indices. */
   private File mBreakpointIndexDir;
+  /**
+   * Specifies whether the working index is updated in place. In this case the
+   * index is not copied and the last commit is published instead of renaming
+   * the index directory.
+   */
+  private boolean mPublishInPlace;
+  /**
+   * Whether the index continues the unfinished index of a crawl that was
+   * interrupted after a breakpoint.
+   */
+  private boolean mResumedFromBreakpoint;
+  /**
+   * The deletion policy that keeps the published generations of the index.
+   * Is <code>null</code> if the index is not updated in place.
+   */
+  private PublishedCommitDeletionPolicy mDeletionPolicy;
   /** Das Verzeichnis, in dem die Analyse-Dateien erstellt werden soll. */
   private File mAnalysisDir;
   /** The file where the error log should be stored. */
@@ -204,6 +234,22 @@ public class IndexWriterManager {
   private Profiler mAddToIndexProfiler = new Profiler("Indexed documents", "docs");
   /** The profiler for the breakpoint creation. */
   private Profiler mBreakpointProfiler = new Profiler("Created breakpoints", "breakpoints");
+  /**
+   * The profiler for the flushes of the index writer. The data is the RAM the
+   * flushed documents used.
+   */
+  private Profiler mFlushProfiler = new Profiler("Flushed segments", "segments");
+  /**
+   * The profiler for the merges of the index writer. The data is the size of
+   * the merged segments.
+   */
+  private Profiler mMergeProfiler = new Profiler("Merged segments", "merges");
+  /**
+   * The queue of the documents that are added to the index by the indexing
+   * threads. Is <code>null</code> if the documents are added by the crawler
+   * thread.
+   */
+  private IndexWriterQueue mWriterQueue;
   /**
    * enthält die URL und den LastUpdated-String aller Dokumente, deren Eintr�ge
    * beim Abschlie�en des Index entfernt werden m�ssen.
@@ -246,25 +292,8 @@ public class IndexWriterManager {
 
     mNewIndexDir = new File(indexDir, NEW_INDEX_SUBDIR);
     mQuarantineIndexDir = new File(indexDir, QUARANTINE_INDEX_SUBDIR);
-    mTempIndexDir = new File(indexDir, TEMP_INDEX_SUBDIR);
-    try {
-      mLuceneTempIndexDir = FSDirectory.open(mTempIndexDir);
-    } catch (IOException ioEx) {
-      throw new RegainException("Couldn't open tmpIndexDir", ioEx);
-    }
     mBreakpointIndexDir = new File(indexDir, BREAKPOINT_INDEX_SUBDIR);
 
-    mErrorLogFile = new File(mTempIndexDir, "log/error.log");
-
-    // Delete the old temp index directory if it should still exist
-    if (mTempIndexDir.exists()) {
-      RegainToolkit.deleteDirectory(mTempIndexDir);
-    }
-    // and create a new, empty one
-    if (!mTempIndexDir.mkdir()) {
-      throw new RegainException("Creating working directory failed: " + mTempIndexDir.getAbsolutePath());
-    }
-
     // Get the untokenized field names
     String[] untokenizedFieldNames = config.getUntokenizedFieldNames();
 
@@ -276,8 +305,42 @@ public class IndexWriterManager {
     mAnalyzer = RegainToolkit.createAnalyzer(analyzerType, stopWordList,
             exclusionList, untokenizedFieldNames);
 
+    // Check whether the working index should be updated in place
+    File workingIndexDir = new File(indexDir, WORKING_INDEX_SUBDIR);
+    if (updateIndex && config.getPublishInPlace()) {
+      mPublishInPlace = canUpdateInPlace(workingIndexDir, analyzerType);
+    }
+
+    if (mPublishInPlace) {
+      mLog.info("Updating index in place: " + workingIndexDir.getAbsolutePath());
+      mTempIndexDir = workingIndexDir;
+      mDeletionPolicy = new PublishedCommitDeletionPolicy(mTempIndexDir,
+          config.getGenerationHistory());
+
+      // Delete the error log of the last crawl
+      RegainToolkit.deleteDirectory(new File(mTempIndexDir, "log"));
+    } else {
+      mTempIndexDir = new File(indexDir, TEMP_INDEX_SUBDIR);
+
+      // Delete the old temp index directory if it should still exist
+      if (mTempIndexDir.exists()) {
+        RegainToolkit.deleteDirectory(mTempIndexDir);
+      }
+      // and create a new, empty one
+      if (!mTempIndexDir.mkdir()) {
+        throw new RegainException("Creating working directory failed: " + mTempIndexDir.getAbsolutePath());
+      }
+    }
+    try {
+      mLuceneTempIndexDir = FSDirectory.open(mTempIndexDir);
+    } catch (IOException ioEx) {
+      throw new RegainException("Couldn't open tmpIndexDir", ioEx);
+    }
+
+    mErrorLogFile = new File(mTempIndexDir, "log/error.log");
+
     // Alten Index kopieren, wenn Index aktualisiert werden soll
-    if (updateIndex) {
+    if (updateIndex && !mPublishInPlace) {
       if (!copyExistingIndex(indexDir, analyzerType)) {
         mUpdateIndex = updateIndex = false;
       }
@@ -306,6 +369,20 @@ public class IndexWriterManager {
       }
     }
 
+    // Protect the generation the search mask currently uses, so we can roll
+    // back to it if the crawl fails
+    if (mPublishInPlace) {
+      long lastPublished = mDeletionPolicy.getLastPublishedGeneration();
+      long lastCommit = getLastCommitGeneration(mLuceneTempIndexDir);
+      if (lastPublished == -1) {
+        mDeletionPolicy.publish(lastCommit);
+      } else {
+        // Commits after the last published generation are breakpoints of an
+        // interrupted crawl
+        mResumedFromBreakpoint = (lastCommit != lastPublished);
+      }
+    }
+
     // Write the stopWordList and the exclusionList in a file so it can be found
     // by the search mask
     RegainToolkit.writeToFile(analyzerType, new File(mTempIndexDir, "analyzerType.txt"));
@@ -325,6 +402,11 @@ public class IndexWriterManager {
     }
 
     mDocumentFactory = new DocumentFactory(config, mAnalysisDir);
+
+    if (config.getWriterQueueSize() > 0) {
+      mWriterQueue = new IndexWriterQueue(config.getWriterQueueSize(),
+              config.getIndexingThreadCount(), mAddToIndexProfiler);
+    }
   }
 
   /**
@@ -338,6 +420,17 @@ public class IndexWriterManager {
     return mUpdateIndex;
   }
 
+  /**
+   * Gets whether the index continues the unfinished index of a crawl that was
+   * interrupted after a breakpoint. In this case the crawl may be resumed
+   * where it was interrupted.
+   *
+   * @return Whether the index was resumed from a breakpoint.
+   */
+  public boolean getResumedFromBreakpoint() {
+    return mResumedFromBreakpoint;
+  }
+
   /**
    * Gets the number of documents that were in the (old) index when the
    * IndexWriterManager was created.
@@ -357,6 +450,18 @@ public class IndexWriterManager {
     return mAddToIndexProfiler.getMeasureCount();
   }
 
+  /**
+   * Gets the number of prepared documents that wait for being added to the
+   * index.
+   *
+   * @return The number of waiting documents or -1 if the documents are added
+   *         by the crawler thread.
+   */
+  public int getWriterQueueDepth() {
+    IndexWriterQueue writerQueue = mWriterQueue;
+    return (writerQueue == null) ? -1 : writerQueue.getQueueDepth();
+  }
+
   /**
    * Gets the number of documents that will be removed from the index.
    *
@@ -376,7 +481,7 @@ public class IndexWriterManager {
    * @param thr The error to log. May be <code>null</code>.
    * @throws RegainException If writing to the error log failed.
    */
-  public void logError(String msg, Throwable thr) throws RegainException {
+  public synchronized void logError(String msg, Throwable thr) throws RegainException {
     if (mErrorLogStream == null) {
       try {
         new File(mTempIndexDir, "log").mkdir();
@@ -424,6 +529,13 @@ public class IndexWriterManager {
    * @throws RegainException If closing or opening failed.
    */
   private void setIndexMode(int mode) throws RegainException {
+    // Add the queued documents before the mIndexWriter is closed
+    if ((mode == READING_MODE) || (mode == ALL_CLOSED_MODE)) {
+      if ((mIndexWriter != null) && (mWriterQueue != null)) {
+        mWriterQueue.drain();
+      }
+    }
+
     // Close the mIndexReader in WRITING_MODE and ALL_CLOSED_MODE
     if ((mode == WRITING_MODE) || (mode == ALL_CLOSED_MODE)) {
       if (mIndexReader != null) {
@@ -472,7 +584,15 @@ public class IndexWriterManager {
     if ((mode == READING_MODE) && (mIndexReader == null)) {
       mLog.info("Switching to index mode: deleting mode");
       try {
-        mIndexReader = IndexReader.open(mLuceneTempIndexDir, false);
+        if (mDeletionPolicy != null) {
+          // NOTE: A reader that deletes documents commits with its own
+          //       deletion policy, which would delete the published commits.
+          //       So the reader is read-only and the documents are deleted
+          //       by the writer (see removeObsoleteEntries(UrlChecker))
+          mIndexReader = IndexReader.open(mLuceneTempIndexDir);
+        } else {
+          mIndexReader = IndexReader.open(mLuceneTempIndexDir, false);
+        }
       } catch (IOException exc) {
         throw new RegainException("Creating IndexReader failed", exc);
       }
@@ -503,7 +623,35 @@ public class IndexWriterManager {
     else
       iConfig.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
 
-    IndexWriter indexWriter = new IndexWriter(mLuceneTempIndexDir, iConfig);
+    if (mDeletionPolicy != null) {
+      iConfig.setIndexDeletionPolicy(mDeletionPolicy);
+    }
+
+    iConfig.setMergePolicy(createMergePolicy());
+    if (!mConfig.getBackgroundMerges()) {
+      iConfig.setMergeScheduler(new SerialMergeScheduler());
+    } else if (mConfig.getMergeThreadCount() > 0) {
+      ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+      // NOTE: The number of pending merges must not be smaller than the number
+      //       of threads, so we set it first
+      mergeScheduler.setMaxMergeCount(mConfig.getMergeThreadCount() + 2);
+      mergeScheduler.setMaxThreadCount(mConfig.getMergeThreadCount());
+      iConfig.setMergeScheduler(mergeScheduler);
+    }
+
+    // Configure when the buffered documents are flushed
+    if (mConfig.getRamBufferSizeMB() > 0) {
+      iConfig.setRAMBufferSizeMB(mConfig.getRamBufferSizeMB());
+    }
+    if (mConfig.getMaxBufferedDocs() > 0) {
+      iConfig.setMaxBufferedDocs(mConfig.getMaxBufferedDocs());
+    }
+    if (mConfig.getTermIndexInterval() > 0) {
+      iConfig.setTermIndexInterval(mConfig.getTermIndexInterval());
+    }
+
+    IndexWriter indexWriter = new ProfilingIndexWriter(mLuceneTempIndexDir,
+            iConfig, mFlushProfiler, mMergeProfiler);
 
     int maxFieldLength = mConfig.getMaxFieldLength();
     if (maxFieldLength > 0) {
@@ -513,6 +661,38 @@ public class IndexWriterManager {
     return indexWriter;
   }
 
+  /**
+   * Creates the merge policy configured for the index.
+   *
+   * @return The merge policy.
+   */
+  private MergePolicy createMergePolicy() {
+    double segmentsPerTier = mConfig.getSegmentsPerTier();
+    double maxMergedSegmentMB = mConfig.getMaxMergedSegmentMB();
+
+    if ("logByteSize".equals(mConfig.getMergePolicy())) {
+      LogByteSizeMergePolicy mergePolicy = new LogByteSizeMergePolicy();
+      mergePolicy.setUseCompoundFile(mConfig.getUseCompoundFile());
+      if (segmentsPerTier > 0) {
+        mergePolicy.setMergeFactor((int) segmentsPerTier);
+      }
+      if (maxMergedSegmentMB > 0) {
+        mergePolicy.setMaxMergeMB(maxMergedSegmentMB);
+      }
+      return mergePolicy;
+    } else {
+      TieredMergePolicy mergePolicy = new TieredMergePolicy();
+      mergePolicy.setUseCompoundFile(mConfig.getUseCompoundFile());
+      if (segmentsPerTier > 0) {
+        mergePolicy.setSegmentsPerTier(segmentsPerTier);
+      }
+      if (maxMergedSegmentMB > 0) {
+        mergePolicy.setMaxMergedSegmentMB(maxMergedSegmentMB);
+      }
+      return mergePolicy;
+    }
+  }
+
   /**
    * Kopiert den zuletzt erstellten Index in das Arbeitsverzeichnis.
    *
@@ -526,7 +706,8 @@ public class IndexWriterManager {
           throws RegainException {
     // Find the newest index
     File oldIndexDir;
-    if (mBreakpointIndexDir.exists()) {
+    boolean fromBreakpoint = mBreakpointIndexDir.exists();
+    if (fromBreakpoint) {
       oldIndexDir = mBreakpointIndexDir;
     } else if (mNewIndexDir.exists()) {
       oldIndexDir = mNewIndexDir;
@@ -541,6 +722,61 @@ public class IndexWriterManager {
       return false;
     }
 
+    if (!checkAnalyzerType(oldIndexDir, analyzerType)) {
+      return false;
+    }
+
+    // Index in Arbeitsverzeichnis kopieren
+    mLog.info("Updating index from " + oldIndexDir.getAbsolutePath());
+    RegainToolkit.copyDirectory(oldIndexDir, mTempIndexDir, false, ".txt");
+    mResumedFromBreakpoint = fromBreakpoint;
+
+    return true;
+  }
+
+  /**
+   * Checks whether the working index can be updated in place. This is only
+   * possible if there is no unpublished index from the last crawl (a new
+   * index or a breakpoint).
+   *
+   * @param workingIndexDir The directory of the working index.
+   * @param analyzerType The analyzer type the working index must have.
+   * @return Whether the working index can be updated in place.
+   * @throws RegainException If checking the index failed.
+   */
+  private boolean canUpdateInPlace(File workingIndexDir, String analyzerType)
+          throws RegainException {
+    if (mBreakpointIndexDir.exists() || mNewIndexDir.exists()) {
+      mLog.warn("Can't update index in place, because there is an unpublished " +
+              "index. The index will be copied...");
+      return false;
+    }
+
+    try {
+      if (!workingIndexDir.exists()
+              || !IndexReader.indexExists(FSDirectory.open(workingIndexDir))) {
+        mLog.warn("Can't update index in place, because there is no working " +
+                "index. The index will be copied...");
+        return false;
+      }
+    } catch (IOException exc) {
+      throw new RegainException("Checking index " + workingIndexDir + " failed", exc);
+    }
+
+    return checkAnalyzerType(workingIndexDir, analyzerType);
+  }
+
+  /**
+   * Checks whether an old index was created using the configured analyzer type.
+   *
+   * @param oldIndexDir The directory of the old index.
+   * @param analyzerType Der Analyzer-Typ, den der alte Index haben muss, um
+   *        übernommen zu werden.
+   * @return Whether the old index has the analyzer type.
+   * @throws RegainException If reading the analyzer type failed.
+   */
+  private boolean checkAnalyzerType(File oldIndexDir, String analyzerType)
+          throws RegainException {
     // Check analyzer type of the old index
     File analyzerTypeFile = new File(oldIndexDir, "analyzerType.txt");
     String analyzerTypeOfIndex = RegainToolkit.readStringFromFile(analyzerTypeFile);
@@ -559,10 +795,6 @@ public class IndexWriterManager {
       return false;
     }
 
-    // Index in Arbeitsverzeichnis kopieren
-    mLog.info("Updating index from " + oldIndexDir.getAbsolutePath());
-    RegainToolkit.copyDirectory(oldIndexDir, mTempIndexDir, false, ".txt");
-
     return true;
   }
 
@@ -750,6 +982,14 @@ public class IndexWriterManager {
 
     // Dokument in den Index aufnehmen
     if (doc != null) {
+      if (mWriterQueue != null) {
+        // Let the indexing threads add the document
+        // NOTE: They also call the plugins, so the crawler can go on
+        setIndexMode(WRITING_MODE);
+        mWriterQueue.add(doc, rawDocument.getUrl(), mIndexWriter,
+            rawDocument.getLength(), errorLogger);
+        return;
+      }
 
       mAddToIndexProfiler.startMeasuring();
       try {
@@ -826,6 +1066,9 @@ public class IndexWriterManager {
       preserveUrlMatcherArr = urlChecker.createPreserveUrlMatcherArr();
     }
 
+    // The queries of the entries the writer has to delete
+    List<Query> deleteQueryList = new ArrayList<Query>();
+
     // Go through the index
     setIndexMode(READING_MODE);
     int docCount = mIndexReader.numDocs();
@@ -869,21 +1112,56 @@ public class IndexWriterManager {
           if (shouldBeDeleted) {
         	pluginManager.eventDeleteIndexEntry(doc, mIndexReader);
 
-            try {
-              mLog.info("Deleting from index: " + url + " from " + lastModified);
-              mIndexReader.deleteDocument(docIdx);
-            } catch (IOException exc) {
-              throw new RegainException("Deleting document #" + docIdx + " from index failed: " + url + " from " + lastModified, exc);
+            mLog.info("Deleting from index: " + url + " from " + lastModified);
+            if (mDeletionPolicy != null) {
+              deleteQueryList.add(createEntryQuery(url, lastModified));
+            } else {
+              try {
+                mIndexReader.deleteDocument(docIdx);
+              } catch (IOException exc) {
+                throw new RegainException("Deleting document #" + docIdx + " from index failed: " + url + " from " + lastModified, exc);
+              }
             }
           }
         }
       }
     }
 
+    // Delete the entries of an index that is updated in place
+    if (! deleteQueryList.isEmpty()) {
+      setIndexMode(WRITING_MODE);
+      try {
+        mIndexWriter.deleteDocuments(deleteQueryList.toArray(new Query[deleteQueryList.size()]));
+      } catch (IOException exc) {
+        throw new RegainException("Deleting " + deleteQueryList.size()
+                + " documents from index failed", exc);
+      }
+    }
+
     // Merkliste der zu l�schenden Eintr�ge l�schen
     mUrlsToDeleteHash = null;
   }
 
+  /**
+   * Creates a query matching the index entries of an URL having a certain
+   * last-modified date. Used for deleting entries by the writer.
+   *
+   * @param url The URL of the entries.
+   * @param lastModified The last-modified date of the entries. If
+   *        <code>null</code> the entries not having a date are matched.
+   * @return The query.
+   */
+  private Query createEntryQuery(String url, String lastModified) {
+    BooleanQuery query = new BooleanQuery();
+    query.add(new TermQuery(new Term("url", url)), Occur.MUST);
+    if (lastModified != null) {
+      query.add(new TermQuery(new Term("last-modified", lastModified)), Occur.MUST);
+    } else {
+      query.add(new TermRangeQuery("last-modified", null, null, true, true), Occur.MUST_NOT);
+    }
+    return query;
+  }
+
   /**
    * Goes through the index and deletes all obsolete entries.
    * <p>
@@ -959,6 +1237,9 @@ public class IndexWriterManager {
       return mIndexReader.numDocs();
     } else {
       setIndexMode(WRITING_MODE);
+      if (mWriterQueue != null) {
+        mWriterQueue.drain();
+      }
       return mIndexWriter.maxDoc();
     }
   }
@@ -1007,6 +1288,13 @@ public class IndexWriterManager {
       // Prepare the breakpoint
       prepareBreakpoint();
 
+      if (mPublishInPlace) {
+        // NOTE: Closing the index committed it. The commit is not published,
+        //       but the next crawl will go on with it.
+        mBreakpointProfiler.stopMeasuring(RegainToolkit.getDirectorySize(mTempIndexDir));
+        return;
+      }
+
       // Create a temp directory
       // NOTE: We copy to a temp directory and rename it when we are finished.
       File tempDir = new File(mBreakpointIndexDir.getAbsolutePath() + "_tmp");
@@ -1035,23 +1323,40 @@ public class IndexWriterManager {
   }
 
   /**
-   * Optimiert und schlie�t den Index
+   * Merges the segments (or optimizes the index if configured) and closes
+   * the index.
    *
    * @param putIntoQuarantine Gibt an, ob der Index in Quarant�ne soll.
    * @throws RegainException Wenn der Index nicht geschlossen werden konnte.
    */
   public void close(boolean putIntoQuarantine) throws RegainException {
-    // Index optimieren
+    // Merge the segments
     try {
       setIndexMode(WRITING_MODE);
-      mIndexWriter.optimize(); // TODO: Use maybeMerge instead?
+      if (mConfig.getOptimizeIndex()) {
+        mLog.info("Optimizing index");
+        mIndexWriter.forceMerge(1);
+      } else {
+        // NOTE: The merge policy didn't see the deletions of the IndexReader
+        //       yet. So we give it a chance to merge segments having many
+        //       deleted documents. Rewriting all segments would make an update
+        //       crawl (and reopening the index) as expensive as a new index.
+        mIndexWriter.maybeMerge();
+      }
     } catch (IOException exc) {
       throw new RegainException("Finishing IndexWriter failed", exc);
     }
 
     // Prefetch destinct field values
+    // NOTE: The field values of an index that is updated in place are not
+    //       written to files: The files would be shared by all generations and
+    //       the search would read them before the new generation is published.
+    //       The search reads the values of every generation from the index.
     String[] prefetchFields = mConfig.getValuePrefetchFields();
-    if (prefetchFields != null && prefetchFields.length != 0) {
+    if (mPublishInPlace) {
+      // Remove the field values written before the index was updated in place
+      deleteFieldValueFiles(mTempIndexDir);
+    } else if (prefetchFields != null && prefetchFields.length != 0) {
       StringBuilder msg = new StringBuilder();
       msg.append("Prefetching destinct field values for: ");
       for (int i = 0; i < prefetchFields.length; i++) {
@@ -1068,6 +1373,12 @@ public class IndexWriterManager {
     // NOTE: This will set the ALL_CLOSED_MODE
     prepareBreakpoint();
 
+    // Stop the indexing threads
+    if (mWriterQueue != null) {
+      mWriterQueue.close();
+      mWriterQueue = null;
+    }
+
     // Ressourcen der DocumentFactory freigeben
     mDocumentFactory.close();
 
@@ -1077,6 +1388,21 @@ public class IndexWriterManager {
       writeTermFile(mTempIndexDir, termFile);
     }
 
+    if (mPublishInPlace) {
+      if (putIntoQuarantine) {
+        long generation = mDeletionPolicy.getLastPublishedGeneration();
+        mLog.warn("Rolling back index to the last published generation " +
+                generation + ", because there were fatal errors");
+        restoreGeneration(mTempIndexDir, mDeletionPolicy, generation, mAnalyzer);
+      } else {
+        long generation = getLastCommitGeneration(mLuceneTempIndexDir);
+        mDeletionPolicy.publish(generation);
+        mLog.info("Published generation " + generation + " of index " +
+                mTempIndexDir.getAbsolutePath());
+      }
+      return;
+    }
+
     // Verzeichnis bestimmen, in das der Index kommen soll
     File targetDir;
     if (putIntoQuarantine) {
@@ -1129,6 +1455,130 @@ public class IndexWriterManager {
     }
   }
 
+  /**
+   * Rolls the working index back to the published generation before the last
+   * one. Only possible for an index that is updated in place.
+   *
+   * @param config The configuration of the crawler.
+   * @throws RegainException If there is no older generation or if rolling back
+   *         failed.
+   */
+  public static void rollbackIndex(CrawlerConfig config) throws RegainException {
+    File workingIndexDir = new File(config.getIndexDir(), WORKING_INDEX_SUBDIR);
+    PublishedCommitDeletionPolicy deletionPolicy
+            = new PublishedCommitDeletionPolicy(workingIndexDir, config.getGenerationHistory());
+    long[] generationArr = deletionPolicy.getPublishedGenerations();
+    if (generationArr.length < 2) {
+      throw new RegainException("There is no older published generation of " +
+              workingIndexDir.getAbsolutePath() + " to roll back to");
+    }
+
+    long generation = generationArr[generationArr.length - 2];
+    mLog.info("Rolling back index " + workingIndexDir.getAbsolutePath() +
+            " from generation " + generationArr[generationArr.length - 1] +
+            " to generation " + generation);
+
+    Analyzer analyzer = RegainToolkit.createAnalyzer(config.getAnalyzerType(),
+            config.getStopWordList(), config.getExclusionList(),
+            config.getUntokenizedFieldNames());
+    restoreGeneration(workingIndexDir, deletionPolicy, generation, analyzer);
+  }
+
+  /**
+   * Restores a published generation of an index by committing its state again.
+   * The restored generation and all newer ones are replaced by the new commit
+   * in the published generations.
+   *
+   * @param indexDir The directory of the index.
+   * @param deletionPolicy The deletion policy of the index.
+   * @param generation The generation to restore.
+   * @param analyzer The analyzer of the index.
+   * @throws RegainException If restoring failed.
+   */
+  private static void restoreGeneration(File indexDir,
+          PublishedCommitDeletionPolicy deletionPolicy, long generation,
+          Analyzer analyzer)
+          throws RegainException {
+    try {
+      Directory directory = FSDirectory.open(indexDir);
+      try {
+        IndexCommit commit = null;
+        for (IndexCommit candidate : IndexReader.listCommits(directory)) {
+          if (candidate.getGeneration() == generation) {
+            commit = candidate;
+          }
+        }
+        if (commit == null) {
+          throw new RegainException("Generation " + generation + " of index " +
+                  indexDir.getAbsolutePath() + " does not exist");
+        }
+
+        IndexWriterConfig iConfig = new IndexWriterConfig(RegainToolkit.getLuceneVersion(), analyzer);
+        iConfig.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+        iConfig.setIndexDeletionPolicy(deletionPolicy);
+        iConfig.setIndexCommit(commit);
+        IndexWriter indexWriter = new IndexWriter(directory, iConfig);
+        try {
+          indexWriter.commit();
+        } finally {
+          indexWriter.close();
+        }
+
+        // The prefetched field values belong to a newer generation
+        deleteFieldValueFiles(indexDir);
+
+        long newGeneration = getLastCommitGeneration(directory);
+        deletionPolicy.restored(generation, newGeneration);
+        mLog.info("Restored generation " + generation + " of index " +
+                indexDir.getAbsolutePath() + " as generation " + newGeneration);
+      } finally {
+        directory.close();
+      }
+    } catch (IOException exc) {
+      throw new RegainException("Restoring generation " + generation +
+              " of index " + indexDir.getAbsolutePath() + " failed", exc);
+    }
+  }
+
+  /**
+   * Gets the generation of the newest commit of an index.
+   *
+   * @param directory The directory of the index.
+   * @return The generation of the newest commit.
+   * @throws RegainException If reading the commits failed.
+   */
+  private static long getLastCommitGeneration(Directory directory)
+          throws RegainException {
+    try {
+      long generation = -1;
+      for (IndexCommit commit : IndexReader.listCommits(directory)) {
+        generation = Math.max(generation, commit.getGeneration());
+      }
+      return generation;
+    } catch (IOException exc) {
+      throw new RegainException("Reading the commits of the index failed", exc);
+    }
+  }
+
+  /**
+   * Deletes the files holding the prefetched field values of an index.
+   *
+   * @param indexDir The directory of the index.
+   */
+  private static void deleteFieldValueFiles(File indexDir) {
+    File[] fileArr = indexDir.listFiles();
+    if (fileArr != null) {
+      for (int i = 0; i < fileArr.length; i++) {
+        String fileName = fileArr[i].getName();
+        if (fileName.startsWith("field_values_") && fileName.endsWith(".txt")) {
+          if (!fileArr[i].delete()) {
+            mLog.warn("Deleting " + fileArr[i].getAbsolutePath() + " failed");
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Erzeugt eine Datei, die alle Terme (also alle erlaubten Suchtexte) enthält.
    *
@@ -0,0 +1,336 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.crawler.plugin.CrawlerPluginManager;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * A bounded queue of documents that are added to the index by dedicated
+ * indexing threads. So the crawler thread can go on loading and preparing the
+ * next document while the last one is indexed.
+ * <p>
+ * If the queue is full, the crawler thread waits until there is room again
+ * (backpressure). Before the index writer is closed, the queue must be drained
+ * using {@link #drain()}.
+ * <p>
+ * A document that can't be added is logged against its URL by the indexing
+ * thread, the crawler goes on. Only errors that break the index writer (I/O
+ * errors and VM errors) are kept and thrown by the next call of
+ * {@link #drain()} or {@link #close()}.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class IndexWriterQueue {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(IndexWriterQueue.class);
+
+  /** The queue of the documents to add. */
+  private BlockingQueue<Entry> mQueue;
+
+  /** The indexing threads. */
+  private Thread[] mThreadArr;
+
+  /** The profiler for adding the documents to the index. */
+  private Profiler mAddToIndexProfiler;
+
+  /** The profiler for the waits of the crawler thread on a full queue. */
+  private Profiler mBackpressureProfiler;
+
+  /**
+   * The number of documents that were added to the queue but are not indexed
+   * yet. Is guarded by <code>this</code>.
+   */
+  private int mPendingCount;
+
+  /** The maximum number of documents that were waiting in the queue. */
+  private int mMaxQueueDepth;
+
+  /** The first fatal error of an indexing thread that was not thrown yet. */
+  private RegainException mError;
+
+  /** Whether the queue was closed. */
+  private volatile boolean mClosed;
+
+
+  /**
+   * Creates a new instance of IndexWriterQueue and starts the indexing threads.
+   *
+   * @param capacity The number of documents the queue can hold.
+   * @param threadCount The number of indexing threads.
+   * @param addToIndexProfiler The profiler for adding the documents to the
+   *        index.
+   */
+  public IndexWriterQueue(int capacity, int threadCount,
+    Profiler addToIndexProfiler)
+  {
+    mQueue = new ArrayBlockingQueue<Entry>(capacity);
+    mAddToIndexProfiler = addToIndexProfiler;
+    mBackpressureProfiler = new Profiler("Index queue waits", "waits");
+
+    mThreadArr = new Thread[threadCount];
+    for (int i = 0; i < mThreadArr.length; i++) {
+      mThreadArr[i] = new Thread("IndexWriterQueue-" + (i + 1)) {
+        @Override
+        public void run() {
+          indexDocuments();
+        }
+      };
+      mThreadArr[i].setDaemon(true);
+      mThreadArr[i].start();
+    }
+  }
+
+
+  /**
+   * Adds a document to the queue. Waits if the queue is full.
+   *
+   * @param doc The document to add to the index.
+   * @param url The URL of the document. Errors are logged against it.
+   * @param indexWriter The index writer to add the document with. Must not be
+   *        closed before the queue was drained.
+   * @param length The length of the raw document (for the profiler).
+   * @param errorLogger The error logger to log a failure of the document with.
+   * @throws RegainException If the thread was interrupted.
+   */
+  public void add(Document doc, String url, IndexWriter indexWriter,
+    long length, ErrorLogger errorLogger)
+    throws RegainException
+  {
+    synchronized (this) {
+      mPendingCount++;
+    }
+
+    Entry entry = new Entry(doc, url, indexWriter, length, errorLogger);
+    try {
+      if (! mQueue.offer(entry)) {
+        // The queue is full -> Wait until the indexing threads made room
+        mBackpressureProfiler.startMeasuring();
+        mQueue.put(entry);
+        mBackpressureProfiler.stopMeasuring(0);
+      }
+    }
+    catch (InterruptedException exc) {
+      mBackpressureProfiler.abortMeasuring();
+      entryDone();
+      throw new RegainException("Waiting for the index writer queue was interrupted", exc);
+    }
+
+    synchronized (this) {
+      mMaxQueueDepth = Math.max(mMaxQueueDepth, mQueue.size());
+    }
+  }
+
+
+  /**
+   * Waits until all documents of the queue are indexed.
+   *
+   * @throws RegainException If an indexing thread had a fatal error or if the
+   *         thread was interrupted.
+   */
+  public void drain() throws RegainException {
+    synchronized (this) {
+      while (mPendingCount > 0) {
+        try {
+          wait();
+        }
+        catch (InterruptedException exc) {
+          throw new RegainException("Waiting for the index writer queue was interrupted", exc);
+        }
+      }
+    }
+
+    checkError();
+  }
+
+
+  /**
+   * Gets the number of documents that are waiting in the queue.
+   *
+   * @return The current queue depth.
+   */
+  public int getQueueDepth() {
+    return mQueue.size();
+  }
+
+
+  /**
+   * Gets the maximum number of documents that were waiting in the queue.
+   *
+   * @return The maximum queue depth.
+   */
+  public synchronized int getMaxQueueDepth() {
+    return mMaxQueueDepth;
+  }
+
+
+  /**
+   * Drains the queue and stops the indexing threads.
+   *
+   * @throws RegainException If an indexing thread had a fatal error.
+   */
+  public void close() throws RegainException {
+    try {
+      drain();
+    }
+    finally {
+      mClosed = true;
+      for (int i = 0; i < mThreadArr.length; i++) {
+        mThreadArr[i].interrupt();
+      }
+
+      mLog.info("Index writer queue closed. Maximum queue depth: "
+          + getMaxQueueDepth() + " of " + (mQueue.size() + mQueue.remainingCapacity()));
+    }
+  }
+
+
+  /**
+   * Throws the first fatal error of the indexing threads that was not thrown
+   * yet.
+   *
+   * @throws RegainException If there is an error.
+   */
+  private void checkError() throws RegainException {
+    RegainException error;
+    synchronized (this) {
+      error = mError;
+      mError = null;
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+
+  /**
+   * Marks an entry as done and wakes up threads that wait for the queue being
+   * drained.
+   */
+  private synchronized void entryDone() {
+    mPendingCount--;
+    if (mPendingCount == 0) {
+      notifyAll();
+    }
+  }
+
+
+  /**
+   * The loop of the indexing threads: Takes the documents from the queue and
+   * adds them to the index.
+   */
+  private void indexDocuments() {
+    CrawlerPluginManager pluginManager = CrawlerPluginManager.getInstance();
+
+    while (! mClosed) {
+      Entry entry;
+      try {
+        entry = mQueue.take();
+      }
+      catch (InterruptedException exc) {
+        // We were closed
+        continue;
+      }
+
+      long start = System.nanoTime();
+      try {
+        pluginManager.eventCreateIndexEntry(entry.mDoc, entry.mIndexWriter);
+        entry.mIndexWriter.addDocument(entry.mDoc);
+        mAddToIndexProfiler.addNanoMeasuring(System.nanoTime() - start,
+            entry.mLength);
+      }
+      catch (Throwable thr) {
+        mAddToIndexProfiler.addAbortedMeasuring();
+        String msg = "Adding document to index failed: " + entry.mUrl;
+        if ((thr instanceof IOException) || (thr instanceof Error)) {
+          // The index writer is broken -> Let the crawler thread stop
+          synchronized (this) {
+            if (mError == null) {
+              mError = new RegainException(msg, thr);
+            } else {
+              mLog.error(msg, thr);
+            }
+          }
+        } else {
+          // Only this document is affected
+          entry.mErrorLogger.logError(msg, thr, false);
+        }
+      }
+      finally {
+        entryDone();
+      }
+    }
+  }
+
+
+  /**
+   * A document waiting in the queue.
+   */
+  private static class Entry {
+
+    /** The document to add to the index. */
+    private Document mDoc;
+
+    /** The URL of the document. */
+    private String mUrl;
+
+    /** The index writer to add the document with. */
+    private IndexWriter mIndexWriter;
+
+    /** The length of the raw document. */
+    private long mLength;
+
+    /** The error logger to log a failure of the document with. */
+    private ErrorLogger mErrorLogger;
+
+
+    /**
+     * Creates a new instance of Entry.
+     *
+     * @param doc The document to add to the index.
+     * @param url The URL of the document.
+     * @param indexWriter The index writer to add the document with.
+     * @param length The length of the raw document.
+     * @param errorLogger The error logger to log a failure of the document
+     *        with.
+     */
+    public Entry(Document doc, String url, IndexWriter indexWriter, long length,
+      ErrorLogger errorLogger)
+    {
+      mDoc = doc;
+      mUrl = url;
+      mIndexWriter = indexWriter;
+      mLength = length;
+      mErrorLogger = errorLogger;
+    }
+
+  }
+
+}
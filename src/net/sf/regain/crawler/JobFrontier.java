@@ -0,0 +1,864 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The list of the crawler jobs that still have to be processed.
+ * <p>
+ * Only the head of the list is held in memory. If it is full, new jobs are
+ * appended to segment files on disk and read back when the head runs empty.
+ * So the crawler needs little memory even if millions of jobs are waiting.
+ * <p>
+ * The jobs in memory are kept in one queue per host. The next job is taken
+ * from the host the {@link HostScheduler} allows to be visited first, so the
+ * crawler switches between the hosts instead of overloading one of them.
+ * Within a host the job with the highest priority is taken first (see
+ * {@link RecrawlScheduler}). Jobs added by {@link #addFirst(CrawlerJob)} come
+ * before all others. The jobs on disk are read in the order they were added.
+ * <p>
+ * The frontier can be checkpointed together with a breakpoint of the index.
+ * A checkpoint saves the jobs of the head, the read position in the segment
+ * files and the URLs the {@link UrlChecker} has seen. If the crawler is
+ * restarted after a crash, it resumes with the last checkpoint instead of
+ * starting again with the start URLs.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class JobFrontier {
+
+  /** The logger for this class. */
+  private static Logger mLog = Logger.getLogger(JobFrontier.class);
+
+  /** The name of the checkpoint file. */
+  private static final String CHECKPOINT_FILE = "checkpoint";
+
+  /** The version of the checkpoint file format. */
+  private static final int CHECKPOINT_VERSION = 2;
+
+  /**
+   * Sorts the jobs by their priority, the highest first. Jobs with the same
+   * priority are sorted in the order they were added.
+   */
+  private static final Comparator<CrawlerJob> PRIORITY_ORDER = new Comparator<CrawlerJob>() {
+    public int compare(CrawlerJob job1, CrawlerJob job2) {
+      int result = Double.compare(job2.getPriority(), job1.getPriority());
+      if (result != 0) {
+        return result;
+      }
+      if (job1.getEnqueueNumber() != job2.getEnqueueNumber()) {
+        return (job1.getEnqueueNumber() < job2.getEnqueueNumber()) ? -1 : 1;
+      }
+      return 0;
+    }
+  };
+
+  /** The size a segment file may reach before a new one is started. */
+  private static final long MAX_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+  /** The directory holding the segment files and the checkpoint. */
+  private File mDir;
+
+  /** The maximum number of jobs in the head. */
+  private int mMaxJobsInMemory;
+
+  /** The scheduler deciding which host may be visited next. */
+  private HostScheduler mHostScheduler;
+
+  /**
+   * The jobs held in memory, one queue per host. They come before the jobs
+   * on disk. Key: The host key (String), value: The HostQueue.
+   */
+  private HashMap<String, HostQueue> mHostQueueMap;
+
+  /**
+   * The host queues that have jobs, sorted by the time when their host may be
+   * visited next.
+   */
+  private PriorityQueue<HostQueue> mReadyQueue;
+
+  /** The number of jobs held in memory. */
+  private int mHeadSize;
+
+  /** The number of host queues put into the ready queue so far. */
+  private long mEnqueueCount;
+
+  /** The number of jobs added to the head so far. */
+  private long mJobEnqueueCount;
+
+  /**
+   * The job returned by {@link #nextJob()} that was not finished yet. Is null
+   * if there is none.
+   */
+  private CrawlerJob mActiveJob;
+
+  /** The number of jobs in the segment files that were not read yet. */
+  private long mDiskJobCount;
+
+  /** The number of the segment file jobs are read from. */
+  private int mReadSegment;
+
+  /** The position in the read segment file. */
+  private long mReadOffset;
+
+  /** The stream reading the read segment file. Is null if not open. */
+  private DataInputStream mIn;
+
+  /** The number of the segment file new jobs are appended to. */
+  private int mWriteSegment;
+
+  /** The length of the write segment file. */
+  private long mWriteLength;
+
+  /** The stream writing the write segment file. Is null if not open. */
+  private DataOutputStream mOut;
+
+  /** The number of the last checkpoint. */
+  private int mCheckpointNumber;
+
+  /** Whether the frontier was resumed from a checkpoint. */
+  private boolean mResumed;
+
+
+  /**
+   * Creates a new instance of JobFrontier.
+   *
+   * @param dir The directory where to put the segment files and the
+   *        checkpoint.
+   * @param maxJobsInMemory The maximum number of jobs held in memory.
+   * @param hostScheduler The scheduler deciding which host may be visited
+   *        next.
+   * @param resume Whether to resume from the last checkpoint. If false or if
+   *        there is no checkpoint, an empty frontier is created.
+   * @throws RegainException If reading the checkpoint failed.
+   */
+  public JobFrontier(File dir, int maxJobsInMemory, HostScheduler hostScheduler,
+    boolean resume)
+    throws RegainException
+  {
+    mDir = dir;
+    mMaxJobsInMemory = Math.max(maxJobsInMemory, 1);
+    mHostScheduler = hostScheduler;
+    mHostQueueMap = new HashMap<String, HostQueue>();
+    mReadyQueue = new PriorityQueue<HostQueue>();
+
+    File checkpointFile = new File(mDir, CHECKPOINT_FILE);
+    if (resume && checkpointFile.exists()) {
+      readCheckpoint(checkpointFile);
+      mResumed = true;
+      mLog.info("Resuming crawl with " + size() + " jobs from checkpoint "
+          + mCheckpointNumber + " in " + mDir.getAbsolutePath());
+    } else {
+      // Start with an empty frontier
+      if (mDir.exists()) {
+        RegainToolkit.deleteDirectory(mDir);
+      }
+      if (! mDir.mkdirs()) {
+        throw new RegainException("Creating frontier directory failed: "
+            + mDir.getAbsolutePath());
+      }
+      mReadSegment = 1;
+      mWriteSegment = 1;
+    }
+  }
+
+
+  /**
+   * Gets whether the frontier was resumed from a checkpoint.
+   *
+   * @return Whether the frontier was resumed.
+   */
+  public boolean isResumed() {
+    return mResumed;
+  }
+
+
+  /**
+   * Gets the number of jobs in the frontier.
+   *
+   * @return The number of jobs.
+   */
+  public long size() {
+    return mHeadSize + mDiskJobCount;
+  }
+
+
+  /**
+   * Gets whether the frontier is empty.
+   *
+   * @return Whether the frontier is empty.
+   */
+  public boolean isEmpty() {
+    return (mHeadSize == 0) && (mDiskJobCount == 0);
+  }
+
+
+  /**
+   * Adds a job at the beginning of the frontier.
+   *
+   * @param job The job to add.
+   */
+  public void addFirst(CrawlerJob job) {
+    addToHead(job, true);
+  }
+
+
+  /**
+   * Adds a job at the end of the frontier.
+   *
+   * @param job The job to add.
+   * @throws RegainException If writing the job to disk failed.
+   */
+  public void addLast(CrawlerJob job) throws RegainException {
+    if ((mDiskJobCount == 0) && (mHeadSize < mMaxJobsInMemory)) {
+      addToHead(job, false);
+      return;
+    }
+
+    try {
+      if (mOut == null) {
+        File segmentFile = getSegmentFile(mWriteSegment);
+        mOut = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(segmentFile, true)));
+        mWriteLength = segmentFile.length();
+      }
+
+      mWriteLength += writeJob(mOut, job);
+      mDiskJobCount++;
+
+      if (mWriteLength >= MAX_SEGMENT_SIZE) {
+        // Start a new segment
+        mOut.close();
+        mOut = null;
+        mWriteSegment++;
+        mWriteLength = 0;
+      }
+    }
+    catch (IOException exc) {
+      throw new RegainException("Writing job to frontier failed: " + job.getUrl(), exc);
+    }
+  }
+
+
+  /**
+   * Adds a job to the queue of its host.
+   *
+   * @param job The job to add.
+   * @param first Whether to add the job at the beginning of the queue.
+   */
+  private void addToHead(CrawlerJob job, boolean first) {
+    String host = HostScheduler.getHostKey(job.getUrl());
+    HostQueue queue = mHostQueueMap.get(host);
+    if (queue == null) {
+      queue = new HostQueue(host);
+      mHostQueueMap.put(host, queue);
+    }
+    if (first) {
+      queue.mFirstJobList.addFirst(job);
+    } else {
+      job.setEnqueueNumber(mJobEnqueueCount++);
+      queue.mJobQueue.add(job);
+    }
+    mHeadSize++;
+    enqueue(queue);
+  }
+
+
+  /**
+   * Puts a host queue into the ready queue if it has jobs and its host may be
+   * visited.
+   *
+   * @param queue The host queue.
+   */
+  private void enqueue(HostQueue queue) {
+    if (queue.mQueued || queue.isEmpty()) {
+      return;
+    }
+    long readyTime = mHostScheduler.getReadyTime(queue.mHost);
+    if (readyTime != Long.MAX_VALUE) {
+      queue.mReadyTime = readyTime;
+      queue.mEnqueueNumber = mEnqueueCount++;
+      queue.mQueued = true;
+      mReadyQueue.add(queue);
+    }
+  }
+
+
+  /**
+   * Removes the next job from the frontier. This is the first job of the host
+   * that may be visited first. If no host may be visited yet, this method
+   * waits until one may.
+   * <p>
+   * The job should be passed to {@link #finishJob(CrawlerJob, long)} as soon
+   * as its document was loaded. If this didn't happen, it is done when the
+   * next job is taken.
+   *
+   * @return The next job.
+   * @throws RegainException If reading jobs from disk failed or if there are
+   *         no jobs.
+   */
+  public CrawlerJob nextJob() throws RegainException {
+    if (mActiveJob != null) {
+      finishJob(mActiveJob, -1);
+    }
+
+    if ((mDiskJobCount > 0)
+      && ((mHeadSize < mMaxJobsInMemory / 2) || mReadyQueue.isEmpty()
+          || (mReadyQueue.peek().mReadyTime > System.currentTimeMillis())))
+    {
+      // Get more jobs, so there are more hosts to choose from
+      readJobsFromDisk();
+    }
+
+    HostQueue queue = mReadyQueue.peek();
+    if (queue == null) {
+      throw new RegainException("There is no job whose host may be visited ("
+          + size() + " jobs left)");
+    }
+
+    long waitTime = queue.mReadyTime - System.currentTimeMillis();
+    if (waitTime > 0) {
+      if (mLog.isDebugEnabled()) {
+        mLog.debug("Waiting " + waitTime + " ms for host " + queue.mHost);
+      }
+      try {
+        Thread.sleep(waitTime);
+      }
+      catch (InterruptedException exc) {}
+    }
+
+    mReadyQueue.poll();
+    queue.mQueued = false;
+    CrawlerJob job = queue.removeFirst();
+    mHeadSize--;
+    mHostScheduler.startRequest(queue.mHost);
+    if (queue.isEmpty()) {
+      mHostQueueMap.remove(queue.mHost);
+    } else {
+      enqueue(queue);
+    }
+
+    mActiveJob = job;
+    return job;
+  }
+
+
+  /**
+   * Tells that the document of a job was loaded, so the next document of its
+   * host may be scheduled.
+   *
+   * @param job The job.
+   * @param responseTime The time loading the document took (in milliseconds)
+   *        or -1 if nothing was loaded from the host.
+   */
+  public void finishJob(CrawlerJob job, long responseTime) {
+    if (job != mActiveJob) {
+      return;
+    }
+    mActiveJob = null;
+
+    String host = HostScheduler.getHostKey(job.getUrl());
+    mHostScheduler.finishRequest(host, responseTime);
+
+    // The host may be visited at another time now
+    HostQueue queue = mHostQueueMap.get(host);
+    if (queue != null) {
+      if (queue.mQueued) {
+        mReadyQueue.remove(queue);
+        queue.mQueued = false;
+      }
+      enqueue(queue);
+    }
+  }
+
+
+  /**
+   * Reads jobs from the segment files into the head.
+   *
+   * @throws RegainException If reading failed.
+   */
+  private void readJobsFromDisk() throws RegainException {
+    try {
+      while ((mDiskJobCount > 0) && (mHeadSize < mMaxJobsInMemory)) {
+        if ((mReadSegment < mWriteSegment)
+          && (mReadOffset >= getSegmentFile(mReadSegment).length()))
+        {
+          // This segment is finished -> Go on with the next one
+          closeInput();
+          mReadSegment++;
+          mReadOffset = 0;
+        }
+
+        if ((mOut != null) && (mReadSegment == mWriteSegment)) {
+          // Make sure all jobs of the segment are on disk
+          // NOTE: The read segment may have reached the write segment in this
+          //       loop and jobs may have been added since the last flush
+          mOut.flush();
+        }
+
+        if (mIn == null) {
+          FileInputStream stream = new FileInputStream(getSegmentFile(mReadSegment));
+          skipFully(stream, mReadOffset);
+          mIn = new DataInputStream(new BufferedInputStream(stream));
+        }
+
+        int[] lengthHolder = new int[1];
+        addToHead(readJob(mIn, lengthHolder), false);
+        mReadOffset += lengthHolder[0];
+        mDiskJobCount--;
+      }
+    }
+    catch (IOException exc) {
+      throw new RegainException("Reading jobs from frontier failed", exc);
+    }
+  }
+
+
+  /**
+   * Saves a checkpoint of the frontier and of the URLs the UrlChecker has
+   * seen. The segment files that were read completely are deleted.
+   *
+   * @param urlChecker The UrlChecker whose seen URLs should be saved.
+   * @throws RegainException If writing the checkpoint failed.
+   */
+  public void checkpoint(UrlChecker urlChecker) throws RegainException {
+    int number = mCheckpointNumber + 1;
+    File tmpFile = new File(mDir, CHECKPOINT_FILE + ".tmp");
+    File checkpointFile = new File(mDir, CHECKPOINT_FILE);
+    DataOutputStream out = null;
+    try {
+      if (mOut != null) {
+        mOut.flush();
+      }
+
+      urlChecker.saveSeenUrls(getSeenUrlDir(number));
+
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      out.writeInt(CHECKPOINT_VERSION);
+      out.writeInt(number);
+      out.writeInt(mReadSegment);
+      out.writeLong(mReadOffset);
+      out.writeInt(mWriteSegment);
+      out.writeLong(getSegmentFile(mWriteSegment).length());
+      out.writeLong(mDiskJobCount);
+      out.writeInt(mHeadSize);
+      for (HostQueue queue : mHostQueueMap.values()) {
+        for (CrawlerJob job : queue.mFirstJobList) {
+          writeJob(out, job);
+        }
+        // Write the jobs in the order they are taken, so they keep this order
+        // when they are added again on resume
+        CrawlerJob[] jobArr = queue.mJobQueue.toArray(new CrawlerJob[queue.mJobQueue.size()]);
+        Arrays.sort(jobArr, PRIORITY_ORDER);
+        for (CrawlerJob job : jobArr) {
+          writeJob(out, job);
+        }
+      }
+      out.close();
+      out = null;
+    }
+    catch (IOException exc) {
+      throw new RegainException("Writing frontier checkpoint failed", exc);
+    }
+    finally {
+      if (out != null) {
+        try { out.close(); } catch (IOException exc) {}
+      }
+    }
+
+    // Replace the old checkpoint
+    if (checkpointFile.exists() && ! checkpointFile.delete()) {
+      throw new RegainException("Deleting old frontier checkpoint failed: "
+          + checkpointFile.getAbsolutePath());
+    }
+    if (! tmpFile.renameTo(checkpointFile)) {
+      throw new RegainException("Renaming frontier checkpoint failed: "
+          + tmpFile.getAbsolutePath());
+    }
+    RegainToolkit.deleteDirectory(getSeenUrlDir(mCheckpointNumber));
+    mCheckpointNumber = number;
+
+    // Delete the segments that were read completely
+    for (int segment = mReadSegment - 1; getSegmentFile(segment).exists(); segment--) {
+      if (! getSegmentFile(segment).delete()) {
+        mLog.warn("Deleting frontier segment failed: " + getSegmentFile(segment));
+      }
+    }
+
+    if (mLog.isDebugEnabled()) {
+      mLog.debug("Wrote frontier checkpoint " + number + " with " + size() + " jobs");
+    }
+  }
+
+
+  /**
+   * Restores the URLs the UrlChecker had seen at the checkpoint the frontier
+   * was resumed from.
+   *
+   * @param urlChecker The UrlChecker to restore.
+   * @throws RegainException If reading the seen URLs failed.
+   */
+  public void restoreSeenUrls(UrlChecker urlChecker) throws RegainException {
+    if (mResumed) {
+      urlChecker.loadSeenUrls(getSeenUrlDir(mCheckpointNumber));
+    }
+  }
+
+
+  /**
+   * Closes the frontier.
+   *
+   * @param delete Whether the segment files and the checkpoint should be
+   *        deleted. This should be done if the crawl is finished.
+   */
+  public void close(boolean delete) {
+    try {
+      closeInput();
+      if (mOut != null) {
+        mOut.close();
+        mOut = null;
+      }
+    }
+    catch (IOException exc) {
+      mLog.warn("Closing frontier failed", exc);
+    }
+
+    mHostQueueMap.clear();
+    mReadyQueue.clear();
+    mHeadSize = 0;
+    mActiveJob = null;
+    mDiskJobCount = 0;
+
+    if (delete) {
+      try {
+        RegainToolkit.deleteDirectory(mDir);
+      }
+      catch (RegainException exc) {
+        mLog.warn("Deleting frontier directory failed", exc);
+      }
+    }
+  }
+
+
+  /**
+   * Reads a checkpoint. Jobs written to the segment files after the
+   * checkpoint are removed.
+   *
+   * @param checkpointFile The checkpoint file.
+   * @throws RegainException If reading failed.
+   */
+  private void readCheckpoint(File checkpointFile) throws RegainException {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)));
+      int version = in.readInt();
+      if (version != CHECKPOINT_VERSION) {
+        throw new RegainException("Frontier checkpoint has unknown version "
+            + version + ": " + checkpointFile.getAbsolutePath());
+      }
+      mCheckpointNumber = in.readInt();
+      mReadSegment = in.readInt();
+      mReadOffset = in.readLong();
+      mWriteSegment = in.readInt();
+      long writeLength = in.readLong();
+      mDiskJobCount = in.readLong();
+      int headSize = in.readInt();
+      int[] lengthHolder = new int[1];
+      for (int i = 0; i < headSize; i++) {
+        addToHead(readJob(in, lengthHolder), false);
+      }
+
+      // Cut off the jobs written after the checkpoint
+      File writeFile = getSegmentFile(mWriteSegment);
+      RandomAccessFile raf = new RandomAccessFile(writeFile, "rw");
+      try {
+        raf.setLength(writeLength);
+      }
+      finally {
+        raf.close();
+      }
+      for (int segment = mWriteSegment + 1; getSegmentFile(segment).exists(); segment++) {
+        getSegmentFile(segment).delete();
+      }
+    }
+    catch (IOException exc) {
+      throw new RegainException("Reading frontier checkpoint failed: "
+          + checkpointFile.getAbsolutePath(), exc);
+    }
+    finally {
+      if (in != null) {
+        try { in.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * Closes the stream reading the read segment.
+   *
+   * @throws IOException If closing failed.
+   */
+  private void closeInput() throws IOException {
+    if (mIn != null) {
+      mIn.close();
+      mIn = null;
+    }
+  }
+
+
+  /**
+   * Gets a segment file.
+   *
+   * @param segment The number of the segment.
+   * @return The segment file.
+   */
+  private File getSegmentFile(int segment) {
+    return new File(mDir, "jobs-" + segment + ".seg");
+  }
+
+
+  /**
+   * Gets the directory holding the seen URLs of a checkpoint.
+   *
+   * @param checkpointNumber The number of the checkpoint.
+   * @return The directory.
+   */
+  private File getSeenUrlDir(int checkpointNumber) {
+    return new File(mDir, "seen-" + checkpointNumber);
+  }
+
+
+  /**
+   * Writes a job.
+   *
+   * @param out The stream to write to.
+   * @param job The job to write.
+   * @return The number of bytes written.
+   * @throws IOException If writing failed.
+   */
+  private static int writeJob(DataOutputStream out, CrawlerJob job)
+    throws IOException
+  {
+    int length = writeString(out, job.getUrl());
+    length += writeString(out, job.getSourceUrl());
+    length += writeString(out, job.getSourceLinkText());
+    out.writeByte((job.shouldBeParsed() ? 1 : 0) | (job.shouldBeIndexed() ? 2 : 0));
+    out.writeInt(job.getDepth());
+    out.writeDouble(job.getPriority());
+    return length + 13;
+  }
+
+
+  /**
+   * Reads a job.
+   *
+   * @param in The stream to read from.
+   * @param lengthHolder Gets the number of bytes read.
+   * @return The job.
+   * @throws IOException If reading failed.
+   */
+  private static CrawlerJob readJob(DataInputStream in, int[] lengthHolder)
+    throws IOException
+  {
+    lengthHolder[0] = 0;
+    String url = readString(in, lengthHolder);
+    String sourceUrl = readString(in, lengthHolder);
+    String sourceLinkText = readString(in, lengthHolder);
+    int flags = in.readByte();
+    CrawlerJob job = new CrawlerJob(url, sourceUrl, sourceLinkText,
+        (flags & 1) != 0, (flags & 2) != 0);
+    job.setDepth(in.readInt());
+    job.setPriority(in.readDouble());
+    lengthHolder[0] += 13;
+    return job;
+  }
+
+
+  /**
+   * Writes a String that may be null.
+   * <p>
+   * NOTE: DataOutputStream.writeUTF can't be used, since link texts may be
+   * longer than 64 KB.
+   *
+   * @param out The stream to write to.
+   * @param text The String to write. May be null.
+   * @return The number of bytes written.
+   * @throws IOException If writing failed.
+   */
+  private static int writeString(DataOutputStream out, String text)
+    throws IOException
+  {
+    if (text == null) {
+      out.writeInt(-1);
+      return 4;
+    } else {
+      byte[] bytes = text.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      return 4 + bytes.length;
+    }
+  }
+
+
+  /**
+   * Reads a String that may be null.
+   *
+   * @param in The stream to read from.
+   * @param lengthHolder The number of bytes read is added to its first
+   *        element.
+   * @return The String. May be null.
+   * @throws IOException If reading failed.
+   */
+  private static String readString(DataInputStream in, int[] lengthHolder)
+    throws IOException
+  {
+    int length = in.readInt();
+    lengthHolder[0] += 4;
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    lengthHolder[0] += length;
+    return new String(bytes, "UTF-8");
+  }
+
+
+  /**
+   * Skips bytes of a stream.
+   *
+   * @param stream The stream.
+   * @param count The number of bytes to skip.
+   * @throws IOException If skipping failed.
+   */
+  private static void skipFully(FileInputStream stream, long count)
+    throws IOException
+  {
+    while (count > 0) {
+      long skipped = stream.skip(count);
+      if (skipped <= 0) {
+        throw new IOException("Unexpected end of frontier segment");
+      }
+      count -= skipped;
+    }
+  }
+
+
+
+  /**
+   * The jobs of one host held in memory.
+   */
+  private static class HostQueue implements Comparable<HostQueue> {
+
+    /** The host key. */
+    private String mHost;
+
+    /** The jobs of the host that come before all others. */
+    private LinkedList<CrawlerJob> mFirstJobList = new LinkedList<CrawlerJob>();
+
+    /** The other jobs of the host, sorted by their priority. */
+    private PriorityQueue<CrawlerJob> mJobQueue
+      = new PriorityQueue<CrawlerJob>(11, PRIORITY_ORDER);
+
+    /** Whether the queue is in the ready queue. */
+    private boolean mQueued;
+
+    /** The time when the host may be visited. Set when the queue is queued. */
+    private long mReadyTime;
+
+    /**
+     * The number of the queue in the order it was queued. Hosts with the same
+     * ready time are visited in this order.
+     */
+    private long mEnqueueNumber;
+
+
+    /**
+     * Creates a new instance of HostQueue.
+     *
+     * @param host The host key.
+     */
+    public HostQueue(String host) {
+      mHost = host;
+    }
+
+
+    /**
+     * Checks whether the queue has no jobs.
+     *
+     * @return Whether the queue is empty.
+     */
+    public boolean isEmpty() {
+      return mFirstJobList.isEmpty() && mJobQueue.isEmpty();
+    }
+
+
+    /**
+     * Removes the next job of the host.
+     *
+     * @return The next job.
+     */
+    public CrawlerJob removeFirst() {
+      if (! mFirstJobList.isEmpty()) {
+        return mFirstJobList.removeFirst();
+      }
+      return mJobQueue.poll();
+    }
+
+
+    /**
+     * Compares the queues by the time their host may be visited.
+     *
+     * @param other The queue to compare with.
+     * @return A negative number if this queue comes first.
+     */
+    public int compareTo(HostQueue other) {
+      if (mReadyTime != other.mReadyTime) {
+        return (mReadyTime < other.mReadyTime) ? -1 : 1;
+      }
+      if (mEnqueueNumber != other.mEnqueueNumber) {
+        return (mEnqueueNumber < other.mEnqueueNumber) ? -1 : 1;
+      }
+      return 0;
+    }
+
+  }
+
+}
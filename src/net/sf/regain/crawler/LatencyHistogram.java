@@ -0,0 +1,179 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations that can tell percentiles (like the median or the
+ * 99th percentile).
+ * <p>
+ * The durations are counted in buckets with a relative width of about 3%
+ * (32 buckets per power of two), like a HDR histogram. So the histogram has a
+ * fixed size of about 15 KB, no matter how many durations are recorded, and a
+ * percentile is exact up to 3%.
+ * <p>
+ * Recording uses atomic counters only, so any number of threads may record at
+ * the same time without locking.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class LatencyHistogram {
+
+  /** The number of bits of a value that select the bucket within its power of two. */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /** The number of buckets per power of two. */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets. Covers all positive long values. */
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  /** The number of values in each bucket. */
+  private AtomicLongArray mBucketArr = new AtomicLongArray(BUCKET_COUNT);
+
+  /** The number of recorded values. */
+  private AtomicLong mCount = new AtomicLong();
+
+  /** The sum of the recorded values. */
+  private AtomicLong mSum = new AtomicLong();
+
+  /** The largest recorded value. */
+  private AtomicLong mMax = new AtomicLong();
+
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos The duration in nanoseconds. Negative values are taken as 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    mBucketArr.incrementAndGet(getBucketIndex(value));
+    mCount.incrementAndGet();
+    mSum.addAndGet(value);
+
+    long max = mMax.get();
+    while ((value > max) && ! mMax.compareAndSet(max, value)) {
+      max = mMax.get();
+    }
+  }
+
+
+  /**
+   * Gets the number of recorded durations.
+   *
+   * @return The number of recorded durations.
+   */
+  public long getCount() {
+    return mCount.get();
+  }
+
+
+  /**
+   * Gets the average of the recorded durations.
+   *
+   * @return The average duration in nanoseconds. Is 0 if nothing was recorded.
+   */
+  public long getMean() {
+    long count = mCount.get();
+    return (count == 0) ? 0 : mSum.get() / count;
+  }
+
+
+  /**
+   * Gets the longest recorded duration.
+   *
+   * @return The longest duration in nanoseconds.
+   */
+  public long getMax() {
+    return mMax.get();
+  }
+
+
+  /**
+   * Gets a percentile of the recorded durations. E.g. the 95th percentile is
+   * the duration that 95% of the recorded durations don't exceed.
+   *
+   * @param percentile The percentile (between 0 and 100).
+   * @return The duration in nanoseconds. Is 0 if nothing was recorded.
+   */
+  public long getPercentile(double percentile) {
+    // NOTE: The buckets may be changed while we count. So we count the
+    //       buckets instead of using mCount.
+    long[] countArr = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      countArr[i] = mBucketArr.get(i);
+      total += countArr[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * total);
+    rank = Math.max(rank, 1);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += countArr[i];
+      if (seen >= rank) {
+        return Math.min(getBucketUpperBound(i), mMax.get());
+      }
+    }
+    return mMax.get();
+  }
+
+
+  /**
+   * Gets the bucket of a value.
+   *
+   * @param value The value. Must not be negative.
+   * @return The index of the bucket.
+   */
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      // Small values have a bucket each
+      return (int) value;
+    }
+    int highestBit = 63 - Long.numberOfLeadingZeros(value);
+    int shift = highestBit - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+
+  /**
+   * Gets the largest value of a bucket.
+   *
+   * @param index The index of the bucket.
+   * @return The largest value that is counted in the bucket.
+   */
+  static long getBucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+}
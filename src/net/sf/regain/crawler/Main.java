@@ -55,11 +55,14 @@ public class Main {
     String[] onlyEntriesArr = null;
     boolean updateIndex = true;
     boolean retryFailedDocs = false;
+    boolean rollback = false;
     for (int i = 0; i < args.length; i++) {
       if (args[i].equalsIgnoreCase("-forceNewIndex")) {
         updateIndex = false;
       } else if (args[i].equalsIgnoreCase("-retryFailedDocs")) {
         retryFailedDocs = true;
+      } else if (args[i].equalsIgnoreCase("-rollback")) {
+        rollback = true;
       } else if (args[i].equalsIgnoreCase("--help") || args[i].equalsIgnoreCase("/?")) {
         showHelp();
       } else if (args[i].equalsIgnoreCase("-onlyEntries")) {
@@ -97,6 +100,16 @@ public class Main {
       return; // Abort
     }
 
+    // Roll back the index instead of crawling if wanted
+    if (rollback) {
+      try {
+        IndexWriterManager.rollbackIndex(config);
+      } catch (RegainException exc) {
+        mLog.error("Rolling back the index failed", exc);
+      }
+      return;
+    }
+
     Properties authProps = new Properties();
 
     try {
@@ -190,6 +203,8 @@ public class Main {
       "  --help:             Shows this help page\n" +
       "  -forceNewIndex:     Forces the creation of a new search index\n" +
       "  -retryFailedDocs:   The preparation of documents that failed last time is retried\n" +
+      "  -rollback:          Rolls the index back to the published generation before\n" +
+      "                      the last one (only if the index is updated in place)\n" +
       "  -onlyEntries <CSV>: The white list entries to use, separated by comma (,)\n" +
       "                      (Default: all entries)\n" +
       "  -config <file>:     The configuration file to use\n" +
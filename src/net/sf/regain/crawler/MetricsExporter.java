@@ -0,0 +1,177 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.config.CrawlerConfig;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Publishes the {@link CrawlerMetrics} while the crawler is running: As a
+ * snapshot file that is rewritten periodically and/or as a JMX MBean.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class MetricsExporter implements Runnable {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(MetricsExporter.class);
+
+  /** The name of the MBean. */
+  private static final String MBEAN_NAME = "net.sf.regain:type=CrawlerMetrics";
+
+  /** The file to write the snapshots to. Is <code>null</code> if there is none. */
+  private File mSnapshotFile;
+
+  /** The time between two snapshots (in milliseconds). */
+  private long mInterval;
+
+  /** Whether to register the MBean. */
+  private boolean mRegisterMBean;
+
+  /** The name of the registered MBean. Is <code>null</code> if there is none. */
+  private ObjectName mMBeanName;
+
+  /** The thread writing the snapshots. Is <code>null</code> if there is none. */
+  private Thread mThread;
+
+  /** Whether the exporter was stopped. */
+  private volatile boolean mStopped;
+
+
+  /**
+   * Creates a new instance of MetricsExporter.
+   *
+   * @param config The crawler configuration.
+   */
+  public MetricsExporter(CrawlerConfig config) {
+    String fileName = config.getMetricsFile();
+    mSnapshotFile = (fileName == null) ? null : new File(fileName);
+    mInterval = config.getMetricsInterval() * 1000L;
+    mRegisterMBean = config.getMetricsJmx();
+  }
+
+
+  /**
+   * Starts publishing the metrics.
+   */
+  public void start() {
+    if (mRegisterMBean) {
+      try {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MBEAN_NAME);
+        if (server.isRegistered(name)) {
+          // An earlier crawler run in this VM did not clean up
+          server.unregisterMBean(name);
+        }
+        server.registerMBean(new CrawlerMetrics(), name);
+        mMBeanName = name;
+      }
+      catch (Exception exc) {
+        mLog.warn("Registering the crawler metrics MBean failed", exc);
+      }
+    }
+
+    if (mSnapshotFile != null) {
+      mThread = new Thread(this, "Crawler metrics");
+      mThread.setDaemon(true);
+      mThread.start();
+    }
+  }
+
+
+  /**
+   * Stops publishing the metrics. The snapshot file gets a final snapshot.
+   */
+  public void stop() {
+    mStopped = true;
+    if (mThread != null) {
+      mThread.interrupt();
+      try {
+        mThread.join();
+      }
+      catch (InterruptedException exc) {
+        // Write the final snapshot anyway
+      }
+      mThread = null;
+      writeSnapshot();
+    }
+
+    if (mMBeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mMBeanName);
+      }
+      catch (Exception exc) {
+        mLog.warn("Unregistering the crawler metrics MBean failed", exc);
+      }
+      mMBeanName = null;
+    }
+  }
+
+
+  /**
+   * Writes a snapshot in every interval until the exporter is stopped.
+   */
+  public void run() {
+    while (! mStopped) {
+      try {
+        Thread.sleep(mInterval);
+      }
+      catch (InterruptedException exc) {
+        // We were stopped
+        return;
+      }
+      writeSnapshot();
+    }
+  }
+
+
+  /**
+   * Writes a snapshot to the snapshot file. The file is replaced atomically,
+   * so readers never see a half written snapshot.
+   */
+  private void writeSnapshot() {
+    File tmpFile = new File(mSnapshotFile.getAbsolutePath() + ".tmp");
+    try {
+      RegainToolkit.writeToFile(CrawlerMetrics.createSnapshot(), tmpFile);
+      if (mSnapshotFile.exists() && ! mSnapshotFile.delete()) {
+        throw new RegainException("Deleting old metrics snapshot failed: "
+          + mSnapshotFile.getAbsolutePath());
+      }
+      if (! tmpFile.renameTo(mSnapshotFile)) {
+        throw new RegainException("Renaming metrics snapshot failed: "
+          + tmpFile.getAbsolutePath());
+      }
+    }
+    catch (RegainException exc) {
+      mLog.warn("Writing the crawler metrics failed", exc);
+    }
+  }
+
+}
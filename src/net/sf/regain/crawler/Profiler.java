@@ -24,12 +24,20 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import net.sf.regain.RegainToolkit;
 import org.apache.log4j.Logger;
 
 /**
  * Misst die Zeit und den Datendurchsatz für einen Verarbeitungsschritt.
  *
+ * <p>
+ * The times are measured in nanoseconds and recorded in a
+ * {@link LatencyHistogram}, so percentiles of the durations are known. The
+ * counters are atomic, so a profiler may be read by other threads (e.g. the
+ * {@link CrawlerMetrics}) while it measures.
+ *
  * @author Til Schneider, www.murfman.de
  */
 public class Profiler {
@@ -37,6 +45,9 @@ public class Profiler {
   /** The logger for this class */
   private static Logger mLog = Logger.getLogger(Profiler.class);
 
+  /** The number of slowest measures to remember. */
+  private static final int SLOWEST_MEASURE_COUNT = 5;
+
   /** Eine Liste mit allen erzeugten Profilern. */
   private static List<Profiler> mProfilerList;
 
@@ -44,19 +55,37 @@ public class Profiler {
   private String mName;
   /** Der Einheit, die gemessen wird. */
   private String mUnit;
-  /** Die kummulierte Gesamtzeit. */
-  private long mTotalTime;
+  /** Die kummulierte Gesamtzeit (in Nanosekunden). */
+  private AtomicLong mTotalNanos = new AtomicLong();
   /** Die kummulierte Datenmenge. */
-  private long mTotalBytes;
+  private AtomicLong mTotalBytes = new AtomicLong();
   /** Die Anzahl der Messungen. */
-  private int mMeasureCount;
+  private AtomicInteger mMeasureCount = new AtomicInteger();
   /** Die Anzahl der abgebrochenen Messungen. */
-  private int mAbortedMeasureCount;
+  private AtomicInteger mAbortedMeasureCount = new AtomicInteger();
+  /** The durations of the measures. */
+  private LatencyHistogram mHistogram = new LatencyHistogram();
+  /**
+   * The slowest completed measures that named their item (e.g. the URL of a
+   * document), the slowest first.
+   */
+  private ArrayList<SlowMeasure> mSlowestMeasureList = new ArrayList<SlowMeasure>();
+  /**
+   * The duration a measure must exceed to get into the list of the slowest
+   * measures (in nanoseconds).
+   */
+  private volatile long mSlowestMeasureThreshold = -1;
+  /**
+   * The start time of the measuring running in the current thread (from
+   * {@link System#nanoTime()}). Is <code>null</code> if there is none.
+   */
+  private ThreadLocal<Long> mThreadMeasureStart = new ThreadLocal<Long>();
   /**
-   * Die Zeit, zu der die laufende Messung begonnen hat. Ist -1, wenn keine
+   * Die Zeit (von {@link System#nanoTime()}), zu der die zuletzt gestartete
+   * Messung begonnen hat. Ist -1, wenn keine
    * Messung läuft.
    */
-  private long mMeasureStart = -1;
+  private volatile long mMeasureStart = -1;
 
 
 
@@ -83,7 +112,7 @@ public class Profiler {
    * @return The number of measures.
    */
   public int getMeasureCount() {
-    return mMeasureCount;
+    return mMeasureCount.get();
   }
 
 
@@ -93,7 +122,70 @@ public class Profiler {
    * @return The number of aborted measures.
    */
   public int getAbortedMeasureCount() {
-    return mAbortedMeasureCount;
+    return mAbortedMeasureCount.get();
+  }
+
+
+  /**
+   * Gets the name of the measured step.
+   *
+   * @return The name.
+   */
+  public String getName() {
+    return mName;
+  }
+
+
+  /**
+   * Gets the name of the things the measured step processes.
+   *
+   * @return The unit, e.g. <code>documents</code>.
+   */
+  public String getUnit() {
+    return mUnit;
+  }
+
+
+  /**
+   * Gets the total time of the completed measures.
+   *
+   * @return The total time in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return mTotalNanos.get();
+  }
+
+
+  /**
+   * Gets the total number of bytes processed by the completed measures.
+   *
+   * @return The total number of bytes.
+   */
+  public long getTotalBytes() {
+    return mTotalBytes.get();
+  }
+
+
+  /**
+   * Gets the histogram of the durations of the completed measures.
+   *
+   * @return The histogram.
+   */
+  public LatencyHistogram getHistogram() {
+    return mHistogram;
+  }
+
+
+  /**
+   * Gets the slowest completed measures that named their item.
+   *
+   * @return The slowest measures, the slowest first.
+   * @see #stopMeasuring(long, String)
+   */
+  public synchronized SlowMeasure[] getSlowestMeasures() {
+    SlowMeasure[] measureArr = new SlowMeasure[mSlowestMeasureList.size()];
+    mSlowestMeasureList.toArray(measureArr);
+    return measureArr;
   }
 
 
@@ -109,7 +201,7 @@ public class Profiler {
     if (startTime == -1) {
       return -1;
     } else {
-      return System.currentTimeMillis() - startTime;
+      return (System.nanoTime() - startTime) / 1000000L;
     }
   }
 
@@ -136,15 +228,30 @@ public class Profiler {
   }
 
 
+  /**
+   * Gets the registered profilers.
+   *
+   * @return A copy of the list of the registered profilers.
+   */
+  public static synchronized List<Profiler> getRegisteredProfilers() {
+    if (mProfilerList == null) {
+      return new ArrayList<Profiler>();
+    }
+    return new ArrayList<Profiler>(mProfilerList);
+  }
+
+
   /**
    * Startet eine Messung.
    */
   public void startMeasuring() {
-    if (mMeasureStart != -1) {
+    if (mThreadMeasureStart.get() != null) {
       mLog.warn("A profiler measuring for " + mName + " was started, although "
         + "there is currently a measuring running!");
     }
-    mMeasureStart = System.currentTimeMillis();
+    long start = System.nanoTime();
+    mThreadMeasureStart.set(Long.valueOf(start));
+    mMeasureStart = start;
   }
 
 
@@ -155,15 +262,60 @@ public class Profiler {
    * @param bytes Die Anzahl der verarbeiteten Bytes.
    */
   public void stopMeasuring(long bytes) {
-    if (mMeasureStart == -1) {
+    stopMeasuring(bytes, null);
+  }
+
+
+
+  /**
+   * Stops a measuring and remembers the measured item if it was one of the
+   * slowest.
+   *
+   * @param bytes The number of processed bytes.
+   * @param item The measured item, e.g. the URL of a document. May be
+   *        <code>null</code>.
+   * @see #getSlowestMeasures()
+   */
+  public void stopMeasuring(long bytes, String item) {
+    Long start = mThreadMeasureStart.get();
+    if (start == null) {
       mLog.warn("A profiler measuring for " + mName + " was stopped, although "
         + "there was currently no measuring running!");
     } else {
-      mTotalTime += System.currentTimeMillis() - mMeasureStart;
-      mTotalBytes += bytes;
-      mMeasureCount++;
+      long nanos = System.nanoTime() - start.longValue();
+      addNanoMeasuring(nanos, bytes);
+      clearMeasureStart(start.longValue());
 
-      mMeasureStart = -1;
+      if ((item != null) && (nanos > mSlowestMeasureThreshold)) {
+        addSlowMeasure(new SlowMeasure(item, nanos));
+      }
+    }
+  }
+
+
+
+  /**
+   * Adds a measure to the list of the slowest measures.
+   *
+   * @param measure The measure to add.
+   */
+  private synchronized void addSlowMeasure(SlowMeasure measure) {
+    int index = 0;
+    while ((index < mSlowestMeasureList.size())
+      && (mSlowestMeasureList.get(index).getNanos() >= measure.getNanos()))
+    {
+      index++;
+    }
+    if (index >= SLOWEST_MEASURE_COUNT) {
+      return;
+    }
+
+    mSlowestMeasureList.add(index, measure);
+    if (mSlowestMeasureList.size() > SLOWEST_MEASURE_COUNT) {
+      mSlowestMeasureList.remove(SLOWEST_MEASURE_COUNT);
+    }
+    if (mSlowestMeasureList.size() == SLOWEST_MEASURE_COUNT) {
+      mSlowestMeasureThreshold = mSlowestMeasureList.get(SLOWEST_MEASURE_COUNT - 1).getNanos();
     }
   }
 
@@ -175,17 +327,76 @@ public class Profiler {
    * Exception geworfen wurde.
    */
   public void abortMeasuring() {
-    if (mMeasureStart == -1) {
+    Long start = mThreadMeasureStart.get();
+    if (start == null) {
       mLog.warn("A profiler measuring for " + mName + " was aborted, although "
         + "there was currently no measuring running!");
     } else {
+      clearMeasureStart(start.longValue());
+      mAbortedMeasureCount.incrementAndGet();
+    }
+  }
+
+
+
+  /**
+   * Marks the measuring of the current thread as finished.
+   *
+   * @param start The start time of the measuring.
+   */
+  private void clearMeasureStart(long start) {
+    mThreadMeasureStart.remove();
+    if (mMeasureStart == start) {
       mMeasureStart = -1;
-      mAbortedMeasureCount++;
     }
   }
 
 
 
+  /**
+   * Adds a measuring that was taken outside of this profiler. Unlike
+   * {@link #startMeasuring()} and {@link #stopMeasuring(long)} this may be
+   * called by several threads at the same time, e.g. for work that is done in
+   * background threads.
+   *
+   * @param time The duration of the measured step (in milli seconds).
+   * @param bytes The number of processed bytes.
+   */
+  public void addMeasuring(long time, long bytes) {
+    addNanoMeasuring(time * 1000000L, bytes);
+  }
+
+
+
+  /**
+   * Adds a measuring that was taken outside of this profiler with
+   * {@link System#nanoTime()}. May be called by several threads at the same
+   * time.
+   *
+   * @param nanos The duration of the measured step (in nanoseconds).
+   * @param bytes The number of processed bytes.
+   * @see #addMeasuring(long, long)
+   */
+  public void addNanoMeasuring(long nanos, long bytes) {
+    mTotalNanos.addAndGet(nanos);
+    mTotalBytes.addAndGet(bytes);
+    mMeasureCount.incrementAndGet();
+    mHistogram.record(nanos);
+  }
+
+
+
+  /**
+   * Adds an aborted measuring that was taken outside of this profiler.
+   *
+   * @see #addMeasuring(long, long)
+   */
+  public void addAbortedMeasuring() {
+    mAbortedMeasureCount.incrementAndGet();
+  }
+
+
+
   /**
    * Gibt das Resultat der Messungen als String zurück.
    *
@@ -193,10 +404,10 @@ public class Profiler {
    */
   public String toString() {
     // Get a current snap shot
-    long totalTime = mTotalTime;
-    long totalBytes = mTotalBytes;
-    int measureCount = mMeasureCount;
-    int abortedMeasureCount = mAbortedMeasureCount;
+    long totalTime = mTotalNanos.get() / 1000000L;
+    long totalBytes = mTotalBytes.get();
+    int measureCount = mMeasureCount.get();
+    int abortedMeasureCount = mAbortedMeasureCount.get();
 
     // Calculate the results
     long averageTime = 0;
@@ -257,6 +468,13 @@ public class Profiler {
       appendLabel(buffer, "Average time", minLabelLength);
       buffer.append(RegainToolkit.toTimeString(averageTime) + lineSeparator);
 
+      appendLabel(buffer, "Latency", minLabelLength);
+      buffer.append("p50 " + RegainToolkit.toTimeString(mHistogram.getPercentile(50) / 1000000L)
+        + ", p95 " + RegainToolkit.toTimeString(mHistogram.getPercentile(95) / 1000000L)
+        + ", p99 " + RegainToolkit.toTimeString(mHistogram.getPercentile(99) / 1000000L)
+        + ", max " + RegainToolkit.toTimeString(mHistogram.getMax() / 1000000L)
+        + lineSeparator);
+
       appendLabel(buffer, "Average data", minLabelLength);
       buffer.append(RegainToolkit.bytesToString(averageBytes) + lineSeparator);
 
@@ -310,7 +528,7 @@ public class Profiler {
    * @return Ob dieser Profiler genutzt wurde.
    */
   public boolean wasUsed() {
-    return (mMeasureCount > 0) || (mAbortedMeasureCount > 0);
+    return (mMeasureCount.get() > 0) || (mAbortedMeasureCount.get() > 0);
   }
 
   /**
@@ -336,4 +554,51 @@ public class Profiler {
 
     return buffer.toString();
   }
+
+
+  /**
+   * A measure that was one of the slowest of a profiler.
+   */
+  public static class SlowMeasure {
+
+    /** The measured item, e.g. the URL of a document. */
+    private String mItem;
+
+    /** The duration (in nanoseconds). */
+    private long mNanos;
+
+
+    /**
+     * Creates a new instance of SlowMeasure.
+     *
+     * @param item The measured item.
+     * @param nanos The duration (in nanoseconds).
+     */
+    public SlowMeasure(String item, long nanos) {
+      mItem = item;
+      mNanos = nanos;
+    }
+
+
+    /**
+     * Gets the measured item.
+     *
+     * @return The measured item, e.g. the URL of a document.
+     */
+    public String getItem() {
+      return mItem;
+    }
+
+
+    /**
+     * Gets the duration.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getNanos() {
+      return mNanos;
+    }
+
+  }
+
 }
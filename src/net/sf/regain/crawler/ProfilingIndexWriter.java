@@ -0,0 +1,159 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.store.Directory;
+
+/**
+ * An IndexWriter that records its flushes and merges in profilers.
+ * <p>
+ * A flush writes the buffered documents as new segment, so the flush profiler
+ * shows how often the RAM buffer ran full and how much memory it held. The
+ * merge profiler shows the merges done by the merge scheduler (in background
+ * threads or in the crawler thread).
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class ProfilingIndexWriter extends IndexWriter {
+
+  /** The profiler for the flushes. */
+  private Profiler mFlushProfiler;
+
+  /** The profiler for the merges. */
+  private Profiler mMergeProfiler;
+
+  /**
+   * The RAM used by the buffered documents after the last document was added.
+   * <p>
+   * NOTE: The RAM size can't be read in {@link #doBeforeFlush()}, because
+   * close() flushes when the writer already counts as closed.
+   */
+  private volatile long mBufferedBytes;
+
+  /** The time when the running flush was started. */
+  private long mFlushStart;
+
+  /** The RAM used by the buffered documents of the running flush. */
+  private long mFlushBytes;
+
+
+  /**
+   * Creates a new instance of ProfilingIndexWriter.
+   *
+   * @param directory The directory of the index.
+   * @param config The configuration of the writer.
+   * @param flushProfiler The profiler for the flushes.
+   * @param mergeProfiler The profiler for the merges.
+   * @throws IOException If opening the index failed.
+   */
+  public ProfilingIndexWriter(Directory directory, IndexWriterConfig config,
+    Profiler flushProfiler, Profiler mergeProfiler)
+    throws IOException
+  {
+    super(directory, config);
+
+    mFlushProfiler = flushProfiler;
+    mMergeProfiler = mergeProfiler;
+  }
+
+
+  /**
+   * Adds a document and remembers the RAM used by the buffered documents.
+   *
+   * @param doc The document to add.
+   * @param analyzer The analyzer to use.
+   * @throws CorruptIndexException If the index is corrupt.
+   * @throws IOException If adding failed.
+   */
+  @Override
+  public void addDocument(Document doc, Analyzer analyzer)
+    throws CorruptIndexException, IOException
+  {
+    super.addDocument(doc, analyzer);
+    mBufferedBytes = ramSizeInBytes();
+  }
+
+
+  /**
+   * Remembers the start of a flush.
+   *
+   * @throws IOException Never.
+   */
+  @Override
+  protected void doBeforeFlush() throws IOException {
+    // NOTE: This is called within the synchronized flush of the IndexWriter
+    mFlushStart = System.currentTimeMillis();
+    mFlushBytes = mBufferedBytes;
+  }
+
+
+  /**
+   * Records a finished flush. Flushes without buffered documents (e.g. of a
+   * commit right after the last flush) are ignored.
+   *
+   * @throws IOException Never.
+   */
+  @Override
+  protected void doAfterFlush() throws IOException {
+    if (mFlushBytes > 0) {
+      mFlushProfiler.addMeasuring(System.currentTimeMillis() - mFlushStart,
+          mFlushBytes);
+    }
+    mBufferedBytes = 0;
+  }
+
+
+  /**
+   * Runs and records a merge. Is called by the merge scheduler.
+   *
+   * @param merge The merge to run.
+   * @throws CorruptIndexException If the index is corrupt.
+   * @throws IOException If merging failed.
+   */
+  @Override
+  public void merge(MergePolicy.OneMerge merge)
+    throws CorruptIndexException, IOException
+  {
+    long start = System.currentTimeMillis();
+    boolean success = false;
+    try {
+      super.merge(merge);
+      success = true;
+    }
+    finally {
+      if (success) {
+        mMergeProfiler.addMeasuring(System.currentTimeMillis() - start,
+            merge.estimatedMergeBytes);
+      } else {
+        mMergeProfiler.addAbortedMeasuring();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexDeletionPolicy;
+
+/**
+ * Keeps the history of the published generations of an index that is updated
+ * in place.
+ * <p>
+ * The crawler commits several times while it works on the index (e.g. for
+ * every breakpoint), but only the last commit of a crawl is published to the
+ * search mask. The generations of the published commits are stored in the
+ * file {@link #PUBLISHED_GENERATIONS_FILE} of the index directory, the newest
+ * one last. The search mask watches this file and refreshes its searcher when
+ * it changes.
+ * <p>
+ * The policy keeps the newest commit and the commits of the last published
+ * generations, so the index can be rolled back to one of them. All other
+ * commits are deleted.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class PublishedCommitDeletionPolicy implements IndexDeletionPolicy {
+
+  /**
+   * The name of the file in the index directory holding the published
+   * generations.
+   */
+  public static final String PUBLISHED_GENERATIONS_FILE = "publishedGenerations.txt";
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(PublishedCommitDeletionPolicy.class);
+
+  /** The file holding the published generations. */
+  private File mPublishedGenerationsFile;
+
+  /** The number of published generations to keep. */
+  private int mHistorySize;
+
+  /** The published generations, the newest one last. */
+  private List<Long> mPublishedGenerationList;
+
+
+  /**
+   * Creates a new instance of PublishedCommitDeletionPolicy.
+   *
+   * @param indexDir The directory of the index.
+   * @param historySize The number of published generations to keep. Must be at
+   *        least 1.
+   * @throws RegainException If reading the published generations failed.
+   */
+  public PublishedCommitDeletionPolicy(File indexDir, int historySize)
+    throws RegainException
+  {
+    mPublishedGenerationsFile = new File(indexDir, PUBLISHED_GENERATIONS_FILE);
+    mHistorySize = Math.max(historySize, 1);
+    mPublishedGenerationList = new ArrayList<Long>();
+
+    String[] lineArr = RegainToolkit.readListFromFile(mPublishedGenerationsFile);
+    if (lineArr != null) {
+      for (int i = 0; i < lineArr.length; i++) {
+        String line = lineArr[i].trim();
+        if (line.length() != 0) {
+          try {
+            mPublishedGenerationList.add(Long.valueOf(line));
+          }
+          catch (NumberFormatException exc) {
+            throw new RegainException("Illegal generation in "
+                + mPublishedGenerationsFile.getAbsolutePath() + ": " + line, exc);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Gets the published generations.
+   *
+   * @return The published generations, the newest one last.
+   */
+  public synchronized long[] getPublishedGenerations() {
+    long[] generationArr = new long[mPublishedGenerationList.size()];
+    for (int i = 0; i < generationArr.length; i++) {
+      generationArr[i] = mPublishedGenerationList.get(i).longValue();
+    }
+    return generationArr;
+  }
+
+
+  /**
+   * Gets the newest published generation.
+   *
+   * @return The newest published generation or -1 if nothing was published yet.
+   */
+  public synchronized long getLastPublishedGeneration() {
+    if (mPublishedGenerationList.isEmpty()) {
+      return -1;
+    } else {
+      return mPublishedGenerationList.get(mPublishedGenerationList.size() - 1).longValue();
+    }
+  }
+
+
+  /**
+   * Publishes a generation of the index. The oldest generations are removed
+   * from the history if it gets too long. Their commits are deleted with the
+   * next commit.
+   *
+   * @param generation The generation to publish.
+   * @throws RegainException If writing the published generations failed.
+   */
+  public synchronized void publish(long generation) throws RegainException {
+    Long gen = Long.valueOf(generation);
+    mPublishedGenerationList.remove(gen);
+    mPublishedGenerationList.add(gen);
+    while (mPublishedGenerationList.size() > mHistorySize) {
+      mPublishedGenerationList.remove(0);
+    }
+    writePublishedGenerations();
+  }
+
+
+  /**
+   * Replaces a restored generation and all newer ones by the commit that
+   * restored it. Used for rolling back the index.
+   *
+   * @param restoredGeneration The published generation that was restored.
+   * @param newGeneration The generation of the commit restoring it.
+   * @throws RegainException If writing the published generations failed.
+   */
+  public synchronized void restored(long restoredGeneration, long newGeneration)
+    throws RegainException
+  {
+    int index = mPublishedGenerationList.indexOf(Long.valueOf(restoredGeneration));
+    if (index != -1) {
+      while (mPublishedGenerationList.size() > index) {
+        mPublishedGenerationList.remove(index);
+      }
+    }
+    publish(newGeneration);
+  }
+
+
+  /**
+   * Writes the published generations into the index directory.
+   * <p>
+   * The search mask polls the file, so it must never see a partly written
+   * one: The generations are written into a temporary file first, which is
+   * then renamed.
+   *
+   * @throws RegainException If writing failed.
+   */
+  private void writePublishedGenerations() throws RegainException {
+    String[] lineArr = new String[mPublishedGenerationList.size()];
+    for (int i = 0; i < lineArr.length; i++) {
+      lineArr[i] = mPublishedGenerationList.get(i).toString();
+    }
+
+    File tmpFile = new File(mPublishedGenerationsFile.getParentFile(),
+        PUBLISHED_GENERATIONS_FILE + ".tmp");
+    RegainToolkit.writeListToFile(lineArr, tmpFile);
+    if (! tmpFile.renameTo(mPublishedGenerationsFile)) {
+      // NOTE: On Windows a file can't be renamed to an existing one
+      mPublishedGenerationsFile.delete();
+      if (! tmpFile.renameTo(mPublishedGenerationsFile)) {
+        throw new RegainException("Renaming " + tmpFile.getAbsolutePath()
+            + " to " + mPublishedGenerationsFile.getAbsolutePath() + " failed");
+      }
+    }
+  }
+
+
+  /**
+   * Called when the index is opened. Deletes the commits that are neither the
+   * newest nor published.
+   *
+   * @param commitList The commits of the index, the oldest first.
+   * @throws IOException Never.
+   */
+  public void onInit(List<? extends IndexCommit> commitList) throws IOException {
+    onCommit(commitList);
+  }
+
+
+  /**
+   * Called when a new commit was written. Deletes the commits that are neither
+   * the newest nor published.
+   *
+   * @param commitList The commits of the index, the oldest first.
+   * @throws IOException Never.
+   */
+  public synchronized void onCommit(List<? extends IndexCommit> commitList)
+    throws IOException
+  {
+    // NOTE: The last commit is the newest one. It must never be deleted.
+    for (int i = 0; i < commitList.size() - 1; i++) {
+      IndexCommit commit = commitList.get(i);
+      if (! mPublishedGenerationList.contains(Long.valueOf(commit.getGeneration()))) {
+        if (mLog.isDebugEnabled()) {
+          mLog.debug("Deleting unpublished commit " + commit.getSegmentsFileName());
+        }
+        commit.delete();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.zip.CRC32;
+
+import net.sf.regain.RegainException;
+
+/**
+ * Decides how important a crawler job is and whether a document has to be
+ * loaded again, based on the {@link CrawlHistory}.
+ * <p>
+ * The priority of a job is the probability that its document changed since
+ * it was loaded the last time, divided by its link depth plus one. The
+ * probability is estimated from the change rate <i>r</i> of the document and
+ * the time <i>t</i> since the last load as <i>1 - e<sup>-rt</sup></i>.
+ * Documents that were never loaded have the probability 1.
+ * <p>
+ * Every document has a recrawl interval: The time in which it is expected to
+ * change once, limited by the configured minimum and maximum interval. A
+ * document is due if its recrawl interval passed since the last load. So
+ * frequently changing documents are loaded in every crawl, static archives
+ * rarely.
+ * <p>
+ * Only http and https documents are scheduled, since checking the
+ * modification date of a file is cheap.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class RecrawlScheduler {
+
+  /** The history of the loaded documents. */
+  private CrawlHistory mHistory;
+
+  /** The minimum recrawl interval (in milliseconds). */
+  private long mMinInterval;
+
+  /**
+   * The maximum recrawl interval (in milliseconds). Is 0 if every document is
+   * always due.
+   */
+  private long mMaxInterval;
+
+
+  /**
+   * Creates a new instance of RecrawlScheduler.
+   *
+   * @param history The history of the loaded documents.
+   * @param minInterval The minimum recrawl interval (in milliseconds).
+   * @param maxInterval The maximum recrawl interval (in milliseconds). If 0
+   *        every document is always due.
+   */
+  public RecrawlScheduler(CrawlHistory history, long minInterval, long maxInterval) {
+    mHistory = history;
+    mMinInterval = minInterval;
+    mMaxInterval = Math.max(maxInterval, 0);
+  }
+
+
+  /**
+   * Gets the history of the loaded documents.
+   *
+   * @return The history.
+   */
+  public CrawlHistory getHistory() {
+    return mHistory;
+  }
+
+
+  /**
+   * Checks whether the recrawl scheduling is enabled. If not, every document
+   * is always due and no loads have to be recorded.
+   *
+   * @return Whether the recrawl scheduling is enabled.
+   */
+  public boolean isEnabled() {
+    return mMaxInterval > 0;
+  }
+
+
+  /**
+   * Checks whether a document is scheduled.
+   *
+   * @param url The URL of the document.
+   * @return Whether the document is scheduled. Is true for http and https
+   *         documents.
+   */
+  public boolean isScheduled(String url) {
+    return ! HostScheduler.getHostKey(url).equals(HostScheduler.LOCAL_HOST);
+  }
+
+
+  /**
+   * Gets the priority of a crawler job.
+   *
+   * @param url The URL of the job's document.
+   * @param depth The link depth of the job.
+   * @param now The current time (in milliseconds).
+   * @return The priority. The higher the more important.
+   */
+  public double getPriority(String url, int depth, long now) {
+    double changeProbability = 1;
+    if (isScheduled(url)) {
+      double changeRate = mHistory.getChangeRate(url);
+      if (changeRate >= 0) {
+        long age = now - mHistory.getLastLoadTime(url);
+        changeProbability = 1 - Math.exp(-changeRate * Math.max(age, 0));
+      }
+    }
+    return changeProbability / (1 + depth);
+  }
+
+
+  /**
+   * Gets the recrawl interval of a document.
+   *
+   * @param url The URL of the document.
+   * @return The recrawl interval (in milliseconds). Is 0 if the document
+   *         should be loaded in every crawl.
+   */
+  public long getRecrawlInterval(String url) {
+    if (! isEnabled() || ! isScheduled(url)) {
+      return 0;
+    }
+    double changeRate = mHistory.getChangeRate(url);
+    if (changeRate < 0) {
+      // We don't know enough about the document yet
+      return 0;
+    }
+    double expectedInterval = 1 / changeRate;
+    return (long) Math.max(mMinInterval, Math.min(mMaxInterval, expectedInterval));
+  }
+
+
+  /**
+   * Checks whether a document has to be loaded again.
+   *
+   * @param url The URL of the document.
+   * @param now The current time (in milliseconds).
+   * @return Whether the document is due.
+   */
+  public boolean isDue(String url, long now) {
+    long interval = getRecrawlInterval(url);
+    if (interval == 0) {
+      return true;
+    }
+    return now >= mHistory.getLastLoadTime(url) + interval;
+  }
+
+
+  /**
+   * Records that a document was loaded.
+   *
+   * @param url The URL of the document.
+   * @param content The loaded content.
+   * @param time The time of the load (in milliseconds).
+   * @return Whether the content changed since the last load.
+   * @throws RegainException If the history is full.
+   */
+  public boolean recordLoad(String url, byte[] content, long time)
+    throws RegainException
+  {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    return mHistory.recordLoad(url, (int) crc.getValue(), time);
+  }
+
+}
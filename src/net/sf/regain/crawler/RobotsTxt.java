@@ -0,0 +1,230 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of a robots.txt file for one user agent.
+ * <p>
+ * The rules of the group naming the user agent are used, or the rules of the
+ * group <code>*</code> if there is none. The longest matching
+ * <code>Allow</code> or <code>Disallow</code> rule wins, on equal length
+ * <code>Allow</code> wins. The wildcards <code>*</code> and <code>$</code> are
+ * supported.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class RobotsTxt {
+
+  /** The rules allowing everything. */
+  public static final RobotsTxt ALLOW_ALL = new RobotsTxt();
+
+  /** The rules: The paths. */
+  private ArrayList<String> mPathList = new ArrayList<String>();
+
+  /**
+   * The rules: The compiled paths having wildcards. Is <code>null</code> for
+   * plain path prefixes.
+   */
+  private ArrayList<Pattern> mPatternList = new ArrayList<Pattern>();
+
+  /** The rules: Whether the path is allowed. */
+  private ArrayList<Boolean> mAllowList = new ArrayList<Boolean>();
+
+  /** The crawl delay in milliseconds. Is 0 if there is none. */
+  private long mCrawlDelay;
+
+
+  /**
+   * Creates an instance allowing everything.
+   */
+  private RobotsTxt() {
+  }
+
+
+  /**
+   * Parses a robots.txt file.
+   *
+   * @param text The content of the robots.txt file.
+   * @param userAgent The user agent of the crawler. Only its first word (e.g.
+   *        <code>regain</code> for <code>regain/2.0</code>) is compared.
+   * @return The rules for the user agent.
+   */
+  public static RobotsTxt parse(String text, String userAgent) {
+    String agentName = (userAgent == null) ? "" : userAgent.trim().toLowerCase();
+    int nameEnd = 0;
+    while ((nameEnd < agentName.length())
+      && (Character.isLetterOrDigit(agentName.charAt(nameEnd))
+          || (agentName.charAt(nameEnd) == '-') || (agentName.charAt(nameEnd) == '_')))
+    {
+      nameEnd++;
+    }
+    agentName = agentName.substring(0, nameEnd);
+
+    RobotsTxt ownRules = null;
+    RobotsTxt defaultRules = null;
+    RobotsTxt current = null;
+    boolean currentIsOwn = false;
+    boolean currentIsDefault = false;
+    boolean inAgentLines = false;
+
+    String[] lineArr = text.split("\r\n|\r|\n");
+    for (int i = 0; i < lineArr.length; i++) {
+      String line = lineArr[i];
+      int commentStart = line.indexOf('#');
+      if (commentStart != -1) {
+        line = line.substring(0, commentStart);
+      }
+      int colon = line.indexOf(':');
+      if (colon == -1) {
+        continue;
+      }
+      String field = line.substring(0, colon).trim().toLowerCase();
+      String value = line.substring(colon + 1).trim();
+
+      if (field.equals("user-agent")) {
+        if (! inAgentLines) {
+          // A new group starts
+          current = new RobotsTxt();
+          currentIsOwn = false;
+          currentIsDefault = false;
+          inAgentLines = true;
+        }
+        String agent = value.toLowerCase();
+        if (agent.equals("*")) {
+          currentIsDefault = true;
+        } else if ((agentName.length() != 0) && agent.startsWith(agentName)) {
+          currentIsOwn = true;
+        }
+        if (currentIsOwn && (ownRules == null)) {
+          ownRules = current;
+        }
+        if (currentIsDefault && (defaultRules == null)) {
+          defaultRules = current;
+        }
+        continue;
+      }
+
+      inAgentLines = false;
+      if (current == null) {
+        // Rules without a user agent
+        continue;
+      }
+
+      if (field.equals("allow") || field.equals("disallow")) {
+        if (value.length() == 0) {
+          // An empty Disallow allows everything
+          continue;
+        }
+        current.addRule(value, field.equals("allow"));
+      } else if (field.equals("crawl-delay")) {
+        try {
+          current.mCrawlDelay = (long) (Double.parseDouble(value) * 1000);
+        }
+        catch (NumberFormatException exc) {
+          // Ignore a crawl delay with a wrong syntax
+        }
+      }
+    }
+
+    if (ownRules != null) {
+      return ownRules;
+    } else if (defaultRules != null) {
+      return defaultRules;
+    } else {
+      return ALLOW_ALL;
+    }
+  }
+
+
+  /**
+   * Adds a rule.
+   *
+   * @param path The path of the rule. May contain the wildcards
+   *        <code>*</code> and <code>$</code>.
+   * @param allow Whether the path is allowed.
+   */
+  private void addRule(String path, boolean allow) {
+    Pattern pattern = null;
+    if ((path.indexOf('*') != -1) || path.endsWith("$")) {
+      StringBuilder regex = new StringBuilder();
+      boolean anchored = path.endsWith("$");
+      String body = anchored ? path.substring(0, path.length() - 1) : path;
+      String[] partArr = body.split("\\*", -1);
+      for (int i = 0; i < partArr.length; i++) {
+        if (i > 0) {
+          regex.append(".*");
+        }
+        regex.append(Pattern.quote(partArr[i]));
+      }
+      if (! anchored) {
+        regex.append(".*");
+      }
+      pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    mPathList.add(path);
+    mPatternList.add(pattern);
+    mAllowList.add(Boolean.valueOf(allow));
+  }
+
+
+  /**
+   * Checks whether a path may be crawled.
+   *
+   * @param path The path to check, including the query (e.g.
+   *        <code>/docs/index.html?lang=de</code>).
+   * @return Whether the path may be crawled.
+   */
+  public boolean isAllowed(String path) {
+    int bestLength = -1;
+    boolean allowed = true;
+    for (int i = 0; i < mPathList.size(); i++) {
+      String rulePath = mPathList.get(i);
+      Pattern pattern = mPatternList.get(i);
+      boolean matches = (pattern == null)
+        ? path.startsWith(rulePath) : pattern.matcher(path).matches();
+      if (matches) {
+        boolean allow = mAllowList.get(i).booleanValue();
+        if ((rulePath.length() > bestLength)
+          || ((rulePath.length() == bestLength) && allow))
+        {
+          bestLength = rulePath.length();
+          allowed = allow;
+        }
+      }
+    }
+    return allowed;
+  }
+
+
+  /**
+   * Gets the crawl delay.
+   *
+   * @return The crawl delay in milliseconds. Is 0 if there is none.
+   */
+  public long getCrawlDelay() {
+    return mCrawlDelay;
+  }
+
+}
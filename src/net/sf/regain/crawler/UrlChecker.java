@@ -21,13 +21,17 @@
 package net.sf.regain.crawler;
 
 import java.io.File;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.net.MalformedURLException;
 import java.net.URL;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.config.PrefixUrlMatcher;
 import net.sf.regain.crawler.config.StartUrl;
 import net.sf.regain.crawler.config.UrlMatcher;
 import net.sf.regain.crawler.config.UrlMatcherResult;
@@ -45,7 +49,9 @@ import org.apache.log4j.Logger;
  * other (Wich is done by {@link #normalizeStartUrls(StartUrl[])}).
  * <p>
  * For http-URLs we have to remember all accepted or ignored URLs, because in
- * http URLs are found by page parsing which can ramdomly find any URL.
+ * http URLs are found by page parsing which can ramdomly find any URL. Only
+ * fingerprints of these URLs are kept (see {@link UrlFingerprintSet}), so
+ * large crawls don't need gigabytes of heap.
  *
  * @author Til Schneider, www.murfman.de
  */
@@ -54,10 +60,25 @@ public class UrlChecker {
   /** The logger for this class. */
   private static Logger mLog = Logger.getLogger(UrlChecker.class);
 
+  /** The number of verdicts of {@link #isUrlAccepted(String)} to remember. */
+  private static final int VERDICT_CACHE_SIZE = 4096;
+
+  /** The verdict for URLs that are neither parsed nor indexed. */
+  private static final UrlMatcher REJECTED = new Verdict(false, false);
+  /** The verdict for URLs that are parsed only. */
+  private static final UrlMatcher PARSED = new Verdict(true, false);
+  /** The verdict for URLs that are indexed only. */
+  private static final UrlMatcher INDEXED = new Verdict(false, true);
+  /** The verdict for URLs that are parsed and indexed. */
+  private static final UrlMatcher PARSED_AND_INDEXED = new Verdict(true, true);
+
+  /** The number of URLs expected by default. */
+  private static final int DEFAULT_EXPECTED_URL_COUNT = 10000;
+
   /** Contains all http-URLs that have been accepted. */
-  private HashSet<String> mAcceptedUrlSet;
+  private UrlFingerprintSet mAcceptedUrlSet;
   /** Contains all http-URLs that have been ignored. */
-  private HashSet<String> mIgnoredUrlSet;
+  private UrlFingerprintSet mIgnoredUrlSet;
   /** The number of URLs that have been ignored. */
   private int mIgnoredCount;
 
@@ -76,6 +97,22 @@ public class UrlChecker {
    */
   private UrlMatcher[] mBlackListArr;
 
+  /**
+   * The matchers of the white list entries that should be updated, in the
+   * order of the white list.
+   */
+  private UrlMatcher[] mUpdatedWhiteListArr;
+  /** The compiled matchers of {@link #mUpdatedWhiteListArr}. */
+  private UrlMatcherTrie mWhiteListTrie;
+  /** The compiled black list. */
+  private UrlMatcherTrie mBlackListTrie;
+
+  /**
+   * The last verdicts of {@link #isUrlAccepted(String)}. Links are checked
+   * once when the jobs are created and again when they are added.
+   */
+  private Map<String, UrlMatcher> mVerdictCache;
+
 
   /**
    * Creates a new instance of UrlChecker.
@@ -86,12 +123,115 @@ public class UrlChecker {
    *        a URL <i>must not</i> match to, in order to be processed.
    */
   public UrlChecker(WhiteListEntry[] whiteList, UrlMatcher[] blackList) {
-    mAcceptedUrlSet = new HashSet<String>();
-    mIgnoredUrlSet = new HashSet<String>();
+    this(whiteList, blackList, new UrlFingerprintSet(DEFAULT_EXPECTED_URL_COUNT),
+        new UrlFingerprintSet(DEFAULT_EXPECTED_URL_COUNT));
+  }
+
+
+  /**
+   * Creates a new instance of UrlChecker.
+   *
+   * @param whiteList The white list. The white list is an array of
+   *        WhiteListEntry, a URL <i>must</i> match to, in order to be processed.
+   * @param blackList The black list. The black list is an array of UrlMatchers,
+   *        a URL <i>must not</i> match to, in order to be processed.
+   * @param expectedUrlCount The number of http-URLs expected in a crawler run.
+   * @param urlSetDir The directory where to put the memory mapped files of the
+   *        URL sets. Is <code>null</code> if the URL sets should be held in the
+   *        Java heap.
+   * @throws RegainException If creating the URL sets failed.
+   */
+  public UrlChecker(WhiteListEntry[] whiteList, UrlMatcher[] blackList,
+    int expectedUrlCount, File urlSetDir)
+    throws RegainException
+  {
+    this(whiteList, blackList, new UrlFingerprintSet(expectedUrlCount, urlSetDir),
+        new UrlFingerprintSet(expectedUrlCount, urlSetDir));
+  }
+
+
+  /**
+   * Creates a new instance of UrlChecker.
+   *
+   * @param whiteList The white list.
+   * @param blackList The black list.
+   * @param acceptedUrlSet The set for the accepted http-URLs.
+   * @param ignoredUrlSet The set for the ignored http-URLs.
+   */
+  private UrlChecker(WhiteListEntry[] whiteList, UrlMatcher[] blackList,
+    UrlFingerprintSet acceptedUrlSet, UrlFingerprintSet ignoredUrlSet)
+  {
+    mAcceptedUrlSet = acceptedUrlSet;
+    mIgnoredUrlSet = ignoredUrlSet;
     mIgnoredCount = 0;
 
+    // NOTE: The crawler checks normalized URLs (see UrlNormalizer), so the
+    //       prefixes must be normalized as well
+    whiteList = whiteList.clone();
+    for (int i = 0; i < whiteList.length; i++) {
+      UrlMatcher matcher = canonicalizeMatcher(whiteList[i].getUrlMatcher());
+      if (matcher != whiteList[i].getUrlMatcher()) {
+        WhiteListEntry entry = new WhiteListEntry(matcher, whiteList[i].getName());
+        entry.setShouldBeUpdated(whiteList[i].shouldBeUpdated());
+        whiteList[i] = entry;
+      }
+    }
+    blackList = blackList.clone();
+    for (int i = 0; i < blackList.length; i++) {
+      blackList[i] = canonicalizeMatcher(blackList[i]);
+    }
+
     mWhiteListEntryArr = whiteList;
     mBlackListArr = blackList;
+
+    // Compile the lists
+    // NOTE: The "should be updated" flags of the white list entries must be
+    //       set at this point
+    ArrayList<UrlMatcher> updatedList = new ArrayList<UrlMatcher>();
+    for (int i = 0; i < whiteList.length; i++) {
+      if (whiteList[i].shouldBeUpdated()) {
+        updatedList.add(whiteList[i].getUrlMatcher());
+      }
+    }
+    mUpdatedWhiteListArr = new UrlMatcher[updatedList.size()];
+    updatedList.toArray(mUpdatedWhiteListArr);
+    mWhiteListTrie = new UrlMatcherTrie(mUpdatedWhiteListArr);
+    mBlackListTrie = new UrlMatcherTrie(blackList);
+
+    mVerdictCache = new LinkedHashMap<String, UrlMatcher>(VERDICT_CACHE_SIZE, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, UrlMatcher> eldest) {
+        return size() > VERDICT_CACHE_SIZE;
+      }
+    };
+  }
+
+
+  /**
+   * Brings the prefix of a PrefixUrlMatcher into canonical form (see
+   * {@link UrlNormalizer#canonicalizePrefix(String)}).
+   * <p>
+   * Regex matchers are not changed, their regexes must match the normalized
+   * URLs.
+   *
+   * @param matcher The matcher.
+   * @return The matcher with the canonical prefix or <code>matcher</code>
+   *         itself if nothing had to be changed.
+   */
+  private static UrlMatcher canonicalizeMatcher(UrlMatcher matcher) {
+    if (! (matcher instanceof PrefixUrlMatcher)) {
+      return matcher;
+    }
+
+    String prefix = ((PrefixUrlMatcher) matcher).getUrlPrefix();
+    String canonicalPrefix = UrlNormalizer.canonicalizePrefix(prefix);
+    if (canonicalPrefix.equals(prefix)) {
+      return matcher;
+    }
+
+    mLog.info("Using the prefix " + canonicalPrefix + " instead of " + prefix);
+    return new PrefixUrlMatcher(canonicalPrefix, matcher.getShouldBeParsed(),
+        matcher.getShouldBeIndexed());
   }
 
 
@@ -200,42 +340,66 @@ public class UrlChecker {
    * <p>
    * Dies ist der Fall, wenn sie keinem Präfix aus der Schwarzen Liste und
    * mindestens einem aus der Weißen Liste entspricht.
+   * <p>
+   * Die Listen sind in einen Trie übersetzt, die letzten Ergebnisse werden
+   * zwischengespeichert. Das Ergebnis darf daher nicht verändert werden.
    *
    * @param url Die zu prüfende URL.
    * @return Ob die URL von der Schwarzen und Weißen Liste akzeptiert wird.
    */
   public UrlMatcher isUrlAccepted(String url) {
+    UrlMatcher verdict;
+    synchronized (mVerdictCache) {
+      verdict = mVerdictCache.get(url);
+    }
+    if (verdict != null) {
+      return verdict;
+    }
+
+    verdict = REJECTED;
 
-    UrlMatcher urlMatchResult = new UrlMatcherResult(false, false);
-    mLog.debug("isUrlAccepted for url: " + url);
     // check whether this URL matches to a white list prefix
-    for (int i = 0; i < mWhiteListEntryArr.length; i++) {
-      if (mWhiteListEntryArr[i].shouldBeUpdated()) {
-        UrlMatcher matcher = mWhiteListEntryArr[i].getUrlMatcher();
-        if (matcher.matches(url)) {
-          // get the values for link extraction and indexing
-          // from the current matcher hit
-          urlMatchResult.setShouldBeParsed(matcher.getShouldBeParsed());
-          urlMatchResult.setShouldBeIndexed(matcher.getShouldBeIndexed());
-          mLog.debug("Whitelist matches for url: " + url);
-          break;
-        }
+    int index = mWhiteListTrie.findFirstMatch(url);
+    if (index != -1) {
+      // get the values for link extraction and indexing
+      // from the current matcher hit
+      UrlMatcher matcher = mUpdatedWhiteListArr[index];
+      verdict = getVerdict(matcher.getShouldBeParsed(), matcher.getShouldBeIndexed());
+      if (mLog.isDebugEnabled()) {
+        mLog.debug("Whitelist matches for url: " + url);
       }
     }
 
     // check whether this URL matches to a black list prefix
     // check only if there was a whitelist-hit
-    if( urlMatchResult.getShouldBeParsed() || urlMatchResult.getShouldBeIndexed() ) {
-      for (int i = 0; i < mBlackListArr.length; i++) {
-        if (mBlackListArr[i].matches(url)) {
-          urlMatchResult.setShouldBeParsed(false);
-          urlMatchResult.setShouldBeIndexed(false);
-          mLog.debug("Blacklist matches for url: " + url);
-        }
+    if ((verdict != REJECTED) && mBlackListTrie.matchesAny(url)) {
+      verdict = REJECTED;
+      if (mLog.isDebugEnabled()) {
+        mLog.debug("Blacklist matches for url: " + url);
       }
     }
 
-    return urlMatchResult;
+    synchronized (mVerdictCache) {
+      mVerdictCache.put(url, verdict);
+    }
+
+    return verdict;
+  }
+
+
+  /**
+   * Gets the verdict for the given flags.
+   *
+   * @param shouldBeParsed Whether links should be extracted.
+   * @param shouldBeIndexed Whether the content should be indexed.
+   * @return The verdict.
+   */
+  private static UrlMatcher getVerdict(boolean shouldBeParsed, boolean shouldBeIndexed) {
+    if (shouldBeParsed) {
+      return shouldBeIndexed ? PARSED_AND_INDEXED : PARSED;
+    } else {
+      return shouldBeIndexed ? INDEXED : REJECTED;
+    }
   }
 
 
@@ -275,11 +439,22 @@ public class UrlChecker {
       // This is a file URL -> We haven't found it yet (Why? See class javadoc)
       return false;
     } else {
-      return getmAcceptedUrlSet().contains(url);
+      return mAcceptedUrlSet.contains(url);
     }
   }
 
 
+  /**
+   * Gets the set of the URLs accepted in a crawler run. File URLs are not
+   * part of it.
+   *
+   * @return The accepted URLs.
+   */
+  UrlFingerprintSet getAcceptedUrlSet() {
+    return mAcceptedUrlSet;
+  }
+
+
   /**
    * Decides whether the given URL was already ignored in a crawler run.
    *
@@ -325,7 +500,7 @@ public class UrlChecker {
       // All tests passed -> Keep the file
       return true;
     } else {
-      return getmAcceptedUrlSet().contains(url);
+      return mAcceptedUrlSet.contains(url);
     }
   }
 
@@ -334,12 +509,13 @@ public class UrlChecker {
    * Used by the crawler to set the accepted state for a certain URL.
    *
    * @param url The URL that was accepted by the crawler.
+   * @throws RegainException If the URL set could not be enlarged.
    */
-  public void setAccepted(String url) {
+  public void setAccepted(String url) throws RegainException {
     if (url.startsWith("file://")) {
       // This is a file URL -> We haven't to remember it (Why? See class javadoc)
     } else {
-      getmAcceptedUrlSet().add(url);
+      mAcceptedUrlSet.add(url);
     }
   }
 
@@ -348,8 +524,9 @@ public class UrlChecker {
    * Used by the crawler to set the ignored state for a certain URL.
    *
    * @param url The URL that was ignored by the crawler.
+   * @throws RegainException If the URL set could not be enlarged.
    */
-  public void setIgnored(String url) {
+  public void setIgnored(String url) throws RegainException {
     mIgnoredCount++;
 
     if (url.startsWith("file://")) {
@@ -371,13 +548,109 @@ public class UrlChecker {
 
 
   /**
-   * Gets the set of accepted URLs.
+   * Gets the number of http-URLs that have been remembered as accepted or
+   * ignored.
    *
-   * @return the mAcceptedUrlSet
+   * @return The number of remembered URLs.
    */
-  public HashSet<String> getmAcceptedUrlSet() {
-    return mAcceptedUrlSet;
+  public int getSeenUrlCount() {
+    return mAcceptedUrlSet.size() + mIgnoredUrlSet.size();
+  }
+
+
+  /**
+   * Gets the memory used per remembered http-URL.
+   *
+   * @return The number of bytes per URL, formatted with one decimal place.
+   */
+  public String getBytesPerSeenUrl() {
+    int count = getSeenUrlCount();
+    if (count == 0) {
+      return "0";
+    }
+    long bytes = mAcceptedUrlSet.getTableBytes() + mIgnoredUrlSet.getTableBytes();
+    return new DecimalFormat("0.0").format((double) bytes / count);
   }
 
 
+  /**
+   * Writes the remembered URLs to a directory, so a crawl can be resumed
+   * later.
+   *
+   * @param dir The directory to write to. It is created if necessary.
+   * @throws RegainException If writing failed.
+   */
+  public void saveSeenUrls(File dir) throws RegainException {
+    if (! dir.exists() && ! dir.mkdirs()) {
+      throw new RegainException("Creating directory failed: " + dir.getAbsolutePath());
+    }
+    mAcceptedUrlSet.save(new File(dir, "accepted"));
+    mIgnoredUrlSet.save(new File(dir, "ignored"));
+    RegainToolkit.writeToFile(Integer.toString(mIgnoredCount), new File(dir, "ignoredCount"));
+  }
+
+
+  /**
+   * Adds the URLs written by {@link #saveSeenUrls(File)} to the remembered
+   * URLs.
+   *
+   * @param dir The directory to read from.
+   * @throws RegainException If reading failed.
+   */
+  public void loadSeenUrls(File dir) throws RegainException {
+    mAcceptedUrlSet.load(new File(dir, "accepted"));
+    mIgnoredUrlSet.load(new File(dir, "ignored"));
+    String ignoredCount = RegainToolkit.readStringFromFile(new File(dir, "ignoredCount"));
+    try {
+      mIgnoredCount += Integer.parseInt(ignoredCount.trim());
+    }
+    catch (NumberFormatException exc) {
+      throw new RegainException("Ignored count has a wrong syntax: " + ignoredCount, exc);
+    }
+  }
+
+
+  /**
+   * Releases the URL sets. The UrlChecker must not be used afterwards.
+   */
+  public void close() {
+    mAcceptedUrlSet.close();
+    mIgnoredUrlSet.close();
+  }
+
+
+  /**
+   * The result of {@link UrlChecker#isUrlAccepted(String)}. The verdicts are
+   * shared, so they can't be changed.
+   */
+  private static class Verdict extends UrlMatcherResult {
+
+    /**
+     * Creates a new instance of Verdict.
+     *
+     * @param shouldBeParsed Whether links should be extracted.
+     * @param shouldBeIndexed Whether the content should be indexed.
+     */
+    public Verdict(boolean shouldBeParsed, boolean shouldBeIndexed) {
+      super(shouldBeParsed, shouldBeIndexed);
+    }
+
+    /**
+     * Throws an UnsupportedOperationException, since verdicts are shared.
+     */
+    @Override
+    public void setShouldBeParsed(boolean shouldBeParsed) {
+      throw new UnsupportedOperationException("Verdicts can't be changed");
+    }
+
+    /**
+     * Throws an UnsupportedOperationException, since verdicts are shared.
+     */
+    @Override
+    public void setShouldBeIndexed(boolean shouldBeIndexed) {
+      throw new UnsupportedOperationException("Verdicts can't be changed");
+    }
+
+  }
+
 }
@@ -0,0 +1,566 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.regain.RegainException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A compact set of URLs. Only a 64 bit fingerprint of every URL is stored in
+ * an open addressing hash table, so a URL needs 12 to 23 bytes instead of
+ * more than 100 bytes for a String in a HashSet.
+ * <p>
+ * Two different URLs may have the same fingerprint. For 100 million URLs the
+ * probability of such a collision is below 0.1%. A collision means that a URL
+ * is taken for already seen.
+ * <p>
+ * The hash table can be held in a memory mapped file instead of the Java heap.
+ * Then the operating system pages it out if it gets too big.
+ * <p>
+ * The table has at most 2^28 slots (2 GB) in the Java heap and 2^27 slots
+ * (1 GB) in a memory mapped file, since a file can only be mapped in pieces
+ * smaller than 2 GB. So a set holds up to about 180 million URLs in the heap
+ * and up to about 90 million URLs in a memory mapped file.
+ * <p>
+ * A set held in the Java heap may keep a fixed number of int values for every
+ * URL (see {@link #UrlFingerprintSet(int, int)}). The values are accessed by
+ * the slot of the URL's fingerprint, see {@link #getSlot(long)} and
+ * {@link #addSlot(long)}. The {@link CrawlHistory} uses this.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class UrlFingerprintSet {
+
+  /** The logger for this class. */
+  private static Logger mLog = Logger.getLogger(UrlFingerprintSet.class);
+
+  /** The maximum ratio of used slots before the table is enlarged. */
+  private static final double MAX_LOAD_FACTOR = 0.7;
+
+  /** The maximum number of slots of a table in the Java heap. */
+  private static final int MAX_CAPACITY = 1 << 28;
+
+  /**
+   * The maximum number of slots of a table in a memory mapped file.
+   * FileChannel.map() rejects regions of 2 GB or more, so the table must be
+   * smaller than 2^28 slots of 8 bytes.
+   */
+  private static final int MAX_MAPPED_CAPACITY = 1 << 27;
+
+  /** The directory for the memory mapped files. Is null for the Java heap. */
+  private File mMapDir;
+
+  /** The memory mapped file holding the table. Is null for the Java heap. */
+  private File mMapFile;
+
+  /**
+   * The hash table. A slot holding 0 is empty, so the fingerprint 0 is
+   * replaced by 1.
+   */
+  private LongBuffer mTable;
+
+  /** The number of slots of the table. Is always a power of 2. */
+  private int mCapacity;
+
+  /** The number of fingerprints in the set. */
+  private int mSize;
+
+  /** The number of values per URL. */
+  private int mValueCount;
+
+  /**
+   * The values. Slot i uses the elements i * mValueCount and following. Is
+   * null if there are no values.
+   */
+  private int[] mValueArr;
+
+
+  /**
+   * Creates a new instance of UrlFingerprintSet held in the Java heap.
+   *
+   * @param expectedSize The expected number of URLs.
+   */
+  public UrlFingerprintSet(int expectedSize) {
+    this(expectedSize, 0);
+  }
+
+
+  /**
+   * Creates a new instance of UrlFingerprintSet held in the Java heap that
+   * keeps values for every URL.
+   *
+   * @param expectedSize The expected number of URLs.
+   * @param valueCount The number of int values per URL.
+   */
+  public UrlFingerprintSet(int expectedSize, int valueCount) {
+    mCapacity = getInitialCapacity(expectedSize, MAX_CAPACITY);
+    mTable = LongBuffer.allocate(mCapacity);
+    mValueCount = valueCount;
+    if (mValueCount > 0) {
+      mValueArr = new int[mCapacity * mValueCount];
+    }
+  }
+
+
+  /**
+   * Creates a new instance of UrlFingerprintSet.
+   *
+   * @param expectedSize The expected number of URLs.
+   * @param mapDir The directory where to create the memory mapped file. Is
+   *        <code>null</code> if the set should be held in the Java heap.
+   * @throws RegainException If creating the memory mapped file failed.
+   */
+  public UrlFingerprintSet(int expectedSize, File mapDir) throws RegainException {
+    mMapDir = mapDir;
+    mCapacity = getInitialCapacity(expectedSize, getMaxCapacity());
+    mTable = createTable(mCapacity);
+  }
+
+
+  /**
+   * Gets the number of slots needed for the expected number of URLs.
+   *
+   * @param expectedSize The expected number of URLs.
+   * @param maxCapacity The maximum number of slots.
+   * @return The number of slots.
+   */
+  private static int getInitialCapacity(int expectedSize, int maxCapacity) {
+    int capacity = 1024;
+    while ((capacity < maxCapacity) && (capacity * MAX_LOAD_FACTOR < expectedSize)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+
+  /**
+   * Calculates the 64 bit fingerprint of a URL.
+   *
+   * @param url The URL.
+   * @return The fingerprint. Is never 0.
+   */
+  static long fingerprint(String url) {
+    // FNV-1a over the characters
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < url.length(); i++) {
+      hash ^= url.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    // Mix the bits (finalizer of MurmurHash3), so the low bits used as table
+    // index depend on all characters
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return (hash == 0) ? 1 : hash;
+  }
+
+
+  /**
+   * Adds a URL to the set.
+   *
+   * @param url The URL to add.
+   * @return Whether the URL was added. Is false if it was already in the set.
+   * @throws RegainException If enlarging the memory mapped file failed.
+   */
+  public synchronized boolean add(String url) throws RegainException {
+    return addFingerprint(fingerprint(url));
+  }
+
+
+  /**
+   * Adds a fingerprint to the set.
+   *
+   * @param fingerprint The fingerprint to add.
+   * @return Whether the fingerprint was added.
+   * @throws RegainException If enlarging the memory mapped file failed.
+   */
+  private boolean addFingerprint(long fingerprint) throws RegainException {
+    int size = mSize;
+    addSlot(fingerprint);
+    return mSize > size;
+  }
+
+
+  /**
+   * Adds a fingerprint to the set and gets its slot. The values of a new
+   * fingerprint are 0.
+   * <p>
+   * NOTE: The slots change when the table is enlarged, so a slot is only
+   *       valid until the next fingerprint is added. The caller has to
+   *       synchronize.
+   *
+   * @param fingerprint The fingerprint to add.
+   * @return The slot of the fingerprint.
+   * @throws RegainException If enlarging the memory mapped file failed.
+   */
+  int addSlot(long fingerprint) throws RegainException {
+    int slot = findSlot(mTable, mCapacity, fingerprint);
+    if (mTable.get(slot) == fingerprint) {
+      return slot;
+    }
+
+    if ((mSize + 1 > mCapacity * MAX_LOAD_FACTOR) && (mCapacity < getMaxCapacity())) {
+      enlarge();
+      slot = findSlot(mTable, mCapacity, fingerprint);
+    } else if (mSize + 1 >= mCapacity) {
+      throw new RegainException("The URL set is full: " + mSize + " URLs");
+    }
+
+    mTable.put(slot, fingerprint);
+    mSize++;
+    return slot;
+  }
+
+
+  /**
+   * Gets the slot of a fingerprint.
+   * <p>
+   * NOTE: The caller has to synchronize, see {@link #addSlot(long)}.
+   *
+   * @param fingerprint The fingerprint.
+   * @return The slot of the fingerprint or -1 if it is not in the set.
+   */
+  int getSlot(long fingerprint) {
+    int slot = findSlot(mTable, mCapacity, fingerprint);
+    return (mTable.get(slot) == fingerprint) ? slot : -1;
+  }
+
+
+  /**
+   * Gets the fingerprint held by a slot. Together with
+   * {@link #getCapacity()} this allows iterating over the set.
+   *
+   * @param slot The slot.
+   * @return The fingerprint or 0 if the slot is empty.
+   */
+  long getFingerprintAt(int slot) {
+    return mTable.get(slot);
+  }
+
+
+  /**
+   * Gets the number of slots of the hash table.
+   *
+   * @return The number of slots.
+   */
+  int getCapacity() {
+    return mCapacity;
+  }
+
+
+  /**
+   * Gets a value of a URL.
+   *
+   * @param slot The slot of the URL's fingerprint.
+   * @param index The index of the value.
+   * @return The value.
+   */
+  int getValue(int slot, int index) {
+    return mValueArr[slot * mValueCount + index];
+  }
+
+
+  /**
+   * Sets a value of a URL.
+   *
+   * @param slot The slot of the URL's fingerprint.
+   * @param index The index of the value.
+   * @param value The value.
+   */
+  void setValue(int slot, int index, int value) {
+    mValueArr[slot * mValueCount + index] = value;
+  }
+
+
+  /**
+   * Checks whether a URL is in the set.
+   *
+   * @param url The URL to check.
+   * @return Whether the URL is in the set.
+   */
+  public synchronized boolean contains(String url) {
+    return containsFingerprint(fingerprint(url));
+  }
+
+
+  /**
+   * Checks whether a fingerprint is in the set.
+   *
+   * @param fingerprint The fingerprint to check.
+   * @return Whether the fingerprint is in the set.
+   */
+  synchronized boolean containsFingerprint(long fingerprint) {
+    return mTable.get(findSlot(mTable, mCapacity, fingerprint)) == fingerprint;
+  }
+
+
+  /**
+   * Gets the number of URLs in the set.
+   *
+   * @return The number of URLs.
+   */
+  public synchronized int size() {
+    return mSize;
+  }
+
+
+  /**
+   * Gets the number of bytes used by the hash table.
+   *
+   * @return The size of the hash table in bytes.
+   */
+  public synchronized long getTableBytes() {
+    return mCapacity * (8L + mValueCount * 4L);
+  }
+
+
+  /**
+   * Gets the maximum number of slots of the hash table.
+   *
+   * @return The maximum number of slots.
+   */
+  private int getMaxCapacity() {
+    return (mMapDir == null) ? MAX_CAPACITY : MAX_MAPPED_CAPACITY;
+  }
+
+
+  /**
+   * Gets whether the hash table is held in a memory mapped file.
+   *
+   * @return Whether the hash table is memory mapped.
+   */
+  public boolean isMemoryMapped() {
+    return mMapDir != null;
+  }
+
+
+  /**
+   * Writes the fingerprints to a file.
+   *
+   * @param file The file to write to.
+   * @throws RegainException If writing failed.
+   */
+  public synchronized void save(File file) throws RegainException {
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(mSize);
+      for (int i = 0; i < mCapacity; i++) {
+        long value = mTable.get(i);
+        if (value != 0) {
+          out.writeLong(value);
+        }
+      }
+      out.close();
+      out = null;
+    }
+    catch (IOException exc) {
+      throw new RegainException("Writing URL set to " + file.getAbsolutePath()
+          + " failed", exc);
+    }
+    finally {
+      if (out != null) {
+        try { out.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * Adds the fingerprints written by {@link #save(File)} to the set.
+   *
+   * @param file The file to read from.
+   * @throws RegainException If reading failed.
+   */
+  public synchronized void load(File file) throws RegainException {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        addFingerprint(in.readLong());
+      }
+    }
+    catch (IOException exc) {
+      throw new RegainException("Reading URL set from " + file.getAbsolutePath()
+          + " failed", exc);
+    }
+    finally {
+      if (in != null) {
+        try { in.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * Releases the hash table and deletes the memory mapped file.
+   */
+  public synchronized void close() {
+    mTable = LongBuffer.allocate(1);
+    mCapacity = 1;
+    mSize = 0;
+    if (mValueArr != null) {
+      mValueArr = new int[mValueCount];
+    }
+    deleteMapFile();
+  }
+
+
+  /**
+   * Finds the slot of a fingerprint. This is either the slot holding the
+   * fingerprint or the empty slot where it should be put.
+   *
+   * @param table The hash table.
+   * @param capacity The number of slots.
+   * @param fingerprint The fingerprint to look for.
+   * @return The slot.
+   */
+  private static int findSlot(LongBuffer table, int capacity, long fingerprint) {
+    int mask = capacity - 1;
+    int slot = (int) fingerprint & mask;
+    while (true) {
+      long value = table.get(slot);
+      if ((value == 0) || (value == fingerprint)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+
+  /**
+   * Doubles the size of the hash table.
+   *
+   * @throws RegainException If creating the memory mapped file failed.
+   */
+  private void enlarge() throws RegainException {
+    int newCapacity = mCapacity << 1;
+    File oldMapFile = mMapFile;
+    LongBuffer newTable = createTable(newCapacity);
+    int[] newValueArr = (mValueArr == null) ? null : new int[newCapacity * mValueCount];
+    for (int i = 0; i < mCapacity; i++) {
+      long value = mTable.get(i);
+      if (value != 0) {
+        int slot = findSlot(newTable, newCapacity, value);
+        newTable.put(slot, value);
+        if (newValueArr != null) {
+          System.arraycopy(mValueArr, i * mValueCount, newValueArr,
+              slot * mValueCount, mValueCount);
+        }
+      }
+    }
+
+    mTable = newTable;
+    mValueArr = newValueArr;
+    mCapacity = newCapacity;
+    if (oldMapFile != null) {
+      deleteFile(oldMapFile);
+    }
+
+    if (mLog.isDebugEnabled()) {
+      mLog.debug("Enlarged URL set to " + newCapacity + " slots for " + mSize + " URLs");
+    }
+  }
+
+
+  /**
+   * Creates an empty hash table.
+   *
+   * @param capacity The number of slots.
+   * @return The hash table.
+   * @throws RegainException If creating the memory mapped file failed.
+   */
+  private LongBuffer createTable(int capacity) throws RegainException {
+    if (mMapDir == null) {
+      return LongBuffer.allocate(capacity);
+    }
+
+    RandomAccessFile file = null;
+    try {
+      mMapFile = File.createTempFile("urlset", ".tmp", mMapDir);
+      mMapFile.deleteOnExit();
+      file = new RandomAccessFile(mMapFile, "rw");
+      file.setLength(capacity * 8L);
+
+      // NOTE: The mapping stays valid after the file was closed
+      return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity * 8L).asLongBuffer();
+    }
+    catch (IOException exc) {
+      throw new RegainException("Creating memory mapped URL set in "
+          + mMapDir.getAbsolutePath() + " failed", exc);
+    }
+    catch (IllegalArgumentException exc) {
+      // The region is too big to be mapped
+      throw new RegainException("Creating memory mapped URL set with "
+          + capacity + " slots in " + mMapDir.getAbsolutePath() + " failed", exc);
+    }
+    finally {
+      if (file != null) {
+        try { file.close(); } catch (IOException exc) {}
+      }
+    }
+  }
+
+
+  /**
+   * Deletes the current memory mapped file.
+   */
+  private void deleteMapFile() {
+    if (mMapFile != null) {
+      deleteFile(mMapFile);
+      mMapFile = null;
+    }
+  }
+
+
+  /**
+   * Deletes a memory mapped file. If this is not possible (on some systems a
+   * file can't be deleted while it is mapped), it is deleted when the VM
+   * exits.
+   *
+   * @param file The file to delete.
+   */
+  private static void deleteFile(File file) {
+    if (! file.delete()) {
+      mLog.debug("Memory mapped URL set " + file.getAbsolutePath()
+          + " will be deleted on exit");
+    }
+  }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import net.sf.regain.crawler.config.PrefixUrlMatcher;
+import net.sf.regain.crawler.config.RegexUrlMatcher;
+import net.sf.regain.crawler.config.UrlMatcher;
+
+/**
+ * A list of UrlMatchers compiled into a trie, so a URL is checked against all
+ * matchers in one pass.
+ * <p>
+ * The prefixes of the {@link PrefixUrlMatcher}s are put into the trie
+ * directly. The {@link RegexUrlMatcher}s are put into the trie by the literal
+ * prefix of their regex (e.g. <code>http://www\.murfman\.de/</code> for
+ * <code>http://www\.murfman\.de/.*\.html</code>). So a regex is only run for
+ * URLs starting with its literal prefix. Regexes without a literal prefix and
+ * other UrlMatchers are checked for every URL.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class UrlMatcherTrie {
+
+  /** The index used if no matcher matches. */
+  private static final int NO_MATCH = Integer.MAX_VALUE;
+
+  /** The matchers in the original order. */
+  private UrlMatcher[] mMatcherArr;
+
+  /** The root node of the trie. */
+  private Node mRoot;
+
+
+  /**
+   * Creates a new instance of UrlMatcherTrie.
+   *
+   * @param matcherArr The matchers to compile.
+   */
+  public UrlMatcherTrie(UrlMatcher[] matcherArr) {
+    mMatcherArr = matcherArr;
+
+    NodeBuilder root = new NodeBuilder();
+    for (int i = 0; i < matcherArr.length; i++) {
+      if (matcherArr[i] instanceof PrefixUrlMatcher) {
+        String prefix = ((PrefixUrlMatcher) matcherArr[i]).getUrlPrefix();
+        NodeBuilder node = root.getNode(prefix);
+        node.mPrefixIndex = Math.min(node.mPrefixIndex, i);
+      } else {
+        String prefix = "";
+        if (matcherArr[i] instanceof RegexUrlMatcher) {
+          prefix = getLiteralPrefix(((RegexUrlMatcher) matcherArr[i]).getUrlRegex());
+        }
+        root.getNode(prefix).mCandidateList.add(new Integer(i));
+      }
+    }
+
+    mRoot = root.toNode();
+  }
+
+
+  /**
+   * Gets the literal prefix of a regex. Every URL that matches the regex
+   * starts with this prefix.
+   *
+   * @param regex The regex.
+   * @return The literal prefix. Is empty if the regex has no literal prefix.
+   */
+  static String getLiteralPrefix(Pattern regex) {
+    String pattern = regex.pattern();
+    if ((regex.flags() != 0) || (pattern.indexOf('|') != -1)) {
+      // Case insensitive matching or alternatives -> We can't tell the prefix
+      return "";
+    }
+
+    StringBuilder prefix = new StringBuilder();
+    int pos = 0;
+    while (pos < pattern.length()) {
+      char c = pattern.charAt(pos);
+      int next = pos + 1;
+      if (c == '\\') {
+        // An escaped character is literal if it is no letter or digit
+        // (e.g. "\." but not "\d")
+        if ((next >= pattern.length())
+          || Character.isLetterOrDigit(pattern.charAt(next)))
+        {
+          break;
+        }
+        c = pattern.charAt(next);
+        next++;
+      } else if ("[](){}.*+?^$".indexOf(c) != -1) {
+        break;
+      }
+
+      if ((next < pattern.length()) && ("*?{".indexOf(pattern.charAt(next)) != -1)) {
+        // This character is optional or repeated -> It's no part of the prefix
+        break;
+      }
+
+      prefix.append(c);
+      pos = next;
+    }
+
+    return prefix.toString();
+  }
+
+
+  /**
+   * Gets the index of the first matcher that matches a URL.
+   *
+   * @param url The URL to check.
+   * @return The index of the first matching matcher or -1 if no matcher
+   *         matches.
+   */
+  public int findFirstMatch(String url) {
+    // Find the first prefix matcher
+    int firstIndex = NO_MATCH;
+    Node node = mRoot;
+    for (int pos = 0; node != null; pos++) {
+      firstIndex = Math.min(firstIndex, node.mPrefixIndex);
+      node = (pos < url.length()) ? node.getChild(url.charAt(pos)) : null;
+    }
+
+    // Check the candidates that come before
+    node = mRoot;
+    for (int pos = 0; node != null; pos++) {
+      int[] candidateArr = node.mCandidateArr;
+      for (int i = 0; (i < candidateArr.length) && (candidateArr[i] < firstIndex); i++) {
+        if (mMatcherArr[candidateArr[i]].matches(url)) {
+          firstIndex = candidateArr[i];
+          break;
+        }
+      }
+      node = (pos < url.length()) ? node.getChild(url.charAt(pos)) : null;
+    }
+
+    return (firstIndex == NO_MATCH) ? -1 : firstIndex;
+  }
+
+
+  /**
+   * Checks whether any matcher matches a URL.
+   *
+   * @param url The URL to check.
+   * @return Whether any matcher matches.
+   */
+  public boolean matchesAny(String url) {
+    Node node = mRoot;
+    for (int pos = 0; node != null; pos++) {
+      if (node.mPrefixIndex != NO_MATCH) {
+        return true;
+      }
+      node = (pos < url.length()) ? node.getChild(url.charAt(pos)) : null;
+    }
+
+    node = mRoot;
+    for (int pos = 0; node != null; pos++) {
+      int[] candidateArr = node.mCandidateArr;
+      for (int i = 0; i < candidateArr.length; i++) {
+        if (mMatcherArr[candidateArr[i]].matches(url)) {
+          return true;
+        }
+      }
+      node = (pos < url.length()) ? node.getChild(url.charAt(pos)) : null;
+    }
+
+    return false;
+  }
+
+
+  /**
+   * A node of the compiled trie.
+   */
+  private static class Node {
+
+    /** The characters of the children, sorted. */
+    private char[] mCharArr;
+
+    /** The children, in the order of {@link #mCharArr}. */
+    private Node[] mChildArr;
+
+    /**
+     * The index of the first prefix matcher whose prefix ends at this node or
+     * {@link UrlMatcherTrie#NO_MATCH}.
+     */
+    private int mPrefixIndex;
+
+    /**
+     * The indexes of the other matchers whose literal prefix ends at this
+     * node, sorted.
+     */
+    private int[] mCandidateArr;
+
+
+    /**
+     * Gets the child for a character.
+     *
+     * @param c The character.
+     * @return The child or <code>null</code> if there is none.
+     */
+    public Node getChild(char c) {
+      int index = Arrays.binarySearch(mCharArr, c);
+      return (index < 0) ? null : mChildArr[index];
+    }
+
+  }
+
+
+  /**
+   * A node of the trie while it is built.
+   */
+  private static class NodeBuilder {
+
+    /** The children. */
+    private TreeMap<Character, NodeBuilder> mChildMap = new TreeMap<Character, NodeBuilder>();
+
+    /** The index of the first prefix matcher whose prefix ends here. */
+    private int mPrefixIndex = NO_MATCH;
+
+    /** The indexes of the other matchers whose literal prefix ends here. */
+    private ArrayList<Integer> mCandidateList = new ArrayList<Integer>();
+
+
+    /**
+     * Gets the node for a prefix. Missing nodes are created.
+     *
+     * @param prefix The prefix.
+     * @return The node.
+     */
+    public NodeBuilder getNode(String prefix) {
+      NodeBuilder node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        Character c = new Character(prefix.charAt(i));
+        NodeBuilder child = node.mChildMap.get(c);
+        if (child == null) {
+          child = new NodeBuilder();
+          node.mChildMap.put(c, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+
+
+    /**
+     * Creates the compiled node.
+     *
+     * @return The compiled node.
+     */
+    public Node toNode() {
+      Node node = new Node();
+      node.mPrefixIndex = mPrefixIndex;
+
+      node.mCandidateArr = new int[mCandidateList.size()];
+      for (int i = 0; i < node.mCandidateArr.length; i++) {
+        node.mCandidateArr[i] = mCandidateList.get(i).intValue();
+      }
+
+      node.mCharArr = new char[mChildMap.size()];
+      node.mChildArr = new Node[mChildMap.size()];
+      Iterator<Map.Entry<Character, NodeBuilder>> iter = mChildMap.entrySet().iterator();
+      for (int i = 0; iter.hasNext(); i++) {
+        Map.Entry<Character, NodeBuilder> entry = iter.next();
+        node.mCharArr[i] = entry.getKey().charValue();
+        node.mChildArr[i] = entry.getValue().toNode();
+      }
+
+      return node;
+    }
+
+  }
+
+}
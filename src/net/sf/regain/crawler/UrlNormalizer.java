@@ -0,0 +1,363 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Brings the URLs found by the crawler into a canonical form, so the same
+ * document is found under one URL only.
+ * <p>
+ * Normalizing a URL does the following:
+ * <ul>
+ *   <li>Blanks are replaced by <code>%20</code> and <code>&amp;amp;</code> by
+ *     <code>&amp;</code>.</li>
+ *   <li>The parts matching to the URL cleaners are removed (see
+ *     {@link CrawlerToolkit#cleanURL(String, String[])}).</li>
+ *   <li>For http and https URLs: The scheme and the host are converted to
+ *     lower case, the default port is removed, the segments <code>.</code> and
+ *     <code>..</code> are resolved in the path and the percent encoding is
+ *     normalized (unreserved characters are decoded, the hex digits of the
+ *     others are converted to upper case).</li>
+ * </ul>
+ * The regexes of the URL cleaners are compiled only once.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class UrlNormalizer {
+
+  /** The logger for this class. */
+  private static Logger mLog = Logger.getLogger(UrlNormalizer.class);
+
+  /** The hex digits used for percent encoding. */
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  /** The compiled URL cleaners. */
+  private Pattern[] mUrlCleanerArr;
+
+
+  /**
+   * Creates a new instance of UrlNormalizer.
+   *
+   * @param urlCleaners The regexes of the parts to remove from the URLs.
+   * @throws RegainException If a regex has a wrong syntax.
+   */
+  public UrlNormalizer(String[] urlCleaners) throws RegainException {
+    mUrlCleanerArr = new Pattern[urlCleaners.length];
+    for (int i = 0; i < urlCleaners.length; i++) {
+      try {
+        mUrlCleanerArr[i] = Pattern.compile(urlCleaners[i]);
+      }
+      catch (PatternSyntaxException exc) {
+        throw new RegainException("Regular expression of URL cleaner has a " +
+            "wrong syntax: '" + urlCleaners[i] + "'", exc);
+      }
+    }
+  }
+
+
+  /**
+   * Normalizes a URL.
+   *
+   * @param url The URL to normalize.
+   * @return The normalized URL.
+   */
+  public String normalize(String url) {
+    // Change all blanks to %20, since blanks are not allowed in URLs
+    url = RegainToolkit.replace(url, " ", "%20");
+    // Change all &amp; to &
+    url = RegainToolkit.replace(url, "&amp;", "&");
+
+    url = clean(url);
+
+    if (url.regionMatches(true, 0, "http://", 0, 7)
+      || url.regionMatches(true, 0, "https://", 0, 8))
+    {
+      url = canonicalize(url);
+    }
+
+    return url;
+  }
+
+
+  /**
+   * Removes the parts matching to the URL cleaners.
+   *
+   * @param url The URL to clean.
+   * @return The cleaned URL.
+   */
+  private String clean(String url) {
+    String result = url;
+    for (int i = 0; i < mUrlCleanerArr.length; i++) {
+      Matcher matcher = mUrlCleanerArr[i].matcher(result);
+      if (matcher.find()) {
+        result = matcher.replaceAll("");
+      }
+    }
+
+    if ((result.indexOf("&&") == -1) && (result.indexOf("?&") == -1)
+      && (! result.endsWith("&")) && (! result.endsWith("?")))
+    {
+      // There are no empty parameters
+      return result;
+    }
+
+    // Remove the separators of the removed parameters
+    StringBuilder buffer = new StringBuilder(result.length());
+    for (int i = 0; i < result.length(); i++) {
+      char c = result.charAt(i);
+      if (c == '&') {
+        char last = (buffer.length() == 0) ? 0 : buffer.charAt(buffer.length() - 1);
+        if ((last == '&') || (last == '?')) {
+          continue;
+        }
+      }
+      buffer.append(c);
+    }
+    int length = buffer.length();
+    while ((length > 0)
+      && ((buffer.charAt(length - 1) == '&') || (buffer.charAt(length - 1) == '?')))
+    {
+      length--;
+    }
+    buffer.setLength(length);
+
+    if (mLog.isDebugEnabled()) {
+      mLog.debug("Cleaned URL " + url + " to " + buffer);
+    }
+
+    return buffer.toString();
+  }
+
+
+  /**
+   * Brings a hierarchical URL (like http://host:port/path?query#fragment)
+   * into a canonical form.
+   *
+   * @param url The URL to canonicalize.
+   * @return The canonical URL.
+   */
+  static String canonicalize(String url) {
+    int schemeEnd = url.indexOf("://");
+    if (schemeEnd == -1) {
+      return url;
+    }
+    int authorityStart = schemeEnd + 3;
+    int authorityEnd = authorityStart;
+    while ((authorityEnd < url.length()) && ("/?#".indexOf(url.charAt(authorityEnd)) == -1)) {
+      authorityEnd++;
+    }
+    int hostStart = url.lastIndexOf('@', authorityEnd - 1) + 1;
+    if (hostStart < authorityStart) {
+      hostStart = authorityStart;
+    }
+    int portStart = url.lastIndexOf(':', authorityEnd - 1);
+    if ((portStart < hostStart) || (url.lastIndexOf(']', authorityEnd - 1) > portStart)) {
+      // No port (or the colon belongs to an IPv6 address)
+      portStart = authorityEnd;
+    }
+
+    StringBuilder buffer = new StringBuilder(url.length() + 1);
+
+    // Scheme and user info
+    String scheme = url.substring(0, schemeEnd).toLowerCase();
+    buffer.append(scheme);
+    buffer.append(url, schemeEnd, hostStart);
+
+    // Host and port
+    for (int i = hostStart; i < portStart; i++) {
+      buffer.append(Character.toLowerCase(url.charAt(i)));
+    }
+    if (portStart < authorityEnd) {
+      String port = url.substring(portStart + 1, authorityEnd);
+      boolean isDefaultPort = (port.length() == 0)
+        || (scheme.equals("http") && port.equals("80"))
+        || (scheme.equals("https") && port.equals("443"));
+      if (! isDefaultPort) {
+        buffer.append(url, portStart, authorityEnd);
+      }
+    }
+
+    // Path
+    int pathEnd = authorityEnd;
+    while ((pathEnd < url.length()) && ("?#".indexOf(url.charAt(pathEnd)) == -1)) {
+      pathEnd++;
+    }
+    if (pathEnd == authorityEnd) {
+      // An empty path is the same as "/"
+      buffer.append('/');
+    } else {
+      appendPath(buffer, url, authorityEnd, pathEnd);
+    }
+
+    // Query
+    int queryEnd = url.indexOf('#', pathEnd);
+    if (queryEnd == -1) {
+      queryEnd = url.length();
+    }
+    appendPercentNormalized(buffer, url, pathEnd, queryEnd);
+
+    // Fragment
+    buffer.append(url, queryEnd, url.length());
+
+    return buffer.toString();
+  }
+
+
+  /**
+   * Brings the prefix of a http or https URL into the canonical form of
+   * {@link #normalize(String)}, so it matches the normalized URLs. Used for the
+   * prefixes of the white and the black list.
+   * <p>
+   * A prefix without a path keeps having no path, so
+   * <code>http://www.example.com</code> still matches all ports of the host.
+   *
+   * @param prefix The prefix to canonicalize.
+   * @return The canonical prefix.
+   */
+  static String canonicalizePrefix(String prefix) {
+    if (! prefix.regionMatches(true, 0, "http://", 0, 7)
+      && ! prefix.regionMatches(true, 0, "https://", 0, 8))
+    {
+      return prefix;
+    }
+
+    String canonical = canonicalize(prefix);
+    int authorityStart = prefix.indexOf("://") + 3;
+    boolean hasPath = false;
+    for (int i = authorityStart; i < prefix.length(); i++) {
+      if ("/?#".indexOf(prefix.charAt(i)) != -1) {
+        hasPath = true;
+        break;
+      }
+    }
+    if (! hasPath) {
+      // Remove the "/" canonicalize() added for the empty path
+      canonical = canonical.substring(0, canonical.length() - 1);
+    }
+    return canonical;
+  }
+
+
+  /**
+   * Appends a path and resolves the segments <code>.</code> and
+   * <code>..</code>.
+   *
+   * @param buffer The buffer to append the path to.
+   * @param url The URL holding the path.
+   * @param start The start of the path. Must be a <code>/</code>.
+   * @param end The end of the path.
+   */
+  private static void appendPath(StringBuilder buffer, String url, int start, int end) {
+    int pathStart = buffer.length();
+    int pos = start;
+    while (pos < end) {
+      int segmentEnd = url.indexOf('/', pos + 1);
+      if ((segmentEnd == -1) || (segmentEnd > end)) {
+        segmentEnd = end;
+      }
+
+      int segmentLength = segmentEnd - pos - 1;
+      if ((segmentLength == 1) && (url.charAt(pos + 1) == '.')) {
+        // Skip "/."
+        if (segmentEnd == end) {
+          buffer.append('/');
+        }
+      }
+      else if ((segmentLength == 2) && url.startsWith("..", pos + 1)) {
+        // Remove the last segment
+        int lastSegmentStart = buffer.lastIndexOf("/");
+        if (lastSegmentStart >= pathStart) {
+          buffer.setLength(lastSegmentStart);
+        }
+        if (segmentEnd == end) {
+          buffer.append('/');
+        }
+      }
+      else {
+        appendPercentNormalized(buffer, url, pos, segmentEnd);
+      }
+
+      pos = segmentEnd;
+    }
+  }
+
+
+  /**
+   * Appends a part of a URL and normalizes its percent encoding: Unreserved
+   * characters are decoded, the hex digits of the others are converted to
+   * upper case.
+   *
+   * @param buffer The buffer to append the part to.
+   * @param url The URL holding the part.
+   * @param start The start of the part.
+   * @param end The end of the part.
+   */
+  private static void appendPercentNormalized(StringBuilder buffer, String url,
+    int start, int end)
+  {
+    int pos = start;
+    while (pos < end) {
+      char c = url.charAt(pos);
+      if ((c == '%') && (pos + 2 < end)) {
+        int high = Character.digit(url.charAt(pos + 1), 16);
+        int low = Character.digit(url.charAt(pos + 2), 16);
+        if ((high != -1) && (low != -1)) {
+          char decoded = (char) ((high << 4) | low);
+          if (isUnreserved(decoded)) {
+            buffer.append(decoded);
+          } else {
+            buffer.append('%');
+            buffer.append(HEX_DIGITS[high]);
+            buffer.append(HEX_DIGITS[low]);
+          }
+          pos += 3;
+          continue;
+        }
+      }
+
+      buffer.append(c);
+      pos++;
+    }
+  }
+
+
+  /**
+   * Checks whether a character is unreserved in URLs (RFC 3986). Unreserved
+   * characters don't have to be percent encoded.
+   *
+   * @param c The character to check.
+   * @return Whether the character is unreserved.
+   */
+  private static boolean isUnreserved(char c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+      || ((c >= '0') && (c <= '9'))
+      || (c == '-') || (c == '.') || (c == '_') || (c == '~');
+  }
+
+}
@@ -205,6 +205,142 @@ public interface CrawlerConfig {
    */
   public boolean getStoreContentForPreview();
 
+  /**
+   * Returns the names of the fields for which term vectors with positions and
+   * offsets should be stored in the index. These fields can be highlighted by
+   * the search mask without analyzing their text again.
+   *
+   * @return The names of the fields to store term vectors for. Is never
+   *         <code>null</code>.
+   */
+  public String[] getTermVectorFields();
+
+  /**
+   * Returns whether an existing index should be updated in place.
+   * <p>
+   * If true, the crawler commits directly into the working index and publishes
+   * the last commit of a crawl. The search mask then only reopens the changed
+   * segments. Otherwise the crawler builds a copy of the index which replaces
+   * the working index when it is finished.
+   *
+   * @return Whether an existing index should be updated in place.
+   */
+  public boolean getPublishInPlace();
+
+  /**
+   * Returns the number of published index generations that are kept when the
+   * index is updated in place. The index can be rolled back to these
+   * generations.
+   *
+   * @return The number of published generations to keep.
+   */
+  public int getGenerationHistory();
+
+  /**
+   * Returns the merge policy the index writer should use. Is either
+   * <code>tiered</code> or <code>logByteSize</code>.
+   *
+   * @return The type of the merge policy.
+   */
+  public String getMergePolicy();
+
+  /**
+   * Returns the number of segments per tier of the merge policy. For the
+   * <code>logByteSize</code> merge policy this is the merge factor.
+   *
+   * @return The number of segments per tier or -1 if the default of Lucene
+   *         should be used.
+   */
+  public double getSegmentsPerTier();
+
+  /**
+   * Returns the maximum size of a segment created by a merge.
+   *
+   * @return The maximum size of a merged segment (in MB) or -1 if the default
+   *         of Lucene should be used.
+   */
+  public double getMaxMergedSegmentMB();
+
+  /**
+   * Returns whether segments should be merged by background threads while the
+   * crawler goes on. Otherwise they are merged by the crawler thread.
+   *
+   * @return Whether segments should be merged in the background.
+   */
+  public boolean getBackgroundMerges();
+
+  /**
+   * Returns the maximum number of threads merging segments in the background.
+   *
+   * @return The number of merge threads or -1 if the default of Lucene should
+   *         be used.
+   */
+  public int getMergeThreadCount();
+
+  /**
+   * Returns the size of the RAM buffer for added documents. When the buffer is
+   * full, the documents are flushed as a new segment.
+   *
+   * @return The size of the RAM buffer (in MB) or -1 if the default of Lucene
+   *         should be used.
+   */
+  public double getRamBufferSizeMB();
+
+  /**
+   * Returns the number of added documents that are buffered before they are
+   * flushed as a new segment.
+   *
+   * @return The maximum number of buffered documents or -1 if documents should
+   *         only be flushed by RAM usage.
+   */
+  public int getMaxBufferedDocs();
+
+  /**
+   * Returns whether new segments should be written as compound files. Compound
+   * files need less file handles but are slower to write.
+   *
+   * @return Whether to use compound files.
+   */
+  public boolean getUseCompoundFile();
+
+  /**
+   * Returns the interval of the terms that are loaded into memory for the
+   * term index. Smaller values mean faster term lookups but more memory.
+   *
+   * @return The term index interval or -1 if the default of Lucene should be
+   *         used.
+   */
+  public int getTermIndexInterval();
+
+  /**
+   * Returns the number of prepared documents that may wait for being added to
+   * the index. The documents are added by dedicated indexing threads while the
+   * crawler goes on. If the queue is full, the crawler waits.
+   *
+   * @return The size of the index writer queue or 0 if the documents should
+   *         be added by the crawler thread.
+   */
+  public int getWriterQueueSize();
+
+  /**
+   * Returns the number of threads adding the documents of the index writer
+   * queue to the index.
+   *
+   * @return The number of indexing threads.
+   */
+  public int getIndexingThreadCount();
+
+  /**
+   * Returns whether the index should be optimized (merged into one segment)
+   * at the end of a crawl.
+   * <p>
+   * Optimizing rewrites the whole index, so an update crawl takes as long as
+   * rewriting the index, even if only a few documents changed.
+   *
+   * @return Whether the index should be optimized.
+   */
+  public boolean getOptimizeIndex();
+
   /**
    * Gibt die StartUrls zurück, bei denen der Crawler-Prozeß beginnen soll.
    *
@@ -332,5 +468,108 @@ public interface CrawlerConfig {
    */
   public String[] getURLCleaners();
 
+  /**
+   * Returns the number of http-URLs expected in a crawler run. The sets of the
+   * accepted and ignored URLs are created large enough for this number, so they
+   * don't have to be enlarged during the crawl.
+   *
+   * @return The expected number of URLs.
+   */
+  public int getExpectedUrlCount();
+
+  /**
+   * Returns whether the sets of the accepted and ignored URLs should be held
+   * in memory mapped files instead of the Java heap.
+   *
+   * @return Whether the URL sets should be memory mapped.
+   */
+  public boolean getMemoryMappedUrlSet();
+
+  /**
+   * Returns the maximum number of crawler jobs held in memory. Further jobs
+   * are written to segment files in the index directory.
+   *
+   * @return The maximum number of jobs in memory.
+   */
+  public int getMaxJobsInMemory();
+
+  /**
+   * Returns the minimum delay between two requests to the same host.
+   *
+   * @return The minimum delay in milliseconds.
+   */
+  public int getMinHostDelay();
+
+  /**
+   * Returns the maximum delay between two requests to the same host. It limits
+   * the delays given by the robots.txt and by the response time.
+   *
+   * @return The maximum delay in milliseconds.
+   */
+  public int getMaxHostDelay();
+
+  /**
+   * Returns the factor of a host's average response time giving the delay
+   * between two requests to the host. So slow hosts are visited less often.
+   *
+   * @return The factor. 0 means that the response time is not considered.
+   */
+  public double getHostDelayFactor();
+
+  /**
+   * Returns the maximum number of concurrent requests to the same host.
+   *
+   * @return The maximum number of concurrent requests per host.
+   */
+  public int getMaxConnectionsPerHost();
+
+  /**
+   * Returns whether the robots.txt files of the hosts should be obeyed.
+   *
+   * @return Whether the robots.txt files should be obeyed.
+   */
+  public boolean getObeyRobotsTxt();
+
+  /**
+   * Returns the minimum time between two loads of the same http document in
+   * update crawls.
+   *
+   * @return The minimum recrawl interval in hours.
+   */
+  public int getMinRecrawlInterval();
+
+  /**
+   * Returns the maximum time between two loads of the same http document in
+   * update crawls. Documents that don't change are loaded again after this
+   * time.
+   *
+   * @return The maximum recrawl interval in hours. 0 means that every document
+   *         is loaded in every crawl.
+   */
+  public int getMaxRecrawlInterval();
+
+  /**
+   * Returns the file where the crawler writes snapshots of its metrics while
+   * it is running.
+   *
+   * @return The metrics file or <code>null</code> if no snapshots should be
+   *         written.
+   */
+  public String getMetricsFile();
+
+  /**
+   * Returns the time between two snapshots of the crawler metrics.
+   *
+   * @return The snapshot interval in seconds.
+   */
+  public int getMetricsInterval();
+
+  /**
+   * Returns whether the crawler metrics should be published as JMX MBean.
+   *
+   * @return Whether to register the metrics MBean.
+   */
+  public boolean getMetricsJmx();
+
 }
 
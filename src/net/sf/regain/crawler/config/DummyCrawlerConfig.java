@@ -41,6 +41,158 @@ public class DummyCrawlerConfig implements CrawlerConfig {
     return true;
   }
 
+  /**
+   * Returns the names of the fields for which term vectors with positions and
+   * offsets should be stored in the index.
+   *
+   * @return The names of the fields to store term vectors for.
+   */
+  @Override
+  public String[] getTermVectorFields() {
+    return new String[] { "summary", "title" };
+  }
+
+  /**
+   * Returns whether an existing index should be updated in place.
+   *
+   * @return Whether an existing index should be updated in place.
+   */
+  @Override
+  public boolean getPublishInPlace() {
+    return false;
+  }
+
+  /**
+   * Returns the number of published index generations that are kept.
+   *
+   * @return The number of published generations to keep.
+   */
+  @Override
+  public int getGenerationHistory() {
+    return 3;
+  }
+
+  /**
+   * Returns the merge policy the index writer should use.
+   *
+   * @return The type of the merge policy.
+   */
+  @Override
+  public String getMergePolicy() {
+    return "tiered";
+  }
+
+  /**
+   * Returns the number of segments per tier of the merge policy.
+   *
+   * @return The number of segments per tier.
+   */
+  @Override
+  public double getSegmentsPerTier() {
+    return -1;
+  }
+
+  /**
+   * Returns the maximum size of a segment created by a merge.
+   *
+   * @return The maximum size of a merged segment (in MB).
+   */
+  @Override
+  public double getMaxMergedSegmentMB() {
+    return -1;
+  }
+
+  /**
+   * Returns whether segments should be merged by background threads.
+   *
+   * @return Whether segments should be merged in the background.
+   */
+  @Override
+  public boolean getBackgroundMerges() {
+    return true;
+  }
+
+  /**
+   * Returns the maximum number of threads merging segments in the background.
+   *
+   * @return The number of merge threads.
+   */
+  @Override
+  public int getMergeThreadCount() {
+    return -1;
+  }
+
+  /**
+   * Returns the size of the RAM buffer for added documents.
+   *
+   * @return The size of the RAM buffer (in MB).
+   */
+  @Override
+  public double getRamBufferSizeMB() {
+    return -1;
+  }
+
+  /**
+   * Returns the number of added documents that are buffered.
+   *
+   * @return The maximum number of buffered documents.
+   */
+  @Override
+  public int getMaxBufferedDocs() {
+    return -1;
+  }
+
+  /**
+   * Returns whether new segments should be written as compound files.
+   *
+   * @return Whether to use compound files.
+   */
+  @Override
+  public boolean getUseCompoundFile() {
+    return true;
+  }
+
+  /**
+   * Returns the interval of the terms that are loaded for the term index.
+   *
+   * @return The term index interval.
+   */
+  @Override
+  public int getTermIndexInterval() {
+    return -1;
+  }
+
+  /**
+   * Returns the number of prepared documents that may wait for being added to
+   * the index.
+   *
+   * @return The size of the index writer queue.
+   */
+  @Override
+  public int getWriterQueueSize() {
+    return 0;
+  }
+
+  /**
+   * Returns the number of threads adding documents to the index.
+   *
+   * @return The number of indexing threads.
+   */
+  @Override
+  public int getIndexingThreadCount() {
+    return 1;
+  }
+
+  /**
+   * Returns whether the index should be optimized at the end of a crawl.
+   *
+   * @return Whether the index should be optimized.
+   */
+  @Override
+  public boolean getOptimizeIndex() {
+    return false;
+  }
+
   /**
    * Gibt den Host-Namen des Proxy-Servers zur�ck. Wenn kein Host konfiguriert
    * wurde, wird <CODE>null</CODE> zur�ckgegeben.
@@ -451,5 +603,135 @@ public class DummyCrawlerConfig implements CrawlerConfig {
   public String[] getURLCleaners() {
     return new String[]{"PHPSESSID=[0-9a-z]{5,}"};
   }
+
+  /**
+   * Returns the number of http-URLs expected in a crawler run.
+   *
+   * @return The expected number of URLs.
+   */
+  @Override
+  public int getExpectedUrlCount() {
+    return 10000;
+  }
+
+  /**
+   * Returns whether the URL sets should be held in memory mapped files.
+   *
+   * @return Whether the URL sets should be memory mapped.
+   */
+  @Override
+  public boolean getMemoryMappedUrlSet() {
+    return false;
+  }
+
+  /**
+   * Returns the maximum number of crawler jobs held in memory.
+   *
+   * @return The maximum number of jobs in memory.
+   */
+  @Override
+  public int getMaxJobsInMemory() {
+    return 10000;
+  }
+
+  /**
+   * Returns the minimum delay between two requests to the same host.
+   *
+   * @return The minimum delay in milliseconds.
+   */
+  @Override
+  public int getMinHostDelay() {
+    return 0;
+  }
+
+  /**
+   * Returns the maximum delay between two requests to the same host.
+   *
+   * @return The maximum delay in milliseconds.
+   */
+  @Override
+  public int getMaxHostDelay() {
+    return 60000;
+  }
+
+  /**
+   * Returns the factor of a host's average response time giving the delay.
+   *
+   * @return The factor.
+   */
+  @Override
+  public double getHostDelayFactor() {
+    return 0;
+  }
+
+  /**
+   * Returns the maximum number of concurrent requests to the same host.
+   *
+   * @return The maximum number of concurrent requests per host.
+   */
+  @Override
+  public int getMaxConnectionsPerHost() {
+    return 1;
+  }
+
+  /**
+   * Returns whether the robots.txt files of the hosts should be obeyed.
+   *
+   * @return Whether the robots.txt files should be obeyed.
+   */
+  @Override
+  public boolean getObeyRobotsTxt() {
+    return false;
+  }
+
+  /**
+   * Returns the minimum time between two loads of the same http document.
+   *
+   * @return The minimum recrawl interval in hours.
+   */
+  @Override
+  public int getMinRecrawlInterval() {
+    return 0;
+  }
+
+  /**
+   * Returns the maximum time between two loads of the same http document.
+   *
+   * @return The maximum recrawl interval in hours.
+   */
+  @Override
+  public int getMaxRecrawlInterval() {
+    return 0;
+  }
+
+  /**
+   * Returns the file where the crawler writes snapshots of its metrics.
+   *
+   * @return The metrics file or <code>null</code> if there is none.
+   */
+  @Override
+  public String getMetricsFile() {
+    return null;
+  }
+
+  /**
+   * Returns the time between two snapshots of the crawler metrics.
+   *
+   * @return The snapshot interval in seconds.
+   */
+  @Override
+  public int getMetricsInterval() {
+    return 60;
+  }
+
+  /**
+   * Returns whether the crawler metrics should be published as JMX MBean.
+   *
+   * @return Whether to register the metrics MBean.
+   */
+  @Override
+  public boolean getMetricsJmx() {
+    return false;
+  }
 }
 
@@ -143,8 +143,92 @@ public class XmlCrawlerConfig implements CrawlerConfig {
   /** Flag for enabling/disabling content for a preview in the result page */
   private boolean storeContentForPreview;
 
+  /** The names of the fields to store term vectors for. */
+  private String[] mTermVectorFields;
+
+  /** Whether an existing index should be updated in place. */
+  private boolean mPublishInPlace;
+
+  /** The number of published index generations to keep. */
+  private int mGenerationHistory;
+
+  /** The type of the merge policy. */
+  private String mMergePolicy;
+
+  /** The number of segments per tier of the merge policy. */
+  private double mSegmentsPerTier;
+
+  /** The maximum size of a merged segment (in MB). */
+  private double mMaxMergedSegmentMB;
+
+  /** Whether segments should be merged in the background. */
+  private boolean mBackgroundMerges;
+
+  /** The maximum number of background merge threads. */
+  private int mMergeThreadCount;
+
+  /** The size of the RAM buffer for added documents (in MB). */
+  private double mRamBufferSizeMB;
+
+  /** The maximum number of buffered documents. */
+  private int mMaxBufferedDocs;
+
+  /** Whether new segments should be written as compound files. */
+  private boolean mUseCompoundFile;
+
+  /** The term index interval. */
+  private int mTermIndexInterval;
+
+  /** The size of the index writer queue. */
+  private int mWriterQueueSize;
+
+  /** The number of indexing threads. */
+  private int mIndexingThreadCount;
+
+  /** Whether the index should be optimized at the end of a crawl. */
+  private boolean mOptimizeIndex;
+
   private String[] mURLCleaners;
 
+  /** The number of http-URLs expected in a crawler run. */
+  private int mExpectedUrlCount;
+
+  /** Whether the URL sets should be held in memory mapped files. */
+  private boolean mMemoryMappedUrlSet;
+
+  /** The maximum number of crawler jobs held in memory. */
+  private int mMaxJobsInMemory;
+
+  /** The minimum delay between two requests to the same host (in ms). */
+  private int mMinHostDelay;
+
+  /** The maximum delay between two requests to the same host (in ms). */
+  private int mMaxHostDelay;
+
+  /** The factor of a host's average response time giving the delay. */
+  private double mHostDelayFactor;
+
+  /** The maximum number of concurrent requests to the same host. */
+  private int mMaxConnectionsPerHost;
+
+  /** Whether the robots.txt files of the hosts should be obeyed. */
+  private boolean mObeyRobotsTxt;
+
+  /** The minimum recrawl interval (in hours). */
+  private int mMinRecrawlInterval;
+
+  /** The maximum recrawl interval (in hours). */
+  private int mMaxRecrawlInterval;
+
+  /** The file for the metrics snapshots. Is <code>null</code> if there is none. */
+  private String mMetricsFile;
+
+  /** The time between two metrics snapshots (in seconds). */
+  private int mMetricsInterval;
+
+  /** Whether to publish the metrics as JMX MBean. */
+  private boolean mMetricsJmx;
+
   /**
    * Erzeugt eine neue XmlConfiguration-Instanz.
    *
@@ -175,6 +259,165 @@ public class XmlCrawlerConfig implements CrawlerConfig {
     readMaxCycleCount(config);
     readMaxSummaryLength(config);
     readURLCleaner(config);
+    readUrlSetConfig(config);
+    readJobFrontierConfig(config);
+    readPolitenessConfig(config);
+    readRecrawlConfig(config);
+    readMetricsConfig(config);
+  }
+
+  /**
+   * Reads the configuration of the sets of the accepted and ignored URLs.
+   *
+   * @param config The configuration to read from.
+   * @throws RegainException If the configuration has an error.
+   */
+  private void readUrlSetConfig(Element config) throws RegainException {
+    mExpectedUrlCount = 10000;
+    mMemoryMappedUrlSet = false;
+    Node urlSetNode = XmlToolkit.getChild(config, "urlSet");
+    if (urlSetNode != null) {
+      Node node = XmlToolkit.getChild(urlSetNode, "expectedUrls");
+      mExpectedUrlCount = (node == null) ? 10000 : XmlToolkit.getTextAsInt(node);
+      if (mExpectedUrlCount < 0) {
+        throw new RegainException("The expectedUrls must not be negative: "
+            + mExpectedUrlCount);
+      }
+      node = XmlToolkit.getChild(urlSetNode, "memoryMapped");
+      mMemoryMappedUrlSet = (node == null) ? false : XmlToolkit.getTextAsBoolean(node);
+    }
+  }
+
+  /**
+   * Reads the configuration of the list of the crawler jobs.
+   *
+   * @param config The configuration to read from.
+   * @throws RegainException If the configuration has an error.
+   */
+  private void readJobFrontierConfig(Element config) throws RegainException {
+    mMaxJobsInMemory = 10000;
+    Node frontierNode = XmlToolkit.getChild(config, "jobFrontier");
+    if (frontierNode != null) {
+      Node node = XmlToolkit.getChild(frontierNode, "jobsInMemory");
+      mMaxJobsInMemory = (node == null) ? 10000 : XmlToolkit.getTextAsInt(node);
+      if (mMaxJobsInMemory < 1) {
+        throw new RegainException("The jobsInMemory must be at least 1: "
+            + mMaxJobsInMemory);
+      }
+    }
+  }
+
+  /**
+   * Reads the configuration of the politeness towards the hosts.
+   *
+   * @param config The configuration to read from.
+   * @throws RegainException If the configuration has an error.
+   */
+  private void readPolitenessConfig(Element config) throws RegainException {
+    mMinHostDelay = 0;
+    mMaxHostDelay = 60000;
+    mHostDelayFactor = 0;
+    mMaxConnectionsPerHost = 1;
+    mObeyRobotsTxt = false;
+    Node politenessNode = XmlToolkit.getChild(config, "politeness");
+    if (politenessNode != null) {
+      Node node = XmlToolkit.getChild(politenessNode, "minDelay");
+      if (node != null) {
+        mMinHostDelay = XmlToolkit.getTextAsInt(node);
+      }
+      node = XmlToolkit.getChild(politenessNode, "maxDelay");
+      if (node != null) {
+        mMaxHostDelay = XmlToolkit.getTextAsInt(node);
+      }
+      node = XmlToolkit.getChild(politenessNode, "responseTimeFactor");
+      if (node != null) {
+        mHostDelayFactor = XmlToolkit.getTextAsDouble(node);
+      }
+      node = XmlToolkit.getChild(politenessNode, "maxConnectionsPerHost");
+      if (node != null) {
+        mMaxConnectionsPerHost = XmlToolkit.getTextAsInt(node);
+      }
+      node = XmlToolkit.getChild(politenessNode, "obeyRobotsTxt");
+      if (node != null) {
+        mObeyRobotsTxt = XmlToolkit.getTextAsBoolean(node);
+      }
+    }
+
+    if ((mMinHostDelay < 0) || (mMaxHostDelay < mMinHostDelay)) {
+      throw new RegainException("The politeness delays must fulfill "
+          + "0 <= minDelay <= maxDelay: minDelay=" + mMinHostDelay
+          + ", maxDelay=" + mMaxHostDelay);
+    }
+    if (mHostDelayFactor < 0) {
+      throw new RegainException("The responseTimeFactor must not be negative: "
+          + mHostDelayFactor);
+    }
+    if (mMaxConnectionsPerHost < 1) {
+      throw new RegainException("The maxConnectionsPerHost must be at least 1: "
+          + mMaxConnectionsPerHost);
+    }
+  }
+
+  /**
+   * Reads the configuration of the recrawl scheduling.
+   *
+   * @param config The configuration to read from.
+   * @throws RegainException If the configuration has an error.
+   */
+  private void readRecrawlConfig(Element config) throws RegainException {
+    mMinRecrawlInterval = 0;
+    mMaxRecrawlInterval = 0;
+    Node recrawlNode = XmlToolkit.getChild(config, "recrawl");
+    if (recrawlNode != null) {
+      Node node = XmlToolkit.getChild(recrawlNode, "minInterval");
+      if (node != null) {
+        mMinRecrawlInterval = XmlToolkit.getTextAsInt(node);
+      }
+      node = XmlToolkit.getChild(recrawlNode, "maxInterval");
+      if (node != null) {
+        mMaxRecrawlInterval = XmlToolkit.getTextAsInt(node);
+      }
+    }
+
+    if ((mMinRecrawlInterval < 0) || (mMaxRecrawlInterval < 0)
+      || ((mMaxRecrawlInterval != 0) && (mMaxRecrawlInterval < mMinRecrawlInterval)))
+    {
+      throw new RegainException("The recrawl intervals must fulfill "
+          + "0 <= minInterval <= maxInterval: minInterval=" + mMinRecrawlInterval
+          + ", maxInterval=" + mMaxRecrawlInterval);
+    }
+  }
+
+  /**
+   * Reads the configuration of the crawler metrics.
+   *
+   * @param config The configuration to read from.
+   * @throws RegainException If the configuration has an error.
+   */
+  private void readMetricsConfig(Element config) throws RegainException {
+    mMetricsFile = null;
+    mMetricsInterval = 60;
+    mMetricsJmx = false;
+    Node metricsNode = XmlToolkit.getChild(config, "metrics");
+    if (metricsNode != null) {
+      Node node = XmlToolkit.getChild(metricsNode, "snapshotFile");
+      if (node != null) {
+        mMetricsFile = XmlToolkit.getText(node, true, true);
+      }
+      node = XmlToolkit.getChild(metricsNode, "snapshotInterval");
+      if (node != null) {
+        mMetricsInterval = XmlToolkit.getTextAsInt(node);
+      }
+      node = XmlToolkit.getChild(metricsNode, "jmx");
+      if (node != null) {
+        mMetricsJmx = XmlToolkit.getTextAsBoolean(node);
+      }
+    }
+
+    if (mMetricsInterval < 1) {
+      throw new RegainException("The metrics snapshot interval must be at "
+          + "least 1 second: " + mMetricsInterval);
+    }
   }
 
   /**
@@ -318,6 +561,76 @@ public class XmlCrawlerConfig implements CrawlerConfig {
     node = XmlToolkit.getChild(indexNode, "storeContentForPreview");
     this.storeContentForPreview = (node == null) ? false : XmlToolkit.getTextAsBoolean(node) ;
 
+    node = XmlToolkit.getChild(indexNode, "termVectorFields", false);
+    mTermVectorFields = (node == null) ? new String[] { "summary", "title" }
+                                       : XmlToolkit.getTextAsWordList(node, false);
+
+    node = XmlToolkit.getChild(indexNode, "publishInPlace");
+    mPublishInPlace = (node == null) ? false : XmlToolkit.getTextAsBoolean(node);
+    node = XmlToolkit.getChild(indexNode, "generationHistory");
+    mGenerationHistory = (node == null) ? 3 : XmlToolkit.getTextAsInt(node);
+    if (mGenerationHistory < 1) {
+      throw new RegainException("The generationHistory must be at least 1: "
+          + mGenerationHistory);
+    }
+
+    mMergePolicy = "tiered";
+    mSegmentsPerTier = -1;
+    mMaxMergedSegmentMB = -1;
+    mBackgroundMerges = true;
+    mMergeThreadCount = -1;
+    Node mergeNode = XmlToolkit.getChild(indexNode, "mergePolicy");
+    if (mergeNode != null) {
+      node = XmlToolkit.getChild(mergeNode, "type");
+      if (node != null) {
+        mMergePolicy = XmlToolkit.getText(node, true).trim();
+        if (! mMergePolicy.equals("tiered") && ! mMergePolicy.equals("logByteSize")) {
+          throw new RegainException("Unknown merge policy: " + mMergePolicy
+              + " (allowed: tiered, logByteSize)");
+        }
+      }
+      node = XmlToolkit.getChild(mergeNode, "segmentsPerTier");
+      mSegmentsPerTier = (node == null) ? -1 : XmlToolkit.getTextAsDouble(node);
+      node = XmlToolkit.getChild(mergeNode, "maxMergedSegmentMB");
+      mMaxMergedSegmentMB = (node == null) ? -1 : XmlToolkit.getTextAsDouble(node);
+      node = XmlToolkit.getChild(mergeNode, "backgroundMerges");
+      mBackgroundMerges = (node == null) ? true : XmlToolkit.getTextAsBoolean(node);
+      node = XmlToolkit.getChild(mergeNode, "mergeThreads");
+      mMergeThreadCount = (node == null) ? -1 : XmlToolkit.getTextAsInt(node);
+      if (node != null && mMergeThreadCount < 1) {
+        throw new RegainException("The mergeThreads must be at least 1: "
+            + mMergeThreadCount);
+      }
+    }
+
+    mRamBufferSizeMB = -1;
+    mMaxBufferedDocs = -1;
+    mUseCompoundFile = true;
+    mTermIndexInterval = -1;
+    mWriterQueueSize = 32;
+    mIndexingThreadCount = 1;
+    Node writerNode = XmlToolkit.getChild(indexNode, "indexWriter");
+    if (writerNode != null) {
+      node = XmlToolkit.getChild(writerNode, "ramBufferSizeMB");
+      mRamBufferSizeMB = (node == null) ? -1 : XmlToolkit.getTextAsDouble(node);
+      node = XmlToolkit.getChild(writerNode, "maxBufferedDocs");
+      mMaxBufferedDocs = (node == null) ? -1 : XmlToolkit.getTextAsInt(node);
+      node = XmlToolkit.getChild(writerNode, "useCompoundFile");
+      mUseCompoundFile = (node == null) ? true : XmlToolkit.getTextAsBoolean(node);
+      node = XmlToolkit.getChild(writerNode, "termIndexInterval");
+      mTermIndexInterval = (node == null) ? -1 : XmlToolkit.getTextAsInt(node);
+      node = XmlToolkit.getChild(writerNode, "queueSize");
+      mWriterQueueSize = (node == null) ? 32 : XmlToolkit.getTextAsInt(node);
+      node = XmlToolkit.getChild(writerNode, "indexingThreads");
+      mIndexingThreadCount = (node == null) ? 1 : XmlToolkit.getTextAsInt(node);
+      if (mIndexingThreadCount < 1) {
+        throw new RegainException("The indexingThreads must be at least 1: "
+            + mIndexingThreadCount);
+      }
+    }
+    node = XmlToolkit.getChild(indexNode, "optimize");
+    mOptimizeIndex = (node == null) ? false : XmlToolkit.getTextAsBoolean(node);
+
   }
 
 
@@ -957,6 +1270,159 @@ public class XmlCrawlerConfig implements CrawlerConfig {
     return this.storeContentForPreview;
   }
 
+  /**
+   * Returns the names of the fields for which term vectors with positions and
+   * offsets should be stored in the index.
+   *
+   * @return The names of the fields to store term vectors for.
+   */
+  @Override
+  public String[] getTermVectorFields() {
+    return mTermVectorFields;
+  }
+
+  /**
+   * Returns whether an existing index should be updated in place.
+   *
+   * @return Whether an existing index should be updated in place.
+   */
+  @Override
+  public boolean getPublishInPlace() {
+    return mPublishInPlace;
+  }
+
+  /**
+   * Returns the number of published index generations that are kept when the
+   * index is updated in place.
+   *
+   * @return The number of published generations to keep.
+   */
+  @Override
+  public int getGenerationHistory() {
+    return mGenerationHistory;
+  }
+
+  /**
+   * Returns the merge policy the index writer should use.
+   *
+   * @return The type of the merge policy.
+   */
+  @Override
+  public String getMergePolicy() {
+    return mMergePolicy;
+  }
+
+  /**
+   * Returns the number of segments per tier of the merge policy.
+   *
+   * @return The number of segments per tier or -1 for the default.
+   */
+  @Override
+  public double getSegmentsPerTier() {
+    return mSegmentsPerTier;
+  }
+
+  /**
+   * Returns the maximum size of a segment created by a merge.
+   *
+   * @return The maximum size of a merged segment (in MB) or -1 for the default.
+   */
+  @Override
+  public double getMaxMergedSegmentMB() {
+    return mMaxMergedSegmentMB;
+  }
+
+  /**
+   * Returns whether segments should be merged by background threads.
+   *
+   * @return Whether segments should be merged in the background.
+   */
+  @Override
+  public boolean getBackgroundMerges() {
+    return mBackgroundMerges;
+  }
+
+  /**
+   * Returns the maximum number of threads merging segments in the background.
+   *
+   * @return The number of merge threads or -1 for the default.
+   */
+  @Override
+  public int getMergeThreadCount() {
+    return mMergeThreadCount;
+  }
+
+  /**
+   * Returns the size of the RAM buffer for added documents.
+   *
+   * @return The size of the RAM buffer (in MB) or -1 for the default.
+   */
+  @Override
+  public double getRamBufferSizeMB() {
+    return mRamBufferSizeMB;
+  }
+
+  /**
+   * Returns the number of added documents that are buffered.
+   *
+   * @return The maximum number of buffered documents or -1 for no limit.
+   */
+  @Override
+  public int getMaxBufferedDocs() {
+    return mMaxBufferedDocs;
+  }
+
+  /**
+   * Returns whether new segments should be written as compound files.
+   *
+   * @return Whether to use compound files.
+   */
+  @Override
+  public boolean getUseCompoundFile() {
+    return mUseCompoundFile;
+  }
+
+  /**
+   * Returns the interval of the terms that are loaded for the term index.
+   *
+   * @return The term index interval or -1 for the default.
+   */
+  @Override
+  public int getTermIndexInterval() {
+    return mTermIndexInterval;
+  }
+
+  /**
+   * Returns the number of prepared documents that may wait for being added to
+   * the index.
+   *
+   * @return The size of the index writer queue or 0 for no queue.
+   */
+  @Override
+  public int getWriterQueueSize() {
+    return mWriterQueueSize;
+  }
+
+  /**
+   * Returns the number of threads adding documents to the index.
+   *
+   * @return The number of indexing threads.
+   */
+  @Override
+  public int getIndexingThreadCount() {
+    return mIndexingThreadCount;
+  }
+
+  /**
+   * Returns whether the index should be optimized at the end of a crawl.
+   *
+   * @return Whether the index should be optimized.
+   */
+  @Override
+  public boolean getOptimizeIndex() {
+    return mOptimizeIndex;
+  }
+
   /**
    * Gibt die StartUrls zurück, bei denen der Crawler-Prozeß beginnen soll.
    *
@@ -1160,5 +1626,135 @@ public class XmlCrawlerConfig implements CrawlerConfig {
     return mURLCleaners;
   }
 
+  /**
+   * Returns the number of http-URLs expected in a crawler run.
+   *
+   * @return The expected number of URLs.
+   */
+  @Override
+  public int getExpectedUrlCount() {
+    return mExpectedUrlCount;
+  }
+
+  /**
+   * Returns whether the URL sets should be held in memory mapped files.
+   *
+   * @return Whether the URL sets should be memory mapped.
+   */
+  @Override
+  public boolean getMemoryMappedUrlSet() {
+    return mMemoryMappedUrlSet;
+  }
+
+  /**
+   * Returns the maximum number of crawler jobs held in memory.
+   *
+   * @return The maximum number of jobs in memory.
+   */
+  @Override
+  public int getMaxJobsInMemory() {
+    return mMaxJobsInMemory;
+  }
+
+  /**
+   * Returns the minimum delay between two requests to the same host.
+   *
+   * @return The minimum delay in milliseconds.
+   */
+  @Override
+  public int getMinHostDelay() {
+    return mMinHostDelay;
+  }
+
+  /**
+   * Returns the maximum delay between two requests to the same host.
+   *
+   * @return The maximum delay in milliseconds.
+   */
+  @Override
+  public int getMaxHostDelay() {
+    return mMaxHostDelay;
+  }
+
+  /**
+   * Returns the factor of a host's average response time giving the delay.
+   *
+   * @return The factor.
+   */
+  @Override
+  public double getHostDelayFactor() {
+    return mHostDelayFactor;
+  }
+
+  /**
+   * Returns the maximum number of concurrent requests to the same host.
+   *
+   * @return The maximum number of concurrent requests per host.
+   */
+  @Override
+  public int getMaxConnectionsPerHost() {
+    return mMaxConnectionsPerHost;
+  }
+
+  /**
+   * Returns whether the robots.txt files of the hosts should be obeyed.
+   *
+   * @return Whether the robots.txt files should be obeyed.
+   */
+  @Override
+  public boolean getObeyRobotsTxt() {
+    return mObeyRobotsTxt;
+  }
+
+  /**
+   * Returns the minimum time between two loads of the same http document.
+   *
+   * @return The minimum recrawl interval in hours.
+   */
+  @Override
+  public int getMinRecrawlInterval() {
+    return mMinRecrawlInterval;
+  }
+
+  /**
+   * Returns the maximum time between two loads of the same http document.
+   *
+   * @return The maximum recrawl interval in hours.
+   */
+  @Override
+  public int getMaxRecrawlInterval() {
+    return mMaxRecrawlInterval;
+  }
+
+  /**
+   * Returns the file where the crawler writes snapshots of its metrics.
+   *
+   * @return The metrics file or <code>null</code> if there is none.
+   */
+  @Override
+  public String getMetricsFile() {
+    return mMetricsFile;
+  }
+
+  /**
+   * Returns the time between two snapshots of the crawler metrics.
+   *
+   * @return The snapshot interval in seconds.
+   */
+  @Override
+  public int getMetricsInterval() {
+    return mMetricsInterval;
+  }
+
+  /**
+   * Returns whether the crawler metrics should be published as JMX MBean.
+   *
+   * @return Whether to register the metrics MBean.
+   */
+  @Override
+  public boolean getMetricsJmx() {
+    return mMetricsJmx;
+  }
+
 
 }
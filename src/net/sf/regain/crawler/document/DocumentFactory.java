@@ -27,7 +27,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.PriorityQueue;
@@ -76,6 +78,8 @@ public class DocumentFactory {
   private int mMaxSummaryLength;
   /** should the whole content stored in the index for a preview on the result page */
   private boolean storeContentForPreview;
+  /** The names of the fields to store term vectors with positions and offsets for */
+  private HashSet<String> mTermVectorFieldSet;
   /**
    * Das Verzeichnis, in dem Analyse-Dateien erzeugt werden sollen. Ist
    * <CODE>null</CODE>, wenn keine Analyse-Dateien erzeugt werden sollen.
@@ -98,6 +102,10 @@ public class DocumentFactory {
   private RE[] mUseLinkTextAsTitleReArr;
   /** The profile that measures the addition to index. */
   private Profiler mWriteAnalysisProfiler = new Profiler("Writing Analysis files", "files");
+  /** The profiler that measures the detection of the mime-type. */
+  private Profiler mMimeTypeProfiler = new Profiler("Mime-type detection", "docs");
+  /** The profiler that measures creating the lucene documents from the prepared content. */
+  private Profiler mAnalysisProfiler = new Profiler("Document analysis", "docs");
   /** The mimetype mimeTypeIdentifier */
   MimeTypeIdentifier mimeTypeIdentifier;
   /** Crawler Plugin Manager instance */
@@ -168,6 +176,7 @@ public class DocumentFactory {
     // Read some more configuration entries from the config
     this.mMaxSummaryLength = this.mConfig.getMaxSummaryLength();
     this.storeContentForPreview = this.mConfig.getStoreContentForPreview();
+    mTermVectorFieldSet = new HashSet<String>(Arrays.asList(this.mConfig.getTermVectorFields()));
 
     // Set up the MimeTypeIdentifierFactory
     MagicMimeTypeIdentifierFactory factory = new MagicMimeTypeIdentifierFactory();
@@ -189,9 +198,11 @@ public class DocumentFactory {
     // Determine the mime-type
     String mimeType;
     FileInputStream fis = null;
+    mMimeTypeProfiler.startMeasuring();
     try {
       File file = rawDocument.getContentAsFile();
       if (file.canRead() == false) {
+        mMimeTypeProfiler.abortMeasuring();
         mLog.warn("canRead() on file return: false. Maybe no access rights for sourceURL: "
                 + RegainToolkit.fileToUrl(file));
         return null;
@@ -215,7 +226,9 @@ public class DocumentFactory {
                 new URIImpl("zip:mime:file:" + rawDocument.getUrl()));
         mLog.debug("Detected mimetype cycle 2: " + mimeType + ". " + "zip:mime:file:" + rawDocument.getUrl());
       }
+      mMimeTypeProfiler.stopMeasuring(bytes.length);
     } catch (Exception exc) {
+      mMimeTypeProfiler.abortMeasuring();
       errorLogger.logError("Determine mime-type of " + rawDocument.getUrl()
               + " failed", exc, false);
       mimeType = MIME_TYPE_UNKNOWN;
@@ -330,7 +343,7 @@ public class DocumentFactory {
 
       preparator.cleanUp();
 
-      preparatorProfiler.stopMeasuring(rawDocument.getLength());
+      preparatorProfiler.stopMeasuring(rawDocument.getLength(), url);
     } catch (Throwable thr) {
       preparatorProfiler.abortMeasuring();
       throw new RegainException("Preparing " + url
@@ -344,13 +357,39 @@ public class DocumentFactory {
     }
 
     // Preparing succeed -> Create the document
-    Document doc = createDocument(rawDocument, cleanedContent, title,
-            summary, metadata, headlines, path, additionalFieldMap);
+    Document doc;
+    mAnalysisProfiler.startMeasuring();
+    try {
+      doc = createDocument(rawDocument, cleanedContent, title,
+              summary, metadata, headlines, path, additionalFieldMap);
+      mAnalysisProfiler.stopMeasuring(cleanedContent.length());
+    } catch (RegainException exc) {
+      mAnalysisProfiler.abortMeasuring();
+      throw exc;
+    } catch (RuntimeException exc) {
+      mAnalysisProfiler.abortMeasuring();
+      throw exc;
+    }
 
     // return the document
     return doc;
   }
 
+  /**
+   * Gets a snapshot of the work of the preparators. May be called by other
+   * threads while the crawler is running.
+   *
+   * @return The statistics of each preparator.
+   */
+  public PreparatorStats[] getPreparatorStats() {
+    PreparatorStats[] statsArr = new PreparatorStats[mPreparatorArr.length];
+    for (int i = 0; i < statsArr.length; i++) {
+      statsArr[i] = new PreparatorStats(mPreparatorArr[i].getClass().getName(),
+          mPreparatorProfilerArr[i]);
+    }
+    return statsArr;
+  }
+
   /**
    * Creates a substitute lucene {@link Document} for a {@link RawDocument}.
    * <p>
@@ -532,7 +571,8 @@ public class DocumentFactory {
 
       // Add the cleaned content of the document
       doc.add(new Field("content", cleanedContent,
-              this.storeContentForPreview ? Field.Store.YES : Field.Store.NO, Field.Index.ANALYZED));
+              this.storeContentForPreview ? Field.Store.YES : Field.Store.NO, Field.Index.ANALYZED,
+              getTermVector("content")));
     } else {
       // We have no content! This is a substitute document
       // -> Add a "preparation-error"-field
@@ -553,7 +593,8 @@ public class DocumentFactory {
 
     // Add the document's title
     if (hasContent(title)) {
-      doc.add(new Field("title", title, Field.Store.YES, Field.Index.ANALYZED));
+      doc.add(new Field("title", title, Field.Store.YES, Field.Index.ANALYZED,
+              getTermVector("title")));
       doc.add(new Field("title_sort", title.toLowerCase(), Field.Store.YES, Field.Index.NOT_ANALYZED));
     } else {
       doc.add(new Field("title_sort", "", Field.Store.YES, Field.Index.NOT_ANALYZED));
@@ -564,7 +605,8 @@ public class DocumentFactory {
       summary = createSummaryFromContent(cleanedContent);
     }
     if (hasContent(summary)) {
-      doc.add(new Field("summary", summary, Field.Store.NO, Field.Index.ANALYZED));
+      doc.add(new Field("summary", summary, Field.Store.NO, Field.Index.ANALYZED,
+              getTermVector("summary")));
       doc.add(new Field("summary", CompressionTools.compressString(summary)));
     }
 
@@ -594,6 +636,23 @@ public class DocumentFactory {
     return doc;
   }
 
+  /**
+   * Gets the term vector option for a field. Fields that are configured in
+   * <code>termVectorFields</code> get term vectors with positions and offsets,
+   * so the search mask can highlight them without analyzing them again.
+   *
+   * @param fieldName The name of the field.
+   * @return The term vector option to use for the field.
+   */
+  private Field.TermVector getTermVector(String fieldName) {
+    if (mTermVectorFieldSet.contains(fieldName)) {
+      return Field.TermVector.WITH_POSITIONS_OFFSETS;
+    } else {
+      return Field.TermVector.NO;
+    }
+  }
+
+
   /**
    * Gibt zurück, ob der String einen Inhalt hat. Dies ist der Fall, wenn er
    * weder <code>null</code> noch ein Leerstring ist.
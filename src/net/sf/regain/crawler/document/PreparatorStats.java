@@ -0,0 +1,166 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler.document;
+
+import net.sf.regain.crawler.Profiler;
+
+/**
+ * A snapshot of the work of one preparator: How many documents it prepared,
+ * how fast and how many failed.
+ * <p>
+ * The rates refer to the time the preparator was actually working, so a slow
+ * preparator shows a low rate even if it only gets a few documents.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class PreparatorStats {
+
+  /** The class name of the preparator. */
+  private String mPreparatorName;
+
+  /** The number of prepared documents. */
+  private int mDocCount;
+
+  /** The number of documents the preparator failed on. */
+  private int mFailedDocCount;
+
+  /** The time the preparator was working (in nanoseconds). */
+  private long mTotalNanos;
+
+  /** The size of the prepared documents (in bytes). */
+  private long mTotalBytes;
+
+  /** The 95th percentile of the preparation time (in nanoseconds). */
+  private long mP95Nanos;
+
+  /** The slowest prepared documents, the slowest first. */
+  private Profiler.SlowMeasure[] mSlowestDocArr;
+
+
+  /**
+   * Creates a snapshot of a preparator's profiler.
+   *
+   * @param preparatorName The class name of the preparator.
+   * @param profiler The profiler measuring the preparator.
+   */
+  public PreparatorStats(String preparatorName, Profiler profiler) {
+    mPreparatorName = preparatorName;
+    mDocCount = profiler.getMeasureCount();
+    mFailedDocCount = profiler.getAbortedMeasureCount();
+    mTotalNanos = profiler.getTotalNanos();
+    mTotalBytes = profiler.getTotalBytes();
+    mP95Nanos = profiler.getHistogram().getPercentile(95);
+    mSlowestDocArr = profiler.getSlowestMeasures();
+  }
+
+
+  /**
+   * Gets the class name of the preparator.
+   *
+   * @return The class name of the preparator.
+   */
+  public String getPreparatorName() {
+    return mPreparatorName;
+  }
+
+
+  /**
+   * Gets the number of prepared documents.
+   *
+   * @return The number of prepared documents.
+   */
+  public int getDocCount() {
+    return mDocCount;
+  }
+
+
+  /**
+   * Gets the number of documents the preparator failed on.
+   *
+   * @return The number of failed documents.
+   */
+  public int getFailedDocCount() {
+    return mFailedDocCount;
+  }
+
+
+  /**
+   * Gets the ratio of the failed documents to all documents the preparator
+   * got.
+   *
+   * @return The error rate (between 0 and 1).
+   */
+  public double getErrorRate() {
+    int total = mDocCount + mFailedDocCount;
+    return (total == 0) ? 0 : (double) mFailedDocCount / total;
+  }
+
+
+  /**
+   * Gets the time the preparator was working.
+   *
+   * @return The total time in milliseconds.
+   */
+  public long getTotalTime() {
+    return mTotalNanos / 1000000L;
+  }
+
+
+  /**
+   * Gets the number of documents the preparator prepares per second.
+   *
+   * @return The documents per second.
+   */
+  public double getDocsPerSecond() {
+    return (mTotalNanos == 0) ? 0 : mDocCount * 1e9 / mTotalNanos;
+  }
+
+
+  /**
+   * Gets the number of bytes the preparator prepares per second.
+   *
+   * @return The bytes per second.
+   */
+  public double getBytesPerSecond() {
+    return (mTotalNanos == 0) ? 0 : mTotalBytes * 1e9 / mTotalNanos;
+  }
+
+
+  /**
+   * Gets the 95th percentile of the preparation time.
+   *
+   * @return The 95th percentile in milliseconds.
+   */
+  public double getP95Millis() {
+    return mP95Nanos / 1000000.0;
+  }
+
+
+  /**
+   * Gets the slowest prepared documents.
+   *
+   * @return The slowest documents, the slowest first. The items are the URLs.
+   */
+  public Profiler.SlowMeasure[] getSlowestDocs() {
+    return mSlowestDocArr;
+  }
+
+}
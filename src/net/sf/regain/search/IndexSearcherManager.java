@@ -24,22 +24,45 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
+import net.sf.regain.search.config.IndexConfig;
+import net.sf.regain.search.results.SortingOption;
 
+import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.SearcherFactory;
-import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
 /**
  * Encapsulates the search on the lucene search index.
  * <p>
- * Additionally, every 10 seconds we check if there is a new index available.
- * Search queries cannot be execute during index update.
+ * Additionally, we check every half second if there is a new index available.
  * If yes, the new index is used and the old saved in /backup/.
+ * <p>
+ * A new index is warmed before it is published: Its analyzer and field values
+ * are loaded by the {@link IndexSnapshotSearcher} that is created for it. Then
+ * the new searcher replaces the old one atomically. Searches that are running
+ * during the update keep using the old searcher until they release it.
+ * <p>
+ * If the crawler updates the working index in place, it publishes new
+ * generations of the index instead. Then the searcher is refreshed to the
+ * commit of the published generation, so only the changed segments are opened.
+ * The commits the crawler writes between two publications are never searched.
  *
  * @author Til Schneider, www.murfman.de
  */
@@ -60,6 +83,24 @@ public class IndexSearcherManager implements Closeable {
    * werden soll.
    */
   private static final String BACKUP_INDEX_SUBDIR = "backup";
+  /**
+   * The name of the file in the working index directory holding the published
+   * generations of an index that is updated in place by the crawler.
+   * <p>
+   * When this file changes, the crawler published a new generation and the
+   * searcher is refreshed.
+   */
+  private static final String PUBLISHED_GENERATIONS_FILE = "publishedGenerations.txt";
+  /** The prefix of the files holding the prefetched field values. */
+  private static final String FIELD_VALUES_FILE_PREFIX = "field_values_";
+  /** The suffix of the files holding the prefetched field values. */
+  private static final String FIELD_VALUES_FILE_SUFFIX = ".txt";
+  /** The number of hits to fetch for a warm-up query. */
+  private static final int WARM_UP_HIT_COUNT = 10;
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(IndexSearcherManager.class);
+
   /**
    * enthält für ein Index-Verzeichnis (key) den zust�ndigen
    * IndexWriterManager (value).
@@ -81,29 +122,44 @@ public class IndexSearcherManager implements Closeable {
   /** Das Verzeichnis, in das der letzte Index gesichert werden soll. */
   private File mBackupIndexDir;
 
-  /** Der Analyzer, der für Suchen verwendet werden soll. */
-  private Analyzer mAnalyzer;
-
-  /** Der Thread, der alle 10 Sekunden Prüft, ob ein neuer Suchindex vorhanden ist. */
+  /** The thread that checks whether there is a new index. */
   private IndexUpdateThread mIndexUpdateThread;
+
   /**
-   * Holds for a field name (String) all distinct values the index has for that
-   * field (String[]).
+   * Keeps reference of the current IndexSearcher. All searchers are
+   * {@link IndexSnapshotSearcher}s.
+   * <p>
+   * When a new index is moved to the working directory, a new searcher manager
+   * is created for it and replaces this one.
    */
-  private HashMap<String,String[]> mFieldTermHash;
+  private volatile WorkingIndexSearcherManager mSearcherManager;
+
+  /**
+   * The configuration of the index. Holds the warm-up for new searchers. Is
+   * <code>null</code> as long as the index was only accessed by its directory.
+   */
+  private volatile IndexConfig mIndexConfig;
+
+  /** The duration of the last warm-up of a new searcher (in milliseconds). */
+  private volatile long mLastWarmUpDuration;
 
   /**
-   * Keeps reference of the current IndexSearcher.
+   * The content of the published generations file the current searcher was
+   * opened for. Is <code>null</code> if the index is not updated in place.
    */
-  private SearcherManager mSearcherManager;
+  private String mPublishedGenerations;
 
   /**
    * Erzeugt eine neue IndexWriterManager-Instanz.
    *
    * @param indexDir Das Verzeichnis, in dem der Index steht.
+   * @param indexConfig The configuration of the index. May be null.
    * @throws RegainException Wenn kein Index-Verzeichnis existiert.
    */
-  private IndexSearcherManager(String indexDir) throws RegainException {
+  private IndexSearcherManager(String indexDir, IndexConfig indexConfig)
+    throws RegainException
+  {
+    mIndexConfig = indexConfig;
     mNewIndexDir = new File(indexDir + File.separator + NEW_INDEX_SUBDIR);
     mWorkingIndexDir = new File(indexDir + File.separator + WORKING_INDEX_SUBDIR);
     mBackupIndexDir = new File(indexDir + File.separator + BACKUP_INDEX_SUBDIR);
@@ -115,7 +171,8 @@ public class IndexSearcherManager implements Closeable {
 
     try
     {
-      mSearcherManager = new SearcherManager(FSDirectory.open(mWorkingIndexDir), new SearcherFactory());
+      mPublishedGenerations = readPublishedGenerations();
+      mSearcherManager = createSearcherManager();
     }
     catch (IOException e)
     {
@@ -127,6 +184,17 @@ public class IndexSearcherManager implements Closeable {
     mIndexUpdateThread.start();
   }
 
+  /**
+   * Creates a searcher manager for the working index. The searcher of the
+   * index is warmed before the constructor returns.
+   *
+   * @return The searcher manager.
+   * @throws IOException If opening the index failed.
+   */
+  private WorkingIndexSearcherManager createSearcherManager() throws IOException {
+    return new WorkingIndexSearcherManager(FSDirectory.open(mWorkingIndexDir));
+  }
+
   /**
    * Return the index searcher manager of a specific directory.
    *
@@ -136,14 +204,45 @@ public class IndexSearcherManager implements Closeable {
    * @throws RegainException If the directory does not exist or is not an index.
    */
   public static IndexSearcherManager getInstance(String indexDir) throws RegainException {
+    return getInstance(indexDir, null);
+  }
+
+  /**
+   * Return the index searcher manager of an index. New searchers of the index
+   * are warmed as configured.
+   *
+   * @param indexConfig The configuration of the index.
+   *
+   * @return An instance of the corresponding index searcher manager.
+   * @throws RegainException If the directory does not exist or is not an index.
+   */
+  public static IndexSearcherManager getInstance(IndexConfig indexConfig) throws RegainException {
+    return getInstance(indexConfig.getDirectory(), indexConfig);
+  }
+
+  /**
+   * Return the index searcher manager of a specific directory.
+   *
+   * @param indexDir Directory of the index.
+   * @param indexConfig The configuration of the index. May be null.
+   *
+   * @return An instance of the corresponding index searcher manager.
+   * @throws RegainException If the directory does not exist or is not an index.
+   */
+  private static IndexSearcherManager getInstance(String indexDir,
+    IndexConfig indexConfig)
+    throws RegainException
+  {
     synchronized (mIndexManagerHash)
     {
       // Retrieve the responsible IndexSearcherManager for this index.
       IndexSearcherManager manager = mIndexManagerHash.get(indexDir);
       if (manager == null) {
         // There is none yet, so create a new one.
-        manager = new IndexSearcherManager(indexDir);
+        manager = new IndexSearcherManager(indexDir, indexConfig);
         mIndexManagerHash.put(indexDir, manager);
+      } else if (indexConfig != null) {
+        manager.mIndexConfig = indexConfig;
       }
 
       return manager;
@@ -151,51 +250,79 @@ public class IndexSearcherManager implements Closeable {
   }
 
   /**
-   * Gets all distinct values a index has for a certain field. The values are
-   * sorted alphabetically.
+   * Tells the index searcher manager of a directory that a new index was
+   * published, so it is used immediately. Does nothing if the index is not
+   * searched in this VM.
    *
-   * @param field The field to get the values for.
-   * @return All distinct values the index has for the field.
-   * @throws RegainException If reading the values failed.
+   * @param indexDir Directory of the index.
    */
-  public String[] getFieldValues(String field) throws RegainException {
-    if (mFieldTermHash == null) {
-      mFieldTermHash = new HashMap<String,String[]>();
+  public static void notifyIndexUpdate(String indexDir) {
+    IndexSearcherManager manager;
+    synchronized (mIndexManagerHash) {
+      manager = mIndexManagerHash.get(indexDir);
     }
-
-    String[] valueArr = mFieldTermHash.get(field);
-    if (valueArr == null) {
-      valueArr = readFieldValues(field);
-      // Copy the field values to our cache
-      mFieldTermHash.put(field, valueArr);
+    if (manager != null && manager.mIndexUpdateThread != null) {
+      manager.mIndexUpdateThread.wakeUp();
     }
-
-    return valueArr;
   }
 
   /**
-   * Read files from index cache file
-   * (synchronised, as this requires an searchindex/index directory)
+   * Gets all distinct values a index has for a certain field. The values are
+   * sorted alphabetically.
    *
    * @param field The field to get the values for.
    * @return All distinct values the index has for the field.
    * @throws RegainException If reading the values failed.
    */
-  protected synchronized String[] readFieldValues(String field) throws RegainException
-  {
-    String[] valueArr;
-
+  public String[] getFieldValues(String field) throws RegainException {
     IndexSearcher searcher = null;
     try {
-       searcher = getIndexSearcher();
-      // Read the field values
-      HashMap<String,String[]> valueMap = RegainToolkit.readFieldValues(searcher.getIndexReader(),
-              new String[]{field}, mWorkingIndexDir);
-      valueArr = valueMap.get(field);
+      searcher = getIndexSearcher();
+      return ((IndexSnapshotSearcher) searcher).getFieldValues(field);
     } finally {
       releaseIndexSearcher(searcher);
     }
-    return valueArr;
+  }
+
+  /**
+   * Loads the field values the crawler prefetched for the working index. These
+   * are the files <code>field_values_&lt;field&gt;.txt</code> written by
+   * {@link RegainToolkit#readFieldValues(org.apache.lucene.index.IndexReader, String[], File)}
+   * when the index was closed.
+   *
+   * @return The prefetched values by field name.
+   * @throws RegainException If reading a file failed.
+   */
+  private Map<String,String[]> loadPrefetchedFieldValues() throws RegainException {
+    HashMap<String,String[]> fieldTermHash = new HashMap<String,String[]>();
+
+    File[] fileArr = mWorkingIndexDir.listFiles();
+    if (fileArr != null) {
+      for (int i = 0; i < fileArr.length; i++) {
+        String fileName = fileArr[i].getName();
+        if (fileName.startsWith(FIELD_VALUES_FILE_PREFIX)
+            && fileName.endsWith(FIELD_VALUES_FILE_SUFFIX))
+        {
+          String field = fileName.substring(FIELD_VALUES_FILE_PREFIX.length(),
+              fileName.length() - FIELD_VALUES_FILE_SUFFIX.length());
+          String[] valueArr = RegainToolkit.readListFromFile(fileArr[i]);
+          if (valueArr != null) {
+            fieldTermHash.put(field, valueArr);
+          }
+        }
+      }
+    }
+
+    return fieldTermHash;
+  }
+
+  /**
+   * Gets the duration of the last warm-up of a new searcher.
+   *
+   * @return The duration of the last warm-up (in milliseconds).
+   */
+  public long getLastWarmUpDuration() {
+    return mLastWarmUpDuration;
   }
 
   /**
@@ -221,20 +348,23 @@ public class IndexSearcherManager implements Closeable {
    * @throws RegainException Wenn die Erzeugung des Analyzers fehl schlug.
    */
   public Analyzer getAnalyzer() throws RegainException {
-    if (mAnalyzer == null) {
-      createAnalyzer();
+    IndexSearcher searcher = null;
+    try {
+      searcher = getIndexSearcher();
+      return ((IndexSnapshotSearcher) searcher).getAnalyzer();
+    } finally {
+      releaseIndexSearcher(searcher);
     }
-
-    return mAnalyzer;
   }
 
-  protected synchronized void createAnalyzer() throws RegainException
+  /**
+   * Creates the analyzer of the working index.
+   *
+   * @return The analyzer.
+   * @throws RegainException If creating the analyzer failed.
+   */
+  private Analyzer createAnalyzer() throws RegainException
   {
-    if (mAnalyzer != null)
-      return;
-
-    ensureIndexDirExists();
-
     // Read the stopWordList and the exclusionList
     File analyzerTypeFile = new File(mWorkingIndexDir, "analyzerType.txt");
     String analyzerType = RegainToolkit.readStringFromFile(analyzerTypeFile);
@@ -252,84 +382,292 @@ public class IndexSearcherManager implements Closeable {
     }
 
     // NOTE: Make shure to use the same analyzer as in the crawler
-    mAnalyzer = RegainToolkit.createAnalyzer(analyzerType, stopWordList,
+    return RegainToolkit.createAnalyzer(analyzerType, stopWordList,
             exclusionList, untokenizedFieldNames);
   }
 
   /**
-   * Check if the index directory exists. If not,
-   * @throws RegainException
+   * Creates and warms the searcher for a new version of the working index.
+   * Is called by the searcher manager before the searcher is published.
+   *
+   * @param reader The reader of the new index version.
+   * @return The searcher.
+   * @throws RegainException If loading the analyzer or the field values failed.
    */
-  private synchronized void ensureIndexDirExists() throws RegainException
+  private IndexSnapshotSearcher createSearcher(IndexReader reader)
+    throws RegainException
   {
-    if (!mWorkingIndexDir.exists()) {
-      // There is no working index -> check whether there is a new one
-      checkForIndexUpdate();
+    long startTime = System.currentTimeMillis();
+
+    Analyzer analyzer = createAnalyzer();
+
+    // NOTE: The field values of an index that is updated in place are not
+    //       cached in files: The files would be shared by all generations and
+    //       the crawler may be writing them for an unpublished generation.
+    //       So the values are read from the index.
+    File fieldValuesDir = mWorkingIndexDir;
+    Map<String,String[]> fieldTermHash;
+    if (new File(mWorkingIndexDir, PUBLISHED_GENERATIONS_FILE).exists()) {
+      fieldValuesDir = null;
+      fieldTermHash = new HashMap<String,String[]>();
+    } else {
+      fieldTermHash = loadPrefetchedFieldValues();
+    }
+    IndexSnapshotSearcher searcher = new IndexSnapshotSearcher(reader, analyzer,
+        fieldTermHash, fieldValuesDir);
+    warmUp(searcher);
+
+    mLastWarmUpDuration = System.currentTimeMillis() - startTime;
+    mLog.info("Warmed up searcher for " + mWorkingIndexDir + " in "
+        + mLastWarmUpDuration + " ms");
+    return searcher;
+  }
+
+  /**
+   * Runs the configured warm-up on a new searcher: Loads the sort caches of
+   * the warm-up sort fields and runs the warm-up queries. So the first user
+   * queries on the new searcher don't have to pay for loading them.
+   * <p>
+   * A failing warm-up is logged, it doesn't prevent using the searcher.
+   *
+   * @param searcher The searcher to warm up.
+   */
+  private void warmUp(IndexSnapshotSearcher searcher) {
+    IndexConfig indexConfig = mIndexConfig;
+    if (indexConfig == null) {
+      return;
     }
 
-    if (!mWorkingIndexDir.exists()) {
-      // There is no working and no new index -> throw exception
-      throw new RegainException("No index found in "
-              + mWorkingIndexDir.getParentFile().getAbsolutePath());
+    // Load the sort caches
+    String[] sortFieldArr = indexConfig.getWarmUpSortFields();
+    if (sortFieldArr != null) {
+      for (int i = 0; i < sortFieldArr.length; i++) {
+        SortField sortField = new SortingOption(sortFieldArr[i]).getSortField();
+        if (sortField == SortField.FIELD_SCORE) {
+          mLog.warn("Can't warm up unknown sort field " + sortFieldArr[i]);
+          continue;
+        }
+        try {
+          searcher.search(new MatchAllDocsQuery(), null, 1, new Sort(sortField));
+        }
+        catch (IOException exc) {
+          mLog.warn("Warming up sort field " + sortFieldArr[i] + " failed", exc);
+        }
+      }
+    }
+
+    // Run the queries
+    String[] queryArr = indexConfig.getWarmUpQueries();
+    String[] searchFieldArr = indexConfig.getSearchFieldList();
+    if (queryArr != null && searchFieldArr != null) {
+      for (int i = 0; i < queryArr.length; i++) {
+        try {
+          // NOTE: Parse the query like SearchResultsImpl
+          BooleanQuery query = new BooleanQuery();
+          for (int j = 0; j < searchFieldArr.length; j++) {
+            QueryParser parser = new QueryParser(RegainToolkit.getLuceneVersion(),
+                searchFieldArr[j], searcher.getAnalyzer());
+            parser.setDefaultOperator(QueryParser.AND_OPERATOR);
+            parser.setAllowLeadingWildcard(true);
+            query.add(parser.parse(queryArr[i]), Occur.SHOULD);
+          }
+          searcher.search(query, WARM_UP_HIT_COUNT);
+        }
+        catch (ParseException exc) {
+          mLog.warn("Parsing warm-up query '" + queryArr[i] + "' failed", exc);
+        }
+        catch (IOException exc) {
+          mLog.warn("Running warm-up query '" + queryArr[i] + "' failed", exc);
+        }
+      }
     }
   }
 
   /**
    * Check if there is a new index available.
-   * If so, prepare it by renaming the dirs - it will be opened at the next search.
+   * If so, move it to the working directory, warm it and let it replace the
+   * current searcher.
    * <p>
-   * NOTE: We synchronize this index update with all methods that directly
-   * access the underlying files.
+   * NOTE: We synchronize the renaming of the directories with all methods that
+   * directly access the underlying files. Searches are not blocked: They use
+   * the current searcher until the new one is published.
    *
    * @throws RegainException If error during update of index.
    */
   private void checkForIndexUpdate() throws RegainException {
-    if (mNewIndexDir.exists()) {
-      synchronized (this)
+    if (! mNewIndexDir.exists()) {
+      return;
+    }
+
+    synchronized (this)
+    {
+      if (! mNewIndexDir.exists()) {
+        return;
+      }
+      mLog.info("New index found in " + mNewIndexDir);
+
+      // ---- Okay, now we can move the directories
+
+      // The current searcher must not cache field values in the working
+      // directory any more, since it will hold the new index
+      retireCurrentSearcher();
+
+      // Remove the old backup if it should still exist
+      if (mBackupIndexDir.exists()) {
+        RegainToolkit.deleteDirectory(mBackupIndexDir);
+      }
+
+      // Backup the current index (if there is one)
+      if (mWorkingIndexDir.exists()) {
+        if (!mWorkingIndexDir.renameTo(mBackupIndexDir)) {
+          throw new RegainException("Renaming " + mWorkingIndexDir + " to "
+                  + mBackupIndexDir + " failed!");
+        }
+      }
+
+      // Move the new index
+      if (!mNewIndexDir.renameTo(mWorkingIndexDir)) {
+        throw new RegainException("Renaming " + mNewIndexDir + " to "
+                + mWorkingIndexDir + " failed!");
+      }
+    }
+
+    // Open and warm the new searcher, then publish it
+    // NOTE: We don't reopen the old reader, because the new index is not
+    //       derived from the old one: Segments having the same name would be
+    //       taken from the old index.
+    WorkingIndexSearcherManager oldSearcherManager = mSearcherManager;
+    if (oldSearcherManager != null) {
+      try
       {
-        if (mNewIndexDir.exists())
-        {
-          System.out.println("New index found on " + new java.util.Date());
+        mPublishedGenerations = readPublishedGenerations();
+        mSearcherManager = createSearcherManager();
+      }
+      catch (IOException e)
+      {
+        throw new RegainException("Opening the new lucene index failed.", e);
+      }
 
-          // Recreate analyzer and field term cache on next use
-          mAnalyzer = null;
-          mFieldTermHash = null;
+      // Close the old searcher. Searches that still use it keep it open until
+      // they release it.
+      try {
+        oldSearcherManager.close();
+      }
+      catch (IOException exc) {
+        mLog.error("Closing the old searcher failed", exc);
+      }
+    }
 
-          // ---- Okay, now we can move the directories
+    mLog.info("Finished loading new index.");
+  }
 
-          // Remove the old backup if it should still exist
-          if (mBackupIndexDir.exists()) {
-            RegainToolkit.deleteDirectory(mBackupIndexDir);
-          }
+  /**
+   * Retires the current searcher before the working index is replaced (see
+   * {@link IndexSnapshotSearcher#retire()}).
+   *
+   * @throws RegainException If acquiring the searcher failed.
+   */
+  private void retireCurrentSearcher() throws RegainException {
+    if (mSearcherManager == null) {
+      // There is no searcher yet
+      return;
+    }
 
-          // Backup the current index (if there is one)
-          if (mWorkingIndexDir.exists()) {
-            if (!mWorkingIndexDir.renameTo(mBackupIndexDir)) {
-              throw new RegainException("Renaming " + mWorkingIndexDir + " to "
-                      + mBackupIndexDir + " failed!");
-            }
-          }
+    IndexSearcher searcher = null;
+    try {
+      searcher = getIndexSearcher();
+      ((IndexSnapshotSearcher) searcher).retire();
+    } finally {
+      releaseIndexSearcher(searcher);
+    }
+  }
 
-          // Move the new index
-          if (!mNewIndexDir.renameTo(mWorkingIndexDir)) {
-            throw new RegainException("Renaming " + mNewIndexDir + " to "
-                    + mWorkingIndexDir + " failed!");
-          }
+  /**
+   * Check whether the crawler published a new generation of an index that it
+   * updates in place. If so, the searcher is refreshed to the commit of the
+   * published generation: Only the segments that changed since the current
+   * generation are opened, the new searcher is warmed and replaces the current
+   * one.
+   *
+   * @throws RegainException If refreshing the searcher failed.
+   */
+  private void checkForPublishedGeneration() throws RegainException {
+    String publishedGenerations = readPublishedGenerations();
+    if (publishedGenerations == null
+        || publishedGenerations.equals(mPublishedGenerations))
+    {
+      return;
+    }
 
-          try
-          {
-            if (mSearcherManager != null)
-              mSearcherManager.maybeRefresh();
-          }
-          catch (IOException e)
-          {
-            throw new RegainException("Refresh of lucene index failed.");
-          }
+    mLog.info("New index generation published in " + mWorkingIndexDir);
+    try {
+      mSearcherManager.maybeRefresh();
+    }
+    catch (IOException exc) {
+      throw new RegainException("Refreshing the searcher of "
+          + mWorkingIndexDir + " failed", exc);
+    }
+    mPublishedGenerations = publishedGenerations;
+  }
 
-          System.out.println("Finished loading new index.");
-        }
+  /**
+   * Reads the published generations file of the working index.
+   *
+   * @return The content of the file or <code>null</code> if the index is not
+   *         updated in place.
+   * @throws RegainException If reading the file failed.
+   */
+  private String readPublishedGenerations() throws RegainException {
+    return RegainToolkit.readStringFromFile(
+        new File(mWorkingIndexDir, PUBLISHED_GENERATIONS_FILE));
+  }
+
+  /**
+   * Gets the commit of the newest published generation of the working index.
+   *
+   * @param directory The directory of the working index.
+   * @return The commit or <code>null</code> if the index is not updated in
+   *         place.
+   * @throws IOException If reading the published generations failed or if
+   *         the commit of the published generation does not exist.
+   */
+  private IndexCommit getPublishedCommit(Directory directory) throws IOException {
+    String publishedGenerations;
+    try {
+      publishedGenerations = readPublishedGenerations();
+    }
+    catch (RegainException exc) {
+      IOException ioExc = new IOException("Reading the published generations of "
+          + mWorkingIndexDir + " failed");
+      ioExc.initCause(exc);
+      throw ioExc;
+    }
+    if (publishedGenerations == null) {
+      return null;
+    }
+
+    // The newest generation is the last one
+    String[] lineArr = publishedGenerations.trim().split("\\s+");
+    String lastLine = lineArr[lineArr.length - 1];
+    if (lastLine.length() == 0) {
+      return null;
+    }
+    long generation;
+    try {
+      generation = Long.parseLong(lastLine);
+    }
+    catch (NumberFormatException exc) {
+      throw new IOException("Illegal generation in the published generations of "
+          + mWorkingIndexDir + ": " + lastLine);
+    }
+
+    for (IndexCommit commit : IndexReader.listCommits(directory)) {
+      if (commit.getGeneration() == generation) {
+        return commit;
       }
     }
+    throw new IOException("The published generation " + generation + " of "
+        + mWorkingIndexDir + " does not exist");
   }
 
   /**
@@ -352,8 +690,19 @@ public class IndexSearcherManager implements Closeable {
    * @return the IndexSearcher
    */
   public IndexSearcher getIndexSearcher() throws RegainException {
-    ensureIndexDirExists();
-    return mSearcherManager.acquire();
+    while (true) {
+      WorkingIndexSearcherManager searcherManager = mSearcherManager;
+      try {
+        return searcherManager.acquire();
+      }
+      catch (AlreadyClosedException exc) {
+        // The searcher manager was replaced in the meantime
+        // -> Try the new one
+        if (searcherManager == mSearcherManager) {
+          throw new RegainException("Index " + mWorkingIndexDir + " is closed", exc);
+        }
+      }
+    }
   }
 
   /**
@@ -367,6 +716,9 @@ public class IndexSearcherManager implements Closeable {
     if (searcher == null)
         return;
 
+    // NOTE: Releasing only decrements the reference count of the searcher's
+    //       reader, so a searcher of a replaced searcher manager may be
+    //       released by the current one
     try {
       mSearcherManager.release(searcher);
     } catch (IOException e) {
@@ -401,6 +753,103 @@ public class IndexSearcherManager implements Closeable {
     catch (InterruptedException e) { }
   }
 
+  /**
+   * Manages the searchers of the working index.
+   * <p>
+   * Unlike Lucene's SearcherManager it doesn't open the newest commit of the
+   * index, but the commit of the published generation, if the crawler updates
+   * the index in place. Otherwise the newest commit is opened.
+   */
+  private class WorkingIndexSearcherManager extends ReferenceManager<IndexSearcher> {
+
+    /** The directory of the working index. */
+    private Directory mDirectory;
+
+    /**
+     * Creates a new instance of WorkingIndexSearcherManager and opens and
+     * warms its first searcher.
+     *
+     * @param directory The directory of the working index.
+     * @throws IOException If opening the index failed.
+     */
+    public WorkingIndexSearcherManager(Directory directory) throws IOException {
+      mDirectory = directory;
+
+      IndexCommit commit = getPublishedCommit(directory);
+      IndexReader reader;
+      if (commit != null) {
+        reader = IndexReader.open(commit);
+      } else {
+        reader = IndexReader.open(directory);
+      }
+      current = newSearcher(reader);
+    }
+
+    /**
+     * Opens the changed segments of the published commit, if it is not the
+     * commit of the current searcher.
+     *
+     * @param referenceToRefresh The current searcher.
+     * @return The searcher of the published commit or <code>null</code> if
+     *         nothing was published since the current searcher was opened.
+     * @throws IOException If opening the new segments failed.
+     */
+    @Override
+    protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh)
+      throws IOException
+    {
+      IndexCommit commit = getPublishedCommit(mDirectory);
+      if (commit == null) {
+        return null;
+      }
+
+      IndexReader newReader = IndexReader.openIfChanged(
+          referenceToRefresh.getIndexReader(), commit);
+      if (newReader == null) {
+        return null;
+      }
+      return newSearcher(newReader);
+    }
+
+    @Override
+    protected boolean tryIncRef(IndexSearcher reference) {
+      return reference.getIndexReader().tryIncRef();
+    }
+
+    @Override
+    protected void decRef(IndexSearcher reference) throws IOException {
+      reference.getIndexReader().decRef();
+    }
+
+    /**
+     * Creates and warms the searcher for a new version of the working index.
+     * The reader is closed if this fails.
+     *
+     * @param reader The reader of the new index version.
+     * @return The searcher.
+     * @throws IOException If preparing the searcher failed.
+     */
+    private IndexSearcher newSearcher(IndexReader reader) throws IOException {
+      boolean success = false;
+      try {
+        IndexSearcher searcher = createSearcher(reader);
+        success = true;
+        return searcher;
+      }
+      catch (RegainException exc) {
+        IOException ioExc = new IOException("Preparing searcher for "
+            + mWorkingIndexDir + " failed: " + exc.getMessage());
+        ioExc.initCause(exc);
+        throw ioExc;
+      }
+      finally {
+        if (! success) {
+          reader.decRef();
+        }
+      }
+    }
+  }
+
   /**
    * WARNING: Thread Programming ahead.
    * Every single line may have its importance.
@@ -410,8 +859,12 @@ public class IndexSearcherManager implements Closeable {
   {
     /**
      * Nb of milliseconds between a check if a new index is available.
+     * <p>
+     * A check only looks whether the directory of the new index exists and
+     * reads the small file of the published generations, so it is cheap
+     * enough to be done often.
      */
-    private static final int INDEX_UPDATE_THREAD_SLEEPTIME = 10000;
+    private static final int INDEX_UPDATE_THREAD_SLEEPTIME = 500;
 
     private volatile boolean quit = false;
 
@@ -423,19 +876,29 @@ public class IndexSearcherManager implements Closeable {
         // Check regularly for new indexes
         try {
           checkForIndexUpdate();
+          checkForPublishedGeneration();
         } catch (RegainException exc) {
-          System.out.println("Updating index failed!");
-          exc.printStackTrace(System.err);
+          mLog.error("Updating index failed!", exc);
         }
 
-        // Wait some time (approx. 10 sec, but don't be disappointed if it's more or less)
-        try {
-          Thread.sleep(INDEX_UPDATE_THREAD_SLEEPTIME);
-        } catch (InterruptedException exc) {
+        // Wait some time or until we are woken up
+        synchronized (this) {
+          try {
+            wait(INDEX_UPDATE_THREAD_SLEEPTIME);
+          } catch (InterruptedException exc) {
+          }
         }
       }
     }
 
+    /**
+     * Wakes the thread up, so it checks for a new index immediately.
+     */
+    public synchronized void wakeUp()
+    {
+      notifyAll();
+    }
+
     /**
      * Request termination of thread.
      * Will terminate as soon as possible.
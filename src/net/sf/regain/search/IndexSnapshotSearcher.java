@@ -0,0 +1,155 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.search;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * A searcher on one published version of an index together with everything
+ * that belongs to this version: The analyzer and the distinct field values.
+ * <p>
+ * The {@link IndexSearcherManager} creates and warms a new snapshot searcher
+ * before it publishes a new index. So a search that acquired a searcher always
+ * sees the index, the analyzer and the field values of the same version.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+class IndexSnapshotSearcher extends IndexSearcher {
+
+  /** The analyzer that was used for creating the index. */
+  private Analyzer mAnalyzer;
+
+  /**
+   * The directory where the cache files of the field values are kept. Is null
+   * if the field values are not cached in files or if the searcher was
+   * retired.
+   */
+  private File mIndexDir;
+
+  /**
+   * Holds for a field name (String) all distinct values the index has for that
+   * field (String[]).
+   * <p>
+   * The map is never changed after it was published: Adding a field creates a
+   * new map that replaces the old one. So it can be read by concurrent requests
+   * without locking.
+   */
+  private volatile Map<String, String[]> mFieldTermHash;
+
+
+  /**
+   * Creates a new instance of IndexSnapshotSearcher.
+   *
+   * @param reader The reader of the index version.
+   * @param analyzer The analyzer that was used for creating the index.
+   * @param fieldTermHash The field values that were prefetched by the crawler.
+   * @param indexDir The directory where the cache files of the field values
+   *        are kept.
+   */
+  public IndexSnapshotSearcher(IndexReader reader, Analyzer analyzer,
+    Map<String, String[]> fieldTermHash, File indexDir)
+  {
+    super(reader);
+
+    mAnalyzer = analyzer;
+    mFieldTermHash = Collections.unmodifiableMap(fieldTermHash);
+    mIndexDir = indexDir;
+  }
+
+
+  /**
+   * Gets the analyzer that was used for creating the index.
+   *
+   * @return The analyzer.
+   */
+  public Analyzer getAnalyzer() {
+    return mAnalyzer;
+  }
+
+
+  /**
+   * Tells the searcher that its index directory will hold another index
+   * version. Field values that are read afterwards are kept in memory only, so
+   * they are not written into the cache files of the other version.
+   */
+  public synchronized void retire() {
+    mIndexDir = null;
+  }
+
+
+  /**
+   * Gets all distinct values the index has for a certain field. The values are
+   * sorted alphabetically.
+   *
+   * @param field The field to get the values for.
+   * @return All distinct values the index has for the field.
+   * @throws RegainException If reading the values failed.
+   */
+  public String[] getFieldValues(String field) throws RegainException {
+    String[] valueArr = mFieldTermHash.get(field);
+    if (valueArr == null) {
+      valueArr = readFieldValues(field);
+    }
+
+    return valueArr;
+  }
+
+
+  /**
+   * Reads the values of a field from the index and adds them to a copy of the
+   * field value map, which then replaces the published one.
+   *
+   * @param field The field to get the values for.
+   * @return All distinct values the index has for the field.
+   * @throws RegainException If reading the values failed.
+   */
+  private synchronized String[] readFieldValues(String field)
+    throws RegainException
+  {
+    // Check whether an other thread read the values in the meantime
+    String[] valueArr = mFieldTermHash.get(field);
+    if (valueArr != null) {
+      return valueArr;
+    }
+
+    HashMap<String, String[]> valueMap = RegainToolkit.readFieldValues(
+        getIndexReader(), new String[] { field }, mIndexDir);
+    valueArr = valueMap.get(field);
+
+    // Publish a new map containing the values
+    HashMap<String, String[]> newFieldTermHash = new HashMap<String, String[]>(mFieldTermHash);
+    newFieldTermHash.put(field, valueArr);
+    mFieldTermHash = Collections.unmodifiableMap(newFieldTermHash);
+
+    return valueArr;
+  }
+
+}
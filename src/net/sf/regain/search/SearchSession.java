@@ -0,0 +1,231 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.search.config.IndexConfig;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Pins one consistent point-in-time view on a set of indexes.
+ * <p>
+ * A search session acquires an IndexSearcher from the
+ * {@link IndexSearcherManager} of every index when it is opened and holds them
+ * until it is closed. So the query and the rendering of all hits use the same
+ * index readers, even if a new index is published in the meantime.
+ * <p>
+ * A session must be closed exactly once, normally at the end of the request
+ * (see {@link net.sf.regain.util.sharedtag.PageRequest#closeAtRequestEnd(Closeable)}).
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class SearchSession implements Closeable {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(SearchSession.class);
+
+  /** The number of sessions that are currently open. */
+  private static AtomicInteger mOpenSessionCount = new AtomicInteger();
+
+  /** The managers of the indexes. */
+  private IndexSearcherManager[] mManagerArr;
+
+  /** The searchers acquired from the managers. */
+  private IndexSearcher[] mSearcherArr;
+
+  /** The searcher to use (single or multi). */
+  private IndexSearcher mIndexSearcher;
+
+  /** The reader over all indexes. */
+  private MultiReader mMultiReader;
+
+  /** The analyzer that belongs to the pinned indexes. */
+  private Analyzer mAnalyzer;
+
+  /** Whether the session has been closed. */
+  private boolean mClosed;
+
+
+  /**
+   * Opens a search session.
+   *
+   * @param indexConfigArr The configurations of the indexes to search.
+   * @throws RegainException If acquiring the searchers failed.
+   */
+  public SearchSession(IndexConfig[] indexConfigArr) throws RegainException {
+    mManagerArr = new IndexSearcherManager[indexConfigArr.length];
+    mSearcherArr = new IndexSearcher[indexConfigArr.length];
+    IndexReader[] readerArr = new IndexReader[indexConfigArr.length];
+
+    mOpenSessionCount.incrementAndGet();
+    boolean success = false;
+    try {
+      for (int i = 0; i < indexConfigArr.length; i++) {
+        mManagerArr[i] = IndexSearcherManager.getInstance(indexConfigArr[i]);
+        mSearcherArr[i] = mManagerArr[i].getIndexSearcher();
+        readerArr[i] = mSearcherArr[i].getIndexReader();
+      }
+
+      if (mSearcherArr.length > 0) {
+        mMultiReader = new MultiReader(readerArr, false);
+        if (mSearcherArr.length == 1) {
+          mIndexSearcher = mSearcherArr[0];
+        } else {
+          mIndexSearcher = new IndexSearcher(mMultiReader);
+        }
+
+        // get the 'first' analyzer (in fact it is a random choice)
+        // All indexes has to be build with the same analyzer
+        // NOTE: The analyzer is taken from the pinned searcher, so it always
+        //       belongs to the pinned index version
+        mAnalyzer = ((IndexSnapshotSearcher) mSearcherArr[0]).getAnalyzer();
+      }
+      success = true;
+    }
+    finally {
+      if (! success) {
+        try {
+          close();
+        }
+        catch (IOException exc) {
+          mLog.error("Releasing searchers of failed search session failed", exc);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Gets the number of sessions that are currently open.
+   *
+   * @return The number of open sessions.
+   */
+  public static int getOpenSessionCount() {
+    return mOpenSessionCount.get();
+  }
+
+
+  /**
+   * Gets the searcher over all indexes of this session.
+   *
+   * @return The searcher or <code>null</code> if the session has no index.
+   */
+  public IndexSearcher getIndexSearcher() {
+    checkOpen();
+    return mIndexSearcher;
+  }
+
+
+  /**
+   * Gets the reader over all indexes of this session.
+   *
+   * @return The reader or <code>null</code> if the session has no index.
+   */
+  public MultiReader getIndexReader() {
+    checkOpen();
+    return mMultiReader;
+  }
+
+
+  /**
+   * Gets the analyzer to use for the indexes of this session.
+   *
+   * @return The analyzer or <code>null</code> if the session has no index.
+   */
+  public Analyzer getAnalyzer() {
+    checkOpen();
+    return mAnalyzer;
+  }
+
+
+  /**
+   * Checks that the session was not closed yet.
+   */
+  private void checkOpen() {
+    if (mClosed) {
+      throw new IllegalStateException("Search session is already closed");
+    }
+  }
+
+
+  /**
+   * Closes the reader over all indexes and releases all searchers of this
+   * session. Calling this method more than once
+   * has no effect.
+   *
+   * @throws IOException If releasing a searcher failed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (mClosed) {
+      return;
+    }
+    mClosed = true;
+
+    IOException firstExc = null;
+
+    // NOTE: The MultiReader holds a reference on every reader of the searchers,
+    //       so it must be closed before they are released
+    if (mMultiReader != null) {
+      try {
+        mMultiReader.close();
+      }
+      catch (IOException exc) {
+        firstExc = exc;
+      }
+      mMultiReader = null;
+    }
+
+    for (int i = 0; i < mManagerArr.length; i++) {
+      if (mManagerArr[i] != null) {
+        try {
+          mManagerArr[i].releaseIndexSearcher(mSearcherArr[i]);
+        }
+        catch (RegainException exc) {
+          if (firstExc == null) {
+            firstExc = new IOException("Releasing searcher failed: " + exc.getMessage());
+            firstExc.initCause(exc);
+          }
+        }
+        mSearcherArr[i] = null;
+      }
+    }
+
+    int openCount = mOpenSessionCount.decrementAndGet();
+    if (mLog.isDebugEnabled()) {
+      mLog.debug("Search session closed, " + openCount + " sessions still open");
+    }
+
+    if (firstExc != null) {
+      throw firstExc;
+    }
+  }
+
+}
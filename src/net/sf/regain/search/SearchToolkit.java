@@ -24,10 +24,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.DataFormatException;
 
 import net.sf.regain.RegainException;
@@ -91,7 +96,12 @@ public class SearchToolkit {
   /**
    * Holds for an extension the mime type.
    */
-  private static HashMap<String, String> mMimeTypeHash;
+  private static final Map<String, String> MIME_TYPE_MAP = createMimeTypeMap();
+  /**
+   * The result of {@link #parseByteRange(String, long)} for a range that
+   * can't be satisfied.
+   */
+  private static final long[] UNSATISFIABLE_RANGE = new long[0];
 
   /**
    * Gets the IndexConfig array from the PageContext. It contains the
@@ -408,8 +418,7 @@ public class SearchToolkit {
     int nbHits = 0;
     // Check whether one of the indexes contains the file
     for (int i = 0; i < configArr.length; i++) {
-      String dir = configArr[i].getDirectory();
-      manager = IndexSearcherManager.getInstance(dir);
+      manager = IndexSearcherManager.getInstance(configArr[i]);
 
       String transformedFileUrl = fileUrl;
       // back transform the file url according to given rewrite rules
@@ -506,6 +515,11 @@ public class SearchToolkit {
 
   /**
    * Sends a file to the client.
+   * <p>
+   * Supports conditional requests (<code>If-Modified-Since</code>,
+   * <code>If-None-Match</code>) and single byte range requests
+   * (<code>Range</code>, <code>If-Range</code>), so a client may seek in a
+   * large file without loading it from the start.
    *
    * @param request The request.
    * @param response The response.
@@ -515,112 +529,86 @@ public class SearchToolkit {
   public static void sendFile(PageRequest request, PageResponse response, File file)
           throws RegainException {
     long lastModified = file.lastModified();
-    if (lastModified < request.getHeaderAsDate("If-Modified-Since")) {
+    long fileLength = file.length();
+    String etag = "\"" + Long.toHexString(fileLength) + "-"
+        + Long.toHexString(lastModified) + "\"";
+
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    boolean notModified;
+    if (ifNoneMatch != null) {
+      notModified = ifNoneMatch.equals("*") || (ifNoneMatch.indexOf(etag) != -1);
+    } else {
+      notModified = lastModified < request.getHeaderAsDate("If-Modified-Since");
+    }
+
+    // NOTE: A 304 response has to carry the same validators as a 200 response,
+    //       so the client can update its cache entry
+    response.setHeaderAsDate("Date", System.currentTimeMillis());
+    response.setHeader("ETag", etag);
+
+    if (notModified) {
       // The browser can use the cached file
       response.sendError(304);
     } else {
-      response.setHeaderAsDate("Date", System.currentTimeMillis());
       response.setHeaderAsDate("Last-Modified", lastModified);
-
-      // TODO: Make this configurable
-      if (mMimeTypeHash == null) {
-        // Source: http://de.selfhtml.org/diverses/mimetypen.htm
-        HashMap<String, String> mimeTypeHash = new HashMap<String, String>();
-
-        mimeTypeHash.put("html", "text/html");
-        mimeTypeHash.put("htm", "text/html");
-        mimeTypeHash.put("gif", "image/gif");
-        mimeTypeHash.put("jpg", "image/jpeg");
-        mimeTypeHash.put("jpeg", "image/jpeg");
-        mimeTypeHash.put("png", "image/png");
-        mimeTypeHash.put("js", "text/javascript");
-        mimeTypeHash.put("txt", "text/plain");
-        mimeTypeHash.put("pdf", "application/pdf");
-        mimeTypeHash.put("xls", "application/msexcel");
-        mimeTypeHash.put("doc", "application/msword");
-        mimeTypeHash.put("ppt", "application/mspowerpoint");
-        mimeTypeHash.put("rtf", "text/rtf");
-
-        // Source: http://framework.openoffice.org/documentation/mimetypes/mimetypes.html
-        mimeTypeHash.put("sds", "application/vnd.stardivision.chart");
-        mimeTypeHash.put("sdc", "application/vnd.stardivision.calc");
-        mimeTypeHash.put("sdw", "application/vnd.stardivision.writer");
-        mimeTypeHash.put("sgl", "application/vnd.stardivision.writer-global");
-        mimeTypeHash.put("sda", "application/vnd.stardivision.draw");
-        mimeTypeHash.put("sdd", "application/vnd.stardivision.impress");
-        mimeTypeHash.put("sdf", "application/vnd.stardivision.math");
-        mimeTypeHash.put("sxw", "application/vnd.sun.xml.writer");
-        mimeTypeHash.put("stw", "application/vnd.sun.xml.writer.template");
-        mimeTypeHash.put("sxg", "application/vnd.sun.xml.writer.global");
-        mimeTypeHash.put("sxc", "application/vnd.sun.xml.calc");
-        mimeTypeHash.put("stc", "application/vnd.sun.xml.calc.template");
-        mimeTypeHash.put("sxi", "application/vnd.sun.xml.impress");
-        mimeTypeHash.put("sti", "application/vnd.sun.xml.impress.template");
-        mimeTypeHash.put("sxd", "application/vnd.sun.xml.draw");
-        mimeTypeHash.put("std", "application/vnd.sun.xml.draw.template");
-        mimeTypeHash.put("sxm", "application/vnd.sun.xml.math");
-        mimeTypeHash.put("odt", "application/vnd.oasis.opendocument.text");
-        mimeTypeHash.put("ott", "application/vnd.oasis.opendocument.text-template");
-        mimeTypeHash.put("oth", "application/vnd.oasis.opendocument.text-web");
-        mimeTypeHash.put("odm", "application/vnd.oasis.opendocument.text-master");
-        mimeTypeHash.put("odg", "application/vnd.oasis.opendocument.graphics");
-        mimeTypeHash.put("otg", "application/vnd.oasis.opendocument.graphics-template");
-        mimeTypeHash.put("odp", "application/vnd.oasis.opendocument.presentation");
-        mimeTypeHash.put("otp", "application/vnd.oasis.opendocument.presentation-template");
-        mimeTypeHash.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
-        mimeTypeHash.put("ots", "application/vnd.oasis.opendocument.spreadsheet-template");
-        mimeTypeHash.put("odc", "application/vnd.oasis.opendocument.chart");
-        mimeTypeHash.put("odf", "application/vnd.oasis.opendocument.formula");
-        mimeTypeHash.put("odb", "application/vnd.oasis.opendocument.database");
-        mimeTypeHash.put("odi", "application/vnd.oasis.opendocument.image");
-
-        // Source: http://blogs.technet.com/b/office_resource_kit/archive/2009/06/30/register-office-2007-file-format-mime-types-on-servers.aspx
-        mimeTypeHash.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        mimeTypeHash.put("docm", "application/vnd.ms-word.document.macroEnabled.12");
-        mimeTypeHash.put("dotx", "application/vnd.openxmlformats-officedocument.wordprocessingml.template");
-        mimeTypeHash.put("dotm", "application/vnd.ms-word.template.macroEnabled.12");
-        mimeTypeHash.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        mimeTypeHash.put("xlsm", "application/vnd.ms-excel.sheet.macroEnabled.12");
-        mimeTypeHash.put("xltx", "application/vnd.openxmlformats-officedocument.spreadsheetml.template");
-        mimeTypeHash.put("xltm", "application/vnd.ms-excel.template.macroEnabled.12");
-        mimeTypeHash.put("xlsb", "application/vnd.ms-excel.sheet.binary.macroEnabled.12");
-        mimeTypeHash.put("xlam", "application/vnd.ms-excel.addin.macroEnabled.12");
-        mimeTypeHash.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
-        mimeTypeHash.put("pptm", "application/vnd.ms-powerpoint.presentation.macroEnabled.12");
-        mimeTypeHash.put("ppsx", "application/vnd.openxmlformats-officedocument.presentationml.slideshow");
-        mimeTypeHash.put("ppsm", "application/vnd.ms-powerpoint.slideshow.macroEnabled.12");
-        mimeTypeHash.put("potx", "application/vnd.openxmlformats-officedocument.presentationml.template");
-        mimeTypeHash.put("potm", "application/vnd.ms-powerpoint.template.macroEnabled.12");
-        mimeTypeHash.put("ppam", "application/vnd.ms-powerpoint.addin.macroEnabled.12");
-        mimeTypeHash.put("sldx", "application/vnd.openxmlformats-officedocument.presentationml.slide");
-        mimeTypeHash.put("sldm", "application/vnd.ms-powerpoint.slide.macroEnabled.12");
-        mimeTypeHash.put("one", "application/onenote");
-        mimeTypeHash.put("onetoc2", "application/onenote");
-        mimeTypeHash.put("onetmp", "application/onenote");
-        mimeTypeHash.put("onepkg", "application/onenote");
-        mimeTypeHash.put("thmx", "application/vnd.ms-officetheme");
-
-        mMimeTypeHash = mimeTypeHash;
-      }
+      response.setHeader("Accept-Ranges", "bytes");
 
       // Set the MIME type
       String filename = file.getName();
       int lastDot = filename.lastIndexOf('.');
       if (lastDot != -1) {
-        String extension = filename.substring(lastDot + 1);
-        String mimeType = mMimeTypeHash.get(extension);
+        String extension = filename.substring(lastDot + 1).toLowerCase();
+        String mimeType = MIME_TYPE_MAP.get(extension);
         if (mimeType != null) {
           response.setHeader("Content-Type", mimeType);
         }
       }
 
+      // Check whether only a part of the file is wanted
+      long first = 0;
+      long last = fileLength - 1;
+      String range = request.getHeader("Range");
+      String ifRange = request.getHeader("If-Range");
+      if ((range != null) && ((ifRange == null) || ifRange.equals(etag))) {
+        long[] byteRange = parseByteRange(range, fileLength);
+        if (byteRange == UNSATISFIABLE_RANGE) {
+          response.setHeader("Content-Range", "bytes */" + fileLength);
+          response.sendError(416);
+          return;
+        } else if (byteRange != null) {
+          first = byteRange[0];
+          last = byteRange[1];
+          response.setStatus(206);
+          response.setHeader("Content-Range", "bytes " + first + "-" + last
+              + "/" + fileLength);
+        }
+      }
+      long count = last - first + 1;
+      response.setHeader("Content-Length", Long.toString(count));
+
       // Send the file
       OutputStream out = null;
       FileInputStream in = null;
       try {
         out = response.getOutputStream();
         in = new FileInputStream(file);
-        RegainToolkit.pipe(in, out);
+
+        // Let the file channel transfer the wanted range
+        // NOTE: This is no zero-copy transfer: The container's stream is only
+        //       wrapped by a channel, so the bytes are copied through a buffer
+        //       like by a stream copy loop
+        FileChannel fileChannel = in.getChannel();
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        long position = first;
+        long endPosition = first + count;
+        while (position < endPosition) {
+          long transferred = fileChannel.transferTo(position,
+              endPosition - position, outChannel);
+          if (transferred <= 0) {
+            throw new IOException("File was truncated while it was sent");
+          }
+          position += transferred;
+        }
       } catch (IOException exc) {
         throw new RegainException("Sending file failed: " + file.getAbsolutePath(), exc);
       } finally {
@@ -640,6 +628,154 @@ public class SearchToolkit {
     }
   }
 
+  /**
+   * Parses the value of a <code>Range</code> header.
+   * <p>
+   * Only a single byte range is supported. For other ranges (e.g. multiple
+   * byte ranges) the whole file is sent, which is allowed by HTTP/1.1.
+   *
+   * @param range The value of the <code>Range</code> header.
+   * @param fileLength The length of the file to send.
+   * @return The first and the last byte position (inclusive) to send,
+   *         <code>null</code> if the whole file should be sent or
+   *         {@link #UNSATISFIABLE_RANGE} if the range is outside the file.
+   */
+  static long[] parseByteRange(String range, long fileLength) {
+    range = range.trim();
+    if (! range.startsWith("bytes=") || (range.indexOf(',') != -1)) {
+      return null;
+    }
+
+    String spec = range.substring(6).trim();
+    int dashPos = spec.indexOf('-');
+    if (dashPos == -1) {
+      return null;
+    }
+
+    long first;
+    long last;
+    try {
+      String firstStr = spec.substring(0, dashPos).trim();
+      String lastStr = spec.substring(dashPos + 1).trim();
+      if (firstStr.length() == 0) {
+        // Suffix range: The last n bytes
+        long suffixLength = Long.parseLong(lastStr);
+        if (suffixLength <= 0) {
+          return UNSATISFIABLE_RANGE;
+        }
+        first = Math.max(0, fileLength - suffixLength);
+        last = fileLength - 1;
+      } else {
+        first = Long.parseLong(firstStr);
+        if (lastStr.length() == 0) {
+          last = fileLength - 1;
+        } else {
+          last = Math.min(Long.parseLong(lastStr), fileLength - 1);
+        }
+      }
+    }
+    catch (NumberFormatException exc) {
+      // Invalid range -> Ignore it
+      return null;
+    }
+
+    if ((first < 0) || (last < first && first < fileLength)) {
+      // Syntactically invalid range -> Ignore it
+      return null;
+    }
+    if (first >= fileLength) {
+      return UNSATISFIABLE_RANGE;
+    }
+
+    return new long[] { first, last };
+  }
+
+  /**
+   * Creates the map holding the MIME type for a file extension.
+   *
+   * @return The map holding the MIME type for a file extension.
+   */
+  private static Map<String, String> createMimeTypeMap() {
+    // TODO: Make this configurable
+    // Source: http://de.selfhtml.org/diverses/mimetypen.htm
+    HashMap<String, String> mimeTypeHash = new HashMap<String, String>();
+
+    mimeTypeHash.put("html", "text/html");
+    mimeTypeHash.put("htm", "text/html");
+    mimeTypeHash.put("gif", "image/gif");
+    mimeTypeHash.put("jpg", "image/jpeg");
+    mimeTypeHash.put("jpeg", "image/jpeg");
+    mimeTypeHash.put("png", "image/png");
+    mimeTypeHash.put("js", "text/javascript");
+    mimeTypeHash.put("txt", "text/plain");
+    mimeTypeHash.put("pdf", "application/pdf");
+    mimeTypeHash.put("xls", "application/msexcel");
+    mimeTypeHash.put("doc", "application/msword");
+    mimeTypeHash.put("ppt", "application/mspowerpoint");
+    mimeTypeHash.put("rtf", "text/rtf");
+
+    // Source: http://framework.openoffice.org/documentation/mimetypes/mimetypes.html
+    mimeTypeHash.put("sds", "application/vnd.stardivision.chart");
+    mimeTypeHash.put("sdc", "application/vnd.stardivision.calc");
+    mimeTypeHash.put("sdw", "application/vnd.stardivision.writer");
+    mimeTypeHash.put("sgl", "application/vnd.stardivision.writer-global");
+    mimeTypeHash.put("sda", "application/vnd.stardivision.draw");
+    mimeTypeHash.put("sdd", "application/vnd.stardivision.impress");
+    mimeTypeHash.put("sdf", "application/vnd.stardivision.math");
+    mimeTypeHash.put("sxw", "application/vnd.sun.xml.writer");
+    mimeTypeHash.put("stw", "application/vnd.sun.xml.writer.template");
+    mimeTypeHash.put("sxg", "application/vnd.sun.xml.writer.global");
+    mimeTypeHash.put("sxc", "application/vnd.sun.xml.calc");
+    mimeTypeHash.put("stc", "application/vnd.sun.xml.calc.template");
+    mimeTypeHash.put("sxi", "application/vnd.sun.xml.impress");
+    mimeTypeHash.put("sti", "application/vnd.sun.xml.impress.template");
+    mimeTypeHash.put("sxd", "application/vnd.sun.xml.draw");
+    mimeTypeHash.put("std", "application/vnd.sun.xml.draw.template");
+    mimeTypeHash.put("sxm", "application/vnd.sun.xml.math");
+    mimeTypeHash.put("odt", "application/vnd.oasis.opendocument.text");
+    mimeTypeHash.put("ott", "application/vnd.oasis.opendocument.text-template");
+    mimeTypeHash.put("oth", "application/vnd.oasis.opendocument.text-web");
+    mimeTypeHash.put("odm", "application/vnd.oasis.opendocument.text-master");
+    mimeTypeHash.put("odg", "application/vnd.oasis.opendocument.graphics");
+    mimeTypeHash.put("otg", "application/vnd.oasis.opendocument.graphics-template");
+    mimeTypeHash.put("odp", "application/vnd.oasis.opendocument.presentation");
+    mimeTypeHash.put("otp", "application/vnd.oasis.opendocument.presentation-template");
+    mimeTypeHash.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+    mimeTypeHash.put("ots", "application/vnd.oasis.opendocument.spreadsheet-template");
+    mimeTypeHash.put("odc", "application/vnd.oasis.opendocument.chart");
+    mimeTypeHash.put("odf", "application/vnd.oasis.opendocument.formula");
+    mimeTypeHash.put("odb", "application/vnd.oasis.opendocument.database");
+    mimeTypeHash.put("odi", "application/vnd.oasis.opendocument.image");
+
+    // Source: http://blogs.technet.com/b/office_resource_kit/archive/2009/06/30/register-office-2007-file-format-mime-types-on-servers.aspx
+    mimeTypeHash.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+    mimeTypeHash.put("docm", "application/vnd.ms-word.document.macroEnabled.12");
+    mimeTypeHash.put("dotx", "application/vnd.openxmlformats-officedocument.wordprocessingml.template");
+    mimeTypeHash.put("dotm", "application/vnd.ms-word.template.macroEnabled.12");
+    mimeTypeHash.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    mimeTypeHash.put("xlsm", "application/vnd.ms-excel.sheet.macroEnabled.12");
+    mimeTypeHash.put("xltx", "application/vnd.openxmlformats-officedocument.spreadsheetml.template");
+    mimeTypeHash.put("xltm", "application/vnd.ms-excel.template.macroEnabled.12");
+    mimeTypeHash.put("xlsb", "application/vnd.ms-excel.sheet.binary.macroEnabled.12");
+    mimeTypeHash.put("xlam", "application/vnd.ms-excel.addin.macroEnabled.12");
+    mimeTypeHash.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    mimeTypeHash.put("pptm", "application/vnd.ms-powerpoint.presentation.macroEnabled.12");
+    mimeTypeHash.put("ppsx", "application/vnd.openxmlformats-officedocument.presentationml.slideshow");
+    mimeTypeHash.put("ppsm", "application/vnd.ms-powerpoint.slideshow.macroEnabled.12");
+    mimeTypeHash.put("potx", "application/vnd.openxmlformats-officedocument.presentationml.template");
+    mimeTypeHash.put("potm", "application/vnd.ms-powerpoint.template.macroEnabled.12");
+    mimeTypeHash.put("ppam", "application/vnd.ms-powerpoint.addin.macroEnabled.12");
+    mimeTypeHash.put("sldx", "application/vnd.openxmlformats-officedocument.presentationml.slide");
+    mimeTypeHash.put("sldm", "application/vnd.ms-powerpoint.slide.macroEnabled.12");
+    mimeTypeHash.put("one", "application/onenote");
+    mimeTypeHash.put("onetoc2", "application/onenote");
+    mimeTypeHash.put("onetmp", "application/onenote");
+    mimeTypeHash.put("onepkg", "application/onenote");
+    mimeTypeHash.put("thmx", "application/vnd.ms-officetheme");
+
+    return Collections.unmodifiableMap(mimeTypeHash);
+  }
+
   /**
    * Get the content of a compressed lucene field.
    *
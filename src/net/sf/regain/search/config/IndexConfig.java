@@ -5,6 +5,7 @@ import java.util.Properties;
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
 import net.sf.regain.search.access.SearchAccessController;
+import net.sf.regain.search.results.FacetOption;
 import net.sf.regain.search.results.SortingOption;
 
 /**
@@ -64,6 +65,12 @@ public class IndexConfig {
   /** The sorting options for the results. */
   private SortingOption[] mSortingOptions;
   private boolean mShowSortFieldContent;
+  /** The facets to count over the hits. May be null. */
+  private FacetOption[] mFacetOptions;
+  /** The queries to run on a new searcher before it is used. May be null. */
+  private String[] mWarmUpQueries;
+  /** The fields to load the sort caches for before a new searcher is used. */
+  private String[] mWarmUpSortFields;
 
   /**
    * Creates a new instance of IndexConfig.
@@ -84,13 +91,17 @@ public class IndexConfig {
    * @param searchAccessControllerConfig The configuration for the
    *        {@link SearchAccessController}.
    * @param shouldHighlight The flag for highlighting of the search terms in the results
+   * @param sortingOptions The sorting options. May be null.
+   * @param showSortFieldContent Whether to show the content of the sort field.
+   * @param facetOptions The facets to count over the hits. May be null.
    * @throws RegainException If loading the SearchAccessController failed.
    */
   public IndexConfig(String name, String directory, String openInNewWindowRegex,
           boolean useFileToHttpBridge, String[] searchFieldList, String[][] rewriteRules,
           String searchAccessControllerClass, String searchAccessControllerJar,
           Properties searchAccessControllerConfig, boolean shouldHighlight,
-          SortingOption[] sortingOptions, boolean showSortFieldContent)
+          SortingOption[] sortingOptions, boolean showSortFieldContent,
+          FacetOption[] facetOptions)
           throws RegainException {
     this.mName = name;
     this.mDirectory = directory;
@@ -114,6 +125,7 @@ public class IndexConfig {
     this.mShouldHighlight = shouldHighlight;
     this.mSortingOptions = sortingOptions;
     this.mShowSortFieldContent = showSortFieldContent;
+    this.mFacetOptions = facetOptions;
   }
 
   /**
@@ -284,4 +296,60 @@ public class IndexConfig {
   public boolean getShowSortFieldContent() {
     return mShowSortFieldContent;
   }
+
+  /**
+   * Gets the facets to count over the hits.
+   *
+   * @return The facets to count. May be null.
+   */
+  public FacetOption[] getFacetOptions() {
+    return mFacetOptions;
+  }
+
+  /**
+   * Gets the queries to run on a new searcher of the index before it is used.
+   *
+   * @return The warm-up queries. May be null.
+   */
+  public String[] getWarmUpQueries() {
+    return mWarmUpQueries;
+  }
+
+  /**
+   * Gets the fields to load the sort caches for before a new searcher of the
+   * index is used.
+   *
+   * @return The warm-up sort fields. May be null.
+   */
+  public String[] getWarmUpSortFields() {
+    return mWarmUpSortFields;
+  }
+
+  /**
+   * Sets the warm-up of new searchers of the index.
+   *
+   * @param queries The queries to run on a new searcher. May be null.
+   * @param sortFields The fields to load the sort caches for. May be null.
+   */
+  public void setWarmUp(String[] queries, String[] sortFields) {
+    this.mWarmUpQueries = queries;
+    this.mWarmUpSortFields = sortFields;
+  }
+
+  /**
+   * Gets a facet by its name.
+   *
+   * @param name The name of the facet.
+   * @return The facet or <code>null</code> if there is no such facet.
+   */
+  public FacetOption getFacetOption(String name) {
+    if (mFacetOptions != null) {
+      for (int i = 0; i < mFacetOptions.length; i++) {
+        if (mFacetOptions[i].getName().equals(name)) {
+          return mFacetOptions[i];
+        }
+      }
+    }
+    return null;
+  }
 }
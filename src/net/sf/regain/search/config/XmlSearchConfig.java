@@ -9,6 +9,7 @@ import java.util.Properties;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.XmlToolkit;
+import net.sf.regain.search.results.FacetOption;
 import net.sf.regain.search.results.SortingOption;
 
 import org.w3c.dom.Document;
@@ -89,6 +90,22 @@ public class XmlSearchConfig implements SearchConfig {
         }
       }
     }
+
+    // get the facets to count
+    FacetOption[] facetOptions = null;
+    Node facetsNode = XmlToolkit.getChild(defaultNode, "facets");
+    if (facetsNode != null) {
+      Node[] facetNodes = XmlToolkit.getChildArr(facetsNode, "facetEntry");
+      facetOptions = new FacetOption[facetNodes.length];
+      for (int i = 0; i < facetNodes.length; i++) {
+        String field = XmlToolkit.getAttribute(facetNodes[i], "field", true);
+        String name = XmlToolkit.getAttribute(facetNodes[i], "name", false);
+        String pathDepth = XmlToolkit.getAttribute(facetNodes[i], "pathDepth", false);
+        facetOptions[i] = new FacetOption((name == null) ? field : name, field,
+            (pathDepth == null) ? 0 : Integer.parseInt(pathDepth));
+      }
+    }
+
     //for (int j = 0; j < sortingOptions.length; j++) {
       //System.out.println("SortingOption: " + sortingOptions[j].toString());
     //}
@@ -154,13 +171,31 @@ public class XmlSearchConfig implements SearchConfig {
         }
       }
 
+      // Read the warm-up
+      // Default: Load the sort caches of the configured sorting options
+      String[] warmUpQueries = null;
+      String[] warmUpSortFields = getSortFieldNames(sortingOptions);
+      node = XmlToolkit.getCascadedChild(indexNode, defaultNode, "warmUp");
+      if (node != null) {
+        Node[] queryNodeArr = XmlToolkit.getChildArr(node, "query");
+        warmUpQueries = new String[queryNodeArr.length];
+        for (int i = 0; i < queryNodeArr.length; i++) {
+          warmUpQueries[i] = XmlToolkit.getText(queryNodeArr[i], true);
+        }
+        Node sortFieldsNode = XmlToolkit.getChild(node, "sortFields");
+        if (sortFieldsNode != null) {
+          warmUpSortFields = XmlToolkit.getTextAsWordList(sortFieldsNode, false);
+        }
+      }
+
       // Create the index config
       IndexConfig indexConfig = new IndexConfig(indexName, directory,
               openInNewWindowRegex, useFileToHttpBridge, searchFieldList, rewriteRules,
               searchAccessControllerClass, searchAccessControllerJar,
               searchAccessControllerConfig, highlighting, sortingOptions,
-              showSortFieldContent);
+              showSortFieldContent, facetOptions);
       indexConfig.setParent(isParent);
+      indexConfig.setWarmUp(warmUpQueries, warmUpSortFields);
       if (null != parentName && parentName.length() > 0) {
         indexConfig.setParentName(parentName);
       }
@@ -214,6 +249,30 @@ public class XmlSearchConfig implements SearchConfig {
   }
 
 
+  /**
+   * Gets the names of the fields the sorting options sort by.
+   *
+   * @param sortingOptions The sorting options. May be null.
+   * @return The names of the sort fields (without relevance). May be null.
+   */
+  private String[] getSortFieldNames(SortingOption[] sortingOptions) {
+    if (sortingOptions == null) {
+      return null;
+    }
+
+    List<String> fieldNameList = new ArrayList<String>();
+    for (int i = 0; i < sortingOptions.length; i++) {
+      String fieldName = sortingOptions[i].getSortFieldName();
+      if (! fieldName.equals(SortingOption.RELEVANCE)
+          && ! fieldNameList.contains(fieldName))
+      {
+        fieldNameList.add(fieldName);
+      }
+    }
+    return fieldNameList.toArray(new String[fieldNameList.size()]);
+  }
+
+
   /**
    * Gets the configuration for an index.
    *
@@ -0,0 +1,193 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Counts the facet values of all hits while passing the hits on to another
+ * collector.
+ * <p>
+ * The counting is done per segment using the cached {@link FacetOrdinals}, so
+ * a hit costs only some array accesses. The counts of a segment are merged by
+ * value when the next segment starts.
+ *
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class FacetCollector extends Collector {
+
+  /** The collector to pass the hits to. */
+  private Collector mDelegate;
+  /** The facets to count. */
+  private FacetOption[] mFacetOptionArr;
+  /** The ordinals of the current segment per facet. */
+  private FacetOrdinals[] mOrdinalsArr;
+  /** The counts of the current segment per facet and ordinal. */
+  private int[][] mSegmentCountArr;
+  /** The counts of the finished segments per facet and value. */
+  private ArrayList<HashMap<String, Integer>> mCountMapList;
+
+
+  /**
+   * Creates a new instance of FacetCollector.
+   *
+   * @param delegate The collector to pass the hits to.
+   * @param facetOptionArr The facets to count.
+   */
+  public FacetCollector(Collector delegate, FacetOption[] facetOptionArr) {
+    mDelegate = delegate;
+    mFacetOptionArr = facetOptionArr;
+    mOrdinalsArr = new FacetOrdinals[facetOptionArr.length];
+    mSegmentCountArr = new int[facetOptionArr.length][];
+    mCountMapList = new ArrayList<HashMap<String, Integer>>();
+    for (int i = 0; i < facetOptionArr.length; i++) {
+      mCountMapList.add(new HashMap<String, Integer>());
+    }
+  }
+
+
+  /**
+   * Passes the scorer to the delegate collector.
+   *
+   * @param scorer The scorer of the current segment.
+   * @throws IOException If the delegate failed.
+   */
+  @Override
+  public void setScorer(Scorer scorer) throws IOException {
+    mDelegate.setScorer(scorer);
+  }
+
+
+  /**
+   * Passes a hit to the delegate collector and counts its facet values.
+   *
+   * @param doc The hit (relative to the current segment).
+   * @throws IOException If the delegate failed.
+   */
+  @Override
+  public void collect(int doc) throws IOException {
+    mDelegate.collect(doc);
+
+    for (int i = 0; i < mOrdinalsArr.length; i++) {
+      mOrdinalsArr[i].countDocument(doc, mSegmentCountArr[i]);
+    }
+  }
+
+
+  /**
+   * Starts counting a new segment.
+   *
+   * @param reader The reader of the segment.
+   * @param docBase The first document number of the segment.
+   * @throws IOException If reading the ordinals failed.
+   */
+  @Override
+  public void setNextReader(IndexReader reader, int docBase) throws IOException {
+    mDelegate.setNextReader(reader, docBase);
+
+    mergeSegmentCounts();
+    for (int i = 0; i < mFacetOptionArr.length; i++) {
+      mOrdinalsArr[i] = FacetOrdinals.getInstance(reader, mFacetOptionArr[i]);
+      mSegmentCountArr[i] = new int[mOrdinalsArr[i].getValueCount()];
+    }
+  }
+
+
+  /**
+   * Returns whether the delegate collector accepts hits out of order. The
+   * counting does not depend on the order.
+   *
+   * @return Whether hits may be collected out of order.
+   */
+  @Override
+  public boolean acceptsDocsOutOfOrder() {
+    return mDelegate.acceptsDocsOutOfOrder();
+  }
+
+
+  /**
+   * Adds the counts of the current segment to the counts by value.
+   */
+  private void mergeSegmentCounts() {
+    for (int i = 0; i < mFacetOptionArr.length; i++) {
+      int[] countArr = mSegmentCountArr[i];
+      if (countArr == null) {
+        continue;
+      }
+
+      HashMap<String, Integer> countMap = mCountMapList.get(i);
+      for (int ordinal = 0; ordinal < countArr.length; ordinal++) {
+        if (countArr[ordinal] != 0) {
+          String value = mOrdinalsArr[i].getValue(ordinal);
+          Integer count = countMap.get(value);
+          int newCount = (count == null) ? countArr[ordinal] : count + countArr[ordinal];
+          countMap.put(value, newCount);
+        }
+      }
+      mSegmentCountArr[i] = null;
+    }
+  }
+
+
+  /**
+   * Gets the counted values of a facet.
+   *
+   * @param facetName The name of the facet.
+   * @return The values sorted by count (highest count first) or
+   *         <code>null</code> if the facet was not counted.
+   */
+  public FacetValue[] getFacetValues(String facetName) {
+    mergeSegmentCounts();
+
+    for (int i = 0; i < mFacetOptionArr.length; i++) {
+      if (mFacetOptionArr[i].getName().equals(facetName)) {
+        HashMap<String, Integer> countMap = mCountMapList.get(i);
+        FacetValue[] valueArr = new FacetValue[countMap.size()];
+        int idx = 0;
+        for (Map.Entry<String, Integer> entry : countMap.entrySet()) {
+          valueArr[idx++] = new FacetValue(entry.getKey(), entry.getValue());
+        }
+        Arrays.sort(valueArr, new Comparator<FacetValue>() {
+          @Override
+          public int compare(FacetValue value1, FacetValue value2) {
+            if (value1.getCount() != value2.getCount()) {
+              return (value1.getCount() > value2.getCount()) ? -1 : 1;
+            }
+            return value1.getValue().compareTo(value2.getValue());
+          }
+        });
+        return valueArr;
+      }
+    }
+
+    return null;
+  }
+
+}
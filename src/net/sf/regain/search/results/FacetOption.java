@@ -0,0 +1,147 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+import org.apache.lucene.queryParser.QueryParser;
+
+/**
+ * Describes a facet that is counted over the hits of a search.
+ * <p>
+ * A facet counts the hits per value of an untokenized index field (like
+ * <code>mimetype</code> or an auxiliary field). For path fields (like
+ * <code>path_sort</code>) a path depth may be set: The hits are then counted
+ * per path prefix having this number of directories.
+ *
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class FacetOption {
+
+  /** The name of the facet. */
+  private String mName;
+  /** The name of the index field to count the values of. */
+  private String mFieldName;
+  /**
+   * The number of directories of the path prefixes to count. 0 if the whole
+   * field values are counted.
+   */
+  private int mPathDepth;
+
+
+  /**
+   * Creates a new instance of FacetOption.
+   *
+   * @param name The name of the facet.
+   * @param fieldName The name of the index field to count the values of.
+   * @param pathDepth The number of directories of the path prefixes to
+   *        count. 0 if the whole field values should be counted.
+   */
+  public FacetOption(String name, String fieldName, int pathDepth) {
+    mName = name;
+    mFieldName = fieldName;
+    mPathDepth = pathDepth;
+  }
+
+
+  /**
+   * Gets the name of the facet.
+   *
+   * @return The name of the facet.
+   */
+  public String getName() {
+    return mName;
+  }
+
+
+  /**
+   * Gets the name of the index field to count the values of.
+   *
+   * @return The name of the index field.
+   */
+  public String getFieldName() {
+    return mFieldName;
+  }
+
+
+  /**
+   * Gets the number of directories of the path prefixes to count.
+   *
+   * @return The path depth or 0 if the whole field values are counted.
+   */
+  public int getPathDepth() {
+    return mPathDepth;
+  }
+
+
+  /**
+   * Gets the value a field value is counted for. This is the field value
+   * itself or its path prefix if a path depth is set.
+   *
+   * @param fieldValue The value of the index field.
+   * @return The facet value.
+   */
+  public String toFacetValue(String fieldValue) {
+    if (mPathDepth <= 0) {
+      return fieldValue;
+    }
+
+    // Skip a leading slash, so "/home/til/" has the same depth as "host/dir/"
+    int pos = fieldValue.startsWith("/") ? 1 : 0;
+    for (int depth = 0; depth < mPathDepth; depth++) {
+      int slashPos = fieldValue.indexOf('/', pos);
+      if (slashPos == -1) {
+        return fieldValue;
+      }
+      pos = slashPos + 1;
+    }
+    return fieldValue.substring(0, pos);
+  }
+
+
+  /**
+   * Creates the query that restricts a search to the hits having a facet
+   * value.
+   *
+   * @param facetValue The facet value to restrict the search to.
+   * @return The query to append to the search query.
+   */
+  public String createDrillDownQuery(String facetValue) {
+    if (mPathDepth > 0) {
+      // Search for all paths starting with the prefix
+      String escaped = QueryParser.escape(facetValue);
+      escaped = escaped.replace(" ", "\\ ");
+      return mFieldName + ":" + escaped + "*";
+    } else {
+      return mFieldName + ":\"" + facetValue.replace("\"", "\\\"") + "\"";
+    }
+  }
+
+
+  /**
+   * Gets the String representation of this facet option.
+   *
+   * @return The String representation.
+   */
+  @Override
+  public String toString() {
+    return mName + " (field: " + mFieldName + ", path depth: " + mPathDepth + ")";
+  }
+
+}
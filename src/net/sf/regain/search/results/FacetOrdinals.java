@@ -0,0 +1,271 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+
+/**
+ * Maps the documents of one index segment to the ordinals of their facet
+ * values.
+ * <p>
+ * The ordinals are read once per segment from the terms of the field and are
+ * cached for the lifetime of the segment. Since a new index generation shares
+ * all unchanged segments with the old one, only the new segments have to be
+ * read after an index update.
+ * <p>
+ * A document may have several values (e.g. for tokenized fields), so the
+ * ordinals are stored in one array together with the start position of each
+ * document.
+ *
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class FacetOrdinals {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(FacetOrdinals.class);
+
+  /**
+   * The cached ordinals. The key is the core cache key of a segment reader,
+   * the value holds the ordinals of that segment per facet.
+   */
+  private static WeakHashMap<Object, Map<String, Holder>> mCache
+    = new WeakHashMap<Object, Map<String, Holder>>();
+
+  /** The facet values by ordinal. */
+  private String[] mValueArr;
+  /**
+   * The position in {@link #mOrdinalArr} where the ordinals of a document
+   * start. Has one more entry than the segment has documents.
+   */
+  private int[] mDocStartArr;
+  /** The ordinals of all documents. */
+  private int[] mOrdinalArr;
+
+
+  /**
+   * Creates a new instance of FacetOrdinals.
+   *
+   * @param valueArr The facet values by ordinal.
+   * @param docStartArr The start position of each document in ordinalArr.
+   * @param ordinalArr The ordinals of all documents.
+   */
+  private FacetOrdinals(String[] valueArr, int[] docStartArr, int[] ordinalArr) {
+    mValueArr = valueArr;
+    mDocStartArr = docStartArr;
+    mOrdinalArr = ordinalArr;
+  }
+
+
+  /**
+   * Gets the ordinals of a facet for a segment. The ordinals are read from the
+   * segment on the first call and then taken from the cache.
+   *
+   * @param reader The reader of the segment.
+   * @param facet The facet to get the ordinals for.
+   * @return The ordinals.
+   * @throws IOException If reading the terms failed.
+   */
+  public static FacetOrdinals getInstance(IndexReader reader, FacetOption facet)
+    throws IOException
+  {
+    String key = facet.getFieldName() + "/" + facet.getPathDepth();
+    Object coreKey = reader.getCoreCacheKey();
+
+    // Get the holder of the ordinals
+    Holder holder;
+    synchronized (mCache) {
+      Map<String, Holder> segmentMap = mCache.get(coreKey);
+      if (segmentMap == null) {
+        segmentMap = new HashMap<String, Holder>();
+        mCache.put(coreKey, segmentMap);
+      }
+
+      holder = segmentMap.get(key);
+      if (holder == null) {
+        holder = new Holder();
+        segmentMap.put(key, holder);
+      }
+    }
+
+    // Read the ordinals if this was not done yet
+    // NOTE: Only the holder is locked while reading, so searches needing the
+    //       ordinals of other segments or facets don't have to wait
+    FacetOrdinals ordinals = holder.mOrdinals;
+    if (ordinals == null) {
+      synchronized (holder) {
+        ordinals = holder.mOrdinals;
+        if (ordinals == null) {
+          long startTime = System.currentTimeMillis();
+          ordinals = readOrdinals(reader, facet);
+          holder.mOrdinals = ordinals;
+
+          if (mLog.isDebugEnabled()) {
+            mLog.debug("Read " + ordinals.getValueCount() + " values of facet "
+                + facet.getName() + " for " + reader.maxDoc() + " documents in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+          }
+        }
+      }
+    }
+    return ordinals;
+  }
+
+
+  /**
+   * Reads the ordinals of a facet from a segment.
+   *
+   * @param reader The reader of the segment.
+   * @param facet The facet to read the ordinals for.
+   * @return The ordinals.
+   * @throws IOException If reading the terms failed.
+   */
+  private static FacetOrdinals readOrdinals(IndexReader reader, FacetOption facet)
+    throws IOException
+  {
+    String fieldName = facet.getFieldName();
+    int maxDoc = reader.maxDoc();
+
+    // Read the terms and count the values per document
+    // NOTE: The terms are sorted, so the path prefixes of equal terms follow
+    //       each other and get the same ordinal.
+    ArrayList<String> valueList = new ArrayList<String>();
+    ArrayList<Term> termList = new ArrayList<Term>();
+    ArrayList<Integer> termOrdinalList = new ArrayList<Integer>();
+    int[] docStartArr = new int[maxDoc + 1];
+    TermEnum termEnum = reader.terms(new Term(fieldName, ""));
+    TermDocs termDocs = reader.termDocs();
+    try {
+      do {
+        Term term = termEnum.term();
+        if (term == null || ! term.field().equals(fieldName)) {
+          break;
+        }
+        if (term.text().length() == 0) {
+          // Documents without a value (e.g. path_sort of a document without
+          // a path) don't belong to a facet entry
+          continue;
+        }
+
+        String value = facet.toFacetValue(term.text());
+        int lastIdx = valueList.size() - 1;
+        if (lastIdx == -1 || ! valueList.get(lastIdx).equals(value)) {
+          valueList.add(value);
+        }
+        termList.add(term);
+        termOrdinalList.add(valueList.size() - 1);
+
+        termDocs.seek(termEnum);
+        while (termDocs.next()) {
+          docStartArr[termDocs.doc() + 1]++;
+        }
+      } while (termEnum.next());
+
+      // Turn the counts into start positions
+      for (int doc = 0; doc < maxDoc; doc++) {
+        docStartArr[doc + 1] += docStartArr[doc];
+      }
+
+      // Read the ordinals of each document
+      int[] ordinalArr = new int[docStartArr[maxDoc]];
+      int[] fillArr = new int[maxDoc];
+      System.arraycopy(docStartArr, 0, fillArr, 0, maxDoc);
+      for (int i = 0; i < termList.size(); i++) {
+        int ordinal = termOrdinalList.get(i);
+        termDocs.seek(termList.get(i));
+        while (termDocs.next()) {
+          int doc = termDocs.doc();
+          ordinalArr[fillArr[doc]++] = ordinal;
+        }
+      }
+
+      String[] valueArr = new String[valueList.size()];
+      valueList.toArray(valueArr);
+      return new FacetOrdinals(valueArr, docStartArr, ordinalArr);
+    }
+    finally {
+      termDocs.close();
+      termEnum.close();
+    }
+  }
+
+
+  /**
+   * Gets the number of different values.
+   *
+   * @return The number of different values.
+   */
+  public int getValueCount() {
+    return mValueArr.length;
+  }
+
+
+  /**
+   * Gets the value that belongs to an ordinal.
+   *
+   * @param ordinal The ordinal.
+   * @return The value.
+   */
+  public String getValue(int ordinal) {
+    return mValueArr[ordinal];
+  }
+
+
+  /**
+   * Increments the counts of all values of a document. If a document has the
+   * same value twice (e.g. two paths with the same prefix), the value is
+   * counted only once.
+   *
+   * @param doc The document (relative to the segment).
+   * @param countArr The counts by ordinal.
+   */
+  public void countDocument(int doc, int[] countArr) {
+    int lastOrdinal = -1;
+    for (int i = mDocStartArr[doc]; i < mDocStartArr[doc + 1]; i++) {
+      int ordinal = mOrdinalArr[i];
+      if (ordinal != lastOrdinal) {
+        countArr[ordinal]++;
+        lastOrdinal = ordinal;
+      }
+    }
+  }
+
+
+  /**
+   * Holds the ordinals of one facet of one segment once they were read.
+   */
+  private static class Holder {
+
+    /** The ordinals. Is null until they were read. */
+    private volatile FacetOrdinals mOrdinals;
+
+  }
+
+}
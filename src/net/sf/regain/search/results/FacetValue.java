@@ -0,0 +1,68 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+/**
+ * A value of a facet together with the number of hits having this value.
+ *
+ * @see FacetOption
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class FacetValue {
+
+  /** The value. */
+  private String mValue;
+  /** The number of hits having the value. */
+  private int mCount;
+
+
+  /**
+   * Creates a new instance of FacetValue.
+   *
+   * @param value The value.
+   * @param count The number of hits having the value.
+   */
+  public FacetValue(String value, int count) {
+    mValue = value;
+    mCount = count;
+  }
+
+
+  /**
+   * Gets the value.
+   *
+   * @return The value.
+   */
+  public String getValue() {
+    return mValue;
+  }
+
+
+  /**
+   * Gets the number of hits having the value.
+   *
+   * @return The number of hits.
+   */
+  public int getCount() {
+    return mCount;
+  }
+
+}
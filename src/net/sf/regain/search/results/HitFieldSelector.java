@@ -0,0 +1,98 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+import java.util.HashSet;
+
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.FieldSelectorResult;
+
+/**
+ * Decides which stored fields of a hit are loaded when the hit document is
+ * read from the index.
+ * <p>
+ * Fields the hit tags of the current page asked for are loaded immediately.
+ * All other fields (especially the large compressed fields like
+ * <code>summary</code> and <code>content</code>) are loaded lazily: Their
+ * value is only read from the index (and decompressed) if a tag actually
+ * accesses it.
+ * <p>
+ * The set of wanted fields grows while the page is rendered: The hit tags
+ * register their fields when they are executed for the first hit, so all
+ * following hits of the page load exactly these fields.
+ *
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class HitFieldSelector implements FieldSelector {
+
+  /** The serial version UID. */
+  private static final long serialVersionUID = 2295083288595957705L;
+
+  /**
+   * The fields that are always loaded immediately, because they are needed
+   * for every hit (e.g. by {@link SearchResults#getHitUrl(int)}).
+   */
+  private static final String[] DEFAULT_FIELDS = { "url" };
+
+  /** The names of the fields to load immediately. */
+  private HashSet<String> mFieldNameSet;
+
+
+  /**
+   * Creates a new instance of HitFieldSelector.
+   */
+  public HitFieldSelector() {
+    mFieldNameSet = new HashSet<String>();
+    for (int i = 0; i < DEFAULT_FIELDS.length; i++) {
+      mFieldNameSet.add(DEFAULT_FIELDS[i]);
+    }
+  }
+
+
+  /**
+   * Adds a field that should be loaded immediately.
+   *
+   * @param fieldName The name of the field.
+   */
+  public void addField(String fieldName) {
+    if (fieldName != null) {
+      mFieldNameSet.add(fieldName);
+    }
+  }
+
+
+  /**
+   * Decides how a field is loaded.
+   *
+   * @param fieldName The name of the field.
+   * @return {@link FieldSelectorResult#LOAD} for the wanted fields,
+   *         {@link FieldSelectorResult#LAZY_LOAD} for all others.
+   */
+  @Override
+  public FieldSelectorResult accept(String fieldName) {
+    if (mFieldNameSet.contains(fieldName)) {
+      return FieldSelectorResult.LOAD;
+    } else {
+      return FieldSelectorResult.LAZY_LOAD;
+    }
+  }
+
+}
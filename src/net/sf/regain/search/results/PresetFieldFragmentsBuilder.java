@@ -0,0 +1,75 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004-2010 Thomas Tesche, Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Thomas Tesche: www.thtesche.com, Til Schneider: info@murfman.de
+ */
+package net.sf.regain.search.results;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.vectorhighlight.ScoreOrderFragmentsBuilder;
+
+/**
+ * Builds the highlighted fragments of a field from a text that was set before.
+ * <p>
+ * The FastVectorHighlighter reads the text of the field to highlight from the
+ * stored fields. This does not work for fields that are stored compressed
+ * (like <code>summary</code>), so the text is decompressed by the caller and
+ * set with {@link #setFieldValue(String)} before the fragments are created.
+ * The offsets come from the term vectors stored by the crawler.
+ *
+ * @author Thomas Tesche: www.thtesche.com
+ */
+public class PresetFieldFragmentsBuilder extends ScoreOrderFragmentsBuilder {
+
+  /** The text of the field to highlight. */
+  private String mFieldValue;
+
+
+  /**
+   * Sets the text of the field to create the fragments from.
+   *
+   * @param fieldValue The (uncompressed) text of the field.
+   */
+  public void setFieldValue(String fieldValue) {
+    mFieldValue = fieldValue;
+  }
+
+
+  /**
+   * Returns the field value that was set before instead of reading it from
+   * the index.
+   *
+   * @param reader The index reader (not used).
+   * @param docId The document ID (not used).
+   * @param fieldName The name of the field.
+   * @return The field holding the preset text.
+   * @throws IOException Never.
+   */
+  @Override
+  protected Field[] getFields(IndexReader reader, int docId, String fieldName)
+    throws IOException
+  {
+    return new Field[] {
+      new Field(fieldName, mFieldValue, Field.Store.YES, Field.Index.NO)
+    };
+  }
+
+}
@@ -57,6 +57,18 @@ public interface SearchResults {
    */
   public Document getHitDocument(int index) throws RegainException;
 
+  /**
+   * Registers a stored field that is needed to render the hits of the current
+   * page.
+   * <p>
+   * Registered fields are loaded together with the hit document. All other
+   * fields are only read from the index when they are accessed.
+   *
+   * @param fieldName The name of the field.
+   * @see #getHitDocument(int)
+   */
+  public void addHitField(String fieldName);
+
   /**
    * Gets the score of one hit.
    *
@@ -144,4 +156,15 @@ public interface SearchResults {
    */
   public void shortenSummary(int index) throws RegainException;
 
+  /**
+   * Gets the values of a facet together with the number of hits having them.
+   * The facets are counted over all hits while searching.
+   *
+   * @param facetName The name of the facet.
+   * @return The values sorted by count (highest count first) or
+   *         <code>null</code> if the facet is not configured.
+   * @throws RegainException If getting the values failed.
+   */
+  public FacetValue[] getFacetValues(String facetName) throws RegainException;
+
 }
@@ -29,7 +29,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
-import net.sf.regain.search.IndexSearcherManager;
+import net.sf.regain.search.SearchSession;
 import net.sf.regain.search.SearchToolkit;
 import net.sf.regain.search.access.SearchAccessController;
 import net.sf.regain.search.config.IndexConfig;
@@ -45,6 +45,8 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermFreqVector;
+import org.apache.lucene.index.TermPositionVector;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
 import org.apache.lucene.search.BooleanClause.Occur;
@@ -58,9 +60,16 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.highlight.Encoder;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
 import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.vectorhighlight.FastVectorHighlighter;
+import org.apache.lucene.search.vectorhighlight.FieldQuery;
+import org.apache.lucene.search.vectorhighlight.SimpleFragListBuilder;
+import org.apache.lucene.search.vectorhighlight.SimpleFragmentsBuilder;
+import org.apache.lucene.search.vectorhighlight.SingleFragListBuilder;
 import org.apache.regexp.RE;
 import org.apache.regexp.RESyntaxException;
 
@@ -72,6 +81,8 @@ import org.apache.regexp.RESyntaxException;
  */
 public class SearchResultsImpl implements SearchResults {
 
+  /** The search session holding the searchers until the request is finished. */
+  private SearchSession mSearchSession;
   /** The searcher (single or multi). */
   private IndexSearcher mIndexSearcher;
   /** The reader (multi). */
@@ -100,6 +111,32 @@ public class SearchResultsImpl implements SearchResults {
   private Analyzer mAnalyzer;
   /** The current config. */
   private IndexConfig mIndexConfig;
+  /** Decides which stored fields are loaded for a hit. */
+  private HitFieldSelector mHitFieldSelector;
+  /** Counts the facets over all hits. Is null if no facets are configured. */
+  private FacetCollector mFacetCollector;
+  /**
+   * The highlighter for fields without term vectors. Created on the first
+   * highlighting together with the other highlighting objects.
+   */
+  private Highlighter mHighlighter;
+  /** The highlighter for fields with term vectors. */
+  private FastVectorHighlighter mVectorHighlighter;
+  /** The query as needed by the FastVectorHighlighter. */
+  private FieldQuery mFieldQuery;
+  /** Builds the summary fragments from the decompressed summary. */
+  private PresetFieldFragmentsBuilder mSummaryFragmentsBuilder;
+
+  /** The tag to insert before a highlighted term. */
+  private static final String[] HIGHLIGHT_PRE_TAGS = { "<span class=\"highlight\">" };
+  /** The tag to insert after a highlighted term. */
+  private static final String[] HIGHLIGHT_POST_TAGS = { "</span>" };
+  /** The encoder used for escaping the highlighted text. */
+  private static final Encoder HIGHLIGHT_ENCODER = new SimpleHTMLEncoder();
+  /** The number of characters of a summary fragment. */
+  private static final int SUMMARY_FRAGMENT_SIZE = 100;
+  /** The maximum number of fragments of a highlighted summary. */
+  private static final int SUMMARY_FRAGMENT_COUNT = 3;
 
   /** The logger for this class */
   private static Logger mLog = Logger.getLogger(SearchResultsImpl.class);
@@ -127,9 +164,8 @@ public class SearchResultsImpl implements SearchResults {
 
     long startTime = System.currentTimeMillis();
     ArrayList<String> groupsArr = new ArrayList<String>();
-    IndexSearcherManager[] indexSearcherManagers = new IndexSearcherManager[indexConfigs.length];
-    IndexSearcher[] searchers = new IndexSearcher[indexConfigs.length];
-    IndexReader[] readerArray = new IndexReader[indexConfigs.length];
+
+    mHitFieldSelector = new HitFieldSelector();
 
     mQueryText = SearchToolkit.getSearchQuery(request);
     mLog.debug("Initial Query: " + mQueryText);
@@ -139,7 +175,6 @@ public class SearchResultsImpl implements SearchResults {
     BooleanQuery mimeQuery = new BooleanQuery();
     queryText = removeMimetypeQuery(mQueryText, mimeQuery);
 
-    try {
     // If there is at least on index
     if (indexConfigs.length >= 1) {
 
@@ -155,38 +190,21 @@ public class SearchResultsImpl implements SearchResults {
           RegainToolkit.checkGroupArray(accessController, groupArr);
           groupsArr.addAll(Arrays.asList(groupArr));
         }
-        // build composed result: all groups over all indeces the user has the rights.
-        // find the IndexSearcherManager for every index
-        indexSearcherManagers[i] = IndexSearcherManager.getInstance(indexConfigs[i].getDirectory());
-
       }
 
       String[] allGroups = groupsArr.toArray(new String[0]);
 
-      // Decide whether to use IndexSearcher (only one index) or MultiSearcher
-      if (indexSearcherManagers.length == 1) {
-        //System.out.println("SingleSearcher");
-        mIndexSearcher = indexSearcherManagers[0].getIndexSearcher();
-        mAnalyzer = indexSearcherManagers[0].getAnalyzer();
-        mIndexName = indexConfigs[0].getName();
-        readerArray[0] = mIndexSearcher.getIndexReader();
-        mMultiReader = new MultiReader(readerArray, false);
+      // Pin the searchers of all indexes until the request is finished, so
+      // the query and the rendering of the hits see the same index
+      mSearchSession = new SearchSession(indexConfigs);
+      request.closeAtRequestEnd(mSearchSession);
 
+      mIndexSearcher = mSearchSession.getIndexSearcher();
+      mMultiReader = mSearchSession.getIndexReader();
+      mAnalyzer = mSearchSession.getAnalyzer();
+      if (indexConfigs.length == 1) {
+        mIndexName = indexConfigs[0].getName();
       } else {
-        // Collect all IndexSearchers and instantiate a MultiSearcher
-        for (int j = 0; j < indexSearcherManagers.length; j++) {
-          searchers[j] = indexSearcherManagers[j].getIndexSearcher();
-          readerArray[j] = searchers[j].getIndexReader();
-        }
-        mMultiReader = new MultiReader(readerArray, false);
-
-        if (indexSearcherManagers[0] != null) {
-          indexSearcherManagers[0].releaseIndexSearcher(mIndexSearcher);
-        }
-        mIndexSearcher = new IndexSearcher(mMultiReader);
-        // get the 'first' analyzer (in fact it is a random choice)
-        // All indexes has to be build with the same analyzer
-        mAnalyzer = indexSearcherManagers[0].getAnalyzer();
         mIndexName = "multiindex";
       }
 
@@ -251,10 +269,21 @@ public class SearchResultsImpl implements SearchResults {
           SortingOption sortingOption = new SortingOption(request.getParameter("order"));
           Sort sort = new Sort(sortingOption.getSortField());
           mLog.debug("Sort by:" + sortingOption.toString());
+          if (!sortingOption.getSortFieldName().equals(SortingOption.RELEVANCE)) {
+            // The list tag shows the content of the sort field
+            mHitFieldSelector.addField(sortingOption.getSortFieldName());
+          }
 
           topDocsCollector = TopFieldCollector.create(sort, 10000, true, true, true, false);
 
-          mIndexSearcher.search(mQuery, topDocsCollector);
+          FacetOption[] facetOptionArr = mIndexConfig.getFacetOptions();
+          if (facetOptionArr != null && facetOptionArr.length > 0) {
+            // Count the facets in the same pass over the hits
+            mFacetCollector = new FacetCollector(topDocsCollector, facetOptionArr);
+            mIndexSearcher.search(mQuery, mFacetCollector);
+          } else {
+            mIndexSearcher.search(mQuery, topDocsCollector);
+          }
           hitScoreDocs = topDocsCollector.topDocs().scoreDocs;
 
         } catch (IOException exc) {
@@ -275,14 +304,6 @@ public class SearchResultsImpl implements SearchResults {
     } else {
       // no index given
     }
-    } finally {
-      for (int i = 0; i < indexSearcherManagers.length; i++)
-      {
-        if (indexSearcherManagers[i] != null) {
-          indexSearcherManagers[i].releaseIndexSearcher(searchers[i]);
-        }
-      }
-    }
 
     mSearchTime = (int) (System.currentTimeMillis() - startTime);
 
@@ -417,6 +438,9 @@ public class SearchResultsImpl implements SearchResults {
   /**
    * Gets the document of one hit. For holding the transformed documents we use
    * a lazy list.
+   * <p>
+   * Only the fields registered by {@link #addHitField(String)} are read
+   * immediately, all other fields are loaded lazily when they are accessed.
    *
    * @param index The index of the hit.
    * @return the document of one hit.
@@ -432,7 +456,7 @@ public class SearchResultsImpl implements SearchResults {
       // The document is empty, so it's created by the factory. Replace it with the real one
       // at this position
       if (currDoc.getFields().isEmpty()) {
-        lazyHitList.set(index, mIndexSearcher.doc(hitScoreDocs[index].doc));
+        lazyHitList.set(index, mIndexSearcher.doc(hitScoreDocs[index].doc, mHitFieldSelector));
       }
     } catch (Exception ex) {
       throw new RegainException("Error while accessing index", ex);
@@ -441,6 +465,17 @@ public class SearchResultsImpl implements SearchResults {
 
   }
 
+  /**
+   * Registers a stored field that is needed to render the hits of the current
+   * page.
+   *
+   * @param fieldName The name of the field.
+   */
+  @Override
+  public void addHitField(String fieldName) {
+    mHitFieldSelector.addField(fieldName);
+  }
+
   /**
    * Writes a changed document back to the list.
    *
@@ -599,26 +634,17 @@ public class SearchResultsImpl implements SearchResults {
   @Override
   public void highlightHitDocument(int index) throws RegainException {
 
-    IndexSearcher searcher = null;
-    IndexSearcherManager manager = null;
     try {
-      manager = IndexSearcherManager.getInstance(mIndexConfig.getDirectory());
-      searcher = manager.getIndexSearcher();
-      // The highlighter needs a rewritten query to work with wildcard and fuzzy queries
-      Query rewrittenQuery = searcher.rewrite(mQuery);
-      QueryScorer queryScorer = new QueryScorer(rewrittenQuery);
-      // End added by Anders
+      prepareHighlighting();
 
-      Highlighter highlighter = new Highlighter(
-              new SimpleHTMLFormatter("<span class=\"highlight\">", "</span>"), queryScorer);
+      IndexReader reader = mIndexSearcher.getIndexReader();
+      int docId = hitScoreDocs[index].doc;
 
       // Remark: the summary is at this point not a summary. It contains the
       // first n characters from the document. n is configurable (default: 250000)
       // We transform this summary into
       // a) a summary matching the search terms (highlighting)
       // b) and a shortend summary (200 characters)
-//      int docId = hitScoreDocs[index].doc;
-
       Document document = getHitDocument(index);
       String text = SearchToolkit.getCompressedFieldValue(document, "summary");
 
@@ -627,42 +653,66 @@ public class SearchResultsImpl implements SearchResults {
         String resSummary = RegainToolkit.createSummaryFromContent(text, 200);
         document.removeField("summary");
         if (resSummary != null) {
-          //System.out.println("resSummary " + resSummary);
           document.add(new Field("summary", resSummary, Field.Store.NO, Field.Index.NOT_ANALYZED));
           document.add(new Field("summary", CompressionTools.compressString(resSummary)));
-
         }
 
-        String resHighlSummary = null;
-        // Remove 'html', this works the same way as PageResponse.printNoHTML()
-        text = RegainToolkit.replace(text, "<", "&lt;");
-        text = RegainToolkit.replace(text, ">", "&gt;");
-
-        TokenStream tokenStream = mAnalyzer.tokenStream("content",
-                new StringReader(text));
         // Get 3 best fragments and seperate with a " ... "
-        resHighlSummary = highlighter.getBestFragments(tokenStream, text, 3, " ... ");
+        // The crawler stored the offsets of the terms
+        // -> Only the matching terms have to be looked at
+        mSummaryFragmentsBuilder.setFieldValue(text);
+        String[] fragmentArr = mVectorHighlighter.getBestFragments(mFieldQuery,
+            reader, docId, "summary", SUMMARY_FRAGMENT_SIZE, SUMMARY_FRAGMENT_COUNT,
+            new SimpleFragListBuilder(), mSummaryFragmentsBuilder,
+            HIGHLIGHT_PRE_TAGS, HIGHLIGHT_POST_TAGS, HIGHLIGHT_ENCODER);
+        String resHighlSummary = null;
+        if (fragmentArr != null && fragmentArr.length > 0) {
+          StringBuilder buffer = new StringBuilder();
+          for (int i = 0; i < fragmentArr.length; i++) {
+            if (i > 0) {
+              buffer.append(" ... ");
+            }
+            buffer.append(fragmentArr[i]);
+          }
+          resHighlSummary = buffer.toString();
+        } else if (! hasTermVector(reader, docId, "summary")) {
+          // Old index without term vectors -> Analyze the text again
+          TokenStream tokenStream = mAnalyzer.tokenStream("content",
+                  new StringReader(text));
+          resHighlSummary = mHighlighter.getBestFragments(tokenStream, text,
+              SUMMARY_FRAGMENT_COUNT, " ... ");
+          if (resHighlSummary != null && resHighlSummary.length() == 0) {
+            resHighlSummary = null;
+          }
+        }
 
         if (resHighlSummary != null) {
-          //System.out.println("Highlighted summary: " + resHighlSummary);
           // write the result back to the document in a new field
           document.add(new Field("highlightedSummary", resHighlSummary, Field.Store.NO, Field.Index.NOT_ANALYZED));
           document.add(new Field("highlightedSummary", CompressionTools.compressString(resHighlSummary)));
         }
       }
+
       // Highlight the title
       text = document.get("title");
       String resHighlTitle = null;
       if (text != null) {
-        TokenStream tokenStream = mAnalyzer.tokenStream("content",
-                new StringReader(text));
-        // Get the best fragment
-        resHighlTitle = highlighter.getBestFragment(tokenStream, text);
+        // Use the whole title as fragment
+        resHighlTitle = mVectorHighlighter.getBestFragment(mFieldQuery,
+            reader, docId, "title", text.length(), new SingleFragListBuilder(),
+            new SimpleFragmentsBuilder(),
+            HIGHLIGHT_PRE_TAGS, HIGHLIGHT_POST_TAGS, HIGHLIGHT_ENCODER);
+        if (resHighlTitle == null && ! hasTermVector(reader, docId, "title")) {
+          // Old index without term vectors -> Analyze the title again
+          TokenStream tokenStream = mAnalyzer.tokenStream("content",
+                  new StringReader(text));
+          // Get the best fragment
+          resHighlTitle = mHighlighter.getBestFragment(tokenStream, text);
+        }
       }
 
       if (resHighlTitle != null) {
         // write the result back to the document in a new field
-        //System.out.println("Highlighted title: " + resHighlTitle);
         document.add(new Field("highlightedTitle", resHighlTitle,
                 Field.Store.YES, Field.Index.NOT_ANALYZED));
 
@@ -670,8 +720,6 @@ public class SearchResultsImpl implements SearchResults {
       // write back the transformed document
       setHitDocument(index, document);
 
-      //System.out.println("The document: " + hitDocs.get(index).toString());
-
     } catch (org.apache.lucene.index.CorruptIndexException exCorr) {
       throw new RegainException("Error while searching pattern: " + mQueryText, exCorr);
 
@@ -680,13 +728,75 @@ public class SearchResultsImpl implements SearchResults {
 
     } catch (IOException exIO) {
       throw new RegainException("Error while searching pattern: " + mQueryText, exIO);
+    }
 
-    } finally {
-      if (manager != null) {
-        manager.releaseIndexSearcher(searcher);
-      }
+  }
+
+
+  /**
+   * Creates the highlighters and the rewritten query. This is done only once
+   * for all hits of a search.
+   *
+   * @throws IOException If rewriting the query failed.
+   */
+  private void prepareHighlighting() throws IOException {
+    if (mHighlighter == null) {
+      // The highlighter needs a rewritten query to work with wildcard and fuzzy queries
+      // NOTE: We use the searcher of the search session, so the query is
+      //       rewritten against the same index the hits come from
+      Query rewrittenQuery = mIndexSearcher.rewrite(mQuery);
+      mHighlighter = new Highlighter(
+              new SimpleHTMLFormatter(HIGHLIGHT_PRE_TAGS[0], HIGHLIGHT_POST_TAGS[0]),
+              HIGHLIGHT_ENCODER, new QueryScorer(rewrittenQuery));
+
+      // NOTE: The query fields are ignored (fieldMatch = false), because we
+      //       highlight the summary and the title for a query on the content
+      mVectorHighlighter = new FastVectorHighlighter(true, false);
+      mFieldQuery = mVectorHighlighter.getFieldQuery(mQuery, mIndexSearcher.getIndexReader());
+      mSummaryFragmentsBuilder = new PresetFieldFragmentsBuilder();
     }
+  }
 
+
+  /**
+   * Checks whether a field of a document has a term vector with offsets.
+   * <p>
+   * This is only called if the FastVectorHighlighter found nothing, so the
+   * term vector is only read a second time for hits that don't match in the
+   * field.
+   *
+   * @param reader The reader to read the term vector from.
+   * @param docId The ID of the document.
+   * @param fieldName The name of the field.
+   * @return Whether the field has a term vector with offsets.
+   * @throws IOException If reading the term vector failed.
+   */
+  private boolean hasTermVector(IndexReader reader, int docId, String fieldName)
+    throws IOException
+  {
+    TermFreqVector vector = reader.getTermFreqVector(docId, fieldName);
+    return (vector instanceof TermPositionVector)
+      && (vector.size() == 0 || ((TermPositionVector) vector).getOffsets(0) != null);
+  }
+
+  /**
+   * Gets the values of a facet together with the number of hits having them.
+   *
+   * @param facetName The name of the facet.
+   * @return The values sorted by count (highest count first) or
+   *         <code>null</code> if the facet is not configured.
+   * @throws RegainException If getting the values failed.
+   */
+  @Override
+  public FacetValue[] getFacetValues(String facetName) throws RegainException {
+    if (mFacetCollector == null) {
+      if (mIndexConfig != null && mIndexConfig.getFacetOption(facetName) != null) {
+        // The facet is configured, but there was no query -> no hits
+        return new FacetValue[0];
+      }
+      return null;
+    }
+    return mFacetCollector.getFacetValues(facetName);
   }
 
   /**
@@ -0,0 +1,147 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.search.sharedlib;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.search.SearchConstants;
+import net.sf.regain.search.SearchToolkit;
+import net.sf.regain.search.config.IndexConfig;
+import net.sf.regain.search.results.FacetOption;
+import net.sf.regain.search.results.FacetValue;
+import net.sf.regain.search.results.SearchResults;
+import net.sf.regain.util.sharedtag.PageRequest;
+import net.sf.regain.util.sharedtag.PageResponse;
+import net.sf.regain.util.sharedtag.SharedTag;
+
+/**
+ * Shows the values of a facet together with the number of hits having them.
+ * Every value is a link that restricts the current search to the hits having
+ * this value.
+ * <p>
+ * The facets are configured in the <code>facets</code> section of the
+ * SearchConfiguration.xml.
+ * <p>
+ * Tag Parameters:
+ * <ul>
+ * <li><code>name</code>: The name of the facet to show.</li>
+ * <li><code>maxValues</code>: The maximum number of values to show
+ *     (default: 10).</li>
+ * <li><code>targetPage</code>: The URL of the page where the links should point to.</li>
+ * <li><code>class</code>: The style sheet class to use for the list.</li>
+ * </ul>
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class FacetTag extends SharedTag implements SearchConstants {
+
+  /** The default maximum number of values to show. */
+  private static final int DEFAULT_MAX_VALUES = 10;
+
+  /** The default page the links should point to. */
+  private static final String DEFAULT_TARGET_PAGE = "SearchOutput.jsp";
+
+
+  /**
+   * Called when the parser reaches the end tag.
+   *
+   * @param request The page request.
+   * @param response The page response.
+   * @throws RegainException If there was an exception.
+   */
+  @Override
+  public void printEndTag(PageRequest request, PageResponse response)
+    throws RegainException
+  {
+    String facetName = getParameter("name", true);
+    int maxValues = getParameterAsInt("maxValues", DEFAULT_MAX_VALUES);
+
+    SearchResults results = SearchToolkit.getSearchResults(request);
+    FacetValue[] valueArr = results.getFacetValues(facetName);
+    if (valueArr == null) {
+      throw new RegainException("Facet '" + facetName + "' is not configured");
+    }
+    if (valueArr.length == 0) {
+      return;
+    }
+
+    IndexConfig[] configArr = SearchToolkit.getIndexConfigArr(request);
+    FacetOption facet = configArr[0].getFacetOption(facetName);
+
+    String query = SearchToolkit.getSearchQuery(request);
+    String styleSheetClass = getParameter("class");
+    if (styleSheetClass != null) {
+      response.print("<ul class=\"" + styleSheetClass + "\">");
+    } else {
+      response.print("<ul>");
+    }
+    for (int i = 0; i < valueArr.length && i < maxValues; i++) {
+      String value = valueArr[i].getValue();
+      String drillDownQuery = query + " " + facet.createDrillDownQuery(value);
+
+      response.print("<li>");
+      printLink(request, response, drillDownQuery, value);
+      response.print(" (" + valueArr[i].getCount() + ")</li>");
+    }
+    response.print("</ul>");
+  }
+
+
+  /**
+   * Prints the HTML for a hyperlink restricting the search to a facet value.
+   *
+   * @param request The page request.
+   * @param response The page response.
+   * @param query The restricted search query.
+   * @param value The facet value to use as link text.
+   * @throws RegainException If printing failed.
+   */
+  private void printLink(PageRequest request, PageResponse response,
+    String query, String value)
+    throws RegainException
+  {
+    String targetPage = getParameter("targetPage", DEFAULT_TARGET_PAGE);
+    String encoding = response.getEncoding();
+    response.print("<a href=\"" + targetPage + "?query="
+        + RegainToolkit.urlEncode(query, encoding));
+
+    String[] indexNameArr = request.getParameters("index");
+    if (indexNameArr != null) {
+      for (int i = 0; i < indexNameArr.length; i++) {
+        response.print("&index=" + RegainToolkit.urlEncode(indexNameArr[i], encoding));
+      }
+    }
+    int maxResults = request.getParameterAsInt(PARAM_MAX_RESULTS, SearchConstants.DEFAULT_MAX_RESULTS);
+    if (maxResults != SearchConstants.DEFAULT_MAX_RESULTS) {
+      response.print("&maxresults=" + maxResults);
+    }
+    String order = request.getParameter("order");
+    if (order != null && order.length() > 0) {
+      response.print("&order=" + RegainToolkit.urlEncode(order, encoding));
+    }
+    response.print("\">");
+
+    // Undo the encoding of spaces done by Crawler.addJob
+    response.printNoHtml(RegainToolkit.replace(value, "%20", " "));
+    response.print("</a>");
+  }
+
+}
@@ -20,6 +20,8 @@
  */
 package net.sf.regain.search.sharedlib;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.sf.regain.RegainException;
 import net.sf.regain.search.SearchConstants;
 import net.sf.regain.search.SearchToolkit;
@@ -52,11 +54,16 @@ import org.apache.lucene.document.Fieldable;
  */
 public class ListTag extends SharedTag implements SearchConstants {
 
-  /** The index of the currently generated result. */
-  private int mCurrentResult;
+  /** The number of list tags created so far. Used for naming the state. */
+  private static AtomicInteger mInstanceCount = new AtomicInteger();
 
-  /** The index of the last generated index on this page. */
-  private int mToResult;
+  /**
+   * The name of the context attribute holding the state of this tag. The tag
+   * instance is shared by all requests rendering the same page, so the state
+   * of the list generation is held in the request context.
+   */
+  private final String mStateAttributeName
+    = "ListTag.state." + mInstanceCount.incrementAndGet();
 
 
   /**
@@ -87,14 +94,16 @@ public class ListTag extends SharedTag implements SearchConstants {
 
       return SKIP_TAG_BODY;
     } else {
-      mCurrentResult = fromResult;
+      ListState state = new ListState();
+      state.mCurrentResult = fromResult;
 
-      mToResult = fromResult + maxResults - 1;
-      if (mToResult >= results.getHitCount()) {
-        mToResult = results.getHitCount() - 1;
+      state.mToResult = fromResult + maxResults - 1;
+      if (state.mToResult >= results.getHitCount()) {
+        state.mToResult = results.getHitCount() - 1;
       }
+      request.setContextAttribute(mStateAttributeName, state);
 
-      writeHitToAttributes(mCurrentResult, results, request);
+      writeHitToAttributes(state.mCurrentResult, results, request);
 
       return EVAL_TAG_BODY;
     }
@@ -116,6 +125,10 @@ public class ListTag extends SharedTag implements SearchConstants {
     boolean shouldHighlight = results.getShouldHighlight(hitIndex);
 
     try {
+      if (shouldHighlight) {
+        // The highlighter reads the title of every hit
+        results.addHitField("title");
+      }
       Document hit = results.getHitDocument(hitIndex);
       if (shouldHighlight) {
         results.highlightHitDocument(hitIndex);
@@ -167,11 +180,12 @@ public class ListTag extends SharedTag implements SearchConstants {
   public int printAfterBody(PageRequest request, PageResponse response)
     throws RegainException
   {
-    mCurrentResult++;
+    ListState state = (ListState) request.getContextAttribute(mStateAttributeName);
+    state.mCurrentResult++;
 
-    if (mCurrentResult <= mToResult) {
+    if (state.mCurrentResult <= state.mToResult) {
       SearchResults results = SearchToolkit.getSearchResults(request);
-      writeHitToAttributes(mCurrentResult, results, request);
+      writeHitToAttributes(state.mCurrentResult, results, request);
 
       return EVAL_TAG_BODY;
     } else {
@@ -179,4 +193,18 @@ public class ListTag extends SharedTag implements SearchConstants {
     }
   }
 
+
+  /**
+   * The state of the list generation for one request.
+   */
+  private static class ListState {
+
+    /** The index of the currently generated result. */
+    private int mCurrentResult;
+
+    /** The index of the last generated index on this page. */
+    private int mToResult;
+
+  }
+
 }
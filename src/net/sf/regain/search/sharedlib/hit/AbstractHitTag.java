@@ -22,6 +22,8 @@ package net.sf.regain.search.sharedlib.hit;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.search.SearchConstants;
+import net.sf.regain.search.SearchToolkit;
+import net.sf.regain.search.results.SearchResults;
 import net.sf.regain.util.sharedtag.PageRequest;
 import net.sf.regain.util.sharedtag.PageResponse;
 import net.sf.regain.util.sharedtag.SharedTag;
@@ -59,10 +61,35 @@ public abstract class AbstractHitTag extends SharedTag
 
     Integer hitIndex = (Integer) request.getContextAttribute(ATTR_CURRENT_HIT_INDEX);
 
+    // Tell the search results which fields we need, so they are loaded
+    // together with the next hits
+    String[] fieldNameArr = getHitFieldNames();
+    if (fieldNameArr != null) {
+      SearchResults results = SearchToolkit.getSearchResults(request);
+      for (int i = 0; i < fieldNameArr.length; i++) {
+        results.addHitField(fieldNameArr[i]);
+      }
+    }
+
     printEndTag(request, response, hit, hitIndex.intValue());
   }
 
 
+  /**
+   * Gets the names of the stored fields this tag reads from the hit document.
+   * <p>
+   * Fields that are not returned here are still available, but they are read
+   * from the index not until they are accessed.
+   *
+   * @return The names of the fields or <code>null</code> if the tag reads no
+   *         fields.
+   * @throws RegainException If getting the field names failed.
+   */
+  protected String[] getHitFieldNames() throws RegainException {
+    return null;
+  }
+
+
   /**
    * The template method.
    * <p>
@@ -33,6 +33,16 @@ import org.apache.lucene.document.Document;
  */
 public class CachedTag extends AbstractHitTag {
 
+  /**
+   * Gets the names of the stored fields this tag reads from the hit document.
+   *
+   * @return The names of the fields.
+   */
+  @Override
+  protected String[] getHitFieldNames() {
+    return new String[] { "content" };
+  }
+
   /**
    * Generates the tag.
    *
@@ -41,6 +41,17 @@ import org.apache.lucene.document.Document;
  */
 public class FieldTag extends AbstractHitTag {
 
+  /**
+   * Gets the names of the stored fields this tag reads from the hit document.
+   *
+   * @return The names of the fields.
+   * @throws RegainException If the field parameter is missing.
+   */
+  @Override
+  protected String[] getHitFieldNames() throws RegainException {
+    return new String[] { getParameter("field", true) };
+  }
+
   /**
    * Generates the tag.
    *
@@ -52,6 +52,16 @@ public class TypeiconTag extends AbstractHitTag {
   private static HashMap<String, Boolean> mExtensionAvailableMap = new HashMap<String, Boolean>();
 
 
+  /**
+   * Gets the names of the stored fields this tag reads from the hit document.
+   *
+   * @return The names of the fields.
+   */
+  @Override
+  protected String[] getHitFieldNames() {
+    return new String[] { "url" };
+  }
+
   /**
    * Generates the tag.
    *
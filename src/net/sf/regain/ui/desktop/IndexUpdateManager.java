@@ -31,6 +31,7 @@ import net.sf.regain.RegainToolkit;
 import net.sf.regain.crawler.Crawler;
 import net.sf.regain.crawler.config.CrawlerConfig;
 import net.sf.regain.crawler.config.XmlCrawlerConfig;
+import net.sf.regain.search.IndexSearcherManager;
 
 import org.apache.log4j.Logger;
 
@@ -222,6 +223,9 @@ public class IndexUpdateManager implements DesktopConstants {
           // Save the time when the index was last updated
           saveIndexLastUpdate();
 
+          // Let the search use the new index immediately
+          IndexSearcherManager.notifyIndexUpdate(config.getIndexDir());
+
           // Remove the needsupdate file
           NEEDSUPDATE_FILE.delete();
 
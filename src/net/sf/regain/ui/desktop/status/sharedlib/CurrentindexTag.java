@@ -26,6 +26,7 @@ import java.util.Date;
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
 import net.sf.regain.search.IndexSearcherManager;
+import net.sf.regain.search.SearchSession;
 import net.sf.regain.search.SearchToolkit;
 import net.sf.regain.search.config.IndexConfig;
 import net.sf.regain.ui.desktop.DesktopConstants;
@@ -81,12 +82,20 @@ public class CurrentindexTag extends SharedTag implements DesktopConstants {
       String sizeAsString = RegainToolkit.bytesToString(size, request.getLocale());
 
       // Get the document count
-      IndexSearcherManager manager = IndexSearcherManager.getInstance(config.getDirectory());
+      IndexSearcherManager manager = IndexSearcherManager.getInstance(config);
       int docCount = manager.getDocumentCount();
 
       // Print the results
-      response.print(localizer.msg("indexInfo", "Last update: {0}<br/>Size: {1}<br/>Document count: {2}",
-          lastUpdate, sizeAsString, docCount));
+      Object[] args = new Object[] {
+        lastUpdate,
+        sizeAsString,
+        docCount,
+        RegainToolkit.toTimeString(manager.getLastWarmUpDuration()),
+        SearchSession.getOpenSessionCount()
+      };
+      response.print(localizer.msg("indexInfo", "Last update: {0}<br/>" +
+            "Size: {1}<br/>Document count: {2}<br/>" +
+            "Last warm-up: {3}<br/>Open search sessions: {4}", args));
     } else {
       response.print(localizer.msg("noIndex", "There was no search index created so far."));
     }
@@ -0,0 +1,250 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.ui.desktop.status.sharedlib;
+
+import java.util.Locale;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.Crawler;
+import net.sf.regain.crawler.Profiler;
+import net.sf.regain.crawler.document.PreparatorStats;
+import net.sf.regain.ui.desktop.IndexUpdateManager;
+import net.sf.regain.util.io.Localizer;
+import net.sf.regain.util.io.MultiLocalizer;
+import net.sf.regain.util.sharedtag.PageRequest;
+import net.sf.regain.util.sharedtag.PageResponse;
+import net.sf.regain.util.sharedtag.SharedTag;
+
+/**
+ * Generates the live statistics of the preparators of the currently running
+ * index update: The throughput, the error rate and the slowest documents of
+ * each preparator, as well as the number of waiting jobs and documents.
+ * <p>
+ * Tag parameters:
+ * <ul>
+ * <li><code>format</code>: <code>html</code> for a table (default) or
+ *     <code>json</code> for a JSON object.</li>
+ * </ul>
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class PreparatorsTag extends SharedTag {
+
+  /** The MultiLocalizer for this class. */
+  private static MultiLocalizer mMultiLocalizer = new MultiLocalizer(PreparatorsTag.class);
+
+  /**
+   * Called when the parser reaches the end tag.
+   *
+   * @param request The page request.
+   * @param response The page response.
+   * @throws RegainException If there was an exception.
+   */
+  @Override
+  public void printEndTag(PageRequest request, PageResponse response)
+    throws RegainException
+  {
+    Crawler crawler = IndexUpdateManager.getInstance().getCurrentCrawler();
+    String format = getParameter("format", "html");
+    if (format.equals("json")) {
+      printJson(crawler, response);
+    } else if (format.equals("html")) {
+      printHtml(crawler, request, response);
+    } else {
+      throw new RegainException("Parameter format of tag " + getTagName()
+          + " must be html or json: '" + format + "'");
+    }
+  }
+
+
+  /**
+   * Prints the statistics as HTML table.
+   *
+   * @param crawler The running crawler. May be <code>null</code>.
+   * @param request The page request.
+   * @param response The page response.
+   * @throws RegainException If printing failed.
+   */
+  private void printHtml(Crawler crawler, PageRequest request, PageResponse response)
+    throws RegainException
+  {
+    Localizer localizer = mMultiLocalizer.getLocalizer(request.getLocale());
+    if (crawler == null) {
+      response.print(localizer.msg("noIndexUpdate", "Currently is no index update running."));
+      return;
+    }
+
+    Locale locale = request.getLocale();
+    Object[] args = new Object[] {
+      crawler.getPendingJobCount(),
+      formatQueueDepth(crawler.getWriterQueueDepth())
+    };
+    response.print(localizer.msg("queues", "Waiting jobs: {0}<br/>"
+        + "Documents waiting for the index: {1}", args));
+
+    response.print("<table><tr><th>"
+        + localizer.msg("preparator", "Preparator") + "</th><th>"
+        + localizer.msg("docs", "Documents") + "</th><th>"
+        + localizer.msg("errorRate", "Errors") + "</th><th>"
+        + localizer.msg("docsPerSec", "Documents/sec") + "</th><th>"
+        + localizer.msg("dataRate", "Data rate") + "</th><th>"
+        + localizer.msg("p95", "95% within") + "</th><th>"
+        + localizer.msg("slowestDocs", "Slowest documents") + "</th></tr>");
+
+    PreparatorStats[] statsArr = crawler.getPreparatorStats();
+    for (int i = 0; i < statsArr.length; i++) {
+      PreparatorStats stats = statsArr[i];
+      if ((stats.getDocCount() == 0) && (stats.getFailedDocCount() == 0)) {
+        continue;
+      }
+
+      response.print("<tr><td>");
+      response.printNoHtml(getShortName(stats.getPreparatorName()));
+      response.print("</td><td>" + stats.getDocCount()
+          + "</td><td>" + stats.getFailedDocCount() + " ("
+          + RegainToolkit.toPercentString(stats.getErrorRate())
+          + ")</td><td>" + String.format(locale, "%.2f", stats.getDocsPerSecond())
+          + "</td><td>" + RegainToolkit.bytesToString((long) stats.getBytesPerSecond(), locale)
+          + "/sec</td><td>" + RegainToolkit.toTimeString((long) stats.getP95Millis())
+          + "</td><td>");
+      Profiler.SlowMeasure[] slowestArr = stats.getSlowestDocs();
+      for (int j = 0; j < slowestArr.length; j++) {
+        if (j > 0) {
+          response.print("<br/>");
+        }
+        response.print(RegainToolkit.toTimeString(slowestArr[j].getNanos() / 1000000L) + ": ");
+        response.printNoHtml(slowestArr[j].getItem());
+      }
+      response.print("</td></tr>");
+    }
+    response.print("</table>");
+  }
+
+
+  /**
+   * Prints the statistics as JSON object.
+   *
+   * @param crawler The running crawler. May be <code>null</code>.
+   * @param response The page response.
+   * @throws RegainException If printing failed.
+   */
+  private void printJson(Crawler crawler, PageResponse response)
+    throws RegainException
+  {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"running\":").append(crawler != null);
+    if (crawler != null) {
+      json.append(",\"pendingJobs\":").append(crawler.getPendingJobCount());
+      json.append(",\"writerQueueDepth\":").append(crawler.getWriterQueueDepth());
+      json.append(",\"preparators\":[");
+
+      PreparatorStats[] statsArr = crawler.getPreparatorStats();
+      for (int i = 0; i < statsArr.length; i++) {
+        PreparatorStats stats = statsArr[i];
+        if (i > 0) {
+          json.append(',');
+        }
+        json.append("{\"name\":");
+        appendJsonString(json, stats.getPreparatorName());
+        json.append(",\"docs\":").append(stats.getDocCount());
+        json.append(",\"failedDocs\":").append(stats.getFailedDocCount());
+        json.append(",\"errorRate\":").append(formatNumber(stats.getErrorRate()));
+        json.append(",\"docsPerSec\":").append(formatNumber(stats.getDocsPerSecond()));
+        json.append(",\"bytesPerSec\":").append(formatNumber(stats.getBytesPerSecond()));
+        json.append(",\"totalMillis\":").append(stats.getTotalTime());
+        json.append(",\"p95Millis\":").append(formatNumber(stats.getP95Millis()));
+        json.append(",\"slowestDocs\":[");
+        Profiler.SlowMeasure[] slowestArr = stats.getSlowestDocs();
+        for (int j = 0; j < slowestArr.length; j++) {
+          if (j > 0) {
+            json.append(',');
+          }
+          json.append("{\"url\":");
+          appendJsonString(json, slowestArr[j].getItem());
+          json.append(",\"millis\":").append(formatNumber(slowestArr[j].getNanos() / 1000000.0));
+          json.append('}');
+        }
+        json.append("]}");
+      }
+      json.append(']');
+    }
+    json.append('}');
+
+    response.rawPrint(json.toString());
+  }
+
+
+  /**
+   * Formats the depth of the index writer queue.
+   *
+   * @param depth The queue depth or -1 if there is no queue.
+   * @return The formatted depth.
+   */
+  private String formatQueueDepth(int depth) {
+    return (depth < 0) ? "-" : String.valueOf(depth);
+  }
+
+
+  /**
+   * Gets the short name of a preparator.
+   *
+   * @param className The class name of the preparator.
+   * @return The class name without the package.
+   */
+  private String getShortName(String className) {
+    return className.substring(className.lastIndexOf('.') + 1);
+  }
+
+
+  /**
+   * Formats a number for JSON.
+   *
+   * @param number The number to format.
+   * @return The number with at most three decimals.
+   */
+  private String formatNumber(double number) {
+    return String.format(Locale.ENGLISH, "%.3f", number);
+  }
+
+
+  /**
+   * Appends a string as JSON string literal.
+   *
+   * @param json The buffer to append to.
+   * @param text The string to append.
+   */
+  private void appendJsonString(StringBuilder json, String text) {
+    json.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if ((c == '"') || (c == '\\')) {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", Integer.valueOf(c)));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+}
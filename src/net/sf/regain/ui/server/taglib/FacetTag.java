@@ -0,0 +1,84 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.ui.server.taglib;
+
+import net.sf.regain.util.sharedtag.taglib.SharedTagWrapperTag;
+
+/**
+ * Taglib wrapper for the shared facet tag.
+ *
+ * @see net.sf.regain.search.sharedlib.FacetTag
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class FacetTag extends SharedTagWrapperTag {
+
+  /** The serial version UID. */
+  private static final long serialVersionUID = -5007417300514283340L;
+
+  /**
+   * Creates a new instance of FacetTag.
+   */
+  public FacetTag() {
+    super(new net.sf.regain.search.sharedlib.FacetTag());
+  }
+
+
+  /**
+   * Sets the name of the facet to show.
+   *
+   * @param name The name of the facet to show.
+   */
+  public void setName(String name) {
+    getNestedTag().setParameter("name", name);
+  }
+
+
+  /**
+   * Sets the maximum number of values to show.
+   *
+   * @param maxValues The maximum number of values to show.
+   */
+  public void setMaxValues(String maxValues) {
+    getNestedTag().setParameter("maxValues", maxValues);
+  }
+
+
+  /**
+   * Sets the URL of the page where the links should point to.
+   *
+   * @param targetPage The URL of the page where the links should point to.
+   */
+  public void setTargetPage(String targetPage) {
+    getNestedTag().setParameter("targetPage", targetPage);
+  }
+
+
+  /**
+   * Sets the style sheet class to use for the list.
+   *
+   * @param styleSheetClass The style sheet class to use for the list.
+   */
+  public void setClass(String styleSheetClass) {
+    getNestedTag().setParameter("class", styleSheetClass);
+  }
+
+}
@@ -67,7 +67,7 @@ public class MultiLocalizer {
    * @param locale The locale to get the localizer for.
    * @return The localizer.
    */
-  public Localizer getLocalizer(Locale locale) {
+  public synchronized Localizer getLocalizer(Locale locale) {
     Localizer localizer = mLocalizerHash.get(locale);
     if (localizer == null) {
       localizer = mFactory.createLocalizer(locale);
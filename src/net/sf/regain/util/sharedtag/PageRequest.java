@@ -20,13 +20,19 @@
  */
 package net.sf.regain.util.sharedtag;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Locale;
 
 import net.sf.regain.RegainException;
 
+import org.apache.log4j.Logger;
+
 /**
  * A page request.
  *
@@ -34,6 +40,13 @@ import net.sf.regain.RegainException;
  */
 public abstract class PageRequest {
 
+  /** The logger for this class. */
+  private static Logger mLog = Logger.getLogger(PageRequest.class);
+
+  /** The resources to close when the request is finished. May be null. */
+  private ArrayList<Closeable> mRequestResourceList;
+
+
   /**
    * Gets the request parameter with the given name that was given to the page
    * via GET or POST.
@@ -248,4 +261,54 @@ public abstract class PageRequest {
    */
   public abstract File getWorkingDir() throws RegainException;
 
+
+
+  /**
+   * Registers a resource that has to be closed when the request is finished.
+   * <p>
+   * Use this for resources that must live as long as the page is generated
+   * (e.g. the searchers of the current search results).
+   *
+   * @param resource The resource to close at the end of the request.
+   */
+  public void closeAtRequestEnd(Closeable resource) {
+    if (mRequestResourceList == null) {
+      mRequestResourceList = new ArrayList<Closeable>();
+    }
+    mRequestResourceList.add(resource);
+  }
+
+
+  /**
+   * Closes all resources registered by {@link #closeAtRequestEnd(Closeable)}.
+   * <p>
+   * Is called by the shared tag engine when the request is finished.
+   */
+  public void closeRequestResources() {
+    closeResources(mRequestResourceList);
+    mRequestResourceList = null;
+  }
+
+
+  /**
+   * Closes a list of resources. Errors are logged, so all resources get
+   * closed even if closing one of them fails.
+   *
+   * @param resourceList The resources to close. May be null.
+   */
+  public static void closeResources(List<Closeable> resourceList) {
+    if (resourceList == null) {
+      return;
+    }
+
+    for (int i = 0; i < resourceList.size(); i++) {
+      try {
+        resourceList.get(i).close();
+      }
+      catch (IOException exc) {
+        mLog.error("Closing request resource failed", exc);
+      }
+    }
+  }
+
 }
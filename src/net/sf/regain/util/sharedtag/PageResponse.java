@@ -82,6 +82,20 @@ public abstract class PageResponse implements Printer {
    */
   public abstract void setHeaderAsDate(String name, long value) throws RegainException;
 
+  /**
+   * Sets the HTTP status code of the response. Must be called before anything
+   * is sent.
+   * <p>
+   * The default implementation does not support setting the status code.
+   *
+   * @param statusCode The status code to set (e.g. 206).
+   * @throws RegainException If setting the status code failed.
+   */
+  public void setStatus(int statusCode) throws RegainException {
+    throw new RegainException("Setting the HTTP status is not supported by "
+        + getClass().getName());
+  }
+
   /**
    * Gets the OutputStream to use for sending binary data.
    *
@@ -120,6 +134,24 @@ public abstract class PageResponse implements Printer {
    */
   public abstract void rawPrint(String text) throws RegainException;
 
+  /**
+   * Prints static text that was already encoded. Responses that write bytes
+   * may write the encoded text directly instead of encoding the text again.
+   * <p>
+   * The default implementation prints the text using
+   * {@link #rawPrint(String)}.
+   *
+   * @param text The text to print.
+   * @param encodedText The text encoded with <code>encoding</code>.
+   * @param encoding The encoding used for <code>encodedText</code>.
+   * @throws RegainException If printing failed.
+   */
+  public void rawPrint(String text, byte[] encodedText, String encoding)
+    throws RegainException
+  {
+    rawPrint(text);
+  }
+
   /**
    * Prints text to a page and escapes all HTML tags.
    *
@@ -49,10 +49,14 @@ public abstract class SharedTag {
   private Map<String, String> mParamMap;
 
   /**
-   * The current Localizer. Is <code>null</code> when the is currently not
-   * executed.
+   * The Localizer of the request the current thread executes this tag for. Is
+   * <code>null</code> when the tag is currently not executed by the thread.
+   * <p>
+   * The tag instances are shared by all requests rendering the same page, so
+   * the Localizer must not be held in a plain field. The Localizer itself is
+   * kept in the context of the request.
    */
-  private Localizer mLocalizer;
+  private ThreadLocal<Localizer> mLocalizer = new ThreadLocal<Localizer>();
 
 
   /**
@@ -241,8 +245,8 @@ public abstract class SharedTag {
     throws RegainException
   {
     // Get the Localizer
-    mLocalizer = (Localizer) request.getContextAttribute("Localizer");
-    if (mLocalizer == null) {
+    Localizer localizer = (Localizer) request.getContextAttribute("Localizer");
+    if (localizer == null) {
 
       // Get the locale
       Locale locale = request.getLocale();
@@ -251,15 +255,29 @@ public abstract class SharedTag {
         locale = Locale.ENGLISH;
       }
 
-      // Init the MultiLocalizer if nessesary
-      if (mMultiLocalizer == null) {
-        mMultiLocalizer = new MultiLocalizer(request.getResourceBaseUrl(), "msg");
-      }
-
       // Get the localizer
-      mLocalizer = mMultiLocalizer.getLocalizer(locale);
-      request.setContextAttribute("Localizer", mLocalizer);
+      localizer = getMultiLocalizer(request).getLocalizer(locale);
+      request.setContextAttribute("Localizer", localizer);
+    }
+    mLocalizer.set(localizer);
+  }
+
+
+  /**
+   * Gets the MultiLocalizer that holds the Localizers for the tags. Inits the
+   * MultiLocalizer if nessesary.
+   *
+   * @param request The request to get the resource base URL from.
+   * @return The MultiLocalizer.
+   * @throws RegainException If getting the resource base URL failed.
+   */
+  private static synchronized MultiLocalizer getMultiLocalizer(PageRequest request)
+    throws RegainException
+  {
+    if (mMultiLocalizer == null) {
+      mMultiLocalizer = new MultiLocalizer(request.getResourceBaseUrl(), "msg");
     }
+    return mMultiLocalizer;
   }
 
 
@@ -269,7 +287,7 @@ public abstract class SharedTag {
    * Is called by the shared tag engine after the end tag was processed.
    */
   public final void unsetContext() {
-    mLocalizer = null;
+    mLocalizer.remove();
   }
 
 
@@ -284,7 +302,7 @@ public abstract class SharedTag {
    * @return The localizer.
    */
   protected Localizer getLocalizer() {
-    return mLocalizer;
+    return mLocalizer.get();
   }
 
 
@@ -315,7 +333,7 @@ public abstract class SharedTag {
 
       // Append the localized message
       String key = text.substring(startPos + 5, endPos);
-      buffer.append(mLocalizer.msg(key, "?"));
+      buffer.append(getLocalizer().msg(key, "?"));
     }
 
     if (buffer != null) {
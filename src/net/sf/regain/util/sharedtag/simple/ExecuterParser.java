@@ -24,24 +24,34 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.regain.RegainException;
 import net.sf.regain.RegainToolkit;
 import net.sf.regain.ui.desktop.DesktopConstants;
 import net.sf.regain.util.sharedtag.SharedTag;
 
+import org.apache.log4j.Logger;
 import org.apache.regexp.RE;
 import org.apache.regexp.RESyntaxException;
 
 /**
  * Parses JSP code and creates an Executer tree.
+ * <p>
+ * The parsed Executer trees are cached. A cached tree is used as long as
+ * neither the JSP file nor one of its included files was changed.
  *
  * @see Executer
  * @author Til Schneider, www.murfman.de
  */
 public class ExecuterParser implements DesktopConstants {
 
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(ExecuterParser.class);
+
   /** The regex that matches a include tag. */
   private RE mIncludeRegex;
 
@@ -57,6 +67,12 @@ public class ExecuterParser implements DesktopConstants {
   /** The registered SharedTag namespaces. */
   private static HashMap mNamespaceHash;
 
+  /**
+   * The parsed pages. The key is the absolute path of the JSP file, the value
+   * the {@link CompiledPage}.
+   */
+  private ConcurrentHashMap<String, CompiledPage> mPageCache;
+
 
   /**
    * Creates a new instance of ExecuterParser.
@@ -74,6 +90,8 @@ public class ExecuterParser implements DesktopConstants {
     } catch (RESyntaxException exc) {
       throw new RegainException("Creating the ExecuterParser regexes failed", exc);
     }
+
+    mPageCache = new ConcurrentHashMap<String, CompiledPage>();
   }
 
 
@@ -94,17 +112,44 @@ public class ExecuterParser implements DesktopConstants {
 
 
   /**
-   * Parses the JSP code.
+   * Gets the Executer tree of a JSP page. The page is only parsed if it was not
+   * parsed before or if the page or one of its included files has changed
+   * since then.
    *
    * @param baseDir The base directory where to search for the JSP file.
    * @param filename The name of the JSP file to parse.
    * @return An Executer tree that can execute the JSP page.
    * @throws RegainException If parsing failed.
    */
-  public synchronized Executer parse(File baseDir, String filename)
+  public Executer parse(File baseDir, String filename)
+    throws RegainException
+  {
+    String key = new File(baseDir, filename).getAbsolutePath();
+    CompiledPage page = mPageCache.get(key);
+    if (page == null || ! page.isUpToDate()) {
+      page = compile(baseDir, filename);
+      mPageCache.put(key, page);
+    }
+
+    return page.getRootExecuter();
+  }
+
+
+  /**
+   * Parses the JSP code.
+   *
+   * @param baseDir The base directory where to search for the JSP file.
+   * @param filename The name of the JSP file to parse.
+   * @return The parsed page.
+   * @throws RegainException If parsing failed.
+   */
+  private synchronized CompiledPage compile(File baseDir, String filename)
     throws RegainException
   {
-    String jspCode = prepareJspCode(baseDir, filename);
+    long startTime = System.currentTimeMillis();
+
+    ArrayList<File> fileList = new ArrayList<File>();
+    String jspCode = prepareJspCode(baseDir, filename, fileList);
 
     // Get the position where the real content starts
     int startPos = jspCode.indexOf("<html>");
@@ -119,7 +164,12 @@ public class ExecuterParser implements DesktopConstants {
       throw new RegainException("Last taglib tag is not closed! (offset: " + pos + ")");
     }
 
-    return executer;
+    if (mLog.isDebugEnabled()) {
+      mLog.debug("Parsed " + filename + " in "
+          + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    return new CompiledPage(executer, fileList);
   }
 
 
@@ -128,16 +178,18 @@ public class ExecuterParser implements DesktopConstants {
    *
    * @param baseDir The base directory where to search for the JSP file.
    * @param filename The name of the JSP file to prepare.
+   * @param fileList The list where to add the JSP file and all included files.
    * @return The prepared code.
    * @throws RegainException If loading the requested file failed.
    */
-  private String prepareJspCode(File baseDir, String filename)
+  private String prepareJspCode(File baseDir, String filename, List<File> fileList)
     throws RegainException
   {
     File file = new File(baseDir, filename);
     if (! file.exists()) {
       throw new RegainException("JSP file does not exist: " + file.getAbsolutePath());
     }
+    fileList.add(file);
     String jspCode = RegainToolkit.readStringFromFile(file);
 
     // Add all inludes
@@ -161,7 +213,7 @@ public class ExecuterParser implements DesktopConstants {
       buffer.append(jspCode.substring(pos, startPos));
 
       // Include the file
-      buffer.append(prepareJspCode(baseDir, incFilename));
+      buffer.append(prepareJspCode(baseDir, incFilename, fileList));
 
       pos = endPos;
     }
@@ -396,4 +448,63 @@ public class ExecuterParser implements DesktopConstants {
     return clazz;
   }
 
+
+
+  /**
+   * A parsed JSP page together with the files it was parsed from.
+   */
+  private static class CompiledPage {
+
+    /** The root of the Executer tree. */
+    private Executer mRootExecuter;
+
+    /** The JSP file and all included files. */
+    private File[] mFileArr;
+
+    /** The last modified times of the files when the page was parsed. */
+    private long[] mLastModifiedArr;
+
+
+    /**
+     * Creates a new instance of CompiledPage.
+     *
+     * @param rootExecuter The root of the Executer tree.
+     * @param fileList The JSP file and all included files.
+     */
+    public CompiledPage(Executer rootExecuter, List<File> fileList) {
+      mRootExecuter = rootExecuter;
+      mFileArr = fileList.toArray(new File[fileList.size()]);
+      mLastModifiedArr = new long[mFileArr.length];
+      for (int i = 0; i < mFileArr.length; i++) {
+        mLastModifiedArr[i] = mFileArr[i].lastModified();
+      }
+    }
+
+
+    /**
+     * Gets the root of the Executer tree.
+     *
+     * @return The root of the Executer tree.
+     */
+    public Executer getRootExecuter() {
+      return mRootExecuter;
+    }
+
+
+    /**
+     * Checks whether none of the files was changed since the page was parsed.
+     *
+     * @return Whether the page is up to date.
+     */
+    public boolean isUpToDate() {
+      for (int i = 0; i < mFileArr.length; i++) {
+        if (mFileArr[i].lastModified() != mLastModifiedArr[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
 }
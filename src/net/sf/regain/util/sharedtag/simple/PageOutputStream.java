@@ -0,0 +1,201 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.util.sharedtag.simple;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import simple.http.Response;
+
+/**
+ * An OutputStream that streams a generated page to a simpleweb response.
+ * <p>
+ * The beginning of the page is held in a bounded buffer. As long as the buffer
+ * was not sent (the stream is not <i>committed</i>), the page may still be
+ * discarded, e.g. in order to show the error page instead. When the buffer is
+ * full, the headers and the buffered bytes are sent and all further bytes are
+ * passed to the response directly. So a large page is never held completely
+ * in memory and the client gets the first bytes early.
+ * <p>
+ * Headers set after the stream was committed have no effect any more.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class PageOutputStream extends OutputStream {
+
+  /** The response to send the page to. */
+  private Response mResponse;
+
+  /** The content type to send if the page did not set one. */
+  private String mContentType;
+
+  /** The buffer holding the beginning of the page. */
+  private byte[] mBuffer;
+
+  /** The number of bytes in the buffer. */
+  private int mCount;
+
+  /**
+   * The stream of the response. Is <code>null</code> as long as the stream
+   * was not committed.
+   */
+  private OutputStream mResponseStream;
+
+  /**
+   * Specifies whether the page is discarded, because the response was already
+   * sent by someone else (e.g. an HTTP error sent by a tag).
+   */
+  private boolean mDiscarded;
+
+  /** Specifies whether the stream was closed. */
+  private boolean mClosed;
+
+
+  /**
+   * Creates a new instance of PageOutputStream.
+   *
+   * @param response The response to send the page to.
+   * @param contentType The content type to send if the page did not set one.
+   * @param bufferSize The size of the buffer. This is the number of bytes
+   *        that may be written before the stream is committed.
+   */
+  public PageOutputStream(Response response, String contentType, int bufferSize) {
+    mResponse = response;
+    mContentType = contentType;
+    mBuffer = new byte[bufferSize];
+  }
+
+
+  /**
+   * Gets whether the beginning of the page was already sent to the client.
+   * If the stream was committed the page can't be replaced any more.
+   *
+   * @return Whether the stream was committed.
+   */
+  public boolean isCommitted() {
+    return (mResponseStream != null) || mDiscarded;
+  }
+
+
+  /**
+   * Writes a byte.
+   *
+   * @param b The byte to write.
+   * @throws IOException If writing failed.
+   */
+  @Override
+  public void write(int b) throws IOException {
+    if (! isCommitted() && (mCount == mBuffer.length)) {
+      commit();
+    }
+    if (mResponseStream != null) {
+      mResponseStream.write(b);
+    } else if (! mDiscarded) {
+      mBuffer[mCount] = (byte) b;
+      mCount++;
+    }
+  }
+
+
+  /**
+   * Writes bytes.
+   *
+   * @param b The bytes to write.
+   * @param off The offset of the first byte to write.
+   * @param len The number of bytes to write.
+   * @throws IOException If writing failed.
+   */
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (! isCommitted() && (mCount + len > mBuffer.length)) {
+      commit();
+    }
+    if (mResponseStream != null) {
+      mResponseStream.write(b, off, len);
+    } else if (! mDiscarded) {
+      System.arraycopy(b, off, mBuffer, mCount, len);
+      mCount += len;
+    }
+  }
+
+
+  /**
+   * Flushes the stream. Has only an effect if the stream is committed,
+   * otherwise the bytes stay in the buffer.
+   *
+   * @throws IOException If flushing failed.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (mResponseStream != null) {
+      mResponseStream.flush();
+    }
+  }
+
+
+  /**
+   * Sends the headers and the buffered bytes to the client. After this all
+   * bytes are passed to the response directly.
+   *
+   * @throws IOException If sending failed.
+   */
+  public void commit() throws IOException {
+    if (isCommitted()) {
+      return;
+    }
+    if (mClosed) {
+      throw new IOException("Page stream is already closed");
+    }
+
+    if (mResponse.isCommitted()) {
+      // The response was already sent (e.g. by sendError) -> Discard the page
+      mDiscarded = true;
+    } else {
+      if (mResponse.indexOf("Content-Type") == -1) {
+        mResponse.set("Content-Type", mContentType);
+      }
+      mResponseStream = mResponse.getOutputStream();
+      mResponseStream.write(mBuffer, 0, mCount);
+    }
+    mBuffer = null;
+    mCount = 0;
+  }
+
+
+  /**
+   * Sends the rest of the page and closes the response stream.
+   *
+   * @throws IOException If sending failed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (mClosed) {
+      return;
+    }
+
+    commit();
+    mClosed = true;
+    if (mResponseStream != null) {
+      mResponseStream.close();
+    }
+  }
+
+}
@@ -20,7 +20,6 @@
  */
 package net.sf.regain.util.sharedtag.simple;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
 
@@ -46,6 +45,12 @@ public class SharedTagResource extends BasicResource {
   /** The encoding used by the simpleweb implementation of shared tags. */
   public static final String SIMPLE_TAG_ENCODING = "UTF-8";
 
+  /**
+   * The number of bytes of a page that are buffered before the page is sent
+   * to the client.
+   */
+  private static final int PAGE_BUFFER_SIZE = 16 * 1024;
+
   /** The logger for this class */
   private static Logger mLog = Logger.getLogger(SharedTagResource.class);
 
@@ -55,18 +60,25 @@ public class SharedTagResource extends BasicResource {
   /** The root executer holding the parsed JSP page. */
   private Executer mRootTagExecuter;
 
+  /** The parser to use for loading the error page. */
+  private ExecuterParser mParser;
+
 
   /**
    * Creates a new instance of SharedTagResource.
    *
    * @param context The context of this resource.
    * @param root The root executer holding the parsed JSP page.
+   * @param parser The parser to use for loading the error page.
    * @throws RegainException If parsing the JSP file failed.
    */
-  public SharedTagResource(Context context, Executer root) throws RegainException {
+  public SharedTagResource(Context context, Executer root, ExecuterParser parser)
+    throws RegainException
+  {
     super(context);
 
     mRootTagExecuter = root;
+    mParser = parser;
   }
 
 
@@ -77,7 +89,7 @@ public class SharedTagResource extends BasicResource {
    * @param resp The response.
    * @throws Exception If executing the JSP page failed.
    */
-  protected synchronized void process(Request req, Response resp) throws Exception {
+  protected void process(Request req, Response resp) throws Exception {
     process(req, resp, mRootTagExecuter, null);
   }
 
@@ -92,13 +104,19 @@ public class SharedTagResource extends BasicResource {
    *        shown.
    * @throws Exception If executing the JSP page failed.
    */
-  private synchronized void process(Request req, Response resp,
+  private void process(Request req, Response resp,
     Executer executer, Throwable error)
     throws Exception
   {
-    // Write the page to a buffer first
-    // If an exception should be thrown the user gets a clear error message
-    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    // NOTE: The Executer trees are cached by the parser and shared by all
+    //       requests. They are not changed while a page is rendered (the tags
+    //       keep their state in the request context), so the requests are
+    //       processed concurrently.
+
+    // Stream the page to the client. The beginning of the page is buffered,
+    // so the error page can still be shown if a tag fails early
+    PageOutputStream stream = new PageOutputStream(resp,
+        "text/html; charset=" + SIMPLE_TAG_ENCODING, PAGE_BUFFER_SIZE);
     PrintStream printStream = new PrintStream(stream, false, SIMPLE_TAG_ENCODING);
 
     PageRequest request = new SimplePageRequest(req);
@@ -113,18 +131,28 @@ public class SharedTagResource extends BasicResource {
       executer.execute(request, response);
     }
     catch (RedirectException exc) {
-      // Send a redirect
-      resp.set("Location", exc.getUrl());
-      handle(req, resp, 303);
-      return;
+      if (stream.isCommitted()) {
+        mLog.error("Can't redirect to " + exc.getUrl()
+            + ", because the page was already sent");
+      } else {
+        // Send a redirect
+        resp.set("Location", exc.getUrl());
+        handle(req, resp, 303);
+        return;
+      }
     }
     catch (Exception exc) {
       mLog.error("Processing page failed", exc);
-      if (error == null) {
+      if (stream.isCommitted()) {
+        // The beginning of the page was already sent
+        // -> We can only end the page here
+      } else if (error == null) {
         // This is the normal page -> Show the error page
+        // (The buffered beginning of the page is discarded)
         try {
           Executer errorExecuter = loadErrorPage();
           process(req, resp, errorExecuter, exc);
+          return;
         }
         catch (RegainException loadingExc) {
           mLog.error("Processing error page failed", loadingExc);
@@ -138,28 +166,18 @@ public class SharedTagResource extends BasicResource {
       }
     }
     finally {
-      printStream.close();
-      stream.close();
+      // The page is generated -> Release the resources of the request
+      // (e.g. the searchers held by the search results)
+      request.closeRequestResources();
     }
 
-    // The page has been generated without exception -> Send it to the user
-    setHeaderIfUnset(resp, "Content-Type", "text/html; charset=" + SIMPLE_TAG_ENCODING);
-    PrintStream pageStream = resp.getPrintStream();
-    try {
-      stream.writeTo(pageStream);
-    }
-    finally {
-      pageStream.close();
+    // Send the rest of the page to the user
+    printStream.close();
+    if (printStream.checkError()) {
+      mLog.debug("Sending page failed. The client has probably closed the connection");
     }
   }
 
-  private void setHeaderIfUnset(Response resp, String name, String value)
-  {
-    int index = resp.indexOf(name);
-    if (index == -1)
-       resp.set(name, value);
-  }
-
 
   /**
    * Loads the error page executer.
@@ -172,7 +190,7 @@ public class SharedTagResource extends BasicResource {
       mBaseDir = new File(context.getBasePath());
     }
 
-    return new ExecuterParser().parse(mBaseDir, "errorpage.jsp");
+    return mParser.parse(mBaseDir, "errorpage.jsp");
   }
 
 }
@@ -112,7 +112,7 @@ public class SharedTagService extends BasicService {
       }
       else if (file.getName().endsWith(".jsp")) {
         Executer root = mParser.parse(mBaseDir, fileName);
-        SharedTagResource resource = new SharedTagResource(context, root);
+        SharedTagResource resource = new SharedTagResource(context, root, mParser);
         resource.handle(req, resp);
       }
       else {
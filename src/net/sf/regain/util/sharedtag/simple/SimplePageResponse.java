@@ -109,6 +109,21 @@ public class SimplePageResponse extends PageResponse {
   }
 
 
+  /**
+   * Sets the HTTP status code of the response.
+   *
+   * @param statusCode The status code to set (e.g. 206).
+   * @throws RegainException If setting the status code failed.
+   */
+  @Override
+  public void setStatus(int statusCode) throws RegainException {
+    mResponse.setCode(statusCode);
+    if (statusCode == 206) {
+      mResponse.setText("Partial Content");
+    }
+  }
+
+
   /**
    * Gets the OutputStream to use for sending binary data.
    *
@@ -132,6 +147,38 @@ public class SimplePageResponse extends PageResponse {
    * @throws RegainException If printing failed.
    */
   public void rawPrint(String text) throws RegainException {
+    getPrintStream().print(text);
+  }
+
+
+  /**
+   * Prints static text that was already encoded. If the text was encoded with
+   * the encoding of this response, the bytes are written directly.
+   *
+   * @param text The text to print.
+   * @param encodedText The text encoded with <code>encoding</code>.
+   * @param encoding The encoding used for <code>encodedText</code>.
+   * @throws RegainException If printing failed.
+   */
+  @Override
+  public void rawPrint(String text, byte[] encodedText, String encoding)
+    throws RegainException
+  {
+    if (encodedText != null && encoding.equals(mEncoding)) {
+      getPrintStream().write(encodedText, 0, encodedText.length);
+    } else {
+      rawPrint(text);
+    }
+  }
+
+
+  /**
+   * Gets the PrintStream to write the results to.
+   *
+   * @return The PrintStream to write the results to.
+   * @throws RegainException If getting the PrintStream failed.
+   */
+  private PrintStream getPrintStream() throws RegainException {
     if (mPrintStream == null) {
       try {
         mPrintStream = mResponse.getPrintStream();
@@ -140,8 +187,7 @@ public class SimplePageResponse extends PageResponse {
         throw new RegainException("Getting response PrintStream failed", exc);
       }
     }
-
-    mPrintStream.print(text);
+    return mPrintStream;
   }
 
 
@@ -20,6 +20,8 @@
  */
 package net.sf.regain.util.sharedtag.simple;
 
+import java.io.UnsupportedEncodingException;
+
 import net.sf.regain.RegainException;
 import net.sf.regain.util.sharedtag.PageRequest;
 import net.sf.regain.util.sharedtag.PageResponse;
@@ -34,6 +36,14 @@ public class TextExecuter extends Executer {
   /** The text to print. */
   private String mText;
 
+  /**
+   * The text to print encoded with
+   * {@link SharedTagResource#SIMPLE_TAG_ENCODING}. The text is encoded once
+   * when the page is parsed, so it can be written for every request without
+   * encoding it again.
+   */
+  private byte[] mEncodedText;
+
 
   /**
    * Creates a new instance of TextExecuter.
@@ -42,6 +52,13 @@ public class TextExecuter extends Executer {
    */
   public TextExecuter(String text) {
     mText = text;
+    try {
+      mEncodedText = text.getBytes(SharedTagResource.SIMPLE_TAG_ENCODING);
+    }
+    catch (UnsupportedEncodingException exc) {
+      // Can't happen, every JVM supports UTF-8 -> print the text as String
+      mEncodedText = null;
+    }
   }
 
 
@@ -56,7 +73,7 @@ public class TextExecuter extends Executer {
     throws RegainException
   {
     executeChildren(request, response);
-    response.rawPrint(mText);
+    response.rawPrint(mText, mEncodedText, SharedTagResource.SIMPLE_TAG_ENCODING);
   }
 
 
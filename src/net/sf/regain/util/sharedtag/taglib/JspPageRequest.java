@@ -20,6 +20,7 @@
  */
 package net.sf.regain.util.sharedtag.taglib;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -249,4 +250,20 @@ public class JspPageRequest extends PageRequest {
     return mWorkingDir;
   }
 
+
+
+  /**
+   * Registers a resource that has to be closed when the request is finished.
+   * <p>
+   * The resource is bound to the servlet request, so it lives until the
+   * {@link SharedTagRequestListener} is notified that the request is
+   * destroyed.
+   *
+   * @param resource The resource to close at the end of the request.
+   */
+  @Override
+  public void closeAtRequestEnd(Closeable resource) {
+    SharedTagRequestListener.closeAtRequestEnd(mPageContext.getRequest(), resource);
+  }
+
 }
@@ -95,6 +95,18 @@ public class JspPageResponse extends PageResponse {
   }
 
 
+  /**
+   * Sets the HTTP status code of the response.
+   *
+   * @param statusCode The status code to set (e.g. 206).
+   * @throws RegainException If setting the status code failed.
+   */
+  @Override
+  public void setStatus(int statusCode) throws RegainException {
+    mServletResponse.setStatus(statusCode);
+  }
+
+
   /**
    * Gets the OutputStream to use for sending binary data.
    *
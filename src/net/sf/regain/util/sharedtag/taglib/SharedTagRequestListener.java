@@ -0,0 +1,89 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.util.sharedtag.taglib;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+import net.sf.regain.util.sharedtag.PageRequest;
+
+/**
+ * Closes the request resources of the shared tags when a servlet request is
+ * finished.
+ * <p>
+ * Must be registered as listener in the <code>web.xml</code>.
+ *
+ * @see PageRequest#closeAtRequestEnd(Closeable)
+ * @author Til Schneider, www.murfman.de
+ */
+public class SharedTagRequestListener implements ServletRequestListener {
+
+  /** The name of the request attribute holding the resources to close. */
+  private static final String RESOURCE_LIST_ATTR_NAME = "SharedTagRequestResources";
+
+
+  /**
+   * Registers a resource that has to be closed when the request is finished.
+   *
+   * @param request The servlet request.
+   * @param resource The resource to close at the end of the request.
+   */
+  @SuppressWarnings("unchecked")
+  public static void closeAtRequestEnd(ServletRequest request, Closeable resource) {
+    List<Closeable> resourceList = (List<Closeable>) request.getAttribute(RESOURCE_LIST_ATTR_NAME);
+    if (resourceList == null) {
+      resourceList = new ArrayList<Closeable>();
+      request.setAttribute(RESOURCE_LIST_ATTR_NAME, resourceList);
+    }
+    resourceList.add(resource);
+  }
+
+
+  /**
+   * Called when a request comes into scope.
+   *
+   * @param event The request event.
+   */
+  public void requestInitialized(ServletRequestEvent event) {
+  }
+
+
+  /**
+   * Called when a request goes out of scope. Closes the registered resources.
+   *
+   * @param event The request event.
+   */
+  @SuppressWarnings("unchecked")
+  public void requestDestroyed(ServletRequestEvent event) {
+    ServletRequest request = event.getServletRequest();
+    List<Closeable> resourceList = (List<Closeable>) request.getAttribute(RESOURCE_LIST_ATTR_NAME);
+    if (resourceList != null) {
+      request.removeAttribute(RESOURCE_LIST_ATTR_NAME);
+      PageRequest.closeResources(resourceList);
+    }
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.config.UrlMatcher;
+import net.sf.regain.crawler.config.WhiteListEntry;
+
+/**
+ * A JUnit test for the class {@link JobFrontier}.
+ * <p>
+ * NOTE: This test is in the package of the crawler, because the JobFrontier is
+ * package private.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class JobFrontierTest extends TestCase {
+
+  /**
+   * The number of jobs to add. The jobs have a long link text, so they fill
+   * more than two segment files of 16 MB.
+   */
+  private static final int JOB_COUNT = 10000;
+
+  /** The maximum number of jobs the frontier holds in memory. */
+  private static final int MAX_JOBS_IN_MEMORY = 10;
+
+  /** The link text of the jobs. */
+  private static String mLinkText;
+
+  /** The directory of the frontier. */
+  private File mDir;
+
+
+  /**
+   * Creates the directory of the frontier.
+   *
+   * @throws IOException If creating the directory failed.
+   */
+  @Override
+  protected void setUp() throws IOException {
+    mDir = File.createTempFile("frontier", null);
+    mDir.delete();
+
+    if (mLinkText == null) {
+      StringBuilder buffer = new StringBuilder();
+      while (buffer.length() < 4000) {
+        buffer.append("link text ");
+      }
+      mLinkText = buffer.toString();
+    }
+  }
+
+
+  /**
+   * Deletes the directory of the frontier.
+   *
+   * @throws RegainException If deleting the directory failed.
+   */
+  @Override
+  protected void tearDown() throws RegainException {
+    if (mDir.exists()) {
+      RegainToolkit.deleteDirectory(mDir);
+    }
+  }
+
+
+  /**
+   * Tests that all jobs are returned when they were spilled to more than one
+   * segment file. The last segment only holds one job that is not flushed to
+   * disk yet.
+   *
+   * @throws RegainException If the frontier failed.
+   */
+  public void testSpillAcrossSegments() throws RegainException {
+    JobFrontier frontier = createFrontier(false);
+    int jobCount = 0;
+    while (! new File(mDir, "jobs-2.seg").exists()) {
+      addJobs(frontier, jobCount, 1);
+      jobCount++;
+    }
+    assertEquals(jobCount, frontier.size());
+
+    HashSet<String> urlSet = takeJobs(frontier, jobCount);
+    assertTrue(frontier.isEmpty());
+    assertEquals(jobCount, urlSet.size());
+    for (int i = 0; i < jobCount; i++) {
+      assertTrue(urlSet.contains(createUrl(i)));
+    }
+
+    frontier.close(true);
+    assertFalse(mDir.exists());
+  }
+
+
+  /**
+   * Tests that jobs with the same priority are taken in the order they were
+   * added and that a job with a higher priority is taken first.
+   *
+   * @throws RegainException If the frontier failed.
+   */
+  public void testPriorityOrder() throws RegainException {
+    JobFrontier frontier = createFrontier(false);
+    for (int i = 0; i < MAX_JOBS_IN_MEMORY - 1; i++) {
+      CrawlerJob job = new CrawlerJob(createUrl(i), null, mLinkText, true, true);
+      job.setPriority(0.5);
+      frontier.addLast(job);
+    }
+    CrawlerJob importantJob = new CrawlerJob(createUrl(100), null, mLinkText, true, true);
+    importantJob.setPriority(1);
+    frontier.addLast(importantJob);
+
+    assertEquals(createUrl(100), takeJobs(frontier, 1).iterator().next());
+    for (int i = 0; i < MAX_JOBS_IN_MEMORY - 1; i++) {
+      assertEquals(createUrl(i), takeJobs(frontier, 1).iterator().next());
+    }
+    assertTrue(frontier.isEmpty());
+
+    frontier.close(true);
+  }
+
+
+  /**
+   * Tests resuming a frontier from a checkpoint: The jobs that were added
+   * after the checkpoint are cut off and the URLs the UrlChecker had seen are
+   * restored.
+   *
+   * @throws RegainException If the frontier failed.
+   */
+  public void testCheckpointAndResume() throws RegainException {
+    JobFrontier frontier = createFrontier(false);
+    assertFalse(frontier.isResumed());
+    addJobs(frontier, 0, JOB_COUNT);
+
+    // Take jobs until the second segment is read
+    UrlChecker urlChecker = createUrlChecker();
+    HashSet<String> takenUrlSet = takeJobs(frontier, JOB_COUNT / 2);
+    for (String url : takenUrlSet) {
+      urlChecker.setAccepted(url);
+    }
+    frontier.checkpoint(urlChecker);
+    assertFalse(new File(mDir, "jobs-1.seg").exists());
+
+    // These jobs get lost, because the crawler "crashes" before the next
+    // checkpoint
+    addJobs(frontier, JOB_COUNT, 500);
+    takeJobs(frontier, 10);
+    frontier.close(false);
+
+    // Resume
+    frontier = createFrontier(true);
+    assertTrue(frontier.isResumed());
+    assertEquals(JOB_COUNT - takenUrlSet.size(), frontier.size());
+
+    UrlChecker restoredUrlChecker = createUrlChecker();
+    frontier.restoreSeenUrls(restoredUrlChecker);
+    assertEquals(takenUrlSet.size(), restoredUrlChecker.getSeenUrlCount());
+    for (String url : takenUrlSet) {
+      assertTrue(restoredUrlChecker.wasAlreadyAccepted(url));
+    }
+
+    HashSet<String> restUrlSet = takeJobs(frontier, JOB_COUNT - takenUrlSet.size());
+    assertTrue(frontier.isEmpty());
+    for (int i = 0; i < JOB_COUNT; i++) {
+      String url = createUrl(i);
+      assertTrue(takenUrlSet.contains(url) != restUrlSet.contains(url));
+      assertEquals(takenUrlSet.contains(url), restoredUrlChecker.wasAlreadyAccepted(url));
+    }
+
+    frontier.close(true);
+  }
+
+
+  /**
+   * Creates a frontier in the test directory.
+   *
+   * @param resume Whether to resume from the last checkpoint.
+   * @return The frontier.
+   * @throws RegainException If creating the frontier failed.
+   */
+  private JobFrontier createFrontier(boolean resume) throws RegainException {
+    HostScheduler hostScheduler = new HostScheduler(0, 0, 0, 1, false, null, 1000);
+    return new JobFrontier(mDir, MAX_JOBS_IN_MEMORY, hostScheduler, resume);
+  }
+
+
+  /**
+   * Creates a UrlChecker without white and black list.
+   *
+   * @return The UrlChecker.
+   */
+  private UrlChecker createUrlChecker() {
+    return new UrlChecker(new WhiteListEntry[0], new UrlMatcher[0]);
+  }
+
+
+  /**
+   * Adds jobs to the end of a frontier.
+   *
+   * @param frontier The frontier.
+   * @param first The number of the first job.
+   * @param count The number of jobs to add.
+   * @throws RegainException If adding failed.
+   */
+  private void addJobs(JobFrontier frontier, int first, int count)
+    throws RegainException
+  {
+    for (int i = first; i < first + count; i++) {
+      frontier.addLast(new CrawlerJob(createUrl(i), null, mLinkText, true, true));
+    }
+  }
+
+
+  /**
+   * Takes jobs from a frontier.
+   *
+   * @param frontier The frontier.
+   * @param count The number of jobs to take.
+   * @return The URLs of the jobs.
+   * @throws RegainException If taking a job failed.
+   */
+  private HashSet<String> takeJobs(JobFrontier frontier, int count)
+    throws RegainException
+  {
+    HashSet<String> urlSet = new HashSet<String>();
+    for (int i = 0; i < count; i++) {
+      CrawlerJob job = frontier.nextJob();
+      assertEquals(mLinkText, job.getSourceLinkText());
+      urlSet.add(job.getUrl());
+      frontier.finishJob(job, 0);
+    }
+    return urlSet;
+  }
+
+
+  /**
+   * Creates the URL of a job.
+   *
+   * @param number The number of the job.
+   * @return The URL.
+   */
+  private String createUrl(int number) {
+    return "http://www.example.com/page-" + number + ".html";
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.search;
+
+import junit.framework.TestCase;
+
+/**
+ * A JUnit test for the class {@link SearchToolkit}.
+ * <p>
+ * NOTE: This test is in the package of the search, because
+ * {@link SearchToolkit#parseByteRange(String, long)} is package private.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class SearchToolkitTest extends TestCase {
+
+  /**
+   * Tests {@link SearchToolkit#parseByteRange(String, long)}.
+   */
+  public void testParseByteRange() {
+    // Single ranges
+    assertRange("bytes=0-99", 1000, 0, 99);
+    assertRange("bytes=500-999", 1000, 500, 999);
+    assertRange(" bytes=10-20 ", 1000, 10, 20);
+    assertRange("bytes=900-2000", 1000, 900, 999);
+
+    // Open-ended ranges
+    assertRange("bytes=900-", 1000, 900, 999);
+    assertRange("bytes=0-", 1000, 0, 999);
+
+    // Suffix ranges: The last n bytes
+    assertRange("bytes=-100", 1000, 900, 999);
+    assertRange("bytes=-2000", 1000, 0, 999);
+
+    // Multiple ranges -> The whole file is sent
+    assertNull(SearchToolkit.parseByteRange("bytes=0-99,200-299", 1000));
+
+    // Unsatisfiable ranges
+    assertUnsatisfiable("bytes=1000-", 1000);
+    assertUnsatisfiable("bytes=1000-1100", 1000);
+    assertUnsatisfiable("bytes=-0", 1000);
+    assertUnsatisfiable("bytes=-10", 0);
+
+    // Malformed ranges -> The header is ignored
+    assertNull(SearchToolkit.parseByteRange("items=0-99", 1000));
+    assertNull(SearchToolkit.parseByteRange("bytes=100", 1000));
+    assertNull(SearchToolkit.parseByteRange("bytes=a-b", 1000));
+    assertNull(SearchToolkit.parseByteRange("bytes=-", 1000));
+    assertNull(SearchToolkit.parseByteRange("bytes=200-100", 1000));
+    assertNull(SearchToolkit.parseByteRange("bytes=-5-10", 1000));
+  }
+
+
+  /**
+   * Checks that a range is parsed to certain byte positions.
+   *
+   * @param range The value of the <code>Range</code> header.
+   * @param fileLength The length of the file.
+   * @param first The expected first byte position.
+   * @param last The expected last byte position.
+   */
+  private void assertRange(String range, long fileLength, long first, long last) {
+    long[] byteRange = SearchToolkit.parseByteRange(range, fileLength);
+    assertNotNull(range, byteRange);
+    assertEquals(range, 2, byteRange.length);
+    assertEquals(range, first, byteRange[0]);
+    assertEquals(range, last, byteRange[1]);
+  }
+
+
+  /**
+   * Checks that a range can't be satisfied.
+   *
+   * @param range The value of the <code>Range</code> header.
+   * @param fileLength The length of the file.
+   */
+  private void assertUnsatisfiable(String range, long fileLength) {
+    long[] byteRange = SearchToolkit.parseByteRange(range, fileLength);
+    assertNotNull(range, byteRange);
+    assertEquals(range, 0, byteRange.length);
+  }
+
+}
@@ -21,7 +21,9 @@
 package net.sf.regain.test;
 
 import junit.framework.TestCase;
+import net.sf.regain.RegainException;
 import net.sf.regain.crawler.CrawlerToolkit;
+import net.sf.regain.crawler.UrlNormalizer;
 
 /**
  * A JUnit test for the class {@link net.sf.regain.crawler.CrawlerToolkit}.
@@ -41,6 +43,37 @@ public class CrawlerToolkitTest extends TestCase {
 
   }
 
+  /**
+   * Tests {@link UrlNormalizer#normalize(String)}.
+   *
+   * @throws RegainException If a URL cleaner is invalid.
+   */
+  public void testUrlNormalizer() throws RegainException {
+    UrlNormalizer normalizer = new UrlNormalizer(new String[]{"PHPSESSID=[0-9a-z]{3,}"});
+
+    // URL cleaners
+    assertEquals("http://www/x.htm?id=1", normalizer.normalize("http://www/x.htm?id=1&PHPSESSID=ajfasdfh3423"));
+    assertEquals("http://www/x.htm?p1=34", normalizer.normalize("http://www/x.htm?PHPSESSID=ajfasdfh3423&p1=34"));
+    assertEquals("http://www/x.htm", normalizer.normalize("http://www/x.htm?PHPSESSID=ajfasdfh3423"));
+    assertEquals("http://www/a%20b.htm?x=1&y=2", normalizer.normalize("http://www/a b.htm?x=1&amp;y=2"));
+
+    // Scheme, host and port
+    assertEquals("http://www.murfman.de/Abc", normalizer.normalize("HTTP://WWW.Murfman.DE:80/Abc"));
+    assertEquals("https://user:PW@www.murfman.de/", normalizer.normalize("https://user:PW@www.murfman.de:443"));
+    assertEquals("http://www.murfman.de:8080/", normalizer.normalize("http://www.murfman.de:8080/"));
+
+    // Dot segments
+    assertEquals("http://murfman.de/a/c/d.html", normalizer.normalize("http://murfman.de/a/./b/../c/d.html"));
+    assertEquals("http://murfman.de/", normalizer.normalize("http://murfman.de/a/.."));
+    assertEquals("http://murfman.de/a/?x=../y", normalizer.normalize("http://murfman.de/../a/.?x=../y"));
+
+    // Percent encoding
+    assertEquals("http://murfman.de/~til/a%2Fb%C3%A4", normalizer.normalize("http://murfman.de/%7etil/a%2fb%c3%a4"));
+
+    // Other URLs are only cleaned
+    assertEquals("file:///home/Til/./x%7e.txt", normalizer.normalize("file:///home/Til/./x%7e.txt"));
+  }
+
   public void testCreateURLFromProps() {
     assertEquals("", CrawlerToolkit.createURLFromProps(new String[]{"imap", "test"}));
     assertEquals("imap://sld.tld/", CrawlerToolkit.createURLFromProps(new String[]{"imap", "sld", "tld", "account"}));
@@ -0,0 +1,194 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test;
+
+import junit.framework.TestCase;
+import net.sf.regain.crawler.HostScheduler;
+import net.sf.regain.crawler.RobotsTxt;
+
+/**
+ * A JUnit test for the classes {@link net.sf.regain.crawler.RobotsTxt} and
+ * {@link net.sf.regain.crawler.HostScheduler}.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class RobotsTxtTest extends TestCase {
+
+  /** A robots.txt with a group for regain and a default group. */
+  private static final String ROBOTS_TXT =
+      "# Comment\n"
+    + "User-agent: *\n"
+    + "Disallow: /\n"
+    + "\n"
+    + "User-agent: googlebot\n"
+    + "User-agent: regain\n"
+    + "Disallow: /private/\n"
+    + "Allow: /private/public/\n"
+    + "Disallow: /docs\n"
+    + "Allow: /docs\n"
+    + "Disallow: /*.pdf$\n"
+    + "Disallow: /search*print=1 # Printable pages\n"
+    + "Crawl-delay: 2.5\n";
+
+
+  /**
+   * Tests which group of a robots.txt is used.
+   */
+  public void testGroupSelection() {
+    RobotsTxt own = RobotsTxt.parse(ROBOTS_TXT, "regain/2.0");
+    assertTrue(own.isAllowed("/index.html"));
+    assertFalse(own.isAllowed("/private/secret.html"));
+
+    RobotsTxt other = RobotsTxt.parse(ROBOTS_TXT, "otherbot");
+    assertFalse(other.isAllowed("/index.html"));
+    assertEquals(0, other.getCrawlDelay());
+
+    RobotsTxt none = RobotsTxt.parse("User-agent: otherbot\nDisallow: /\n", "regain");
+    assertTrue(none.isAllowed("/index.html"));
+
+    // Rules before the first User-agent line are ignored
+    RobotsTxt noAgent = RobotsTxt.parse("Disallow: /\n", "regain");
+    assertTrue(noAgent.isAllowed("/index.html"));
+  }
+
+
+  /**
+   * Tests that the longest matching rule wins and that Allow wins on equal
+   * length.
+   */
+  public void testLongestMatch() {
+    RobotsTxt robotsTxt = RobotsTxt.parse(ROBOTS_TXT, "regain");
+    assertFalse(robotsTxt.isAllowed("/private/"));
+    assertFalse(robotsTxt.isAllowed("/private/x.html"));
+    assertTrue(robotsTxt.isAllowed("/private/public/x.html"));
+    assertTrue(robotsTxt.isAllowed("/privatex.html"));
+
+    // Allow wins on equal length
+    assertTrue(robotsTxt.isAllowed("/docs/index.html"));
+
+    // An empty Disallow allows everything
+    RobotsTxt empty = RobotsTxt.parse("User-agent: *\nDisallow:\n", "regain");
+    assertTrue(empty.isAllowed("/index.html"));
+  }
+
+
+  /**
+   * Tests the wildcards <code>*</code> and <code>$</code>.
+   */
+  public void testWildcards() {
+    RobotsTxt robotsTxt = RobotsTxt.parse(ROBOTS_TXT, "regain");
+    assertFalse(robotsTxt.isAllowed("/files/manual.pdf"));
+    assertTrue(robotsTxt.isAllowed("/files/manual.pdf?download=1"));
+    assertTrue(robotsTxt.isAllowed("/files/manual.pdfx"));
+
+    assertFalse(robotsTxt.isAllowed("/search?q=regain&print=1"));
+    assertFalse(robotsTxt.isAllowed("/searchprint=1"));
+    assertTrue(robotsTxt.isAllowed("/search?q=regain"));
+  }
+
+
+  /**
+   * Tests the crawl delay.
+   */
+  public void testCrawlDelay() {
+    assertEquals(2500, RobotsTxt.parse(ROBOTS_TXT, "regain").getCrawlDelay());
+    assertEquals(0, RobotsTxt.parse("User-agent: *\nCrawl-delay: soon\n", "regain").getCrawlDelay());
+    assertEquals(0, RobotsTxt.ALLOW_ALL.getCrawlDelay());
+  }
+
+
+  /**
+   * Tests {@link HostScheduler#getHostKey(String)} and
+   * {@link HostScheduler#getRobotsPath(String)}.
+   */
+  public void testHostKeyAndRobotsPath() {
+    assertEquals("http://www.murfman.de", HostScheduler.getHostKey("http://www.murfman.de/docs/"));
+    assertEquals("https://www.murfman.de:8443", HostScheduler.getHostKey("https://www.murfman.de:8443?q=1"));
+    assertEquals("http://host", HostScheduler.getHostKey("http://u:pw@host/private/x"));
+    assertEquals(HostScheduler.LOCAL_HOST, HostScheduler.getHostKey("file:///home/til/"));
+
+    assertEquals("/docs/", HostScheduler.getRobotsPath("http://www.murfman.de/docs/"));
+    assertEquals("/", HostScheduler.getRobotsPath("http://www.murfman.de"));
+    assertEquals("/?q=1", HostScheduler.getRobotsPath("https://www.murfman.de:8443?q=1"));
+    assertEquals("/index.html", HostScheduler.getRobotsPath("http://www.murfman.de/index.html#top"));
+
+    // The user info is not part of the path
+    String url = "http://u:pw@host/private/x";
+    assertEquals("/private/x", HostScheduler.getRobotsPath(url));
+    assertFalse(RobotsTxt.parse(ROBOTS_TXT, "regain").isAllowed(HostScheduler.getRobotsPath(url)));
+  }
+
+
+  /**
+   * Tests the delay between two requests to a host.
+   */
+  public void testDelay() {
+    HostScheduler scheduler = new HostScheduler(100, 10000, 2, 1, false, null, 1000);
+
+    // The largest of the minimum delay, the crawl delay and the response time
+    // delay is used, limited by the maximum delay
+    assertEquals(100, scheduler.getDelay(0, 0));
+    assertEquals(2500, scheduler.getDelay(2500, 0));
+    assertEquals(3000, scheduler.getDelay(2500, 1500));
+    assertEquals(10000, scheduler.getDelay(20000, 0));
+    assertEquals(10000, scheduler.getDelay(0, 8000));
+
+    // The average response time is a moving average
+    String host = HostScheduler.getHostKey("http://www.murfman.de/");
+    assertEquals(0, scheduler.getReadyTime(host));
+    assertDelay(scheduler, host, 1000, 2000);
+    assertDelay(scheduler, host, 2000, 2600);
+    assertDelay(scheduler, host, 100000, 10000);
+
+    // Only one concurrent request is allowed
+    scheduler.startRequest(host);
+    assertEquals(Long.MAX_VALUE, scheduler.getReadyTime(host));
+    scheduler.finishRequest(host, -1);
+    assertTrue(scheduler.getReadyTime(host) != Long.MAX_VALUE);
+
+    // Local URLs are not scheduled
+    scheduler.startRequest(HostScheduler.LOCAL_HOST);
+    scheduler.startRequest(HostScheduler.LOCAL_HOST);
+    assertEquals(0, scheduler.getReadyTime(HostScheduler.LOCAL_HOST));
+  }
+
+
+  /**
+   * Sends a request to a host and checks the delay until the next request.
+   *
+   * @param scheduler The scheduler.
+   * @param host The host key.
+   * @param responseTime The response time of the request.
+   * @param expectedDelay The expected delay.
+   */
+  private void assertDelay(HostScheduler scheduler, String host,
+    long responseTime, long expectedDelay)
+  {
+    scheduler.startRequest(host);
+    long before = System.currentTimeMillis();
+    scheduler.finishRequest(host, responseTime);
+    long after = System.currentTimeMillis();
+    long readyTime = scheduler.getReadyTime(host);
+    assertTrue(readyTime >= before + expectedDelay);
+    assertTrue(readyTime <= after + expectedDelay);
+  }
+
+}
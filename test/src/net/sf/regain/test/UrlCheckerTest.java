@@ -0,0 +1,151 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test;
+
+import junit.framework.TestCase;
+import net.sf.regain.RegainException;
+import net.sf.regain.crawler.UrlChecker;
+import net.sf.regain.crawler.config.PrefixUrlMatcher;
+import net.sf.regain.crawler.config.RegexUrlMatcher;
+import net.sf.regain.crawler.config.UrlMatcher;
+import net.sf.regain.crawler.config.WhiteListEntry;
+
+/**
+ * A JUnit test for the class {@link net.sf.regain.crawler.UrlChecker}.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class UrlCheckerTest extends TestCase {
+
+  /**
+   * Tests {@link UrlChecker#isUrlAccepted(String)}.
+   *
+   * @throws RegainException If a regex is invalid.
+   */
+  public void testIsUrlAccepted() throws RegainException {
+    WhiteListEntry[] whiteList = new WhiteListEntry[] {
+      new WhiteListEntry(new RegexUrlMatcher("http://www\\.murfman\\.de/docs/.*\\.pdf", false, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("http://www.murfman.de/", true, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("http://www.murfman.de/docs/", true, false), null),
+      new WhiteListEntry(new RegexUrlMatcher("https?://[a-z]+\\.example\\.com/.*", true, false), null),
+      new WhiteListEntry(new PrefixUrlMatcher("file:///home/til/", true, true), "home")
+    };
+    whiteList[4].setShouldBeUpdated(false);
+
+    UrlMatcher[] blackList = new UrlMatcher[] {
+      new PrefixUrlMatcher("http://www.murfman.de/private/", false, false),
+      new RegexUrlMatcher(".*\\?print=1", false, false)
+    };
+
+    UrlChecker checker = new UrlChecker(whiteList, blackList);
+
+    // The first matching white list entry wins
+    assertAccepted(checker, "http://www.murfman.de/docs/test.pdf", false, true);
+    assertAccepted(checker, "http://www.murfman.de/docs/test.html", true, true);
+    assertAccepted(checker, "http://www.murfman.de/", true, true);
+    assertAccepted(checker, "https://www.example.com/abc", true, false);
+
+    // No matching white list entry
+    assertAccepted(checker, "http://www.murfman.d", false, false);
+    assertAccepted(checker, "http://www.example.com", false, false);
+    assertAccepted(checker, "file:///home/til/test.txt", false, false);
+
+    // Black list
+    assertAccepted(checker, "http://www.murfman.de/private/test.html", false, false);
+    assertAccepted(checker, "http://www.murfman.de/index.html?print=1", false, false);
+
+    // Cached verdicts
+    assertAccepted(checker, "http://www.murfman.de/docs/test.pdf", false, true);
+    assertAccepted(checker, "http://www.murfman.de/index.html?print=1", false, false);
+  }
+
+
+  /**
+   * Tests that the prefixes of the white and the black list match the
+   * normalized URLs.
+   */
+  public void testCanonicalPrefixes() {
+    WhiteListEntry[] whiteList = new WhiteListEntry[] {
+      new WhiteListEntry(new PrefixUrlMatcher("HTTP://WWW.Murfman.de:80/docs/./", true, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("http://Example.com", true, false), null),
+      new WhiteListEntry(new PrefixUrlMatcher("file:///home/Til/", true, true), null)
+    };
+    UrlMatcher[] blackList = new UrlMatcher[] {
+      new PrefixUrlMatcher("http://www.murfman.de/docs/%7etil/", false, false)
+    };
+
+    UrlChecker checker = new UrlChecker(whiteList, blackList);
+
+    assertAccepted(checker, "http://www.murfman.de/docs/test.html", true, true);
+    assertAccepted(checker, "http://www.murfman.de/docs/~til/test.html", false, false);
+    assertAccepted(checker, "http://example.com/", true, false);
+    assertAccepted(checker, "http://example.com:8080/test.html", true, false);
+    assertAccepted(checker, "file:///home/Til/test.txt", true, true);
+    assertAccepted(checker, "file:///home/til/test.txt", false, false);
+  }
+
+
+  /**
+   * Tests the remembering of accepted and ignored URLs.
+   *
+   * @throws RegainException If the URL set could not be enlarged.
+   */
+  public void testSeenUrls() throws RegainException {
+    UrlChecker checker = new UrlChecker(new WhiteListEntry[0], new UrlMatcher[0]);
+
+    for (int i = 0; i < 50000; i++) {
+      checker.setAccepted("http://www.murfman.de/doc" + i + ".html");
+      checker.setIgnored("http://www.murfman.de/ignored" + i + ".html");
+    }
+    checker.setAccepted("file:///home/til/test.txt");
+
+    assertTrue(checker.wasAlreadyAccepted("http://www.murfman.de/doc0.html"));
+    assertTrue(checker.wasAlreadyAccepted("http://www.murfman.de/doc49999.html"));
+    assertFalse(checker.wasAlreadyAccepted("http://www.murfman.de/doc50000.html"));
+    assertFalse(checker.wasAlreadyAccepted("http://www.murfman.de/ignored1.html"));
+    assertTrue(checker.wasAlreadyIgnored("http://www.murfman.de/ignored1.html"));
+    assertFalse(checker.wasAlreadyIgnored("http://www.murfman.de/doc1.html"));
+
+    // File URLs are never remembered (see the class javadoc of UrlChecker)
+    assertFalse(checker.wasAlreadyAccepted("file:///home/til/test.txt"));
+
+    assertEquals(100000, checker.getSeenUrlCount());
+    assertEquals(50000, checker.getIgnoredCount());
+  }
+
+
+  /**
+   * Checks the verdict of {@link UrlChecker#isUrlAccepted(String)}.
+   *
+   * @param checker The UrlChecker to use.
+   * @param url The URL to check.
+   * @param shouldBeParsed The expected parse flag.
+   * @param shouldBeIndexed The expected index flag.
+   */
+  private void assertAccepted(UrlChecker checker, String url,
+    boolean shouldBeParsed, boolean shouldBeIndexed)
+  {
+    UrlMatcher verdict = checker.isUrlAccepted(url);
+    assertEquals(url, shouldBeParsed, verdict.getShouldBeParsed());
+    assertEquals(url, shouldBeIndexed, verdict.getShouldBeIndexed());
+  }
+
+}
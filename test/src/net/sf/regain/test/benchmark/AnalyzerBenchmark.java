@@ -0,0 +1,121 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+import java.io.StringReader;
+
+import net.sf.regain.RegainToolkit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+
+/**
+ * Benchmarks the tokenization of the analyzer created by
+ * {@link RegainToolkit#createAnalyzer(String, String[], String[], String[])}
+ * on texts of the synthetic corpus.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class AnalyzerBenchmark extends Benchmark {
+
+  /** The stop words (like in the example configuration). */
+  static final String[] STOP_WORDS = {
+    "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in",
+    "into", "is", "it", "no", "not", "of", "on", "or", "such", "that", "the",
+    "their", "then", "there", "these", "they", "this", "to", "was", "will", "with"
+  };
+
+  /** The number of texts. */
+  private static final int TEXT_COUNT = 100;
+
+  /** The number of words per text. */
+  private static final int WORD_COUNT = 500;
+
+  /** The analyzer to benchmark. */
+  private Analyzer mAnalyzer;
+
+  /** The texts. */
+  private String[] mTextArr;
+
+  /** The index of the next text. */
+  private int mTextIndex;
+
+
+  /**
+   * Creates a new instance of AnalyzerBenchmark.
+   */
+  public AnalyzerBenchmark() {
+    super("Analyzer.tokenStream");
+  }
+
+
+  /**
+   * Creates the analyzer and the texts.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If creating the analyzer failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    mAnalyzer = RegainToolkit.createAnalyzer("english", STOP_WORDS, new String[0],
+        new String[0]);
+
+    CorpusGenerator generator = new CorpusGenerator();
+    mTextArr = new String[TEXT_COUNT];
+    for (int i = 0; i < mTextArr.length; i++) {
+      mTextArr[i] = generator.createText(WORD_COUNT, false);
+    }
+  }
+
+
+  /**
+   * Tokenizes the next text.
+   *
+   * @return The number of tokens.
+   * @throws Exception If tokenizing failed.
+   */
+  @Override
+  public int runOperation() throws Exception {
+    String text = mTextArr[mTextIndex];
+    mTextIndex = (mTextIndex + 1) % mTextArr.length;
+
+    TokenStream stream = mAnalyzer.reusableTokenStream("content", new StringReader(text));
+    int tokenCount = 0;
+    stream.reset();
+    while (stream.incrementToken()) {
+      tokenCount++;
+    }
+    stream.end();
+    stream.close();
+    return tokenCount;
+  }
+
+
+  /**
+   * Closes the analyzer.
+   */
+  @Override
+  public void tearDown() {
+    mAnalyzer.close();
+  }
+
+}
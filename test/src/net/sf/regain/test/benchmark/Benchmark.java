@@ -0,0 +1,89 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+/**
+ * A benchmark of one hot path. The {@link BenchmarkRunner} calls
+ * {@link #runOperation()} as often as possible for a fixed time and reports
+ * the time per operation.
+ * <p>
+ * Like JMH benchmarks the operations return a value that the runner consumes,
+ * so the JIT compiler can't remove the measured code.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public abstract class Benchmark {
+
+  /** The name of the benchmark. */
+  private String mName;
+
+
+  /**
+   * Creates a new instance of Benchmark.
+   *
+   * @param name The name of the benchmark.
+   */
+  protected Benchmark(String name) {
+    mName = name;
+  }
+
+
+  /**
+   * Gets the name of the benchmark.
+   *
+   * @return The name.
+   */
+  public String getName() {
+    return mName;
+  }
+
+
+  /**
+   * Prepares the benchmark. Is called once before the warm up.
+   *
+   * @param workDir The directory where the benchmark may create files (e.g.
+   *        the synthetic corpus).
+   * @throws Exception If preparing failed. The benchmark is skipped then.
+   */
+  public void setUp(File workDir) throws Exception {
+  }
+
+
+  /**
+   * Runs one operation.
+   *
+   * @return A value depending on the result of the operation.
+   * @throws Exception If the operation failed.
+   */
+  public abstract int runOperation() throws Exception;
+
+
+  /**
+   * Cleans up after the benchmark.
+   *
+   * @throws Exception If cleaning up failed.
+   */
+  public void tearDown() throws Exception {
+  }
+
+}
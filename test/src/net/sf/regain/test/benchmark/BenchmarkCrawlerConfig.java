@@ -0,0 +1,128 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import net.sf.regain.crawler.config.DummyCrawlerConfig;
+import net.sf.regain.crawler.config.PreparatorConfig;
+import net.sf.regain.crawler.config.PreparatorSettings;
+
+/**
+ * The crawler configuration of the benchmarks. Uses the english analyzer,
+ * prefers the HTML preparator, like a crawler indexing a web site, and uses
+ * no proxy.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class BenchmarkCrawlerConfig extends DummyCrawlerConfig {
+
+  /**
+   * Gets the type of the analyzer.
+   *
+   * @return The type of the analyzer.
+   */
+  @Override
+  public String getAnalyzerType() {
+    return "english";
+  }
+
+
+  /**
+   * Gets the host name of the proxy server.
+   *
+   * @return <code>null</code>, since the benchmarks only load local documents.
+   */
+  @Override
+  public String getProxyHost() {
+    return null;
+  }
+
+
+  /**
+   * Gets the port of the proxy server.
+   *
+   * @return <code>null</code>, since the benchmarks only load local documents.
+   */
+  @Override
+  public String getProxyPort() {
+    return null;
+  }
+
+
+  /**
+   * Gets the words that should not be indexed.
+   *
+   * @return The stop words.
+   */
+  @Override
+  public String[] getStopWordList() {
+    return AnalyzerBenchmark.STOP_WORDS;
+  }
+
+
+  /**
+   * Gets the words that should not be changed by the analyzer.
+   *
+   * @return The words that should not be changed by the analyzer.
+   */
+  @Override
+  public String[] getExclusionList() {
+    return new String[0];
+  }
+
+
+  /**
+   * Gets whether analysis files should be written.
+   *
+   * @return false, since the benchmarks don't write analysis files.
+   */
+  @Override
+  public boolean getWriteAnalysisFiles() {
+    return false;
+  }
+
+
+  /**
+   * Gets the settings of the preparators. The HTML preparator is used for the
+   * documents of the synthetic corpus, all other preparators are added
+   * unconfigured.
+   *
+   * @return The settings of the preparators.
+   */
+  @Override
+  public PreparatorSettings[] getPreparatorSettingsList() {
+    return new PreparatorSettings[] {
+      new PreparatorSettings(true, 0, PreparatorSettings.DEFAULT_PREPARATOR_PACKAGE
+          + ".HtmlPreparator", null, new PreparatorConfig())
+    };
+  }
+
+
+  /**
+   * Gets the names of the fields that should not be tokenized.
+   *
+   * @return The names of the fields that should not be tokenized.
+   */
+  @Override
+  public String[] getUntokenizedFieldNames() {
+    return new String[0];
+  }
+
+}
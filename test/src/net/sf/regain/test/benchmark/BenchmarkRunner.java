@@ -0,0 +1,328 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+/**
+ * Runs the benchmarks of the crawler and search hot paths.
+ * <p>
+ * Every benchmark is warmed up, then it is measured in several iterations of
+ * a fixed time. The result is the average time per operation and its standard
+ * deviation over the iterations. The results are written to a file that can
+ * be passed as baseline to a later run, which then shows the change of each
+ * benchmark. This way performance regressions become visible.
+ * <p>
+ * Usage: <code>BenchmarkRunner [options]</code> with the options
+ * <ul>
+ * <li><code>-filter regex</code>: Only run the benchmarks whose name matches
+ *     the regex.</li>
+ * <li><code>-warmup secs</code>: The warm up time per benchmark. Default: 2</li>
+ * <li><code>-iterations n</code>: The number of measured iterations.
+ *     Default: 5</li>
+ * <li><code>-time secs</code>: The time of an iteration. Default: 1</li>
+ * <li><code>-workdir dir</code>: The directory for the corpus and the index.
+ *     Default: <code>benchmark</code></li>
+ * <li><code>-results file</code>: Where to write the results.
+ *     Default: <code>benchmark/results.txt</code></li>
+ * <li><code>-baseline file</code>: The results of an earlier run to compare
+ *     with.</li>
+ * </ul>
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class BenchmarkRunner {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(BenchmarkRunner.class);
+
+  /** Der Dateiname der Log4J-Properties-Datei. */
+  private static final String LOG4J_PROP_FILE_NAME = "log4j.properties";
+
+  /**
+   * Consumes the results of the operations, so the JIT compiler can't remove
+   * them.
+   */
+  private static volatile int mSink;
+
+  /** The warm up time per benchmark (in nanoseconds). */
+  private long mWarmUpNanos = 2000000000L;
+
+  /** The number of measured iterations. */
+  private int mIterationCount = 5;
+
+  /** The time of an iteration (in nanoseconds). */
+  private long mIterationNanos = 1000000000L;
+
+  /** The directory for the corpus and the index. */
+  private File mWorkDir = new File("benchmark");
+
+
+  /**
+   * Creates all benchmarks.
+   *
+   * @return The benchmarks.
+   */
+  public static Benchmark[] createBenchmarks() {
+    return new Benchmark[] {
+      new UrlCheckerBenchmark(),
+      new UrlBenchmark(UrlBenchmark.CLEAN_URL),
+      new UrlBenchmark(UrlBenchmark.NORMALIZE),
+      new UrlBenchmark(UrlBenchmark.TO_ABSOLUTE_URL),
+      new StripEntitiesBenchmark(),
+      new HtmlPreparatorBenchmark(),
+      new AnalyzerBenchmark(),
+      new DocumentFactoryBenchmark(),
+      new SearchBenchmark(false),
+      new SearchBenchmark(true)
+    };
+  }
+
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args The command line arguments. See the class description.
+   * @throws RegainException If reading the baseline or writing the results
+   *         failed.
+   */
+  public static void main(String[] args) throws RegainException {
+    initLogging();
+
+    BenchmarkRunner runner = new BenchmarkRunner();
+    Pattern filter = null;
+    File resultFile = null;
+    File baselineFile = null;
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        usage("Missing value of option " + args[i]);
+      }
+      String option = args[i];
+      String value = args[++i];
+      if (option.equals("-filter")) {
+        filter = Pattern.compile(value);
+      } else if (option.equals("-warmup")) {
+        runner.mWarmUpNanos = Math.round(Double.parseDouble(value) * 1e9);
+      } else if (option.equals("-iterations")) {
+        runner.mIterationCount = Integer.parseInt(value);
+      } else if (option.equals("-time")) {
+        runner.mIterationNanos = Math.round(Double.parseDouble(value) * 1e9);
+      } else if (option.equals("-workdir")) {
+        runner.mWorkDir = new File(value);
+      } else if (option.equals("-results")) {
+        resultFile = new File(value);
+      } else if (option.equals("-baseline")) {
+        baselineFile = new File(value);
+      } else {
+        usage("Unknown option: " + option);
+      }
+    }
+    if (resultFile == null) {
+      resultFile = new File(runner.mWorkDir, "results.txt");
+    }
+    if (! runner.mWorkDir.exists() && ! runner.mWorkDir.mkdirs()) {
+      throw new RegainException("Creating work directory failed: "
+          + runner.mWorkDir.getAbsolutePath());
+    }
+
+    HashMap<String, Double> baselineHash = new HashMap<String, Double>();
+    if (baselineFile != null) {
+      baselineHash = readResults(baselineFile);
+    }
+
+    StringBuilder results = new StringBuilder();
+    results.append("# benchmark\tns/op\terror ns/op\tops/s\n");
+    System.out.println(String.format(Locale.ENGLISH, "%-32s %14s %12s %14s %10s",
+        "Benchmark", "ns/op", "+-", "ops/s", "change"));
+
+    Benchmark[] benchmarkArr = createBenchmarks();
+    for (int i = 0; i < benchmarkArr.length; i++) {
+      Benchmark benchmark = benchmarkArr[i];
+      if ((filter != null) && ! filter.matcher(benchmark.getName()).find()) {
+        continue;
+      }
+
+      double[] nanosPerOpArr;
+      try {
+        nanosPerOpArr = runner.run(benchmark);
+      }
+      catch (Throwable thr) {
+        // Show the root cause, e.g. a missing preparator directory
+        mLog.debug("Benchmark " + benchmark.getName() + " failed", thr);
+        Throwable cause = thr;
+        while (cause.getCause() != null) {
+          cause = cause.getCause();
+        }
+        System.out.println(String.format(Locale.ENGLISH, "%-32s skipped: %s",
+            benchmark.getName(), cause));
+        continue;
+      }
+
+      double mean = 0;
+      for (int j = 0; j < nanosPerOpArr.length; j++) {
+        mean += nanosPerOpArr[j];
+      }
+      mean /= nanosPerOpArr.length;
+      double variance = 0;
+      for (int j = 0; j < nanosPerOpArr.length; j++) {
+        variance += (nanosPerOpArr[j] - mean) * (nanosPerOpArr[j] - mean);
+      }
+      double deviation = (nanosPerOpArr.length > 1)
+        ? Math.sqrt(variance / (nanosPerOpArr.length - 1)) : 0;
+
+      String change = "";
+      Double baseline = baselineHash.get(benchmark.getName());
+      if (baseline != null) {
+        change = String.format(Locale.ENGLISH, "%+.1f%%", (mean / baseline.doubleValue() - 1) * 100);
+      }
+      System.out.println(String.format(Locale.ENGLISH, "%-32s %14.1f %12.1f %14.1f %10s",
+          benchmark.getName(), mean, deviation, 1e9 / mean, change));
+      results.append(String.format(Locale.ENGLISH, "%s\t%.1f\t%.1f\t%.1f\n",
+          benchmark.getName(), mean, deviation, 1e9 / mean));
+    }
+
+    RegainToolkit.writeToFile(results.toString(), resultFile);
+    System.out.println("Results written to: " + resultFile.getAbsolutePath());
+  }
+
+
+  /**
+   * Initializes the logging. Uses the log4j configuration of the current
+   * directory if there is one. Only warnings and errors are logged, so the
+   * benchmarks don't measure debug logging.
+   */
+  static void initLogging() {
+    File logConfigFile = new File(LOG4J_PROP_FILE_NAME);
+    if (logConfigFile.exists()) {
+      PropertyConfigurator.configure(logConfigFile.getAbsolutePath());
+    } else {
+      BasicConfigurator.configure();
+    }
+    Logger.getRootLogger().setLevel(Level.WARN);
+  }
+
+
+  /**
+   * Runs one benchmark.
+   *
+   * @param benchmark The benchmark to run.
+   * @return The time per operation in each iteration (in nanoseconds).
+   * @throws Exception If the benchmark failed.
+   */
+  private double[] run(Benchmark benchmark) throws Exception {
+    benchmark.setUp(mWorkDir);
+    try {
+      measure(benchmark, mWarmUpNanos);
+
+      double[] nanosPerOpArr = new double[mIterationCount];
+      for (int i = 0; i < mIterationCount; i++) {
+        nanosPerOpArr[i] = measure(benchmark, mIterationNanos);
+      }
+      return nanosPerOpArr;
+    }
+    finally {
+      benchmark.tearDown();
+    }
+  }
+
+
+  /**
+   * Runs the operation of a benchmark for a given time.
+   *
+   * @param benchmark The benchmark to run.
+   * @param nanos The time to run (in nanoseconds).
+   * @return The time per operation (in nanoseconds).
+   * @throws Exception If the benchmark failed.
+   */
+  private double measure(Benchmark benchmark, long nanos) throws Exception {
+    int sink = 0;
+    long opCount = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      // Check the time only every few operations, since fast operations would
+      // mainly measure System.nanoTime() otherwise
+      long batchSize = Math.max(1, opCount / 10);
+      for (long i = 0; i < batchSize; i++) {
+        sink += benchmark.runOperation();
+      }
+      opCount += batchSize;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < nanos);
+
+    mSink += sink;
+    return (double) elapsed / opCount;
+  }
+
+
+  /**
+   * Reads the results of an earlier run.
+   *
+   * @param file The result file.
+   * @return The time per operation (in nanoseconds) of each benchmark.
+   * @throws RegainException If reading the file failed.
+   */
+  private static HashMap<String, Double> readResults(File file)
+    throws RegainException
+  {
+    HashMap<String, Double> resultHash = new HashMap<String, Double>();
+    String[] lineArr = RegainToolkit.readStringFromFile(file).split("\r?\n");
+    for (int i = 0; i < lineArr.length; i++) {
+      if (lineArr[i].startsWith("#") || (lineArr[i].trim().length() == 0)) {
+        continue;
+      }
+      String[] partArr = lineArr[i].split("\t");
+      try {
+        resultHash.put(partArr[0], Double.valueOf(partArr[1]));
+      }
+      catch (RuntimeException exc) {
+        throw new RegainException("Wrong line in baseline " + file.getAbsolutePath()
+            + ": " + lineArr[i], exc);
+      }
+    }
+    return resultHash;
+  }
+
+
+  /**
+   * Prints the usage and exits.
+   *
+   * @param message The error message.
+   */
+  private static void usage(String message) {
+    System.out.println(message);
+    System.out.println("Usage: [-filter regex] [-warmup secs] [-iterations n] "
+        + "[-time secs] [-workdir dir] [-results file] [-baseline file]");
+    System.exit(1);
+  }
+
+}
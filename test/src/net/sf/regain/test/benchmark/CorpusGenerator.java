@@ -0,0 +1,608 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hslf.model.Slide;
+import org.apache.poi.hslf.model.TextBox;
+import org.apache.poi.hslf.usermodel.SlideShow;
+
+/**
+ * Generates a synthetic corpus of HTML documents and URLs for the benchmarks.
+ * <p>
+ * The words follow a Zipf distribution over a vocabulary of common English
+ * words and generated words, the documents have headlines, entities, tables
+ * and links to other documents of the corpus, to other hosts and with session
+ * parameters. The document sizes vary between about 1 KB and 60 KB and may be
+ * scaled by a size factor.
+ * <p>
+ * Besides the HTML documents the corpus may have attachments: Text files,
+ * PDFs, Excel and PowerPoint documents, which are linked from the HTML
+ * documents.
+ * <p>
+ * The corpus only depends on the seed, so the results of benchmarks using the
+ * same seed are comparable.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class CorpusGenerator {
+
+  /** The seed used if none is given. */
+  public static final long DEFAULT_SEED = 4711;
+
+  /** Common English words. Are the most frequent words of the vocabulary. */
+  private static final String[] COMMON_WORDS = {
+    "the", "of", "and", "to", "in", "is", "that", "for", "it", "as", "was",
+    "with", "be", "by", "on", "not", "this", "are", "or", "from", "which",
+    "search", "index", "document", "documents", "file", "files", "crawler",
+    "running", "runs", "indexed", "searching", "results", "engine", "server",
+    "content", "pages", "page", "links", "linked", "format", "formats",
+    "information", "network", "computer", "system", "systems", "users",
+    "performance", "measured", "measurement", "analysis", "report", "reports",
+    "library", "libraries", "project", "projects", "version", "versions",
+    "changes", "changed", "update", "updates", "updated", "archive", "archives"
+  };
+
+  /** The syllables of the generated words. */
+  private static final String[] SYLLABLES = {
+    "ka", "ter", "lo", "min", "dra", "sen", "vo", "rit", "pa", "lun", "ge",
+    "mor", "ti", "bel", "an", "sor", "qui", "nex", "ol", "ha", "pri", "dun"
+  };
+
+  /** The entities inserted into the texts. */
+  private static final String[] ENTITIES = {
+    "&amp;", "&auml;", "&ouml;", "&uuml;", "&szlig;", "&nbsp;", "&euro;",
+    "&#8364;", "&#x41;", "&copy;", "&lt;", "&gt;", "&quot;", "&eacute;"
+  };
+
+  /** The file extensions of the attachments. */
+  private static final String[] ATTACHMENT_EXTENSIONS = {
+    "txt", "pdf", "xls", "ppt"
+  };
+
+  /** The hosts of the generated URLs. */
+  private static final String[] HOSTS = {
+    "www.example.com", "docs.example.com", "WWW.Example.org:80",
+    "intranet.example.net", "archive.example.com"
+  };
+
+  /** The random generator. */
+  private Random mRandom;
+
+  /** The vocabulary. */
+  private String[] mWordArr;
+
+  /** The cumulated Zipf probabilities of the words. */
+  private double[] mCumulatedProbabilityArr;
+
+  /** The factor the document sizes are multiplied with. */
+  private double mSizeFactor = 1;
+
+  /** The number of attachments the HTML documents may link to. */
+  private int mAttachmentCount;
+
+
+  /**
+   * Creates a new instance of CorpusGenerator using the default seed.
+   */
+  public CorpusGenerator() {
+    this(DEFAULT_SEED);
+  }
+
+
+  /**
+   * Creates a new instance of CorpusGenerator.
+   *
+   * @param seed The seed of the random generator.
+   */
+  public CorpusGenerator(long seed) {
+    mRandom = new Random(seed);
+
+    int vocabularySize = 5000;
+    mWordArr = new String[vocabularySize];
+    System.arraycopy(COMMON_WORDS, 0, mWordArr, 0, COMMON_WORDS.length);
+    for (int i = COMMON_WORDS.length; i < vocabularySize; i++) {
+      int syllableCount = 1 + mRandom.nextInt(4);
+      StringBuilder word = new StringBuilder();
+      for (int s = 0; s < syllableCount; s++) {
+        word.append(SYLLABLES[mRandom.nextInt(SYLLABLES.length)]);
+      }
+      mWordArr[i] = word.toString();
+    }
+
+    mCumulatedProbabilityArr = new double[vocabularySize];
+    double sum = 0;
+    for (int i = 0; i < vocabularySize; i++) {
+      sum += 1.0 / (i + 1);
+      mCumulatedProbabilityArr[i] = sum;
+    }
+    for (int i = 0; i < vocabularySize; i++) {
+      mCumulatedProbabilityArr[i] /= sum;
+    }
+  }
+
+
+  /**
+   * Sets the factor the document sizes are multiplied with.
+   *
+   * @param sizeFactor The size factor. 1 gives documents between about 1 KB
+   *        and 60 KB.
+   */
+  public void setSizeFactor(double sizeFactor) {
+    mSizeFactor = sizeFactor;
+  }
+
+
+  /**
+   * Gets a random word.
+   *
+   * @return The word.
+   */
+  public String nextWord() {
+    int index = Arrays.binarySearch(mCumulatedProbabilityArr, mRandom.nextDouble());
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return mWordArr[Math.min(index, mWordArr.length - 1)];
+  }
+
+
+  /**
+   * Creates a text of sentences.
+   *
+   * @param wordCount The number of words.
+   * @param withEntities Whether HTML entities should be inserted.
+   * @return The text.
+   */
+  public String createText(int wordCount, boolean withEntities) {
+    StringBuilder text = new StringBuilder(wordCount * 7);
+    boolean sentenceStart = true;
+    for (int i = 0; i < wordCount; i++) {
+      String word = nextWord();
+      if (sentenceStart) {
+        text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        sentenceStart = false;
+      } else {
+        text.append(word);
+      }
+
+      if (withEntities && (mRandom.nextInt(40) == 0)) {
+        text.append(ENTITIES[mRandom.nextInt(ENTITIES.length)]);
+      }
+      if (mRandom.nextInt(12) == 0) {
+        text.append(". ");
+        sentenceStart = true;
+      } else if (mRandom.nextInt(15) == 0) {
+        text.append(", ");
+      } else {
+        text.append(' ');
+      }
+    }
+    return text.toString().trim();
+  }
+
+
+  /**
+   * Creates an HTML document.
+   *
+   * @param docIndex The index of the document within the corpus.
+   * @param docCount The number of documents in the corpus. The document links
+   *        to other documents of the corpus.
+   * @return The HTML document.
+   */
+  public String createHtmlDocument(int docIndex, int docCount) {
+    // Most documents are small, some are large
+    int wordCount = createWordCount();
+
+    StringBuilder html = new StringBuilder(wordCount * 8);
+    html.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\">\n");
+    html.append("<html>\n<head>\n<title>").append(createText(3 + mRandom.nextInt(6), false));
+    html.append("</title>\n");
+    html.append("<meta name=\"keywords\" content=\"").append(createText(5, false)).append("\">\n");
+    html.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=iso-8859-1\">\n");
+    html.append("<style type=\"text/css\">body { font-family: sans-serif; }</style>\n");
+    html.append("</head>\n<body>\n");
+    html.append("<h1>").append(createText(4, false)).append("</h1>\n");
+
+    int written = 0;
+    while (written < wordCount) {
+      int choice = mRandom.nextInt(10);
+      if (choice == 0) {
+        html.append("<h2>").append(createText(3 + mRandom.nextInt(4), true)).append("</h2>\n");
+      } else if (choice == 1) {
+        html.append("<table>\n");
+        for (int row = 0; row < 3; row++) {
+          html.append("<tr><td>").append(nextWord()).append("</td><td>")
+            .append(mRandom.nextInt(10000)).append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+        written += 6;
+      } else if (choice == 2) {
+        html.append("<ul>\n");
+        for (int item = 0; item < 4; item++) {
+          html.append("<li>").append(createLink(docIndex, docCount)).append("</li>\n");
+        }
+        html.append("</ul>\n");
+        written += 8;
+      }
+
+      int paragraphWords = Math.min(20 + mRandom.nextInt(80), wordCount - written);
+      if (paragraphWords > 0) {
+        html.append("<p>").append(createText(paragraphWords, true));
+        html.append(' ').append(createLink(docIndex, docCount)).append("</p>\n");
+        written += paragraphWords + 2;
+      }
+    }
+
+    html.append("<!-- generated document ").append(docIndex).append(" -->\n");
+    html.append("</body>\n</html>\n");
+    return html.toString();
+  }
+
+
+  /**
+   * Creates the random number of words of a document. Most documents are
+   * small, some are large.
+   *
+   * @return The number of words.
+   */
+  private int createWordCount() {
+    double wordCount = Math.min(8000, 150 * Math.exp(mRandom.nextGaussian() * 0.9 + 1));
+    return Math.max(1, (int) (wordCount * mSizeFactor));
+  }
+
+
+  /**
+   * Creates a link. Most links point to other documents of the corpus, some to
+   * attachments, to other hosts or have session parameters.
+   *
+   * @param docIndex The index of the document containing the link.
+   * @param docCount The number of documents in the corpus.
+   * @return The link as HTML <code>a</code> tag.
+   */
+  private String createLink(int docIndex, int docCount) {
+    String href;
+    int choice = mRandom.nextInt(10);
+    int target = (docIndex + 1 + mRandom.nextInt(Math.max(docCount - 1, 1))) % Math.max(docCount, 1);
+    if ((mAttachmentCount > 0) && (choice == 0)) {
+      href = getAttachmentName(mRandom.nextInt(mAttachmentCount));
+    } else if (choice < 7) {
+      href = getDocumentName(target);
+    } else if (choice == 7) {
+      href = getDocumentName(target) + "?PHPSESSID=" + Long.toHexString(mRandom.nextLong())
+        + "&amp;lang=en";
+    } else if (choice == 8) {
+      href = "./" + getDocumentName(target) + "#section" + mRandom.nextInt(5);
+    } else {
+      href = createUrl();
+    }
+    return "<a href=\"" + href + "\">" + createText(1 + mRandom.nextInt(3), false) + "</a>";
+  }
+
+
+  /**
+   * Creates a random absolute URL like the ones found in web pages: Mixed case
+   * hosts, default ports, dot segments, percent encoding, session parameters
+   * and anchors.
+   *
+   * @return The URL.
+   */
+  public String createUrl() {
+    StringBuilder url = new StringBuilder();
+    url.append(mRandom.nextInt(4) == 0 ? "https://" : "http://");
+    url.append(HOSTS[mRandom.nextInt(HOSTS.length)]);
+    int depth = 1 + mRandom.nextInt(4);
+    for (int i = 0; i < depth; i++) {
+      url.append('/');
+      int choice = mRandom.nextInt(12);
+      if (choice == 0) {
+        url.append("..");
+      } else if (choice == 1) {
+        url.append('.');
+      } else if (choice == 2) {
+        url.append(nextWord()).append("%7e").append(nextWord());
+      } else {
+        url.append(nextWord());
+      }
+    }
+    url.append(mRandom.nextBoolean() ? ".html" : "/");
+    if (mRandom.nextInt(3) == 0) {
+      url.append("?id=").append(mRandom.nextInt(100000));
+      if (mRandom.nextBoolean()) {
+        url.append("&jsessionid=").append(Long.toHexString(mRandom.nextLong()));
+      }
+    }
+    if (mRandom.nextInt(5) == 0) {
+      url.append("#top");
+    }
+    return url.toString();
+  }
+
+
+  /**
+   * Creates random relative URLs like the ones found in links.
+   *
+   * @return The relative URL.
+   */
+  public String createRelativeUrl() {
+    int choice = mRandom.nextInt(6);
+    if (choice == 0) {
+      return "/" + nextWord() + "/" + nextWord() + ".html";
+    } else if (choice == 1) {
+      return "../" + nextWord() + ".html";
+    } else if (choice == 2) {
+      return "./" + nextWord() + "/";
+    } else if (choice == 3) {
+      return "?page=" + mRandom.nextInt(100);
+    } else if (choice == 4) {
+      return createUrl();
+    } else {
+      return nextWord() + ".html#" + nextWord();
+    }
+  }
+
+
+  /**
+   * Gets the file name of a document of the corpus.
+   *
+   * @param docIndex The index of the document.
+   * @return The file name.
+   */
+  public static String getDocumentName(int docIndex) {
+    return "doc" + docIndex + ".html";
+  }
+
+
+  /**
+   * Gets the file name of an attachment of the corpus. The type of the
+   * attachment depends on its index.
+   *
+   * @param attachmentIndex The index of the attachment.
+   * @return The file name.
+   */
+  public static String getAttachmentName(int attachmentIndex) {
+    String extension = ATTACHMENT_EXTENSIONS[attachmentIndex % ATTACHMENT_EXTENSIONS.length];
+    return "attachment" + attachmentIndex + "." + extension;
+  }
+
+
+  /**
+   * Writes a corpus of HTML documents to a directory.
+   *
+   * @param dir The directory to write the documents to.
+   * @param docCount The number of documents.
+   * @return The written files.
+   * @throws RegainException If writing failed.
+   */
+  public File[] writeCorpus(File dir, int docCount) throws RegainException {
+    if (! dir.exists() && ! dir.mkdirs()) {
+      throw new RegainException("Creating corpus directory failed: " + dir.getAbsolutePath());
+    }
+
+    File[] fileArr = new File[docCount];
+    for (int i = 0; i < docCount; i++) {
+      fileArr[i] = new File(dir, getDocumentName(i));
+      RegainToolkit.writeToFile(createHtmlDocument(i, docCount), fileArr[i]);
+    }
+    return fileArr;
+  }
+
+
+  /**
+   * Writes a corpus of HTML documents and attachments to a directory. The HTML
+   * documents link to each other and to the attachments.
+   *
+   * @param dir The directory to write the documents to.
+   * @param docCount The number of HTML documents.
+   * @param attachmentCount The number of attachments.
+   * @return The written files.
+   * @throws RegainException If writing failed.
+   */
+  public File[] writeCorpus(File dir, int docCount, int attachmentCount)
+    throws RegainException
+  {
+    mAttachmentCount = attachmentCount;
+    try {
+      List<File> fileList = new ArrayList<File>(Arrays.asList(writeCorpus(dir, docCount)));
+      for (int i = 0; i < attachmentCount; i++) {
+        File file = new File(dir, getAttachmentName(i));
+        writeAttachment(file);
+        fileList.add(file);
+      }
+      return fileList.toArray(new File[fileList.size()]);
+    }
+    finally {
+      mAttachmentCount = 0;
+    }
+  }
+
+
+  /**
+   * Writes an attachment. The type of the attachment is given by the file
+   * extension.
+   *
+   * @param file The file to write. Must have the extension txt, pdf, xls or
+   *        ppt.
+   * @throws RegainException If writing failed.
+   */
+  public void writeAttachment(File file) throws RegainException {
+    String name = file.getName();
+    String extension = name.substring(name.lastIndexOf('.') + 1);
+    int wordCount = createWordCount();
+    try {
+      if (extension.equals("txt")) {
+        RegainToolkit.writeToFile(createText(wordCount, false), file);
+      } else if (extension.equals("pdf")) {
+        writePdfDocument(file, wordCount);
+      } else if (extension.equals("xls")) {
+        writeExcelDocument(file, wordCount);
+      } else if (extension.equals("ppt")) {
+        writePowerPointDocument(file, wordCount);
+      } else {
+        throw new RegainException("Unknown attachment type: " + name);
+      }
+    }
+    catch (IOException exc) {
+      throw new RegainException("Writing attachment failed: " + file.getAbsolutePath(), exc);
+    }
+    catch (COSVisitorException exc) {
+      throw new RegainException("Writing attachment failed: " + file.getAbsolutePath(), exc);
+    }
+  }
+
+
+  /**
+   * Writes a PDF document with lines of text.
+   *
+   * @param file The file to write.
+   * @param wordCount The number of words.
+   * @throws IOException If writing failed.
+   * @throws COSVisitorException If writing failed.
+   */
+  private void writePdfDocument(File file, int wordCount)
+    throws IOException, COSVisitorException
+  {
+    PDDocument doc = new PDDocument();
+    try {
+      int written = 0;
+      while (written < wordCount) {
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        PDPageContentStream content = new PDPageContentStream(doc, page);
+        content.beginText();
+        content.setFont(PDType1Font.HELVETICA, 10);
+        content.moveTextPositionByAmount(50, 740);
+        for (int line = 0; (line < 55) && (written < wordCount); line++) {
+          int lineWords = Math.min(12, wordCount - written);
+          content.drawString(createText(lineWords, false));
+          content.moveTextPositionByAmount(0, -12);
+          written += lineWords;
+        }
+        content.endText();
+        content.close();
+      }
+      doc.save(file.getAbsolutePath());
+    }
+    finally {
+      doc.close();
+    }
+  }
+
+
+  /**
+   * Writes an Excel document with a table of words and numbers.
+   *
+   * @param file The file to write.
+   * @param wordCount The number of words.
+   * @throws IOException If creating the document failed.
+   * @throws RegainException If writing failed.
+   */
+  private void writeExcelDocument(File file, int wordCount)
+    throws IOException, RegainException
+  {
+    HSSFWorkbook workbook = new HSSFWorkbook();
+    HSSFSheet sheet = workbook.createSheet(nextWord());
+    for (int row = 0; row * 4 < wordCount; row++) {
+      HSSFRow sheetRow = sheet.createRow(row);
+      sheetRow.createCell(0).setCellValue(createText(3, false));
+      sheetRow.createCell(1).setCellValue(nextWord());
+      sheetRow.createCell(2).setCellValue(mRandom.nextInt(100000));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    workbook.write(out);
+    RegainToolkit.writeToFile(out.toByteArray(), file);
+  }
+
+
+  /**
+   * Writes a PowerPoint document with a text box on each slide.
+   *
+   * @param file The file to write.
+   * @param wordCount The number of words.
+   * @throws IOException If creating the document failed.
+   * @throws RegainException If writing failed.
+   */
+  private void writePowerPointDocument(File file, int wordCount)
+    throws IOException, RegainException
+  {
+    SlideShow slideShow = new SlideShow();
+    int written = 0;
+    while (written < wordCount) {
+      int slideWords = Math.min(30 + mRandom.nextInt(60), wordCount - written);
+      Slide slide = slideShow.createSlide();
+      TextBox textBox = new TextBox();
+      textBox.setText(createText(slideWords, false));
+      textBox.setAnchor(new Rectangle(40, 40, 640, 460));
+      slide.addShape(textBox);
+      written += slideWords;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    slideShow.write(out);
+    RegainToolkit.writeToFile(out.toByteArray(), file);
+  }
+
+
+  /**
+   * Writes a corpus to a directory.
+   *
+   * @param args The command line arguments: The target directory, the number
+   *        of documents and optionally the seed.
+   * @throws RegainException If writing failed.
+   */
+  public static void main(String[] args) throws RegainException {
+    if ((args.length < 2) || (args.length > 3)) {
+      System.out.println("Usage: [target directory] [document count] [seed]");
+      System.exit(1);
+    }
+
+    long seed = (args.length == 3) ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    File dir = new File(args[0]);
+    int docCount = Integer.parseInt(args[1]);
+    File[] fileArr = new CorpusGenerator(seed).writeCorpus(dir, docCount);
+
+    long size = 0;
+    for (int i = 0; i < fileArr.length; i++) {
+      size += fileArr[i].length();
+    }
+    System.out.println("Wrote " + fileArr.length + " documents ("
+        + RegainToolkit.bytesToString(size) + ") to " + dir.getAbsolutePath());
+  }
+
+}
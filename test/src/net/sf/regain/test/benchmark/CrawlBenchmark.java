@@ -0,0 +1,500 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.Crawler;
+import net.sf.regain.crawler.Profiler;
+import net.sf.regain.crawler.config.PrefixUrlMatcher;
+import net.sf.regain.crawler.config.StartUrl;
+import net.sf.regain.crawler.config.UrlPattern;
+import net.sf.regain.crawler.config.WhiteListEntry;
+
+import simple.http.ProtocolHandler;
+import simple.http.Request;
+import simple.http.Response;
+import simple.http.connect.Connection;
+import simple.http.connect.ConnectionFactory;
+import simple.http.serve.FileContext;
+import simple.http.serve.FileEngine;
+import simple.http.serve.HandlerFactory;
+
+/**
+ * Measures the throughput of whole crawler runs over a synthetic corpus.
+ * <p>
+ * The corpus has a web part and a file part. The web part consists of HTML
+ * documents linking to each other and to attachments (text files, PDFs, Excel
+ * and PowerPoint documents). It is served by an embedded simpleweb server on a local
+ * port. The file part consists of attachments that are crawled from the file
+ * system.
+ * <p>
+ * The crawler runs first creating a new index, then updating the index after
+ * some documents were changed. For each run the statistics of all profilers are
+ * written to a tab separated result file: The stage (the name of the
+ * profiler), the number of measures, the time spent in the stage (summed over
+ * all threads), the documents and bytes per second of that time, the wall time
+ * of the run, the peak heap usage and the size of the index. So the results of
+ * different builds can be compared.
+ * <p>
+ * Like {@link DocumentFactoryBenchmark} this benchmark must run in the crawler
+ * runtime directory, so the preparators are found.
+ * <p>
+ * Usage: <code>CrawlBenchmark [options]</code> with the options
+ * <ul>
+ * <li><code>-docs n</code>: The number of HTML documents. Default: 500</li>
+ * <li><code>-attachments n</code>: The number of attachments of the web part.
+ *     Default: 100</li>
+ * <li><code>-files n</code>: The number of documents of the file part.
+ *     Default: 100</li>
+ * <li><code>-size factor</code>: The factor the document sizes are multiplied
+ *     with. Default: 1</li>
+ * <li><code>-changed fraction</code>: The fraction of the documents that is
+ *     changed before the update. Default: 0.1</li>
+ * <li><code>-modes modes</code>: The crawler runs, comma separated.
+ *     Default: <code>new,update</code></li>
+ * <li><code>-seed seed</code>: The seed of the corpus.</li>
+ * <li><code>-workdir dir</code>: The directory for the corpus and the index.
+ *     Default: <code>benchmark/crawl</code></li>
+ * <li><code>-results file</code>: Where to write the results.
+ *     Default: <code>benchmark/crawl-results.txt</code></li>
+ * </ul>
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class CrawlBenchmark {
+
+  /** The header of the result file. */
+  public static final String RESULT_HEADER = "mode\tstage\tunit\tcount\taborted"
+    + "\ttime_ms\tper_sec\tbytes_per_sec\twall_ms\theap_peak_bytes\tindex_bytes";
+
+  /** The name of the pseudo stage holding the totals of a crawler run. */
+  public static final String TOTAL_STAGE = "Crawler run";
+
+  /** The number of HTML documents. */
+  private int mDocCount = 500;
+
+  /** The number of attachments of the web part. */
+  private int mAttachmentCount = 100;
+
+  /** The number of documents of the file part. */
+  private int mFileCount = 100;
+
+  /** The factor the document sizes are multiplied with. */
+  private double mSizeFactor = 1;
+
+  /** The fraction of the documents that is changed before an update. */
+  private double mChangedFraction = 0.1;
+
+  /** The seed of the corpus. */
+  private long mSeed = CorpusGenerator.DEFAULT_SEED;
+
+  /** The directory for the corpus and the index. */
+  private File mWorkDir = new File("benchmark" + File.separator + "crawl");
+
+  /** The directory of the web part of the corpus. */
+  private File mWebDir;
+
+  /** The directory of the file part of the corpus. */
+  private File mFileDir;
+
+  /** The directory of the search index. */
+  private File mIndexDir;
+
+  /** The number of crawler runs done so far. Is used to vary the changes. */
+  private int mRunCount;
+
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The command line arguments. See the class description.
+   * @throws Exception If the benchmark failed.
+   */
+  public static void main(String[] args) throws Exception {
+    BenchmarkRunner.initLogging();
+
+    CrawlBenchmark benchmark = new CrawlBenchmark();
+    String[] modeArr = { "new", "update" };
+    File resultFile = null;
+    for (int i = 0; i < args.length; i++) {
+      if (i + 1 >= args.length) {
+        usage("Missing value of option " + args[i]);
+      }
+      String option = args[i];
+      String value = args[++i];
+      if (option.equals("-docs")) {
+        benchmark.mDocCount = Integer.parseInt(value);
+      } else if (option.equals("-attachments")) {
+        benchmark.mAttachmentCount = Integer.parseInt(value);
+      } else if (option.equals("-files")) {
+        benchmark.mFileCount = Integer.parseInt(value);
+      } else if (option.equals("-size")) {
+        benchmark.mSizeFactor = Double.parseDouble(value);
+      } else if (option.equals("-changed")) {
+        benchmark.mChangedFraction = Double.parseDouble(value);
+      } else if (option.equals("-modes")) {
+        modeArr = RegainToolkit.splitString(value, ",");
+      } else if (option.equals("-seed")) {
+        benchmark.mSeed = Long.parseLong(value);
+      } else if (option.equals("-workdir")) {
+        benchmark.mWorkDir = new File(value);
+      } else if (option.equals("-results")) {
+        resultFile = new File(value);
+      } else {
+        usage("Unknown option: " + option);
+      }
+    }
+    for (int i = 0; i < modeArr.length; i++) {
+      if (! modeArr[i].equals("new") && ! modeArr[i].equals("update")) {
+        usage("Unknown mode: " + modeArr[i]);
+      }
+    }
+    if (resultFile == null) {
+      resultFile = new File(benchmark.mWorkDir.getParentFile(), "crawl-results.txt");
+    }
+
+    benchmark.createCorpus();
+
+    ServerSocket socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    ProtocolHandler fileHandler = HandlerFactory.getInstance(
+        new FileEngine(new FileContext(benchmark.mWebDir)));
+    Connection connection = ConnectionFactory.getConnection(
+        new ClosingProtocolHandler(fileHandler));
+    connection.connect(socket);
+    String webUrl = "http://127.0.0.1:" + socket.getLocalPort() + "/";
+
+    StringBuilder results = new StringBuilder();
+    results.append(RESULT_HEADER).append('\n');
+    try {
+      for (int i = 0; i < modeArr.length; i++) {
+        results.append(benchmark.runCrawler(modeArr[i], webUrl));
+      }
+    }
+    finally {
+      socket.close();
+    }
+
+    RegainToolkit.writeToFile(results.toString(), resultFile);
+    System.out.println("Results written to: " + resultFile.getAbsolutePath());
+
+    // The simpleweb threads keep running, so we have to exit explicitly
+    System.exit(0);
+  }
+
+
+  /**
+   * Writes the corpus. An existing corpus and index are deleted.
+   *
+   * @throws RegainException If writing failed.
+   */
+  private void createCorpus() throws RegainException {
+    mWebDir = new File(mWorkDir, "web");
+    mFileDir = new File(mWorkDir, "files");
+    mIndexDir = new File(mWorkDir, "searchindex");
+    RegainToolkit.deleteDirectory(mWorkDir);
+
+    long startTime = System.currentTimeMillis();
+    CorpusGenerator generator = new CorpusGenerator(mSeed);
+    generator.setSizeFactor(mSizeFactor);
+    File[] webFileArr = generator.writeCorpus(mWebDir, mDocCount, mAttachmentCount);
+    if (! mFileDir.mkdirs()) {
+      throw new RegainException("Creating corpus directory failed: "
+          + mFileDir.getAbsolutePath());
+    }
+    for (int i = 0; i < mFileCount; i++) {
+      generator.writeAttachment(new File(mFileDir, CorpusGenerator.getAttachmentName(i)));
+    }
+
+    System.out.println("Wrote corpus of " + webFileArr.length + " web documents ("
+        + RegainToolkit.bytesToString(getSize(mWebDir)) + ") and " + mFileCount
+        + " files (" + RegainToolkit.bytesToString(getSize(mFileDir)) + ") in "
+        + RegainToolkit.toTimeString(System.currentTimeMillis() - startTime));
+  }
+
+
+  /**
+   * Changes some documents of the corpus, so an update has something to do.
+   *
+   * @throws RegainException If writing failed.
+   */
+  private void changeCorpus() throws RegainException {
+    CorpusGenerator generator = new CorpusGenerator(mSeed + mRunCount);
+    generator.setSizeFactor(mSizeFactor);
+
+    // Change every n-th document, starting at a different document each run
+    int step = (int) Math.max(1, Math.round(1 / mChangedFraction));
+    for (int i = mRunCount % step; i < mDocCount; i += step) {
+      File file = new File(mWebDir, CorpusGenerator.getDocumentName(i));
+      RegainToolkit.writeToFile(generator.createHtmlDocument(i, mDocCount), file);
+    }
+    for (int i = mRunCount % step; i < mFileCount; i += step) {
+      generator.writeAttachment(new File(mFileDir, CorpusGenerator.getAttachmentName(i)));
+    }
+  }
+
+
+  /**
+   * Runs the crawler and gets its statistics.
+   *
+   * @param mode The mode: <code>new</code> for creating a new index or
+   *        <code>update</code> for updating the index.
+   * @param webUrl The URL of the web part.
+   * @return The lines of the result file.
+   * @throws RegainException If the crawler could not be created.
+   */
+  private String runCrawler(String mode, String webUrl) throws RegainException {
+    boolean updateIndex = mode.equals("update");
+    if (updateIndex) {
+      changeCorpus();
+    }
+    mRunCount++;
+
+    System.gc();
+    List<MemoryPoolMXBean> poolList = ManagementFactory.getMemoryPoolMXBeans();
+    for (Iterator<MemoryPoolMXBean> iter = poolList.iterator(); iter.hasNext();) {
+      iter.next().resetPeakUsage();
+    }
+
+    long startTime = System.nanoTime();
+    Crawler crawler = new Crawler(new CrawlConfig(webUrl, mFileDir, mIndexDir),
+        new Properties());
+    crawler.run(updateIndex, false, null);
+    long wallNanos = System.nanoTime() - startTime;
+
+    long heapPeak = 0;
+    for (Iterator<MemoryPoolMXBean> iter = poolList.iterator(); iter.hasNext();) {
+      MemoryPoolMXBean pool = iter.next();
+      if (pool.getType() == MemoryType.HEAP) {
+        heapPeak += pool.getPeakUsage().getUsed();
+      }
+    }
+    File newIndexDir = new File(mIndexDir, "new");
+    long indexSize = getSize(newIndexDir.exists() ? newIndexDir : new File(mIndexDir, "index"));
+
+    String runColumns = String.format(Locale.ENGLISH, "\t%d\t%d\t%d",
+        wallNanos / 1000000, heapPeak, indexSize);
+    StringBuilder lines = new StringBuilder();
+    int jobCount = crawler.getFinishedJobCount();
+    long jobBytes = 0;
+    List<Profiler> profilerList = Profiler.getRegisteredProfilers();
+    for (Iterator<Profiler> iter = profilerList.iterator(); iter.hasNext();) {
+      Profiler profiler = iter.next();
+      if (profiler.getName().equals("Whole crawler jobs")) {
+        jobBytes = profiler.getTotalBytes();
+      }
+      if (profiler.wasUsed()) {
+        lines.append(createLine(mode, profiler.getName(), profiler.getUnit(),
+            profiler.getMeasureCount(), profiler.getAbortedMeasureCount(),
+            profiler.getTotalNanos(), profiler.getTotalBytes()));
+        lines.append(runColumns).append('\n');
+      }
+    }
+    lines.append(createLine(mode, TOTAL_STAGE, "jobs", jobCount, crawler.getErrorCount(),
+        wallNanos, jobBytes));
+    lines.append(runColumns).append('\n');
+
+    System.out.println(String.format(Locale.ENGLISH,
+        "%s: %d jobs, %d errors in %s (%.1f jobs/s, %s/s), heap peak %s, index %s",
+        mode, jobCount, crawler.getErrorCount(), RegainToolkit.toTimeString(wallNanos / 1000000),
+        jobCount * 1e9 / wallNanos, RegainToolkit.bytesToString((long) (jobBytes * 1e9 / wallNanos)),
+        RegainToolkit.bytesToString(heapPeak), RegainToolkit.bytesToString(indexSize)));
+    return lines.toString();
+  }
+
+
+  /**
+   * Creates the columns of a result line that describe a stage.
+   *
+   * @param mode The mode of the crawler run.
+   * @param stage The name of the stage.
+   * @param unit The unit of the stage.
+   * @param count The number of measures.
+   * @param abortedCount The number of aborted measures.
+   * @param nanos The time spent in the stage (in nanoseconds).
+   * @param bytes The number of bytes processed by the stage.
+   * @return The columns.
+   */
+  private static String createLine(String mode, String stage, String unit,
+    int count, int abortedCount, long nanos, long bytes)
+  {
+    double seconds = Math.max(nanos, 1) / 1e9;
+    return String.format(Locale.ENGLISH, "%s\t%s\t%s\t%d\t%d\t%d\t%.2f\t%.0f",
+        mode, stage, unit, count, abortedCount, nanos / 1000000,
+        count / seconds, bytes / seconds);
+  }
+
+
+  /**
+   * Gets the size of all files in a directory.
+   *
+   * @param dir The directory.
+   * @return The size in bytes. Is 0 if the directory does not exist.
+   */
+  private static long getSize(File dir) {
+    long size = 0;
+    File[] fileArr = dir.listFiles();
+    if (fileArr != null) {
+      for (int i = 0; i < fileArr.length; i++) {
+        size += fileArr[i].isDirectory() ? getSize(fileArr[i]) : fileArr[i].length();
+      }
+    }
+    return size;
+  }
+
+
+  /**
+   * Prints the usage and exits.
+   *
+   * @param message The error message.
+   */
+  private static void usage(String message) {
+    System.out.println(message);
+    System.out.println("Usage: [-docs n] [-attachments n] [-files n] [-size factor] "
+        + "[-changed fraction] [-modes new,update] [-seed seed] [-workdir dir] "
+        + "[-results file]");
+    System.exit(1);
+  }
+
+
+  /**
+   * Serves every request on its own connection.
+   * <p>
+   * Simpleweb notices a request on an idle keep-alive connection only after a
+   * poll delay of some hundred milliseconds. This delay would dominate the
+   * measured HTTP loading, so the connection is closed after each response.
+   */
+  private static class ClosingProtocolHandler implements ProtocolHandler {
+
+    /** The handler serving the requests. */
+    private ProtocolHandler mNestedHandler;
+
+
+    /**
+     * Creates a new instance of ClosingProtocolHandler.
+     *
+     * @param nestedHandler The handler serving the requests.
+     */
+    public ClosingProtocolHandler(ProtocolHandler nestedHandler) {
+      mNestedHandler = nestedHandler;
+    }
+
+
+    /**
+     * Serves a request and closes the connection afterwards.
+     *
+     * @param req The request.
+     * @param resp The response.
+     */
+    public void handle(Request req, Response resp) {
+      resp.set("Connection", "close");
+      mNestedHandler.handle(req, resp);
+    }
+
+  }
+
+
+  /**
+   * The crawler configuration of the benchmark: Crawls the web part from the
+   * embedded server and the file part from the file system without any delays.
+   */
+  private static class CrawlConfig extends BenchmarkCrawlerConfig {
+
+    /** The URL of the web part. */
+    private String mWebUrl;
+
+    /** The URL of the file part. */
+    private String mFileUrl;
+
+    /** The directory of the search index. */
+    private File mIndexDir;
+
+
+    /**
+     * Creates a new instance of CrawlConfig.
+     *
+     * @param webUrl The URL of the web part.
+     * @param fileDir The directory of the file part.
+     * @param indexDir The directory of the search index.
+     * @throws RegainException If the URL of the file part could not be created.
+     */
+    public CrawlConfig(String webUrl, File fileDir, File indexDir)
+      throws RegainException
+    {
+      mWebUrl = webUrl;
+      mFileUrl = RegainToolkit.fileToUrl(fileDir);
+      if (! mFileUrl.endsWith("/")) {
+        mFileUrl += "/";
+      }
+      mIndexDir = indexDir;
+    }
+
+
+    @Override
+    public String getIndexDir() {
+      return mIndexDir.getAbsolutePath();
+    }
+
+
+    @Override
+    public StartUrl[] getStartUrls() {
+      return new StartUrl[] {
+        new StartUrl(mWebUrl + CorpusGenerator.getDocumentName(0), true, true),
+        new StartUrl(mFileUrl, true, false)
+      };
+    }
+
+
+    @Override
+    public WhiteListEntry[] getWhiteList() {
+      return new WhiteListEntry[] {
+        new WhiteListEntry(new PrefixUrlMatcher(mWebUrl, true, true), null),
+        new WhiteListEntry(new PrefixUrlMatcher(mFileUrl, true, true), null)
+      };
+    }
+
+
+    @Override
+    public UrlPattern[] getHtmlParserUrlPatterns() {
+      // Use the links found by the HTML preparator
+      return new UrlPattern[0];
+    }
+
+
+    @Override
+    public int getMaxHostDelay() {
+      return 0;
+    }
+
+  }
+
+}
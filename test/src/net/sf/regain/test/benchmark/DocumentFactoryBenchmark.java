@@ -0,0 +1,133 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.ErrorLogger;
+import net.sf.regain.crawler.document.DocumentFactory;
+import net.sf.regain.crawler.document.RawDocument;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.document.Document;
+
+/**
+ * Benchmarks {@link DocumentFactory#createDocument(RawDocument, ErrorLogger)}
+ * on the documents of the synthetic corpus: The detection of the mime-type,
+ * the preparation and the creation of the lucene document.
+ * <p>
+ * The preparators are loaded from the directory <code>preparator</code>, so
+ * this benchmark must run in the crawler runtime directory (like the
+ * <code>benchmark</code> target of the ant build does).
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class DocumentFactoryBenchmark extends Benchmark implements ErrorLogger {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(DocumentFactoryBenchmark.class);
+
+  /** The number of documents. */
+  private static final int DOCUMENT_COUNT = 200;
+
+  /** The factory to benchmark. */
+  private DocumentFactory mFactory;
+
+  /** The URLs of the documents. */
+  private String[] mUrlArr;
+
+  /** The index of the next document. */
+  private int mUrlIndex;
+
+
+  /**
+   * Creates a new instance of DocumentFactoryBenchmark.
+   */
+  public DocumentFactoryBenchmark() {
+    super("DocumentFactory.createDocument");
+  }
+
+
+  /**
+   * Writes the corpus and creates the document factory.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If writing the corpus or loading the preparators failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    File[] fileArr = new CorpusGenerator().writeCorpus(new File(workDir, "corpus"),
+        DOCUMENT_COUNT);
+    mUrlArr = new String[fileArr.length];
+    for (int i = 0; i < fileArr.length; i++) {
+      mUrlArr[i] = RegainToolkit.fileToUrl(fileArr[i]);
+    }
+
+    mFactory = new DocumentFactory(new BenchmarkCrawlerConfig(), null);
+  }
+
+
+  /**
+   * Creates the lucene document of the next document.
+   *
+   * @return The number of fields of the lucene document.
+   * @throws Exception If loading the document failed.
+   */
+  @Override
+  public int runOperation() throws Exception {
+    String url = mUrlArr[mUrlIndex];
+    mUrlIndex = (mUrlIndex + 1) % mUrlArr.length;
+
+    RawDocument rawDocument = new RawDocument(url, null, null, null);
+    try {
+      Document doc = mFactory.createDocument(rawDocument, this);
+      return (doc == null) ? 0 : doc.getFields().size();
+    }
+    finally {
+      rawDocument.dispose();
+    }
+  }
+
+
+  /**
+   * Closes the document factory.
+   */
+  @Override
+  public void tearDown() {
+    if (mFactory != null) {
+      mFactory.close();
+    }
+  }
+
+
+  /**
+   * Logs an error of the document factory.
+   *
+   * @param msg The error message.
+   * @param thr The error.
+   * @param fatal Whether the error was fatal.
+   */
+  public void logError(String msg, Throwable thr, boolean fatal) {
+    mLog.error(msg, thr);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.config.PreparatorConfig;
+import net.sf.regain.crawler.document.RawDocument;
+import net.sf.regain.crawler.preparator.HtmlPreparator;
+
+/**
+ * Benchmarks {@link HtmlPreparator#prepare(RawDocument)} on the documents of
+ * the synthetic corpus. The documents are read from files, like the crawler
+ * does for file URLs.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class HtmlPreparatorBenchmark extends Benchmark {
+
+  /** The number of documents. */
+  private static final int DOCUMENT_COUNT = 200;
+
+  /** The preparator to benchmark. */
+  private HtmlPreparator mPreparator;
+
+  /** The URLs of the documents. */
+  private String[] mUrlArr;
+
+  /** The index of the next document. */
+  private int mUrlIndex;
+
+
+  /**
+   * Creates a new instance of HtmlPreparatorBenchmark.
+   */
+  public HtmlPreparatorBenchmark() {
+    super("HtmlPreparator.prepare");
+  }
+
+
+  /**
+   * Writes the corpus and creates the preparator.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If writing the corpus or creating the preparator failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    File[] fileArr = new CorpusGenerator().writeCorpus(new File(workDir, "corpus"),
+        DOCUMENT_COUNT);
+    mUrlArr = new String[fileArr.length];
+    for (int i = 0; i < fileArr.length; i++) {
+      mUrlArr[i] = RegainToolkit.fileToUrl(fileArr[i]);
+    }
+
+    mPreparator = new HtmlPreparator();
+    mPreparator.init(new PreparatorConfig());
+  }
+
+
+  /**
+   * Prepares the next document.
+   *
+   * @return The length of the cleaned content.
+   * @throws Exception If preparing failed.
+   */
+  @Override
+  public int runOperation() throws Exception {
+    String url = mUrlArr[mUrlIndex];
+    mUrlIndex = (mUrlIndex + 1) % mUrlArr.length;
+
+    RawDocument rawDocument = new RawDocument(url, null, null, null);
+    try {
+      mPreparator.prepare(rawDocument);
+      return mPreparator.getCleanedContent().length();
+    }
+    finally {
+      mPreparator.cleanUp();
+      rawDocument.dispose();
+    }
+  }
+
+
+  /**
+   * Closes the preparator.
+   *
+   * @throws Exception If closing failed.
+   */
+  @Override
+  public void tearDown() throws Exception {
+    mPreparator.close();
+  }
+
+}
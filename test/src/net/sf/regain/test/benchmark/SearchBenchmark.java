@@ -0,0 +1,348 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+
+import net.sf.regain.RegainException;
+import net.sf.regain.RegainToolkit;
+import net.sf.regain.crawler.ErrorLogger;
+import net.sf.regain.crawler.config.CrawlerConfig;
+import net.sf.regain.crawler.document.DocumentFactory;
+import net.sf.regain.crawler.document.RawDocument;
+import net.sf.regain.search.IndexSearcherManager;
+import net.sf.regain.search.config.IndexConfig;
+import net.sf.regain.search.results.SearchResultsImpl;
+import net.sf.regain.util.sharedtag.PageRequest;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+
+/**
+ * Benchmarks searching with {@link SearchResultsImpl} over an index of the
+ * synthetic corpus. The index is built once in the set up, using the
+ * {@link DocumentFactory} like the crawler does.
+ * <p>
+ * Like {@link DocumentFactoryBenchmark} this benchmark must run in the crawler
+ * runtime directory.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class SearchBenchmark extends Benchmark implements ErrorLogger {
+
+  /** The logger for this class */
+  private static Logger mLog = Logger.getLogger(SearchBenchmark.class);
+
+  /** The number of documents in the index. */
+  private static final int DOCUMENT_COUNT = 1000;
+
+  /** The number of queries. */
+  private static final int QUERY_COUNT = 200;
+
+  /** The number of hits that are highlighted (like on the first result page). */
+  private static final int HIGHLIGHT_COUNT = 10;
+
+  /** Specifies whether the hits should be highlighted. */
+  private boolean mHighlight;
+
+  /** The configuration of the index. */
+  private IndexConfig[] mIndexConfigArr;
+
+  /** The queries. */
+  private String[] mQueryArr;
+
+  /** The index of the next query. */
+  private int mQueryIndex;
+
+
+  /**
+   * Creates a new instance of SearchBenchmark.
+   *
+   * @param highlight Specifies whether the first hits should be highlighted.
+   */
+  public SearchBenchmark(boolean highlight) {
+    super(highlight ? "SearchResults.highlight" : "SearchResults.search");
+    mHighlight = highlight;
+  }
+
+
+  /**
+   * Builds the index and creates the queries.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If building the index failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    File indexDir = new File(workDir, "searchindex");
+    File workingIndexDir = new File(indexDir, "index");
+    if (! workingIndexDir.exists()) {
+      createIndex(new File(workDir, "corpus"), workingIndexDir);
+    }
+
+    mIndexConfigArr = new IndexConfig[] {
+      new IndexConfig("benchmark", indexDir.getAbsolutePath(), null, false,
+          new String[] { "content", "title", "headlines" }, null, null, null,
+          null, true, null, false, null)
+    };
+
+    // Search for one or two words, so most queries have hits
+    CorpusGenerator generator = new CorpusGenerator(CorpusGenerator.DEFAULT_SEED + 1);
+    mQueryArr = new String[QUERY_COUNT];
+    for (int i = 0; i < mQueryArr.length; i++) {
+      mQueryArr[i] = generator.nextWord();
+      if (i % 2 == 0) {
+        mQueryArr[i] += " " + generator.nextWord();
+      }
+    }
+  }
+
+
+  /**
+   * Builds the index of the synthetic corpus. Writes the same files as the
+   * crawler, so the index can be opened by the {@link IndexSearcherManager}.
+   *
+   * @param corpusDir The directory where to write the corpus.
+   * @param workingIndexDir The directory of the index.
+   * @throws Exception If building the index failed.
+   */
+  private void createIndex(File corpusDir, File workingIndexDir) throws Exception {
+    File[] fileArr = new CorpusGenerator().writeCorpus(corpusDir, DOCUMENT_COUNT);
+
+    CrawlerConfig config = new BenchmarkCrawlerConfig();
+    File tmpIndexDir = new File(workingIndexDir.getParentFile(), "temp");
+    RegainToolkit.deleteDirectory(tmpIndexDir);
+    if (! tmpIndexDir.mkdirs()) {
+      throw new RegainException("Creating index directory failed: "
+          + tmpIndexDir.getAbsolutePath());
+    }
+    RegainToolkit.writeToFile(config.getAnalyzerType(),
+        new File(tmpIndexDir, "analyzerType.txt"));
+    RegainToolkit.writeListToFile(config.getStopWordList(),
+        new File(tmpIndexDir, "stopWordList.txt"));
+    RegainToolkit.writeListToFile(config.getExclusionList(),
+        new File(tmpIndexDir, "exclusionList.txt"));
+
+    Analyzer analyzer = RegainToolkit.createAnalyzer(config.getAnalyzerType(),
+        config.getStopWordList(), config.getExclusionList(),
+        config.getUntokenizedFieldNames());
+    DocumentFactory factory = new DocumentFactory(config, null);
+    IndexWriter writer = null;
+    try {
+      IndexWriterConfig writerConfig = new IndexWriterConfig(RegainToolkit.getLuceneVersion(), analyzer);
+      writerConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+      writer = new IndexWriter(FSDirectory.open(tmpIndexDir), writerConfig);
+      for (int i = 0; i < fileArr.length; i++) {
+        RawDocument rawDocument = new RawDocument(RegainToolkit.fileToUrl(fileArr[i]),
+            null, null, null);
+        Document doc = factory.createDocument(rawDocument, this);
+        rawDocument.dispose();
+        if (doc != null) {
+          writer.addDocument(doc);
+        }
+      }
+      writer.close();
+      writer = null;
+    }
+    finally {
+      factory.close();
+      if (writer != null) {
+        try { writer.close(); } catch (IOException exc) {}
+      }
+    }
+
+    if (! tmpIndexDir.renameTo(workingIndexDir)) {
+      throw new RegainException("Renaming index directory failed: "
+          + tmpIndexDir.getAbsolutePath());
+    }
+  }
+
+
+  /**
+   * Searches the next query and highlights the first hits if wanted.
+   *
+   * @return The number of hits.
+   * @throws Exception If searching failed.
+   */
+  @Override
+  public int runOperation() throws Exception {
+    String query = mQueryArr[mQueryIndex];
+    mQueryIndex = (mQueryIndex + 1) % mQueryArr.length;
+
+    BenchmarkPageRequest request = new BenchmarkPageRequest(query);
+    try {
+      SearchResultsImpl results = new SearchResultsImpl(mIndexConfigArr, request);
+      if (mHighlight) {
+        int count = Math.min(results.getHitCount(), HIGHLIGHT_COUNT);
+        for (int i = 0; i < count; i++) {
+          results.highlightHitDocument(i);
+        }
+      }
+      return results.getHitCount();
+    }
+    finally {
+      request.closeRequestResources();
+    }
+  }
+
+
+  /**
+   * Closes the searchers of the index.
+   *
+   * @throws Exception If closing failed.
+   */
+  @Override
+  public void tearDown() throws Exception {
+    IndexSearcherManager.closeAll();
+  }
+
+
+  /**
+   * Logs an error of the document factory.
+   *
+   * @param msg The error message.
+   * @param thr The error.
+   * @param fatal Whether the error was fatal.
+   */
+  public void logError(String msg, Throwable thr, boolean fatal) {
+    mLog.error(msg, thr);
+  }
+
+
+  /**
+   * A page request that only has a query.
+   */
+  private static class BenchmarkPageRequest extends PageRequest {
+
+    /** The parameters. */
+    private HashMap<String, String> mParameterHash = new HashMap<String, String>();
+
+    /** The attributes of the context and the session. */
+    private HashMap<String, Object> mAttributeHash = new HashMap<String, Object>();
+
+
+    /**
+     * Creates a new instance of BenchmarkPageRequest.
+     *
+     * @param query The query.
+     */
+    public BenchmarkPageRequest(String query) {
+      mParameterHash.put("query", query);
+    }
+
+
+    @Override
+    public String getParameter(String name) {
+      return mParameterHash.get(name);
+    }
+
+
+    @Override
+    public String[] getParameters(String name) {
+      String value = mParameterHash.get(name);
+      return (value == null) ? null : new String[] { value };
+    }
+
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+      return Collections.enumeration(mParameterHash.keySet());
+    }
+
+
+    @Override
+    public String getHeader(String name) {
+      return null;
+    }
+
+
+    @Override
+    public long getHeaderAsDate(String name) {
+      return -1;
+    }
+
+
+    @Override
+    public Locale getLocale() {
+      return Locale.ENGLISH;
+    }
+
+
+    @Override
+    public void setContextAttribute(String name, Object value) {
+      mAttributeHash.put(name, value);
+    }
+
+
+    @Override
+    public Object getContextAttribute(String name) {
+      return mAttributeHash.get(name);
+    }
+
+
+    @Override
+    public void setSessionAttribute(String name, Object value) {
+      mAttributeHash.put(name, value);
+    }
+
+
+    @Override
+    public Object getSessionAttribute(String name) {
+      return mAttributeHash.get(name);
+    }
+
+
+    @Override
+    public String getInitParameter(String name) {
+      return null;
+    }
+
+
+    @Override
+    public URL getResourceBaseUrl() throws RegainException {
+      try {
+        return getWorkingDir().toURI().toURL();
+      }
+      catch (MalformedURLException exc) {
+        throw new RegainException("Creating resource base URL failed", exc);
+      }
+    }
+
+
+    @Override
+    public File getWorkingDir() {
+      return new File(".").getAbsoluteFile();
+    }
+
+  }
+
+}
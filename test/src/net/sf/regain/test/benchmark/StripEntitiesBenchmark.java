@@ -0,0 +1,81 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+import net.sf.regain.crawler.preparator.util.StripEntities;
+
+/**
+ * Benchmarks {@link StripEntities#stripHTMLTags(String)} and
+ * {@link StripEntities#stripEntities(String)} on the documents of the
+ * synthetic corpus.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class StripEntitiesBenchmark extends Benchmark {
+
+  /** The number of documents. */
+  private static final int DOCUMENT_COUNT = 200;
+
+  /** The HTML documents. */
+  private String[] mHtmlArr;
+
+  /** The index of the next document. */
+  private int mHtmlIndex;
+
+
+  /**
+   * Creates a new instance of StripEntitiesBenchmark.
+   */
+  public StripEntitiesBenchmark() {
+    super("StripEntities.strip");
+  }
+
+
+  /**
+   * Creates the documents.
+   *
+   * @param workDir The work directory.
+   */
+  @Override
+  public void setUp(File workDir) {
+    CorpusGenerator generator = new CorpusGenerator();
+    mHtmlArr = new String[DOCUMENT_COUNT];
+    for (int i = 0; i < mHtmlArr.length; i++) {
+      mHtmlArr[i] = generator.createHtmlDocument(i, DOCUMENT_COUNT);
+    }
+  }
+
+
+  /**
+   * Strips the tags and the entities of the next document.
+   *
+   * @return The length of the stripped text.
+   */
+  @Override
+  public int runOperation() {
+    String html = mHtmlArr[mHtmlIndex];
+    mHtmlIndex = (mHtmlIndex + 1) % mHtmlArr.length;
+    return StripEntities.stripEntities(StripEntities.stripHTMLTags(html)).length();
+  }
+
+}
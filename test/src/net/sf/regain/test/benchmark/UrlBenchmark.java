@@ -0,0 +1,128 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+import net.sf.regain.crawler.CrawlerToolkit;
+import net.sf.regain.crawler.UrlNormalizer;
+
+/**
+ * Benchmarks the URL handling of the crawler: Cleaning and normalizing the
+ * URLs and making links absolute.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class UrlBenchmark extends Benchmark {
+
+  /** The operation for {@link CrawlerToolkit#cleanURL(String, String[])}. */
+  public static final int CLEAN_URL = 0;
+
+  /** The operation for {@link UrlNormalizer#normalize(String)}. */
+  public static final int NORMALIZE = 1;
+
+  /** The operation for {@link CrawlerToolkit#toAbsoluteUrl(String, String)}. */
+  public static final int TO_ABSOLUTE_URL = 2;
+
+  /** The names of the operations. */
+  private static final String[] OPERATION_NAMES = {
+    "CrawlerToolkit.cleanURL", "UrlNormalizer.normalize",
+    "CrawlerToolkit.toAbsoluteUrl"
+  };
+
+  /** The URL cleaners (like in the example configuration). */
+  private static final String[] URL_CLEANERS = {
+    "PHPSESSID=[0-9a-z]{5,}", "jsessionid=[0-9a-f]+"
+  };
+
+  /** The number of URLs in the pool. */
+  private static final int URL_COUNT = 10000;
+
+  /** The operation to benchmark. */
+  private int mOperation;
+
+  /** The normalizer to benchmark. */
+  private UrlNormalizer mNormalizer;
+
+  /** The URLs. */
+  private String[] mUrlArr;
+
+  /** The relative URLs. Is only used for {@link #TO_ABSOLUTE_URL}. */
+  private String[] mRelativeUrlArr;
+
+  /** The index of the next URL. */
+  private int mUrlIndex;
+
+
+  /**
+   * Creates a new instance of UrlBenchmark.
+   *
+   * @param operation The operation to benchmark. One of {@link #CLEAN_URL},
+   *        {@link #NORMALIZE} or {@link #TO_ABSOLUTE_URL}.
+   */
+  public UrlBenchmark(int operation) {
+    super(OPERATION_NAMES[operation]);
+    mOperation = operation;
+  }
+
+
+  /**
+   * Creates the test data.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If creating failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    mNormalizer = new UrlNormalizer(URL_CLEANERS);
+
+    CorpusGenerator generator = new CorpusGenerator();
+    mUrlArr = new String[URL_COUNT];
+    mRelativeUrlArr = new String[URL_COUNT];
+    for (int i = 0; i < mUrlArr.length; i++) {
+      mUrlArr[i] = generator.createUrl();
+      mRelativeUrlArr[i] = generator.createRelativeUrl();
+    }
+  }
+
+
+  /**
+   * Runs the operation on the next URL of the pool.
+   *
+   * @return The length of the resulting URL.
+   */
+  @Override
+  public int runOperation() {
+    int index = mUrlIndex;
+    mUrlIndex = (mUrlIndex + 1) % mUrlArr.length;
+
+    String result;
+    if (mOperation == CLEAN_URL) {
+      result = CrawlerToolkit.cleanURL(mUrlArr[index], URL_CLEANERS);
+    } else if (mOperation == NORMALIZE) {
+      result = mNormalizer.normalize(mUrlArr[index]);
+    } else {
+      result = CrawlerToolkit.toAbsoluteUrl(mRelativeUrlArr[index], mUrlArr[index]);
+    }
+    return result.length();
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * regain - A file search engine providing plenty of formats
+ * Copyright (C) 2004  Til Schneider
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * Contact: Til Schneider, info@murfman.de
+ */
+package net.sf.regain.test.benchmark;
+
+import java.io.File;
+
+import net.sf.regain.crawler.UrlChecker;
+import net.sf.regain.crawler.config.PrefixUrlMatcher;
+import net.sf.regain.crawler.config.RegexUrlMatcher;
+import net.sf.regain.crawler.config.UrlMatcher;
+import net.sf.regain.crawler.config.WhiteListEntry;
+
+/**
+ * Benchmarks {@link UrlChecker#isUrlAccepted(String)} with a white and a black
+ * list like the ones of the example configuration.
+ * <p>
+ * The URLs are taken from a pool that is much larger than the verdict cache
+ * of the UrlChecker, so the matching is measured and not the cache.
+ *
+ * @author Til Schneider, www.murfman.de
+ */
+public class UrlCheckerBenchmark extends Benchmark {
+
+  /** The number of URLs in the pool. */
+  private static final int URL_COUNT = 50000;
+
+  /** The checker to benchmark. */
+  private UrlChecker mChecker;
+
+  /** The URLs to check. */
+  private String[] mUrlArr;
+
+  /** The index of the next URL to check. */
+  private int mUrlIndex;
+
+
+  /**
+   * Creates a new instance of UrlCheckerBenchmark.
+   */
+  public UrlCheckerBenchmark() {
+    super("UrlChecker.isUrlAccepted");
+  }
+
+
+  /**
+   * Creates the test data.
+   *
+   * @param workDir The work directory.
+   * @throws Exception If creating failed.
+   */
+  @Override
+  public void setUp(File workDir) throws Exception {
+    WhiteListEntry[] whiteList = new WhiteListEntry[] {
+      new WhiteListEntry(new RegexUrlMatcher("https?://www\\.example\\.com/.*\\.pdf", false, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("http://www.example.com/", true, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("https://www.example.com/", true, true), null),
+      new WhiteListEntry(new PrefixUrlMatcher("http://docs.example.com/", true, true), null),
+      new WhiteListEntry(new RegexUrlMatcher("https?://[a-z]+\\.example\\.net/.*", true, false), null),
+      new WhiteListEntry(new PrefixUrlMatcher("file:///home/", true, true), null)
+    };
+    UrlMatcher[] blackList = new UrlMatcher[] {
+      new PrefixUrlMatcher("http://www.example.com/private/", false, false),
+      new PrefixUrlMatcher("http://archive.example.com/", false, false),
+      new RegexUrlMatcher(".*\\?id=[0-9]*7$", false, false),
+      new RegexUrlMatcher(".*\\.(gif|jpg|png|css|js)$", false, false)
+    };
+    mChecker = new UrlChecker(whiteList, blackList);
+
+    CorpusGenerator generator = new CorpusGenerator();
+    mUrlArr = new String[URL_COUNT];
+    for (int i = 0; i < mUrlArr.length; i++) {
+      mUrlArr[i] = generator.createUrl();
+    }
+  }
+
+
+  /**
+   * Checks the next URL of the pool.
+   *
+   * @return 1 if the URL should be parsed, 0 otherwise.
+   */
+  @Override
+  public int runOperation() {
+    String url = mUrlArr[mUrlIndex];
+    mUrlIndex = (mUrlIndex + 1) % mUrlArr.length;
+    return mChecker.isUrlAccepted(url).getShouldBeParsed() ? 1 : 0;
+  }
+
+
+  /**
+   * Closes the UrlChecker.
+   */
+  @Override
+  public void tearDown() {
+    mChecker.close();
+  }
+
+}
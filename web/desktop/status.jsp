@@ -35,6 +35,9 @@
       <h4><search:msg key="runningIndexUpdate"/></h4>
       <p><status:indexupdate/></p>
 
+      <h4><search:msg key="preparators"/></h4>
+      <p><status:preparators/></p>
+
       <h4><search:msg key="timing"/></h4>
       <pre><status:profiler/></pre>
 
@@ -0,0 +1 @@
+<%@page contentType="application/json; charset=UTF-8" pageEncoding="UTF-8" %><search:contenttype contentType="application/json; charset=UTF-8"/><status:preparators format="json"/>
\ No newline at end of file